@@ -216,7 +216,8 @@ CREATE TABLE Assessments(
   CONSTRAINT assessments_borrower_fk FOREIGN KEY (borrower) REFERENCES Borrowers (id),
   CONSTRAINT assessments_status_fk FOREIGN KEY (status) REFERENCES AssessmentStatuses (id),
   CONSTRAINT assessments_rating_fk FOREIGN KEY (rating) REFERENCES Ratings (id),
-  CONSTRAINT assessments_reference_ak UNIQUE (reference)
+  CONSTRAINT assessments_reference_ak UNIQUE (reference),
+  INDEX assessments_borrower_registered_idx (borrower, registered, id)
 );
 
 -- The AssessmentFiles table
@@ -375,13 +376,19 @@ CREATE TABLE Loans(
   amortization int NOT NULL,
   frequency int NOT NULL,
   start_date date,
+  principal_paid numeric(19,4) NOT NULL DEFAULT 0,
+  balance numeric(19,4) NOT NULL,
+  next_payment_amount numeric(19,4) NOT NULL DEFAULT 0,
+  next_payment_interest numeric(19,4) NOT NULL DEFAULT 0,
+  next_payment_due date,
   CONSTRAINT loans_id_pk PRIMARY KEY (id),
   CONSTRAINT loans_borrower_fk FOREIGN KEY (borrower) REFERENCES Borrowers (id),
   CONSTRAINT loans_bank_fk FOREIGN KEY (bank) REFERENCES BankConnections (id),
   CONSTRAINT loans_rating_fk FOREIGN KEY (rating) REFERENCES Ratings (id),
   CONSTRAINT loans_amortization_fk FOREIGN KEY (amortization) REFERENCES LoanAmortizations (id),
   CONSTRAINT loans_frequency_fk FOREIGN KEY (frequency) REFERENCES LoanFrequencies (id),
-  CONSTRAINT loans_reference_ak UNIQUE (reference)
+  CONSTRAINT loans_reference_ak UNIQUE (reference),
+  INDEX loans_borrower_created_idx (borrower, created, id)
 );
 
 -- The InvestmentBuckets table
@@ -608,6 +615,41 @@ CREATE TABLE Transactions(
   CONSTRAINT transactions_reference_ak UNIQUE (reference)
 );
 
+-- The Transactions triggers
+delimiter $
+CREATE TRIGGER transactions_loanpayment_paid AFTER INSERT ON Transactions
+FOR EACH ROW
+BEGIN
+  -- Keeps the balance and the next payment of the loan in step when one of its payments is paid
+  DECLARE paid_loan int DEFAULT NULL;
+  DECLARE paid_amount numeric(19,4);
+  DECLARE paid_interest numeric(19,4);
+
+  SELECT LoanPayments.loan, TransactionDetails.amount, LoanPayments.interest
+    INTO paid_loan, paid_amount, paid_interest
+    FROM LoanPayments
+    JOIN TransactionDetails ON TransactionDetails.id=LoanPayments.id
+    WHERE LoanPayments.id=NEW.item;
+
+  -- A payment is paid once, so only its first transaction moves the loan. The balance reads the
+  -- principal paid already updated, as MySQL sets the columns of one table left to right
+  IF paid_loan IS NOT NULL
+  THEN
+    UPDATE Loans
+      SET principal_paid=principal_paid+GREATEST(paid_amount-paid_interest,0),
+          balance=GREATEST(principal-principal_paid,0),
+          next_payment_amount=GREATEST(next_payment_amount-paid_amount,0),
+          next_payment_interest=GREATEST(next_payment_interest-paid_interest,0),
+          next_payment_due=(SELECT MAX(LoanPayments.due_date)
+                              FROM LoanPayments
+                              LEFT JOIN Transactions ON Transactions.item=LoanPayments.id
+                              WHERE LoanPayments.loan=paid_loan AND Transactions.id IS NULL)
+      WHERE id=paid_loan
+        AND NOT EXISTS (SELECT 1 FROM Transactions WHERE item=NEW.item AND id<>NEW.id);
+  END IF;
+END$
+delimiter ;
+
 -- ----------------------------------------------------------------
 -- INSERT DATA
 -- ----------------------------------------------------------------
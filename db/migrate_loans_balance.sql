@@ -0,0 +1,95 @@
+-- USE gncompass_core;
+
+-- ----------------------------------------------------------------
+-- Migrates an existing database to the loan balance and next payment
+-- kept on the Loans row. New databases get all of it from create.sql.
+--
+-- 1. Run the SCHEMA section before deploying the version that reads
+--    the columns. The balance has a default until then, so the loans
+--    the running version inserts are still accepted.
+-- 2. Run the BACKFILL section right after. It recomputes the columns
+--    of every loan from its payments and their transactions, so it can
+--    be run again at any time.
+-- 3. Once the new version serves all the traffic, run the BACKFILL
+--    section again, for the loans and payments the old version wrote
+--    meanwhile, then the FINALIZE section.
+-- ----------------------------------------------------------------
+
+-- ----------------------------------------------------------------
+-- SCHEMA
+-- ----------------------------------------------------------------
+
+ALTER TABLE Loans
+  ADD principal_paid numeric(19,4) NOT NULL DEFAULT 0,
+  ADD balance numeric(19,4) NOT NULL DEFAULT 0,
+  ADD next_payment_amount numeric(19,4) NOT NULL DEFAULT 0,
+  ADD next_payment_interest numeric(19,4) NOT NULL DEFAULT 0,
+  ADD next_payment_due date;
+
+-- The Transactions triggers
+delimiter $
+CREATE TRIGGER transactions_loanpayment_paid AFTER INSERT ON Transactions
+FOR EACH ROW
+BEGIN
+  -- Keeps the balance and the next payment of the loan in step when one of its payments is paid
+  DECLARE paid_loan int DEFAULT NULL;
+  DECLARE paid_amount numeric(19,4);
+  DECLARE paid_interest numeric(19,4);
+
+  SELECT LoanPayments.loan, TransactionDetails.amount, LoanPayments.interest
+    INTO paid_loan, paid_amount, paid_interest
+    FROM LoanPayments
+    JOIN TransactionDetails ON TransactionDetails.id=LoanPayments.id
+    WHERE LoanPayments.id=NEW.item;
+
+  -- A payment is paid once, so only its first transaction moves the loan. The balance reads the
+  -- principal paid already updated, as MySQL sets the columns of one table left to right
+  IF paid_loan IS NOT NULL
+  THEN
+    UPDATE Loans
+      SET principal_paid=principal_paid+GREATEST(paid_amount-paid_interest,0),
+          balance=GREATEST(principal-principal_paid,0),
+          next_payment_amount=GREATEST(next_payment_amount-paid_amount,0),
+          next_payment_interest=GREATEST(next_payment_interest-paid_interest,0),
+          next_payment_due=(SELECT MAX(LoanPayments.due_date)
+                              FROM LoanPayments
+                              LEFT JOIN Transactions ON Transactions.item=LoanPayments.id
+                              WHERE LoanPayments.loan=paid_loan AND Transactions.id IS NULL)
+      WHERE id=paid_loan
+        AND NOT EXISTS (SELECT 1 FROM Transactions WHERE item=NEW.item AND id<>NEW.id);
+  END IF;
+END$
+delimiter ;
+
+-- ----------------------------------------------------------------
+-- BACKFILL
+-- ----------------------------------------------------------------
+
+-- A payment is paid once a transaction holds it. The principal of a paid payment is its amount
+-- less its interest, and the next payment sums the unpaid ones, due at the last unpaid due date
+UPDATE Loans
+  LEFT JOIN (
+    SELECT LoanPayments.loan,
+           SUM(CASE WHEN Paid.item IS NOT NULL
+                    THEN GREATEST(TransactionDetails.amount-LoanPayments.interest,0)
+                    ELSE 0 END) AS principal_paid,
+           SUM(CASE WHEN Paid.item IS NULL THEN TransactionDetails.amount ELSE 0 END) AS amount_due,
+           SUM(CASE WHEN Paid.item IS NULL THEN LoanPayments.interest ELSE 0 END) AS interest_due,
+           MAX(CASE WHEN Paid.item IS NULL THEN LoanPayments.due_date END) AS due_date
+      FROM LoanPayments
+      JOIN TransactionDetails ON TransactionDetails.id=LoanPayments.id
+      LEFT JOIN (SELECT DISTINCT item FROM Transactions) AS Paid ON Paid.item=LoanPayments.id
+      GROUP BY LoanPayments.loan
+  ) AS Payments ON Payments.loan=Loans.id
+  SET Loans.principal_paid=COALESCE(Payments.principal_paid,0),
+      Loans.balance=GREATEST(Loans.principal-COALESCE(Payments.principal_paid,0),0),
+      Loans.next_payment_amount=COALESCE(Payments.amount_due,0),
+      Loans.next_payment_interest=COALESCE(Payments.interest_due,0),
+      Loans.next_payment_due=Payments.due_date;
+
+-- ----------------------------------------------------------------
+-- FINALIZE
+-- ----------------------------------------------------------------
+
+-- The balance is set on every insert from here on, as in create.sql
+ALTER TABLE Loans ALTER balance DROP DEFAULT;
@@ -1,13 +1,18 @@
 package com.gncompass.serverfront.api;
 
-import com.gncompass.serverfront.api.parser.BorrowerParser;
-import com.gncompass.serverfront.api.parser.GeneralParser;
+import com.gncompass.serverfront.api.auth.Session;
+import com.gncompass.serverfront.api.executer.AbstractExecuter;
+import com.gncompass.serverfront.api.parser.ParsedRequest;
+import com.gncompass.serverfront.api.parser.Router;
 import com.gncompass.serverfront.db.SQLManager;
-import com.gncompass.serverfront.util.HttpHelper;
+import com.gncompass.serverfront.db.model.AssessmentUploadUrls;
+import com.gncompass.serverfront.db.model.BorrowerCache;
+import com.gncompass.serverfront.db.model.LoanExposure;
+import com.gncompass.serverfront.db.model.ReferenceData;
+import com.gncompass.serverfront.db.model.SessionAccessTracker;
 import com.gncompass.serverfront.util.HttpHelper.RequestType;
 
 import java.io.IOException;
-import java.util.List;
 import java.util.Properties;
 
 import javax.servlet.http.HttpServlet;
@@ -18,10 +23,30 @@ import javax.servlet.ServletException;
 
 public class MainServlet extends HttpServlet {
 
+  @Override
+  public void destroy() {
+    Session.destroy();
+    SessionAccessTracker.destroy();
+    ReferenceData.destroy();
+    SQLManager.destroy();
+  }
+
   @Override
   public void init(ServletConfig config) throws ServletException {
     // General init of SQL system
     SQLManager.init();
+
+    // Preload the reference tables and start their refresh
+    ReferenceData.init();
+
+    // Limit the session caches and start their sweep, and the write-behind of accessed times
+    Session.init();
+    SessionAccessTracker.init();
+
+    // Limit the caches of the authenticated borrowers and their loan totals, and the upload URLs
+    BorrowerCache.init();
+    LoanExposure.init();
+    AssessmentUploadUrls.init();
   }
 
   @Override
@@ -71,21 +96,25 @@ public class MainServlet extends HttpServlet {
 
   public void parseRequest(RequestType type, HttpServletRequest request, HttpServletResponse response)
       throws ServletException, IOException {
-    List<String> pathChunks = HttpHelper.parseFullUrl(request);
-    if (pathChunks.size() > 0) {
-      String functionRoot = pathChunks.remove(0);
-      switch (functionRoot) {
-        case BorrowerParser.PATH_MAIN:
-          BorrowerParser.parseRequest(pathChunks, type, request, response);
-          break;
-        case "investors":
-          // TODO!
-          response.setStatus(HttpServletResponse.SC_NOT_IMPLEMENTED);
-          break;
-        default:
-          GeneralParser.parseRequest(functionRoot, pathChunks, type, request, response);
-          break;
-      }
+    // Opens, or joins, the request unit of work shared by all model calls. GET requests only
+    // read, so their connection is borrowed from the read replica if available
+    ParsedRequest parsedRequest = ParsedRequest.get(request);
+    SQLManager.beginRequest(type == RequestType.GET, parsedRequest.getUserReference());
+    try {
+      routeRequest(parsedRequest, request, response);
+    } finally {
+      SQLManager.endRequest();
+    }
+  }
+
+  private void routeRequest(ParsedRequest parsedRequest, HttpServletRequest request,
+                            HttpServletResponse response) throws ServletException, IOException {
+    Router.Route route = parsedRequest.getRoute();
+    if (route == Router.NOT_IMPLEMENTED) {
+      response.setStatus(HttpServletResponse.SC_NOT_IMPLEMENTED);
+    } else if (route != null) {
+      AbstractExecuter executer = parsedRequest.createExecuter();
+      executer.process(request, response);
     } else {
       response.setStatus(HttpServletResponse.SC_NOT_FOUND);
     }
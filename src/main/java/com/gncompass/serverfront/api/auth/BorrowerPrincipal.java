@@ -0,0 +1,125 @@
+package com.gncompass.serverfront.api.auth;
+
+import com.gncompass.serverfront.db.model.Borrower;
+import com.gncompass.serverfront.db.model.BorrowerCache;
+
+import java.util.UUID;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * The borrower a request was authenticated as. It is attached to the request by the borrower
+ * filter once the session is validated, so the executers don't fetch the borrower again. The
+ * borrower itself is only loaded when first used, from the borrower cache.
+ */
+public final class BorrowerPrincipal {
+  // The request attribute holding the principal
+  public static final String ATTRIBUTE = BorrowerPrincipal.class.getName();
+
+  // Internals
+  private Borrower mBorrower;
+  private boolean mBorrowerLoaded;
+  private final long mId;
+  private final UUID mReference;
+  private final String mReferenceString;
+
+  /**
+   * Constructor
+   * @param id the borrower user ID. Zero if not known
+   * @param reference the borrower reference. NULL if not authenticated
+   * @param referenceString the borrower reference of the request path
+   * @param borrower the borrower, if it was fetched while authenticating. NULL otherwise
+   */
+  private BorrowerPrincipal(long id, UUID reference, String referenceString, Borrower borrower) {
+    mBorrower = borrower;
+    mBorrowerLoaded = (borrower != null);
+    mId = id;
+    mReference = reference;
+    mReferenceString = referenceString;
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Returns the borrower. Loaded on first use, from the cache if authenticated and otherwise from
+   * the database
+   * @return the borrower, which must not be modified. NULL if not found
+   */
+  public Borrower getBorrower() {
+    if (!mBorrowerLoaded) {
+      mBorrower = (mReference != null ? BorrowerCache.get(mReference)
+                                      : new Borrower().getBorrower(mReferenceString));
+      mBorrowerLoaded = true;
+    }
+    return mBorrower;
+  }
+
+  /**
+   * Returns the borrower user ID, without loading the borrower if authenticated
+   * @return the user ID. Zero if the borrower was not found
+   */
+  public long getId() {
+    if (mId != 0) {
+      return mId;
+    }
+    Borrower borrower = getBorrower();
+    return (borrower != null ? borrower.mId : 0);
+  }
+
+  /**
+   * Returns the loan cap of the borrower
+   * @return the loan cap. Zero if none or if the borrower was not found
+   */
+  public float getLoanCap() {
+    Borrower borrower = getBorrower();
+    return (borrower != null ? borrower.mLoanCap : 0.0f);
+  }
+
+  /**
+   * Returns the borrower reference
+   * @return the reference as in the request path
+   */
+  public String getReference() {
+    return mReferenceString;
+  }
+
+  /*=============================================================
+   * STATIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Attaches the borrower of the validated session to the request. A borrower fetched along with
+   * the session is cached for the requests that follow
+   * @param request the authenticated request
+   * @param session the validated borrower session
+   */
+  public static void attach(HttpServletRequest request, Session session) {
+    Borrower borrower = null;
+    if (session.getUser() instanceof Borrower) {
+      borrower = (Borrower) session.getUser();
+      BorrowerCache.put(borrower);
+    }
+
+    UUID reference = session.getSessionCache().mReference;
+    request.setAttribute(ATTRIBUTE, new BorrowerPrincipal(session.getSessionCache().mId,
+                                                          reference, reference.toString(),
+                                                          borrower));
+  }
+
+  /**
+   * Returns the principal attached to the request. If the request did not go through the borrower
+   * filter, the borrower of the reference is fetched from the database on use instead
+   * @param request the request
+   * @param borrowerReference the borrower reference of the request path
+   * @return the borrower principal of the request
+   */
+  public static BorrowerPrincipal get(HttpServletRequest request, String borrowerReference) {
+    Object principal = request.getAttribute(ATTRIBUTE);
+    if (principal instanceof BorrowerPrincipal) {
+      return (BorrowerPrincipal) principal;
+    }
+    return new BorrowerPrincipal(0, null, borrowerReference, null);
+  }
+}
@@ -1,33 +1,58 @@
 package com.gncompass.serverfront.api.auth;
 
+import com.gncompass.serverfront.api.parser.ParsedRequest;
+import com.gncompass.serverfront.db.model.User;
 import com.gncompass.serverfront.db.model.User.UserType;
 import com.gncompass.serverfront.db.model.UserSession;
-import com.gncompass.serverfront.util.HttpHelper;
-import com.gncompass.serverfront.util.StringHelper;
+import com.gncompass.serverfront.util.StateHelper;
 import com.gncompass.serverfront.util.StringHelper.AccessKey;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
+import javax.json.Json;
+import javax.json.JsonObject;
 import javax.servlet.http.HttpServletRequest;
 
 public class Session {
   public static final String ACCESS_KEY = "access_key";
 
-  // Static list of all valid session key pairs (for either borrowers or investors)
-  private static Map<String, UserSession.Cache> sBorrowerSessions = new HashMap<>();
-  private static Map<String, UserSession.Cache> sInvestorSessions = new HashMap<>();
-  private static final Object sSessionLock = new Object();
+  // Max sessions cached per user type, before the least recently accessed are evicted
+  private static final String PROPERTY_CACHE_MAX = "session-cache-max";
+  private static final int CACHE_MAX = 10000;
+
+  // How often expired sessions are swept from the local caches
+  private static final String PROPERTY_SWEEP_MS = "session-sweep-ms";
+  private static final long SWEEP_MS = 60000L;
+
+  // How often a locally cached session is checked against the shared version of its user. This
+  // bounds how long a session revoked on another instance is still accepted here
+  private static final String PROPERTY_VERSION_CHECK_MS = "session-version-check-ms";
+  private static final long VERSION_CHECK_MS = 1000L;
+
+  // Static caches of all valid session key pairs (for either borrowers or investors), local to
+  // the instance, backed by the cache shared by all instances
+  private static final SessionCache sBorrowerSessions = new SessionCache(CACHE_MAX);
+  private static final SessionCache sInvestorSessions = new SessionCache(CACHE_MAX);
+  private static final SharedSessionCache sSharedSessions =
+      new SharedSessionCache((int) (UserSession.Cache.EXPIRATION_MS / 1000L));
+  private static volatile long sVersionCheckMs = VERSION_CHECK_MS;
+
+  // Created on init and stopped on destroy
+  private static ScheduledExecutorService sSweeper = null;
+  private static final Object sSweeperLock = new Object();
 
   // Internals
   private final String mAccessKey;
   private UserSession.Cache mSessionCache = null;
   private final UserType mType;
+  private User mUser = null;
 
   public Session(HttpServletRequest request, UserType type) {
-    mAccessKey = request.getHeader(ACCESS_KEY);
+    mAccessKey = ParsedRequest.get(request).getAccessKeyHeader();
     mType = type;
 
     if(mAccessKey != null) {
@@ -40,43 +65,61 @@ public class Session {
    *============================================================*/
 
   private void addSessionToCache() {
-    synchronized (sSessionLock) {
-      switch(mType) {
-        case BORROWER:
-          sBorrowerSessions.put(mAccessKey, mSessionCache);
-          break;
-        case INVESTOR:
-          sInvestorSessions.put(mAccessKey, mSessionCache);
-          break;
-        default:
-          throw new RuntimeException("User type not implemented in addSessionToCache()");
-      }
-    }
+    getCache(mType).put(mAccessKey, mSessionCache);
+    sSharedSessions.put(mType, mAccessKey, mSessionCache);
   }
 
   private void fetchSessionFromCache() {
-    synchronized (sSessionLock) {
-      switch(mType) {
-        case BORROWER:
-          mSessionCache = sBorrowerSessions.get(mAccessKey);
-          if (mSessionCache != null && mSessionCache.isExpired()) {
-            sBorrowerSessions.remove(mAccessKey);
-            mSessionCache = null;
-          }
-          break;
-        case INVESTOR:
-          mSessionCache = sInvestorSessions.get(mAccessKey);
-          if (mSessionCache != null && mSessionCache.isExpired()) {
-            sInvestorSessions.remove(mAccessKey);
-            mSessionCache = null;
-          }
-          break;
-        default:
-          throw new RuntimeException("User type not implemented in fetchSessionFromCache()");
+    // Local first. It's checked against the shared version now and then, in case it was revoked
+    SessionCache cache = getCache(mType);
+    mSessionCache = cache.get(mAccessKey);
+    if (mSessionCache != null
+        && System.currentTimeMillis() - mSessionCache.mVersionCheckedMs >= sVersionCheckMs
+        && !sSharedSessions.isCurrent(mType, mSessionCache)) {
+      cache.remove(mAccessKey, mSessionCache);
+      mSessionCache = null;
+    }
+
+    // Then shared, if validated on another instance
+    if (mSessionCache == null) {
+      mSessionCache = sSharedSessions.get(mType, mAccessKey);
+      if (mSessionCache != null) {
+        cache.put(mAccessKey, mSessionCache);
       }
     }
   }
 
+  private static SessionCache getCache(UserType type) {
+    switch(type) {
+      case BORROWER:
+        return sBorrowerSessions;
+      case INVESTOR:
+        return sInvestorSessions;
+      default:
+        throw new RuntimeException("User type not implemented in getCache()");
+    }
+  }
+
+  /*=============================================================
+   * PACKAGE-PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Returns the validated session
+   * @return the cached session. NULL if not valid
+   */
+  UserSession.Cache getSessionCache() {
+    return mSessionCache;
+  }
+
+  /**
+   * Returns the user fetched along with the session, if it was validated from the database
+   * @return the user. NULL if validated from the cache or not valid
+   */
+  User getUser() {
+    return mUser;
+  }
+
   /*=============================================================
    * PUBLIC FUNCTIONS
    *============================================================*/
@@ -94,8 +137,9 @@ public class Session {
   public boolean validate(HttpServletRequest request) {
     if(mAccessKey != null) {
       // Fetch the user reference from the request
-      String userReference = HttpHelper.getUserReference(request, true);
-      if(userReference != null && StringHelper.isUuid(userReference)) {
+      ParsedRequest parsedRequest = ParsedRequest.get(request);
+      UUID userReference = parsedRequest.getUserUuid();
+      if(userReference != null) {
         // If it already thinks its valid from the cache, just verify equivalence
         if(isValid()) {
           // If the user requested doesn't match, nullify session user. Requesting invalid user
@@ -107,11 +151,16 @@ public class Session {
         }
         // Otherwise, need to fetch from database
         else {
-          AccessKey accessKey = StringHelper.getAccessKey(mAccessKey);
+          AccessKey accessKey = parsedRequest.getAccessKey();
           if(accessKey != null) {
+            // Read the version first, so a revoke during the fetch isn't missed
+            long version = sSharedSessions.getVersion(mType, userReference);
             UserSession userSession = new UserSession().getSession(mType, userReference, accessKey);
             if(userSession != null) {
               mSessionCache = userSession.getCache();
+              mUser = userSession.mUser;
+              mSessionCache.mVersion = version;
+              mSessionCache.mVersionCheckedMs = System.currentTimeMillis();
               addSessionToCache();
             }
           }
@@ -128,23 +177,78 @@ public class Session {
    * STATIC FUNCTIONS
    *============================================================*/
 
-  public static AccessKey getAccessKey(HttpServletRequest request) {
-    return StringHelper.getAccessKey(request.getHeader(ACCESS_KEY));
+  /**
+   * Stops the sweep of the session caches. Called on servlet destroy
+   */
+  public static void destroy() {
+    synchronized (sSweeperLock) {
+      if (sSweeper != null) {
+        sSweeper.shutdownNow();
+        sSweeper = null;
+      }
+    }
   }
 
-  public static void uncacheBorrower(UUID borrowerReference) {
-    synchronized (sSessionLock) {
-      for(Iterator<Map.Entry<String, UserSession.Cache>> it = sBorrowerSessions.entrySet().iterator();
-          it.hasNext(); ) {
-        Map.Entry<String, UserSession.Cache> entry = it.next();
-        if(entry.getValue().matches(borrowerReference)) {
-          it.remove();
-        }
+  /**
+   * Loads the cache limits and starts the periodic sweep of the session caches. Called once on
+   * servlet init. The caches work without it, but are only trimmed on insert
+   */
+  public static void init() {
+    int cacheMax = StateHelper.getProperty(PROPERTY_CACHE_MAX, CACHE_MAX);
+    sBorrowerSessions.setMaxSize(cacheMax);
+    sInvestorSessions.setMaxSize(cacheMax);
+    sVersionCheckMs = StateHelper.getProperty(PROPERTY_VERSION_CHECK_MS, VERSION_CHECK_MS);
+
+    long sweepMs = StateHelper.getProperty(PROPERTY_SWEEP_MS, SWEEP_MS);
+    synchronized (sSweeperLock) {
+      if (sSweeper == null && sweepMs > 0) {
+        sSweeper = Executors.newSingleThreadScheduledExecutor(new SweepThreadFactory());
+        sSweeper.scheduleWithFixedDelay(new Runnable() {
+          @Override
+          public void run() {
+            sBorrowerSessions.sweep();
+            sInvestorSessions.sweep();
+          }
+        }, sweepMs, sweepMs, TimeUnit.MILLISECONDS);
       }
     }
   }
 
+  /**
+   * Returns the size and counters of the session caches. The shared counters are for this
+   * instance only
+   * @return the statistics JSON object
+   */
+  public static JsonObject toJson() {
+    return Json.createObjectBuilder()
+        .add("borrowers", sBorrowerSessions.toJsonBuilder())
+        .add("investors", sInvestorSessions.toJsonBuilder())
+        .add("shared", sSharedSessions.toJsonBuilder())
+        .build();
+  }
+
+  public static void uncacheBorrower(UUID borrowerReference) {
+    sBorrowerSessions.removeUser(borrowerReference);
+    sSharedSessions.invalidate(UserType.BORROWER, borrowerReference);
+  }
+
   public static void uncacheBorrower(String borrowerReference) {
     uncacheBorrower(UUID.fromString(borrowerReference));
   }
+
+  /*=============================================================
+   * INNER CLASSES
+   *============================================================*/
+
+  /**
+   * Creates the named daemon thread for the session sweep
+   */
+  private static class SweepThreadFactory implements ThreadFactory {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "session-sweep");
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
 }
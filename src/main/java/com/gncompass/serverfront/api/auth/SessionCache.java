@@ -0,0 +1,230 @@
+package com.gncompass.serverfront.api.auth;
+
+import com.gncompass.serverfront.db.model.UserSession;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.json.Json;
+import javax.json.JsonObjectBuilder;
+
+/**
+ * The validated sessions of one user type, keyed by access key. Lookups don't lock. Sessions are
+ * indexed by their user reference as well, so all the sessions of a user are dropped without
+ * scanning the cache.
+ *
+ * Expired sessions are dropped when looked up and by the periodic sweep. When the cache grows
+ * past its max size, the least recently accessed sessions are evicted down to the low water mark,
+ * so the sort is paid once per batch of inserts instead of on every insert.
+ */
+final class SessionCache {
+  // Share of the max size the cache is trimmed down to once it overflows
+  private static final float LOW_WATER_MARK = 0.9f;
+
+  private final AtomicBoolean mEvicting = new AtomicBoolean();
+  private final LongAdder mEvictions = new LongAdder();
+  private final LongAdder mExpirations = new LongAdder();
+  private final LongAdder mHits = new LongAdder();
+  private final Map<UUID, Set<String>> mKeysByUser = new ConcurrentHashMap<>();
+  private volatile int mMaxSize;
+  private final LongAdder mMisses = new LongAdder();
+  private final Map<String, UserSession.Cache> mSessions = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor
+   * @param maxSize the max number of sessions held before the oldest are evicted
+   */
+  SessionCache(int maxSize) {
+    mMaxSize = maxSize;
+  }
+
+  /*=============================================================
+   * PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Adds the access key to the keys of the user
+   * @param reference the user reference
+   * @param accessKey the access key of the session
+   */
+  private void index(UUID reference, final String accessKey) {
+    mKeysByUser.compute(reference, (user, keys) -> {
+      Set<String> userKeys = (keys != null ? keys : new HashSet<String>());
+      userKeys.add(accessKey);
+      return userKeys;
+    });
+  }
+
+  /**
+   * Evicts the least recently accessed sessions until the cache is back to the low water mark.
+   * Only one thread trims at a time. The others carry on without waiting
+   */
+  private void trim() {
+    if (!mEvicting.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      int target = (int) (mMaxSize * LOW_WATER_MARK);
+      int excess = mSessions.size() - target;
+      if (excess <= 0) {
+        return;
+      }
+
+      // The sessions keep being accessed while sorting, so sort on a snapshot of the access times
+      List<Map.Entry<String, UserSession.Cache>> entries = new ArrayList<>(mSessions.entrySet());
+      final long[] accessed = new long[entries.size()];
+      Integer[] order = new Integer[entries.size()];
+      for (int i = 0; i < order.length; i++) {
+        accessed[i] = entries.get(i).getValue().mAccessed.getTime();
+        order[i] = i;
+      }
+      Arrays.sort(order, (a, b) -> Long.compare(accessed[a], accessed[b]));
+      for (int i = 0; i < order.length && excess > 0; i++) {
+        Map.Entry<String, UserSession.Cache> entry = entries.get(order[i]);
+        if (remove(entry.getKey(), entry.getValue())) {
+          mEvictions.increment();
+          excess--;
+        }
+      }
+    } finally {
+      mEvicting.set(false);
+    }
+  }
+
+  /**
+   * Removes the access key from the keys of the user. The user is dropped with its last key
+   * @param reference the user reference
+   * @param accessKey the access key of the session
+   */
+  private void unindex(UUID reference, final String accessKey) {
+    mKeysByUser.computeIfPresent(reference, (user, keys) -> {
+      keys.remove(accessKey);
+      return (keys.isEmpty() ? null : keys);
+    });
+  }
+
+  /*=============================================================
+   * PACKAGE-PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Returns the session for the access key. An expired session is dropped and not returned
+   * @param accessKey the access key header of the request
+   * @return the cached session. NULL if not cached or expired
+   */
+  UserSession.Cache get(String accessKey) {
+    UserSession.Cache session = mSessions.get(accessKey);
+    if (session != null && session.isExpired()) {
+      if (remove(accessKey, session)) {
+        mExpirations.increment();
+      }
+      session = null;
+    }
+
+    if (session != null) {
+      mHits.increment();
+    } else {
+      mMisses.increment();
+    }
+    return session;
+  }
+
+  /**
+   * Caches the session for the access key, replacing any held for it. Trims the cache if this
+   * takes it past the max size
+   * @param accessKey the access key header of the request
+   * @param session the validated session
+   */
+  void put(String accessKey, UserSession.Cache session) {
+    UserSession.Cache previous = mSessions.put(accessKey, session);
+    if (previous != null && !previous.matches(session.mReference)) {
+      unindex(previous.mReference, accessKey);
+    }
+    index(session.mReference, accessKey);
+
+    if (mSessions.size() > mMaxSize) {
+      trim();
+    }
+  }
+
+  /**
+   * Removes the session, if it is still the one held for the access key
+   * @param accessKey the access key of the session
+   * @param session the session expected for the key
+   * @return TRUE if the session was removed. FALSE if it was already replaced or removed
+   */
+  boolean remove(String accessKey, UserSession.Cache session) {
+    if (mSessions.remove(accessKey, session)) {
+      unindex(session.mReference, accessKey);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Drops all the sessions of the user
+   * @param reference the user reference
+   * @return the number of sessions dropped
+   */
+  int removeUser(UUID reference) {
+    Set<String> keys = mKeysByUser.remove(reference);
+    if (keys == null) {
+      return 0;
+    }
+
+    int removed = 0;
+    for (String accessKey : keys) {
+      UserSession.Cache session = mSessions.get(accessKey);
+      if (session != null && session.matches(reference)
+          && mSessions.remove(accessKey, session)) {
+        removed++;
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Sets the max number of sessions held. Takes effect on the next insert or sweep
+   * @param maxSize the max cache size
+   */
+  void setMaxSize(int maxSize) {
+    mMaxSize = maxSize;
+  }
+
+  /**
+   * Drops all the expired sessions, then trims the cache if it is past the max size
+   */
+  void sweep() {
+    for (Map.Entry<String, UserSession.Cache> entry : mSessions.entrySet()) {
+      if (entry.getValue().isExpired() && remove(entry.getKey(), entry.getValue())) {
+        mExpirations.increment();
+      }
+    }
+    if (mSessions.size() > mMaxSize) {
+      trim();
+    }
+  }
+
+  /**
+   * Returns the size and counters of the cache
+   * @return the statistics JSON builder
+   */
+  JsonObjectBuilder toJsonBuilder() {
+    return Json.createObjectBuilder()
+        .add("size", mSessions.size())
+        .add("users", mKeysByUser.size())
+        .add("max_size", mMaxSize)
+        .add("hits", mHits.sum())
+        .add("misses", mMisses.sum())
+        .add("expirations", mExpirations.sum())
+        .add("evictions", mEvictions.sum());
+  }
+}
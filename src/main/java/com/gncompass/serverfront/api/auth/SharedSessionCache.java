@@ -0,0 +1,156 @@
+package com.gncompass.serverfront.api.auth;
+
+import com.gncompass.serverfront.db.model.User.UserType;
+import com.gncompass.serverfront.db.model.UserSession;
+
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheService.SetPolicy;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.json.Json;
+import javax.json.JsonObjectBuilder;
+
+/**
+ * The validated sessions shared by all instances, held in memcache. Sits behind the session cache
+ * of each instance, so a session validated on one instance is not fetched from the database again
+ * by the others.
+ *
+ * Each user has a version in memcache. Sessions are stamped with the version of their user read
+ * before they were fetched from the database, and a session stamped with another version than the
+ * current one is ignored. Revoking a user only increments the version, which drops all their
+ * sessions on every instance without knowing their access keys. A version is created from the
+ * clock, so one evicted from memcache comes back as a new version instead of reviving sessions
+ * that were revoked.
+ */
+final class SharedSessionCache {
+  private static final String NAMESPACE = "sessions";
+  private static final String PREFIX_SESSION = "s:";
+  private static final String PREFIX_VERSION = "v:";
+
+  // The version of a user when memcache is unavailable. Sessions stamped with it are not shared
+  static final long VERSION_UNKNOWN = -1L;
+
+  private final LongAdder mHits = new LongAdder();
+  private final MemcacheService mMemcache;
+  private final LongAdder mMisses = new LongAdder();
+  private final LongAdder mStale = new LongAdder();
+  private final int mTtlS;
+
+  /**
+   * Constructor
+   * @param ttlS the seconds a session is shared for after it is cached
+   */
+  SharedSessionCache(int ttlS) {
+    mMemcache = MemcacheServiceFactory.getMemcacheService(NAMESPACE);
+    mTtlS = ttlS;
+  }
+
+  /*=============================================================
+   * PRIVATE FUNCTIONS
+   *============================================================*/
+
+  private static String getSessionKey(UserType type, String accessKey) {
+    return PREFIX_SESSION + type.name() + ":" + accessKey;
+  }
+
+  private static String getVersionKey(UserType type, UUID reference) {
+    return PREFIX_VERSION + type.name() + ":" + reference;
+  }
+
+  /*=============================================================
+   * PACKAGE-PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Returns the shared session for the access key, if it is still current for its user
+   * @param type the user type of the session
+   * @param accessKey the access key header of the request
+   * @return a copy of the session. NULL if not cached or revoked
+   */
+  UserSession.Cache get(UserType type, String accessKey) {
+    Object value = mMemcache.get(getSessionKey(type, accessKey));
+    if (value instanceof UserSession.Cache) {
+      UserSession.Cache session = (UserSession.Cache) value;
+      long version = getVersion(type, session.mReference);
+      if (version != VERSION_UNKNOWN && version == session.mVersion) {
+        mHits.increment();
+        session.mVersionCheckedMs = System.currentTimeMillis();
+        session.updateAccessed();
+        return session;
+      }
+      mStale.increment();
+    }
+    mMisses.increment();
+    return null;
+  }
+
+  /**
+   * Returns the current version of the user. Creates it if the user has none
+   * @param type the user type
+   * @param reference the user reference
+   * @return the version. VERSION_UNKNOWN if memcache is unavailable
+   */
+  long getVersion(UserType type, UUID reference) {
+    String versionKey = getVersionKey(type, reference);
+    Object version = mMemcache.get(versionKey);
+    if (!(version instanceof Long)) {
+      mMemcache.put(versionKey, System.currentTimeMillis(), null,
+                    SetPolicy.ADD_ONLY_IF_NOT_PRESENT);
+      version = mMemcache.get(versionKey);
+    }
+    return (version instanceof Long ? (Long) version : VERSION_UNKNOWN);
+  }
+
+  /**
+   * Revokes all the shared sessions of the user, on every instance
+   * @param type the user type
+   * @param reference the user reference
+   */
+  void invalidate(UserType type, UUID reference) {
+    mMemcache.increment(getVersionKey(type, reference), 1L);
+  }
+
+  /**
+   * Checks if the session is still current for its user. If memcache is unavailable, the session
+   * is trusted, since only revocations from other instances could have been missed
+   * @param type the user type of the session
+   * @param session the session, stamped with its version
+   * @return TRUE if the user was not revoked since the session was stamped. FALSE otherwise
+   */
+  boolean isCurrent(UserType type, UserSession.Cache session) {
+    long version = getVersion(type, session.mReference);
+    if (version == VERSION_UNKNOWN || version == session.mVersion) {
+      session.mVersionCheckedMs = System.currentTimeMillis();
+      return true;
+    }
+    mStale.increment();
+    return false;
+  }
+
+  /**
+   * Shares the session with the other instances
+   * @param type the user type of the session
+   * @param accessKey the access key header of the request
+   * @param session the validated session, stamped with the version read before it was fetched
+   */
+  void put(UserType type, String accessKey, UserSession.Cache session) {
+    if (session.mVersion != VERSION_UNKNOWN) {
+      mMemcache.put(getSessionKey(type, accessKey), session, Expiration.byDeltaSeconds(mTtlS));
+    }
+  }
+
+  /**
+   * Returns the counters of the shared cache, for this instance
+   * @return the statistics JSON builder
+   */
+  JsonObjectBuilder toJsonBuilder() {
+    return Json.createObjectBuilder()
+        .add("hits", mHits.sum())
+        .add("misses", mMisses.sum())
+        .add("stale", mStale.sum());
+  }
+}
@@ -1,36 +1,25 @@
 package com.gncompass.serverfront.api.executer;
 
-import com.gncompass.serverfront.db.model.Country;
+import com.gncompass.serverfront.db.model.ReferenceData;
 import com.gncompass.serverfront.util.HttpHelper;
 import com.gncompass.serverfront.util.StringHelper;
 
 import java.io.IOException;
-import java.util.List;
 
-import javax.json.Json;
-import javax.json.JsonArrayBuilder;
-import javax.json.JsonObject;
-import javax.json.JsonObjectBuilder;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.ServletException;
 
 public class CountriesGet extends AbstractExecuter {
+  private String mIfNoneMatch = null;
 
   public CountriesGet() {
   }
 
   @Override
   protected void execute(HttpServletResponse response) throws ServletException, IOException {
-    List<Country> countries = Country.getAvailable();
-    JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
-    for (Country c : countries) {
-      JsonObjectBuilder objectBuilder = c.getApiModel().toJsonBuilder();
-      if (objectBuilder != null) {
-        arrayBuilder.add(objectBuilder);
-      }
-    }
-    HttpHelper.setResponseSuccess(response, arrayBuilder.build());
+    HttpHelper.setResponseCached(response, ReferenceData.getAvailableCountriesResponse(),
+                                 mIfNoneMatch, ReferenceData.getMaxAge());
   }
 
   @Override
@@ -45,6 +34,7 @@ public class CountriesGet extends AbstractExecuter {
 
   @Override
   protected boolean validate(HttpServletRequest request) {
+    mIfNoneMatch = request.getHeader(HttpHelper.HEADER_IF_NONE_MATCH);
     return true;
   }
 }
@@ -1,21 +1,18 @@
 package com.gncompass.serverfront.api.executer;
 
 import com.gncompass.serverfront.api.model.Country;
-import com.gncompass.serverfront.db.model.Bank;
+import com.gncompass.serverfront.db.model.ReferenceData;
 import com.gncompass.serverfront.util.HttpHelper;
 
 import java.io.IOException;
-import java.util.List;
 
-import javax.json.Json;
-import javax.json.JsonArrayBuilder;
-import javax.json.JsonObjectBuilder;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.ServletException;
 
 public class CountryBanksGet extends AbstractExecuter {
   private String mCountryCode = null;
+  private String mIfNoneMatch = null;
 
   public CountryBanksGet(String countryCode) {
     mCountryCode = countryCode;
@@ -23,15 +20,8 @@ public class CountryBanksGet extends AbstractExecuter {
 
   @Override
   protected void execute(HttpServletResponse response) throws ServletException, IOException {
-    List<Bank> banks = Bank.getAllForCountry(mCountryCode);
-    JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
-    for (Bank b : banks) {
-      JsonObjectBuilder objectBuilder = b.getApiModel().toJsonBuilder();
-      if (objectBuilder != null) {
-        arrayBuilder.add(objectBuilder);
-      }
-    }
-    HttpHelper.setResponseSuccess(response, arrayBuilder.build());
+    HttpHelper.setResponseCached(response, ReferenceData.getBanksForCountryResponse(mCountryCode),
+                                 mIfNoneMatch, ReferenceData.getMaxAge());
   }
 
   @Override
@@ -46,6 +36,7 @@ public class CountryBanksGet extends AbstractExecuter {
 
   @Override
   protected boolean validate(HttpServletRequest request) {
+    mIfNoneMatch = request.getHeader(HttpHelper.HEADER_IF_NONE_MATCH);
     return (mCountryCode != null && mCountryCode.length() == Country.CODE_LENGTH);
   }
 }
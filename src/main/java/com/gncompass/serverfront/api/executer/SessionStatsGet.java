@@ -0,0 +1,36 @@
+package com.gncompass.serverfront.api.executer;
+
+import com.gncompass.serverfront.api.auth.Session;
+import com.gncompass.serverfront.util.HttpHelper;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.ServletException;
+
+public class SessionStatsGet extends AbstractExecuter {
+
+  public SessionStatsGet() {
+  }
+
+  @Override
+  protected void execute(HttpServletResponse response) throws ServletException, IOException {
+    HttpHelper.setResponseSuccess(response, Session.toJson());
+  }
+
+  @Override
+  protected int getInvalidErrorCode() {
+    return 0;
+  }
+
+  @Override
+  protected String getInvalidErrorString() {
+    return "Not implemented";
+  }
+
+  @Override
+  protected boolean validate(HttpServletRequest request) {
+    return true;
+  }
+}
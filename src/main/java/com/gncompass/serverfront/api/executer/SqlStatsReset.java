@@ -0,0 +1,37 @@
+package com.gncompass.serverfront.api.executer;
+
+import com.gncompass.serverfront.db.QueryStats;
+import com.gncompass.serverfront.util.HttpHelper;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.ServletException;
+
+public class SqlStatsReset extends AbstractExecuter {
+
+  public SqlStatsReset() {
+  }
+
+  @Override
+  protected void execute(HttpServletResponse response) throws ServletException, IOException {
+    QueryStats.reset();
+    HttpHelper.setResponseSuccess(response, HttpServletResponse.SC_NO_CONTENT, null);
+  }
+
+  @Override
+  protected int getInvalidErrorCode() {
+    return 0;
+  }
+
+  @Override
+  protected String getInvalidErrorString() {
+    return "Not implemented";
+  }
+
+  @Override
+  protected boolean validate(HttpServletRequest request) {
+    return true;
+  }
+}
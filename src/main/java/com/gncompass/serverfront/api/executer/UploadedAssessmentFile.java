@@ -2,6 +2,7 @@ package com.gncompass.serverfront.api.executer;
 
 import com.gncompass.serverfront.db.model.Assessment;
 import com.gncompass.serverfront.db.model.AssessmentFile;
+import com.gncompass.serverfront.db.model.AssessmentUploadUrls;
 import com.gncompass.serverfront.util.HttpHelper;
 import com.gncompass.serverfront.util.StringHelper;
 
@@ -19,6 +20,7 @@ import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.channels.Channels;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -65,9 +67,16 @@ public class UploadedAssessmentFile extends AbstractExecuter {
           10001, "The assessment for this upload file was not found");
     }
 
+    // The upload URL of the assessment was used up by this upload
+    if (next) {
+      AssessmentUploadUrls.invalidate(assessment.mReferenceUuid);
+    }
+
     // Proceed to process the files
     // TODO: Better handling in the event of storage failure. IO stream is one shot to fail
     if (next) {
+      List<AssessmentFile> newFiles = new ArrayList<>();
+      List<AssessmentFile> overwrittenFiles = new ArrayList<>();
       for (Map.Entry<String, List<BlobKey>> entry : mBlobs.entrySet()) {
         for (BlobKey bk : entry.getValue()) {
           // Load the blob key info
@@ -90,25 +99,46 @@ public class UploadedAssessmentFile extends AbstractExecuter {
           // Delete the blobkey
           mStoreService.delete(bk);
 
-          // Add or update in database
+          // Queue the add or update in database
           if (validFile) {
             AssessmentFile newFile = new AssessmentFile(
                                         HttpHelper.BUCKET_UPLOADS, blobName, info.getContentType());
             AssessmentFile matchingFile = assessment.getFileThatMatches(newFile);
             if (matchingFile != null) {
-              matchingFile.updateUploaded();
-            } else {
-              newFile.addToDatabase(assessment);
+              if (!overwrittenFiles.contains(matchingFile)) {
+                overwrittenFiles.add(matchingFile);
+              }
+            } else if (!containsMatch(newFiles, newFile)) {
+              newFiles.add(newFile);
             }
           }
         }
       }
+
+      // Register all of the files at once
+      AssessmentFile.addAllToDatabase(assessment, newFiles);
+      AssessmentFile.updateAllUploaded(overwrittenFiles);
     }
 
     // If it reaches here, note the success to the google API
     HttpHelper.setResponseSuccess(response, null);
   }
 
+  /**
+   * Checks if the file matches any of the files in the list
+   * @param files the list of files to check
+   * @param file the file to match
+   * @return TRUE if a match was found. FALSE otherwise
+   */
+  private boolean containsMatch(List<AssessmentFile> files, AssessmentFile file) {
+    for (AssessmentFile listFile : files) {
+      if (listFile.matches(file)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Override
   protected int getInvalidErrorCode() {
     return 10000;
@@ -1,5 +1,6 @@
 package com.gncompass.serverfront.api.executer.borrower;
 
+import com.gncompass.serverfront.api.auth.BorrowerPrincipal;
 import com.gncompass.serverfront.api.executer.AbstractExecuter;
 import com.gncompass.serverfront.db.model.Assessment;
 import com.gncompass.serverfront.db.model.Borrower;
@@ -14,6 +15,7 @@ import javax.servlet.ServletException;
 
 public class AssessmentApproved extends AbstractExecuter {
   private String mBorrowerUuid = null;
+  private BorrowerPrincipal mPrincipal = null;
 
   public AssessmentApproved(String borrowerUuid) {
     mBorrowerUuid = borrowerUuid;
@@ -23,8 +25,8 @@ public class AssessmentApproved extends AbstractExecuter {
   protected void execute(HttpServletResponse response) throws ServletException, IOException {
     boolean next = false;
 
-    // Fetch the borrower
-    Borrower borrower = new Borrower().getBorrower(mBorrowerUuid);
+    // The borrower the request was authenticated as
+    Borrower borrower = mPrincipal.getBorrower();
     if (borrower != null) {
       next = true;
     } else {
@@ -59,6 +61,7 @@ public class AssessmentApproved extends AbstractExecuter {
 
   @Override
   protected boolean validate(HttpServletRequest request) {
+    mPrincipal = BorrowerPrincipal.get(request, mBorrowerUuid);
     return (mBorrowerUuid != null && StringHelper.isUuid(mBorrowerUuid));
   }
 }
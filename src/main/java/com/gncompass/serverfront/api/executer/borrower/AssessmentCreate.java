@@ -1,5 +1,6 @@
 package com.gncompass.serverfront.api.executer.borrower;
 
+import com.gncompass.serverfront.api.auth.BorrowerPrincipal;
 import com.gncompass.serverfront.api.executer.AbstractExecuter;
 import com.gncompass.serverfront.db.model.Assessment;
 import com.gncompass.serverfront.db.model.Borrower;
@@ -21,6 +22,7 @@ import javax.servlet.ServletException;
 
 public class AssessmentCreate extends AbstractExecuter {
   private String mBorrowerUuid = null;
+  private BorrowerPrincipal mPrincipal = null;
 
   public AssessmentCreate(String borrowerUuid) {
     mBorrowerUuid = borrowerUuid;
@@ -30,8 +32,8 @@ public class AssessmentCreate extends AbstractExecuter {
   protected void execute(HttpServletResponse response) throws ServletException, IOException {
     boolean next = false;
 
-    // Fetch the borrower
-    Borrower borrower = new Borrower().getBorrower(mBorrowerUuid);
+    // The borrower the request was authenticated as
+    Borrower borrower = mPrincipal.getBorrower();
     if (borrower != null) {
       next = true;
     } else {
@@ -67,6 +69,7 @@ public class AssessmentCreate extends AbstractExecuter {
 
   @Override
   protected boolean validate(HttpServletRequest request) {
+    mPrincipal = BorrowerPrincipal.get(request, mBorrowerUuid);
     return (mBorrowerUuid != null && StringHelper.isUuid(mBorrowerUuid));
   }
 }
@@ -1,5 +1,6 @@
 package com.gncompass.serverfront.api.executer.borrower;
 
+import com.gncompass.serverfront.api.auth.BorrowerPrincipal;
 import com.gncompass.serverfront.api.executer.AbstractExecuter;
 import com.gncompass.serverfront.db.model.Borrower;
 import com.gncompass.serverfront.util.HttpHelper;
@@ -21,6 +22,7 @@ public class AssessmentFile extends AbstractExecuter {
   private String mAssessmentUuid = null;
   private String mBorrowerUuid = null;
   private String mFileName = null;
+  private BorrowerPrincipal mPrincipal = null;
 
   public AssessmentFile(String borrowerUuid, String assessmentUuid, String fileName) {
     mAssessmentUuid = assessmentUuid;
@@ -32,8 +34,8 @@ public class AssessmentFile extends AbstractExecuter {
   protected void execute(HttpServletResponse response) throws ServletException, IOException {
     boolean next = false;
 
-    // Fetch the borrower
-    Borrower borrower = new Borrower().getBorrower(mBorrowerUuid);
+    // The borrower the request was authenticated as
+    Borrower borrower = mPrincipal.getBorrower();
     if (borrower != null) {
       next = true;
     } else {
@@ -77,6 +79,7 @@ public class AssessmentFile extends AbstractExecuter {
 
   @Override
   protected boolean validate(HttpServletRequest request) {
+    mPrincipal = BorrowerPrincipal.get(request, mBorrowerUuid);
     return (mAssessmentUuid != null && StringHelper.isUuid(mAssessmentUuid)
             && mBorrowerUuid != null && StringHelper.isUuid(mBorrowerUuid)
             && mFileName != null && mFileName.length() > 0);
@@ -1,5 +1,6 @@
 package com.gncompass.serverfront.api.executer.borrower;
 
+import com.gncompass.serverfront.api.auth.BorrowerPrincipal;
 import com.gncompass.serverfront.api.executer.AbstractExecuter;
 import com.gncompass.serverfront.db.model.Assessment;
 import com.gncompass.serverfront.db.model.Borrower;
@@ -17,6 +18,7 @@ import javax.servlet.ServletException;
 public class AssessmentSubmit extends AbstractExecuter {
   private String mAssessmentUuid = null;
   private String mBorrowerUuid = null;
+  private BorrowerPrincipal mPrincipal = null;
 
   public AssessmentSubmit(String borrowerUuid, String assessmentUuid) {
     mAssessmentUuid = assessmentUuid;
@@ -27,8 +29,8 @@ public class AssessmentSubmit extends AbstractExecuter {
   protected void execute(HttpServletResponse response) throws ServletException, IOException {
     boolean next = false;
 
-    // Fetch the borrower
-    Borrower borrower = new Borrower().getBorrower(mBorrowerUuid);
+    // The borrower the request was authenticated as
+    Borrower borrower = mPrincipal.getBorrower();
     if (borrower != null) {
       next = true;
     } else {
@@ -83,6 +85,7 @@ public class AssessmentSubmit extends AbstractExecuter {
 
   @Override
   protected boolean validate(HttpServletRequest request) {
+    mPrincipal = BorrowerPrincipal.get(request, mBorrowerUuid);
     return (mAssessmentUuid != null && StringHelper.isUuid(mAssessmentUuid)
             && mBorrowerUuid != null && StringHelper.isUuid(mBorrowerUuid));
   }
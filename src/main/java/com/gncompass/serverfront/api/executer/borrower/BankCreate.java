@@ -1,6 +1,7 @@
 package com.gncompass.serverfront.api.executer.borrower;
 
 import com.gncompass.serverfront.api.model.BankConnectionNew;
+import com.gncompass.serverfront.api.auth.BorrowerPrincipal;
 import com.gncompass.serverfront.api.executer.AbstractExecuter;
 import com.gncompass.serverfront.db.model.Bank;
 import com.gncompass.serverfront.db.model.BankConnection;
@@ -23,6 +24,7 @@ import javax.servlet.ServletException;
 public class BankCreate extends AbstractExecuter {
   private BankConnectionNew mBankRequest = null;
   private String mBorrowerUuid = null;
+  private BorrowerPrincipal mPrincipal = null;
 
   public BankCreate(String borrowerUuid) {
     mBankRequest = new BankConnectionNew();
@@ -33,8 +35,8 @@ public class BankCreate extends AbstractExecuter {
   protected void execute(HttpServletResponse response) throws ServletException, IOException {
     boolean next = false;
 
-    // Fetch the borrower
-    Borrower borrower = new Borrower().getBorrower(mBorrowerUuid);
+    // The borrower the request was authenticated as
+    Borrower borrower = mPrincipal.getBorrower();
     if (borrower != null) {
       next = true;
     } else {
@@ -85,6 +87,7 @@ public class BankCreate extends AbstractExecuter {
 
   @Override
   protected boolean validate(HttpServletRequest request) {
+    mPrincipal = BorrowerPrincipal.get(request, mBorrowerUuid);
     mBankRequest.parse(request);
     return (mBorrowerUuid != null && StringHelper.isUuid(mBorrowerUuid) && mBankRequest.isValid());
   }
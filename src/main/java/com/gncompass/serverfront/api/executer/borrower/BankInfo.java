@@ -1,5 +1,6 @@
 package com.gncompass.serverfront.api.executer.borrower;
 
+import com.gncompass.serverfront.api.auth.BorrowerPrincipal;
 import com.gncompass.serverfront.api.executer.AbstractExecuter;
 import com.gncompass.serverfront.db.model.BankConnection;
 import com.gncompass.serverfront.db.model.Borrower;
@@ -17,6 +18,7 @@ import javax.servlet.ServletException;
 public class BankInfo extends AbstractExecuter {
   private String mBankUuid = null;
   private String mBorrowerUuid = null;
+  private BorrowerPrincipal mPrincipal = null;
 
   public BankInfo(String borrowerUuid, String bankUuid) {
     mBankUuid = bankUuid;
@@ -27,8 +29,8 @@ public class BankInfo extends AbstractExecuter {
   protected void execute(HttpServletResponse response) throws ServletException, IOException {
     boolean next = false;
 
-    // Fetch the borrower
-    Borrower borrower = new Borrower().getBorrower(mBorrowerUuid);
+    // The borrower the request was authenticated as
+    Borrower borrower = mPrincipal.getBorrower();
     if (borrower != null) {
       next = true;
     } else {
@@ -63,6 +65,7 @@ public class BankInfo extends AbstractExecuter {
 
   @Override
   protected boolean validate(HttpServletRequest request) {
+    mPrincipal = BorrowerPrincipal.get(request, mBorrowerUuid);
     return (mBankUuid != null && StringHelper.isUuid(mBankUuid)
             && mBorrowerUuid != null && StringHelper.isUuid(mBorrowerUuid));
   }
@@ -1,24 +1,26 @@
 package com.gncompass.serverfront.api.executer.borrower;
 
+import com.gncompass.serverfront.api.auth.BorrowerPrincipal;
 import com.gncompass.serverfront.api.executer.AbstractExecuter;
+import com.gncompass.serverfront.db.Page;
+import com.gncompass.serverfront.db.PageCursor;
 import com.gncompass.serverfront.db.model.BankConnection;
 import com.gncompass.serverfront.db.model.Borrower;
 import com.gncompass.serverfront.util.HttpHelper;
 import com.gncompass.serverfront.util.StringHelper;
 
 import java.io.IOException;
-import java.util.List;
 
-import javax.json.Json;
-import javax.json.JsonArrayBuilder;
-import javax.json.JsonObject;
-import javax.json.JsonObjectBuilder;
+import javax.json.stream.JsonGenerator;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.ServletException;
 
 public class BankList extends AbstractExecuter {
   private String mBorrowerUuid = null;
+  private PageCursor mCursor = null;
+  private int mPageSize = HttpHelper.PAGE_SIZE_DEFAULT;
+  private BorrowerPrincipal mPrincipal = null;
 
   public BankList(String borrowerUuid) {
     mBorrowerUuid = borrowerUuid;
@@ -28,8 +30,8 @@ public class BankList extends AbstractExecuter {
   protected void execute(HttpServletResponse response) throws ServletException, IOException {
     boolean next = false;
 
-    // Fetch the borrower
-    Borrower borrower = new Borrower().getBorrower(mBorrowerUuid);
+    // The borrower the request was authenticated as
+    Borrower borrower = mPrincipal.getBorrower();
     if (borrower != null) {
       next = true;
     } else {
@@ -38,17 +40,15 @@ public class BankList extends AbstractExecuter {
           2201, "The borrower information failed to be fetched from the repository");
     }
 
-    // Fetch all the banks for the borrower
+    // Fetch the requested page of banks for the borrower
     if (next) {
-      List<BankConnection> bankConnections = BankConnection.getAllForUser(borrower);
-      JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
-      for (BankConnection bc : bankConnections) {
-        JsonObjectBuilder objectBuilder = bc.getApiSummary().toJsonBuilder();
-        if (objectBuilder != null) {
-          arrayBuilder.add(objectBuilder);
-        }
+      Page<BankConnection> page = BankConnection.getPageForUser(borrower, mCursor, mPageSize);
+      HttpHelper.setNextCursor(response, page);
+      JsonGenerator generator = HttpHelper.startResponseArray(response);
+      for (BankConnection bc : page.getItems()) {
+        bc.getApiSummary().writeJson(generator);
       }
-      HttpHelper.setResponseSuccess(response, arrayBuilder.build());
+      HttpHelper.endResponseArray(generator);
     }
   }
 
@@ -64,6 +64,11 @@ public class BankList extends AbstractExecuter {
 
   @Override
   protected boolean validate(HttpServletRequest request) {
-    return (mBorrowerUuid != null && StringHelper.isUuid(mBorrowerUuid));
+    mPrincipal = BorrowerPrincipal.get(request, mBorrowerUuid);
+    String cursorToken = request.getParameter(HttpHelper.PARAM_CURSOR);
+    mCursor = PageCursor.fromToken(cursorToken);
+    mPageSize = HttpHelper.parsePageSize(request);
+    return (mBorrowerUuid != null && StringHelper.isUuid(mBorrowerUuid)
+            && (cursorToken == null || mCursor != null) && mPageSize > 0);
   }
 }
@@ -2,13 +2,14 @@ package com.gncompass.serverfront.api.executer.borrower;
 
 import com.gncompass.serverfront.api.auth.Session;
 import com.gncompass.serverfront.api.executer.AbstractExecuter;
+import com.gncompass.serverfront.api.parser.ParsedRequest;
 import com.gncompass.serverfront.db.model.User.UserType;
 import com.gncompass.serverfront.db.model.UserSession;
 import com.gncompass.serverfront.util.HttpHelper;
-import com.gncompass.serverfront.util.StringHelper;
 import com.gncompass.serverfront.util.StringHelper.AccessKey;
 
 import java.io.IOException;
+import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -22,17 +23,16 @@ public class BorrowerLogout extends AbstractExecuter {
   private static final Logger LOG = Logger.getLogger(BorrowerLogout.class.getName());
 
   private AccessKey mAccessKey = null;
-  private String mBorrowerUuid = null;
+  private UUID mBorrowerReference = null;
 
-  public BorrowerLogout(String borrowerUuid) {
-    mBorrowerUuid = borrowerUuid;
+  public BorrowerLogout() {
   }
 
   @Override
   protected void execute(HttpServletResponse response) throws ServletException, IOException {
     // Fetch the session and delete
     UserSession userSession = new UserSession()
-                                    .getSession(UserType.BORROWER, mBorrowerUuid, mAccessKey);
+                                    .getSession(UserType.BORROWER, mBorrowerReference, mAccessKey);
     if (userSession != null) {
       if(!userSession.deleteSession()) {
         // Just warn
@@ -44,7 +44,7 @@ public class BorrowerLogout extends AbstractExecuter {
     }
 
     // Clean all cached session for user
-    Session.uncacheBorrower(mBorrowerUuid);
+    Session.uncacheBorrower(mBorrowerReference);
 
     HttpHelper.setResponseSuccess(response, null);
   }
@@ -61,7 +61,10 @@ public class BorrowerLogout extends AbstractExecuter {
 
   @Override
   protected boolean validate(HttpServletRequest request) {
-    mAccessKey = Session.getAccessKey(request);
-    return (mAccessKey != null && mBorrowerUuid != null && StringHelper.isUuid(mBorrowerUuid));
+    // The borrower reference of the path, already parsed to a UUID
+    ParsedRequest parsedRequest = ParsedRequest.get(request);
+    mAccessKey = parsedRequest.getAccessKey();
+    mBorrowerReference = parsedRequest.getUserUuid();
+    return (mAccessKey != null && mBorrowerReference != null);
   }
 }
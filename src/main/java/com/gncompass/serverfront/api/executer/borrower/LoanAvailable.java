@@ -1,10 +1,13 @@
 package com.gncompass.serverfront.api.executer.borrower;
 
+import com.gncompass.serverfront.api.auth.BorrowerPrincipal;
 import com.gncompass.serverfront.api.executer.AbstractExecuter;
+import com.gncompass.serverfront.db.AsyncQuery;
 import com.gncompass.serverfront.db.model.Assessment;
 import com.gncompass.serverfront.db.model.Borrower;
 import com.gncompass.serverfront.db.model.Loan;
 import com.gncompass.serverfront.db.model.LoanAmortization;
+import com.gncompass.serverfront.db.model.LoanExposure;
 import com.gncompass.serverfront.db.model.LoanFrequency;
 import com.gncompass.serverfront.util.Currency;
 import com.gncompass.serverfront.util.HttpHelper;
@@ -12,6 +15,7 @@ import com.gncompass.serverfront.util.StringHelper;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import javax.json.Json;
 import javax.json.JsonArray;
@@ -23,6 +27,7 @@ import javax.servlet.ServletException;
 
 public class LoanAvailable extends AbstractExecuter {
   private String mBorrowerUuid = null;
+  private BorrowerPrincipal mPrincipal = null;
 
   public LoanAvailable(String borrowerUuid) {
     mBorrowerUuid = borrowerUuid;
@@ -32,8 +37,8 @@ public class LoanAvailable extends AbstractExecuter {
   protected void execute(HttpServletResponse response) throws ServletException, IOException {
     boolean next = false;
 
-    // Fetch the borrower
-    Borrower borrower = new Borrower().getBorrower(mBorrowerUuid);
+    // The borrower the request was authenticated as
+    Borrower borrower = mPrincipal.getBorrower();
     if (borrower != null) {
       next = true;
     } else {
@@ -42,14 +47,27 @@ public class LoanAvailable extends AbstractExecuter {
           2701, "The borrower information failed to be fetched from the repository");
     }
 
+    // Fan out the remaining reads. They only depend on the borrower
+    CompletableFuture<Assessment> activeAssessmentFuture = null;
+    CompletableFuture<Loan.Totals> loanTotalsFuture = null;
+    if (next) {
+      // Without a loan cap the request is refused, so neither read is needed
+      if (borrower.mLoanCap > 0.0f) {
+        activeAssessmentFuture =
+            AsyncQuery.supply(() -> new Assessment().getLastApproved(borrower));
+        loanTotalsFuture = AsyncQuery.supply(() -> LoanExposure.get(borrower));
+      } else {
+        activeAssessmentFuture = CompletableFuture.completedFuture((Assessment) null);
+        loanTotalsFuture = CompletableFuture.completedFuture((Loan.Totals) null);
+      }
+    }
+
     // Fetch the borrower active assessment to make sure it is permitted to create loans
     Assessment activeAssessment = null;
     if (next) {
       next = false;
 
-      if (borrower.mLoanCap > 0.0f) {
-        activeAssessment = new Assessment().getLastApproved(borrower);
-      }
+      activeAssessment = AsyncQuery.join(activeAssessmentFuture);
       if (activeAssessment != null) {
         next = true;
       } else {
@@ -66,11 +84,7 @@ public class LoanAvailable extends AbstractExecuter {
       loanCap = new Currency(borrower.mLoanCap);
 
       // Determine the total borrowed
-      Currency totalLoaned = new Currency();
-      List<Loan> loans = Loan.getAllForBorrower(borrower);
-      for (Loan l : loans) {
-        totalLoaned = totalLoaned.add(l.mPrincipal);
-      }
+      Currency totalLoaned = AsyncQuery.join(loanTotalsFuture).mPrincipal;
 
       // Calculate the loan cap with the total borrowed removed. If less than zero, zero out
       loanCap = loanCap.subtract(totalLoaned);
@@ -81,7 +95,7 @@ public class LoanAvailable extends AbstractExecuter {
 
     // Final fetches and return the result
     if (next) {
-      // Fetch the amortizations and the frequencies
+      // The amortizations and the frequencies are read from the reference data snapshot
       List<com.gncompass.serverfront.api.model.LoanAmortization> loanAmortizations
           = LoanAmortization.getAllAsModel();
       List<com.gncompass.serverfront.api.model.LoanFrequency> loanFrequencies
@@ -113,6 +127,7 @@ public class LoanAvailable extends AbstractExecuter {
 
   @Override
   protected boolean validate(HttpServletRequest request) {
+    mPrincipal = BorrowerPrincipal.get(request, mBorrowerUuid);
     return (mBorrowerUuid != null && StringHelper.isUuid(mBorrowerUuid));
   }
 }
@@ -1,19 +1,22 @@
 package com.gncompass.serverfront.api.executer.borrower;
 
 import com.gncompass.serverfront.api.model.LoanNew;
+import com.gncompass.serverfront.api.auth.BorrowerPrincipal;
 import com.gncompass.serverfront.api.executer.AbstractExecuter;
+import com.gncompass.serverfront.db.UnitOfWork;
 import com.gncompass.serverfront.db.model.Assessment;
 import com.gncompass.serverfront.db.model.BankConnection;
 import com.gncompass.serverfront.db.model.Borrower;
 import com.gncompass.serverfront.db.model.Loan;
 import com.gncompass.serverfront.db.model.LoanAmortization;
+import com.gncompass.serverfront.db.model.LoanExposure;
 import com.gncompass.serverfront.db.model.LoanFrequency;
 import com.gncompass.serverfront.util.Currency;
 import com.gncompass.serverfront.util.HttpHelper;
 import com.gncompass.serverfront.util.StringHelper;
 
 import java.io.IOException;
-import java.util.List;
+import java.sql.SQLException;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -22,6 +25,7 @@ import javax.servlet.ServletException;
 public class LoanCreate extends AbstractExecuter {
   private String mBorrowerUuid = null;
   private LoanNew mLoanRequest = null;
+  private BorrowerPrincipal mPrincipal = null;
 
   public LoanCreate(String borrowerUuid) {
     mBorrowerUuid = borrowerUuid;
@@ -32,8 +36,8 @@ public class LoanCreate extends AbstractExecuter {
   protected void execute(HttpServletResponse response) throws ServletException, IOException {
     boolean next = false;
 
-    // Fetch the borrower
-    Borrower borrower = new Borrower().getBorrower(mBorrowerUuid);
+    // The borrower the request was authenticated as
+    Borrower borrower = mPrincipal.getBorrower();
     if (borrower != null) {
       next = true;
     } else {
@@ -106,12 +110,8 @@ public class LoanCreate extends AbstractExecuter {
     if (next) {
       next = false;
 
-      // Determine the total borrowed
-      Currency totalLoaned = new Currency();
-      List<Loan> loans = Loan.getAllForBorrower(borrower);
-      for (Loan l : loans) {
-        totalLoaned = totalLoaned.add(l.mPrincipal);
-      }
+      // Determine the total borrowed. Read fresh, since the cached totals can be behind
+      Currency totalLoaned = LoanExposure.refresh(borrower).mPrincipal;
 
       // Determine if it has been exceeded
       loanAmount = new Currency(mLoanRequest.mPrincipal);
@@ -124,37 +124,36 @@ public class LoanCreate extends AbstractExecuter {
       }
     }
 
-    // Create the loan. The reason this doesn't need to be a transaction is due to the temp code
-    // below is just for during the MVP stage. It will be removed and a loan will just be made
-    // pending until fulfillment. [ It also sets the started date to now (TEMP) ]
-    Loan createdLoan = null;
+    // Create the loan and its first loan payment in one transaction. The loan is rolled back if
+    // the payment fails [ It also sets the started date to now (TEMP) ]
     if (next) {
-      next = false;
-
-      // Create the loan widget
-      createdLoan = new Loan(loanAmount, activeAssessment.mRatingId,
-                             activeAssessment.mRating.mLoanRate);
-      createdLoan.mBankConnection = bankConnection;
-      createdLoan.mLoanAmortization = loanAmortization;
-      createdLoan.mLoanFrequency = loanFrequency;
-
-      // Add to the database
-      if (createdLoan.addForBorrower(borrower)) {
-        next = true;
-      } else {
-        HttpHelper.setResponseError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+      UnitOfWork work = UnitOfWork.begin();
+      try {
+        work.beginTransaction();
+
+        // Create the loan widget
+        Loan createdLoan = new Loan(loanAmount, activeAssessment.mRatingId,
+                                    activeAssessment.mRating.mLoanRate);
+        createdLoan.mBankConnection = bankConnection;
+        createdLoan.mLoanAmortization = loanAmortization;
+        createdLoan.mLoanFrequency = loanFrequency;
+
+        // Add to the database and calculate and generate the first loan payment (TEMP)
+        if (!createdLoan.addForBorrower(borrower)) {
+          HttpHelper.setResponseError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
                                 2602, "The loan failed to be created for the selected borrower");
-      }
-    }
-
-    // Calculate and generate the first loan payment (TEMP)
-    if (next) {
-      if (createdLoan.generateNextPayment()) {
-        HttpHelper.setResponseSuccess(response, HttpServletResponse.SC_CREATED,
-                                      createdLoan.getApiInfo().toJson());
-      } else {
-        HttpHelper.setResponseError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, 2602,
+        } else if (createdLoan.generateNextPayment() && work.commit()) {
+          LoanExposure.addLoan(borrower, createdLoan);
+          HttpHelper.setResponseSuccess(response, HttpServletResponse.SC_CREATED,
+                                        createdLoan.getApiInfo().toJson());
+        } else {
+          HttpHelper.setResponseError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, 2602,
               "The loan payment failed to be generated for the new loan for the selected borrower");
+        }
+      } catch (SQLException e) {
+        throw new RuntimeException("Unable to transact the new loan for the borrower", e);
+      } finally {
+        work.end();
       }
     }
   }
@@ -171,6 +170,7 @@ public class LoanCreate extends AbstractExecuter {
 
   @Override
   protected boolean validate(HttpServletRequest request) {
+    mPrincipal = BorrowerPrincipal.get(request, mBorrowerUuid);
     mLoanRequest.parse(request);
     return (mBorrowerUuid != null && StringHelper.isUuid(mBorrowerUuid) && mLoanRequest.isValid());
   }
@@ -1,5 +1,6 @@
 package com.gncompass.serverfront.api.executer.borrower;
 
+import com.gncompass.serverfront.api.auth.BorrowerPrincipal;
 import com.gncompass.serverfront.api.executer.AbstractExecuter;
 import com.gncompass.serverfront.db.model.Borrower;
 import com.gncompass.serverfront.db.model.Loan;
@@ -15,6 +16,7 @@ import javax.servlet.ServletException;
 public class LoanInfo extends AbstractExecuter {
   private String mBorrowerUuid = null;
   private String mLoanUuid = null;
+  private BorrowerPrincipal mPrincipal = null;
 
   public LoanInfo(String borrowerUuid, String loanUuid) {
     mBorrowerUuid = borrowerUuid;
@@ -25,8 +27,8 @@ public class LoanInfo extends AbstractExecuter {
   protected void execute(HttpServletResponse response) throws ServletException, IOException {
     boolean next = false;
 
-    // Fetch the borrower
-    Borrower borrower = new Borrower().getBorrower(mBorrowerUuid);
+    // The borrower the request was authenticated as
+    Borrower borrower = mPrincipal.getBorrower();
     if (borrower != null) {
       next = true;
     } else {
@@ -61,6 +63,7 @@ public class LoanInfo extends AbstractExecuter {
 
   @Override
   protected boolean validate(HttpServletRequest request) {
+    mPrincipal = BorrowerPrincipal.get(request, mBorrowerUuid);
     return (mBorrowerUuid != null && StringHelper.isUuid(mBorrowerUuid)
             && mLoanUuid != null && StringHelper.isUuid(mLoanUuid));
   }
@@ -1,23 +1,26 @@
 package com.gncompass.serverfront.api.executer.borrower;
 
+import com.gncompass.serverfront.api.auth.BorrowerPrincipal;
 import com.gncompass.serverfront.api.executer.AbstractExecuter;
+import com.gncompass.serverfront.db.Page;
+import com.gncompass.serverfront.db.PageCursor;
 import com.gncompass.serverfront.db.model.Borrower;
 import com.gncompass.serverfront.db.model.Loan;
 import com.gncompass.serverfront.util.HttpHelper;
 import com.gncompass.serverfront.util.StringHelper;
 
 import java.io.IOException;
-import java.util.List;
 
-import javax.json.Json;
-import javax.json.JsonArrayBuilder;
-import javax.json.JsonObjectBuilder;
+import javax.json.stream.JsonGenerator;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.ServletException;
 
 public class LoanList extends AbstractExecuter {
   private String mBorrowerUuid = null;
+  private PageCursor mCursor = null;
+  private int mPageSize = HttpHelper.PAGE_SIZE_DEFAULT;
+  private BorrowerPrincipal mPrincipal = null;
 
   public LoanList(String borrowerUuid) {
     mBorrowerUuid = borrowerUuid;
@@ -27,8 +30,8 @@ public class LoanList extends AbstractExecuter {
   protected void execute(HttpServletResponse response) throws ServletException, IOException {
     boolean next = false;
 
-    // Fetch the borrower
-    Borrower borrower = new Borrower().getBorrower(mBorrowerUuid);
+    // The borrower the request was authenticated as
+    Borrower borrower = mPrincipal.getBorrower();
     if (borrower != null) {
       next = true;
     } else {
@@ -37,17 +40,15 @@ public class LoanList extends AbstractExecuter {
           2401, "The borrower information failed to be fetched from the repository");
     }
 
-    // Fetch all the loans for the borrower
+    // Fetch the requested page of loans for the borrower
     if (next) {
-      List<Loan> loans = Loan.getAllForBorrower(borrower);
-      JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
-      for (Loan l : loans) {
-        JsonObjectBuilder objectBuilder = l.getApiSummary().toJsonBuilder();
-        if (objectBuilder != null) {
-          arrayBuilder.add(objectBuilder);
-        }
+      Page<Loan> page = Loan.getPageForBorrower(borrower, mCursor, mPageSize);
+      HttpHelper.setNextCursor(response, page);
+      JsonGenerator generator = HttpHelper.startResponseArray(response);
+      for (Loan l : page.getItems()) {
+        l.getApiSummary().writeJson(generator);
       }
-      HttpHelper.setResponseSuccess(response, arrayBuilder.build());
+      HttpHelper.endResponseArray(generator);
     }
   }
 
@@ -63,6 +64,11 @@ public class LoanList extends AbstractExecuter {
 
   @Override
   protected boolean validate(HttpServletRequest request) {
-    return (mBorrowerUuid != null && StringHelper.isUuid(mBorrowerUuid));
+    mPrincipal = BorrowerPrincipal.get(request, mBorrowerUuid);
+    String cursorToken = request.getParameter(HttpHelper.PARAM_CURSOR);
+    mCursor = PageCursor.fromToken(cursorToken);
+    mPageSize = HttpHelper.parsePageSize(request);
+    return (mBorrowerUuid != null && StringHelper.isUuid(mBorrowerUuid)
+            && (cursorToken == null || mCursor != null) && mPageSize > 0);
   }
 }
@@ -1,5 +1,7 @@
 package com.gncompass.serverfront.api.filter;
 
+import com.gncompass.serverfront.util.HttpHelper;
+
 import java.io.IOException;
 
 import javax.servlet.Filter;
@@ -16,7 +18,10 @@ public class ApiOriginFilter implements Filter {
     HttpServletResponse res = (HttpServletResponse) response;
     res.addHeader("Access-Control-Allow-Origin", "*");
     res.addHeader("Access-Control-Allow-Methods", "GET, POST, DELETE, PUT, OPTIONS");
-    res.addHeader("Access-Control-Allow-Headers", "Content-Type, Authorization, access_key");
+    res.addHeader("Access-Control-Allow-Headers",
+                  "Content-Type, Authorization, access_key, " + HttpHelper.HEADER_IF_NONE_MATCH);
+    res.addHeader("Access-Control-Expose-Headers",
+                  HttpHelper.HEADER_ETAG + ", " + HttpHelper.HEADER_NEXT_CURSOR);
     chain.doFilter(request, response);
   }
 
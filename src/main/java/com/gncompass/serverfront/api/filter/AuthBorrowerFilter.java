@@ -1,11 +1,12 @@
 package com.gncompass.serverfront.api.filter;
 
+import com.gncompass.serverfront.api.auth.BorrowerPrincipal;
 import com.gncompass.serverfront.api.auth.Session;
+import com.gncompass.serverfront.api.parser.ParsedRequest;
+import com.gncompass.serverfront.db.UnitOfWork;
 import com.gncompass.serverfront.db.model.User.UserType;
 
 import java.io.IOException;
-import java.util.Enumeration;
-import java.util.regex.Pattern;
 
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -16,10 +17,6 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletResponse;
 
 public class AuthBorrowerFilter implements javax.servlet.Filter {
-  // Internals
-  private String subPathFilter = ".*";
-  private Pattern pattern;
-
   /********************************************************************
    * OVERRIDES
    *******************************************************************/
@@ -27,38 +24,45 @@ public class AuthBorrowerFilter implements javax.servlet.Filter {
   @Override
   public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
       throws IOException, ServletException {
-    boolean proceed = true;
+    // Opens the request unit of work, so the session checks share a connection with the request
+    UnitOfWork work = UnitOfWork.begin();
+    try {
+      boolean proceed = true;
 
-    HttpServletRequest httpRequest = (HttpServletRequest) request;
-    HttpServletResponse httpResponse = (HttpServletResponse) response;
+      HttpServletRequest httpRequest = (HttpServletRequest) request;
+      HttpServletResponse httpResponse = (HttpServletResponse) response;
 
-    // If not OPTIONS request, auth needs to be checked
-    if(!httpRequest.getMethod().equals("OPTIONS")) {
-      // Check for match. Otherwise, just proceed down the chain
-      if(isPathProtected(httpRequest)) {
-        boolean authSuccess = false;
+      // If not OPTIONS request, auth needs to be checked
+      if(!httpRequest.getMethod().equals("OPTIONS")) {
+        // Check for match. Otherwise, just proceed down the chain
+        ParsedRequest parsedRequest = ParsedRequest.get(httpRequest);
+        if(isPathProtected(parsedRequest)) {
+          boolean authSuccess = false;
 
-        // Fetch the access key header
-        String accessKey = httpRequest.getHeader(Session.ACCESS_KEY);
-        if(accessKey != null) {
-          Session session = new Session(httpRequest, UserType.BORROWER);
-          if(session.validate(httpRequest)) {
-            session.updateAccessed();
-            authSuccess = true;
+          // Check for the access key header
+          if(parsedRequest.getAccessKeyHeader() != null) {
+            Session session = new Session(httpRequest, UserType.BORROWER);
+            if(session.validate(httpRequest)) {
+              session.updateAccessed();
+              BorrowerPrincipal.attach(httpRequest, session);
+              authSuccess = true;
+            }
           }
-        }
 
-        // If authentication failed, end the call
-        if(!authSuccess) {
-          proceed = false;
-          httpResponse.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+          // If authentication failed, end the call
+          if(!authSuccess) {
+            proceed = false;
+            httpResponse.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+          }
         }
       }
-    }
 
-    // doFilter if proceed was enabled
-    if(proceed) {
-      chain.doFilter(httpRequest, httpResponse);
+      // doFilter if proceed was enabled
+      if(proceed) {
+        chain.doFilter(httpRequest, httpResponse);
+      }
+    } finally {
+      work.end();
     }
   }
 
@@ -66,19 +70,18 @@ public class AuthBorrowerFilter implements javax.servlet.Filter {
   public void destroy() {}
 
   @Override
-  public void init(FilterConfig filterConfig) throws ServletException {
-    String subPathFilter = filterConfig.getInitParameter("subPathFilter");
-    if (subPathFilter != null) {
-      this.subPathFilter = subPathFilter;
-    }
-    pattern = Pattern.compile(this.subPathFilter);
-  }
+  public void init(FilterConfig filterConfig) throws ServletException {}
 
   /********************************************************************
    * PRIVATES
    *******************************************************************/
 
-   private boolean isPathProtected(HttpServletRequest request) {
-     return pattern.matcher(request.getRequestURI()).matches();
+   /**
+    * Only the paths of a borrower are protected: /borrowers/<borrower reference>/*
+    * @param parsedRequest the parsed request
+    * @return TRUE if the path has a borrower reference. FALSE otherwise
+    */
+   private boolean isPathProtected(ParsedRequest parsedRequest) {
+     return (parsedRequest.getUserUuid() != null);
    }
 }
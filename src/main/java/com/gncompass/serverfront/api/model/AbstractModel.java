@@ -5,6 +5,7 @@ import com.gncompass.serverfront.util.HttpHelper;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -14,6 +15,8 @@ import javax.json.JsonNumber;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
 import javax.json.JsonReader;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
 import javax.servlet.http.HttpServletRequest;
 
 public abstract class AbstractModel {
@@ -65,6 +68,19 @@ public abstract class AbstractModel {
     return defaultValue;
   }
 
+  /**
+   * Writes the fields of the model into the JSON object open on the generator. By default the
+   * fields are collected through addToJson() first. Models returned in lists write them directly
+   * @param generator the JSON generator, inside the object of this model
+   */
+  protected void writeToJson(JsonGenerator generator) {
+    JsonObjectBuilder jsonBuilder = Json.createObjectBuilder();
+    addToJson(jsonBuilder);
+    for (Map.Entry<String, JsonValue> entry : jsonBuilder.build().entrySet()) {
+      generator.write(entry.getKey(), entry.getValue());
+    }
+  }
+
   public JsonObject toJson() {
     JsonObjectBuilder jsonBuilder = toJsonBuilder();
     if (jsonBuilder != null) {
@@ -81,4 +97,35 @@ public abstract class AbstractModel {
     }
     return null;
   }
+
+  /**
+   * Writes the model as a JSON object value on the generator, such as an array item
+   * @param generator the JSON generator
+   * @return TRUE if written. FALSE if the model is not valid
+   */
+  public boolean writeJson(JsonGenerator generator) {
+    if (isValid()) {
+      generator.writeStartObject();
+      writeToJson(generator);
+      generator.writeEnd();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Writes the model as a named JSON object field on the generator
+   * @param name the field name
+   * @param generator the JSON generator, inside the parent object
+   * @return TRUE if written. FALSE if the model is not valid
+   */
+  public boolean writeJson(String name, JsonGenerator generator) {
+    if (isValid()) {
+      generator.writeStartObject(name);
+      writeToJson(generator);
+      generator.writeEnd();
+      return true;
+    }
+    return false;
+  }
 }
@@ -6,6 +6,7 @@ import java.util.logging.Logger;
 
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
+import javax.json.stream.JsonGenerator;
 import javax.servlet.http.HttpServletRequest;
 
 public class AssessmentSummary extends AbstractModel {
@@ -40,6 +41,16 @@ public class AssessmentSummary extends AbstractModel {
     }
   }
 
+  @Override
+  protected void writeToJson(JsonGenerator generator) {
+    generator.write(KEY_REFERENCE, mReference);
+    generator.write(KEY_DATE, mDateTime);
+    generator.write(KEY_STATUS, mStatusId);
+    if (mRatingId > 0) {
+      generator.write(KEY_RATING, mRatingId);
+    }
+  }
+
   @Override
   protected Logger getLogger() {
     return LOG;
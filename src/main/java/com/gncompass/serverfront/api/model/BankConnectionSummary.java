@@ -6,6 +6,7 @@ import java.util.logging.Logger;
 
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
+import javax.json.stream.JsonGenerator;
 import javax.servlet.http.HttpServletRequest;
 
 public class BankConnectionSummary extends AbstractModel {
@@ -38,6 +39,13 @@ public class BankConnectionSummary extends AbstractModel {
     jsonBuilder.add(KEY_NAME, mName);
   }
 
+  @Override
+  protected void writeToJson(JsonGenerator generator) {
+    generator.write(KEY_REFERENCE, mReference);
+    generator.write(KEY_INSTITUTION, mInstitution);
+    generator.write(KEY_NAME, mName);
+  }
+
   @Override
   protected Logger getLogger() {
     return LOG;
@@ -4,6 +4,7 @@ import java.util.logging.Logger;
 
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
+import javax.json.stream.JsonGenerator;
 import javax.servlet.http.HttpServletRequest;
 
 public class LoanPayment extends TransactionDetail {
@@ -34,6 +35,14 @@ public class LoanPayment extends TransactionDetail {
     jsonBuilder.add(KEY_DUE_DATE, mDueDateTime);
   }
 
+  @Override
+  protected void writeToJson(JsonGenerator generator) {
+    super.writeToJson(generator);
+
+    generator.write(KEY_INTEREST, mInterest);
+    generator.write(KEY_DUE_DATE, mDueDateTime);
+  }
+
   @Override
   protected Logger getLogger() {
     return LOG;
@@ -6,6 +6,7 @@ import java.util.logging.Logger;
 
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
+import javax.json.stream.JsonGenerator;
 import javax.servlet.http.HttpServletRequest;
 
 public class LoanSummary extends AbstractModel {
@@ -49,6 +50,22 @@ public class LoanSummary extends AbstractModel {
     }
   }
 
+  @Override
+  protected void writeToJson(JsonGenerator generator) {
+    generator.write(KEY_REFERENCE, mReference);
+    generator.write(KEY_PRINCIPAL, mPrincipal);
+    generator.write(KEY_RATE, mRate);
+    if (mStartedTime > 0L) {
+      generator.write(KEY_STARTED, mStartedTime);
+      if (mBalance != null && mBalance >= 0.0d) {
+        generator.write(KEY_BALANCE, mBalance);
+      }
+      if (mNextPayment != null) {
+        mNextPayment.writeJson(KEY_NEXT_PAYMENT, generator);
+      }
+    }
+  }
+
   @Override
   protected Logger getLogger() {
     return LOG;
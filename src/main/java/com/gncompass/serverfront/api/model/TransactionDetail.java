@@ -2,6 +2,7 @@ package com.gncompass.serverfront.api.model;
 
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
+import javax.json.stream.JsonGenerator;
 import javax.servlet.http.HttpServletRequest;
 
 public abstract class TransactionDetail extends AbstractModel {
@@ -19,6 +20,14 @@ public abstract class TransactionDetail extends AbstractModel {
     }
   }
 
+  @Override
+  protected void writeToJson(JsonGenerator generator) {
+    generator.write(KEY_AMOUNT, mAmount);
+    if (mPaidDateTime > 0L) {
+      generator.write(KEY_PAID_DATE, mPaidDateTime);
+    }
+  }
+
   @Override
   public boolean isValid() {
     return mAmount > 0.0d;
@@ -0,0 +1,66 @@
+package com.gncompass.serverfront.api.parser;
+
+import com.gncompass.serverfront.api.executer.borrower.AssessmentApproved;
+import com.gncompass.serverfront.api.executer.borrower.AssessmentCreate;
+import com.gncompass.serverfront.api.executer.borrower.AssessmentFile;
+import com.gncompass.serverfront.api.executer.borrower.AssessmentInfo;
+import com.gncompass.serverfront.api.executer.borrower.AssessmentList;
+import com.gncompass.serverfront.api.executer.borrower.AssessmentSubmit;
+import com.gncompass.serverfront.api.executer.borrower.BankCreate;
+import com.gncompass.serverfront.api.executer.borrower.BankInfo;
+import com.gncompass.serverfront.api.executer.borrower.BankList;
+import com.gncompass.serverfront.api.executer.borrower.BorrowerCreate;
+import com.gncompass.serverfront.api.executer.borrower.BorrowerInfo;
+import com.gncompass.serverfront.api.executer.borrower.BorrowerLogin;
+import com.gncompass.serverfront.api.executer.borrower.BorrowerLogout;
+import com.gncompass.serverfront.api.executer.borrower.BorrowerUpdate;
+import com.gncompass.serverfront.api.executer.borrower.LoanAvailable;
+import com.gncompass.serverfront.api.executer.borrower.LoanCreate;
+import com.gncompass.serverfront.api.executer.borrower.LoanInfo;
+import com.gncompass.serverfront.api.executer.borrower.LoanList;
+import com.gncompass.serverfront.util.HttpHelper.RequestType;
+
+public abstract class BorrowerRoutes {
+  public static final String PATH_MAIN = "/borrowers";
+  private static final String PATH_BORROWER = PATH_MAIN + "/{borrower:uuid}";
+  private static final String PATH_ASSESSMENTS = PATH_BORROWER + "/assessments";
+  private static final String PATH_ASSESSMENT = PATH_ASSESSMENTS + "/{assessment:uuid}";
+  private static final String PATH_BANKS = PATH_BORROWER + "/banks";
+  private static final String PATH_LOANS = PATH_BORROWER + "/loans";
+
+  /**
+   * Adds the routes of the borrower functionality
+   * @param builder the router builder
+   */
+  public static void register(Router.Builder builder) {
+    // /borrowers
+    builder.add(RequestType.POST, PATH_MAIN, p -> new BorrowerCreate())
+           .add(RequestType.POST, PATH_MAIN + "/login", p -> new BorrowerLogin())
+           .add(RequestType.GET, PATH_BORROWER, p -> new BorrowerInfo(p.get(0)))
+           .add(RequestType.PUT, PATH_BORROWER, p -> new BorrowerUpdate(p.get(0)))
+           .add(RequestType.POST, PATH_BORROWER + "/logout", p -> new BorrowerLogout());
+
+    // /borrowers/{borrower}/assessments
+    builder.add(RequestType.GET, PATH_ASSESSMENTS, p -> new AssessmentList(p.get(0)))
+           .add(RequestType.POST, PATH_ASSESSMENTS, p -> new AssessmentCreate(p.get(0)))
+           .add(RequestType.GET, PATH_ASSESSMENTS + "/approved",
+                p -> new AssessmentApproved(p.get(0)))
+           .add(RequestType.GET, PATH_ASSESSMENT, p -> new AssessmentInfo(p.get(0), p.get(1)))
+           .add(RequestType.POST, PATH_ASSESSMENT, p -> new AssessmentSubmit(p.get(0), p.get(1)))
+           .add(RequestType.GET, PATH_ASSESSMENT + "/{file}",
+                p -> new AssessmentFile(p.get(0), p.get(1), p.get(2)));
+
+    // /borrowers/{borrower}/banks
+    builder.add(RequestType.GET, PATH_BANKS, p -> new BankList(p.get(0)))
+           .add(RequestType.POST, PATH_BANKS, p -> new BankCreate(p.get(0)))
+           .add(RequestType.GET, PATH_BANKS + "/{bank:uuid}",
+                p -> new BankInfo(p.get(0), p.get(1)));
+
+    // /borrowers/{borrower}/loans
+    builder.add(RequestType.GET, PATH_LOANS, p -> new LoanList(p.get(0)))
+           .add(RequestType.POST, PATH_LOANS, p -> new LoanCreate(p.get(0)))
+           .add(RequestType.GET, PATH_LOANS + "/available", p -> new LoanAvailable(p.get(0)))
+           .add(RequestType.GET, PATH_LOANS + "/{loan:uuid}",
+                p -> new LoanInfo(p.get(0), p.get(1)));
+  }
+}
@@ -0,0 +1,44 @@
+package com.gncompass.serverfront.api.parser;
+
+import com.gncompass.serverfront.api.executer.CountriesGet;
+import com.gncompass.serverfront.api.executer.CountryBanksGet;
+import com.gncompass.serverfront.api.executer.LoanAmortizationsGet;
+import com.gncompass.serverfront.api.executer.LoanFrequenciesGet;
+import com.gncompass.serverfront.api.executer.SessionStatsGet;
+import com.gncompass.serverfront.api.executer.SqlStatsGet;
+import com.gncompass.serverfront.api.executer.SqlStatsReset;
+import com.gncompass.serverfront.api.executer.UploadedAssessmentFile;
+import com.gncompass.serverfront.util.HttpHelper.RequestType;
+
+public abstract class GeneralRoutes {
+  private static final String FUNCTION_ADMIN = "/admin";
+  private static final String FUNCTION_COUNTRIES = "/countries";
+  private static final String FUNCTION_INVESTORS = "/investors";
+  private static final String FUNCTION_LOANS = "/loans";
+  private static final String FUNCTION_UPLOADS = "/uploads";
+
+  /**
+   * Adds the routes of the general functionality
+   * @param builder the router builder
+   */
+  public static void register(Router.Builder builder) {
+    // Restricted to application admins by the security constraint in web.xml
+    builder.add(RequestType.GET, FUNCTION_ADMIN + "/sql", p -> new SqlStatsGet())
+           .add(RequestType.DELETE, FUNCTION_ADMIN + "/sql", p -> new SqlStatsReset())
+           .add(RequestType.GET, FUNCTION_ADMIN + "/sessions", p -> new SessionStatsGet());
+
+    builder.add(RequestType.GET, FUNCTION_COUNTRIES, p -> new CountriesGet())
+           .add(RequestType.GET, FUNCTION_COUNTRIES + "/{country}/banks",
+                p -> new CountryBanksGet(p.get(0)));
+
+    // TODO! Investor routes
+    builder.notImplemented(FUNCTION_INVESTORS);
+
+    builder.add(RequestType.GET, FUNCTION_LOANS + "/amortizations",
+                p -> new LoanAmortizationsGet())
+           .add(RequestType.GET, FUNCTION_LOANS + "/frequencies", p -> new LoanFrequenciesGet());
+
+    builder.add(RequestType.POST, FUNCTION_UPLOADS + "/assessments/{assessment:uuid}",
+                p -> new UploadedAssessmentFile(p.get(0)));
+  }
+}
@@ -0,0 +1,168 @@
+package com.gncompass.serverfront.api.parser;
+
+import com.gncompass.serverfront.api.auth.Session;
+import com.gncompass.serverfront.api.executer.AbstractExecuter;
+import com.gncompass.serverfront.util.HttpHelper.RequestType;
+import com.gncompass.serverfront.util.StringHelper;
+import com.gncompass.serverfront.util.StringHelper.AccessKey;
+
+import java.util.UUID;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * The request URI and access key of a request, parsed once and attached to the request. The auth
+ * filters, the session, the servlet and the executers all read the route, the user reference and
+ * the access key from here instead of parsing the strings again.
+ */
+public final class ParsedRequest {
+  // The request attribute holding the parsed request
+  public static final String ATTRIBUTE = ParsedRequest.class.getName();
+
+  // The compiled routes of the API
+  private static final Router sRouter = compileRoutes();
+
+  // Internals
+  private AccessKey mAccessKey = null;
+  private final String mAccessKeyHeader;
+  private boolean mAccessKeyParsed = false;
+  private final Router.Route mRoute;
+  private final int mStart;
+  private final String mUri;
+  private final String mUserReference;
+  private final UUID mUserUuid;
+
+  /**
+   * Constructor
+   * @param request the request to parse
+   */
+  private ParsedRequest(HttpServletRequest request) {
+    mAccessKeyHeader = request.getHeader(Session.ACCESS_KEY);
+    mUri = request.getRequestURI();
+    mStart = request.getContextPath().length() + request.getServletPath().length() + 1;
+
+    // The user reference is the second segment: /<borrowers, investors>/<user reference>/*
+    String userReference = null;
+    int rootEnd = mUri.indexOf('/', mStart);
+    if (rootEnd >= 0) {
+      int end = mUri.indexOf('/', rootEnd + 1);
+      if (end < 0) {
+        end = mUri.length();
+      }
+      if (end > rootEnd + 1) {
+        userReference = mUri.substring(rootEnd + 1, end);
+      }
+    }
+    mUserReference = userReference;
+    mUserUuid = StringHelper.parseUuid(userReference);
+
+    RequestType type = getRequestType(request.getMethod());
+    mRoute = (type != null ? sRouter.find(type, mUri, mStart) : null);
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Creates the executer of the route found for the request
+   * @return the executer to process the request with
+   */
+  public AbstractExecuter createExecuter() {
+    return mRoute.createExecuter(mUri, mStart);
+  }
+
+  /**
+   * Returns the access key of the request, split on first use
+   * @return the access key. NULL if not sent or not in proper form
+   */
+  public AccessKey getAccessKey() {
+    if (!mAccessKeyParsed) {
+      mAccessKey = StringHelper.getAccessKey(mAccessKeyHeader);
+      mAccessKeyParsed = true;
+    }
+    return mAccessKey;
+  }
+
+  /**
+   * Returns the access key header of the request
+   * @return the access key as sent. NULL if not sent
+   */
+  public String getAccessKeyHeader() {
+    return mAccessKeyHeader;
+  }
+
+  /**
+   * Returns the route found for the request
+   * @return the route. Router.NOT_IMPLEMENTED if under a root not implemented yet. NULL if none
+   */
+  public Router.Route getRoute() {
+    return mRoute;
+  }
+
+  /**
+   * Returns the user reference segment of the request path, as sent
+   * @return the user reference. NULL if the path has none
+   */
+  public String getUserReference() {
+    return mUserReference;
+  }
+
+  /**
+   * Returns the user reference of the request path as a UUID
+   * @return the user reference. NULL if the path has none or it is not a UUID
+   */
+  public UUID getUserUuid() {
+    return mUserUuid;
+  }
+
+  /*=============================================================
+   * STATIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Compiles the routes of all the API functionality
+   * @return the compiled router
+   */
+  private static Router compileRoutes() {
+    Router.Builder routes = new Router.Builder();
+    BorrowerRoutes.register(routes);
+    GeneralRoutes.register(routes);
+    return routes.build();
+  }
+
+  /**
+   * Returns the request type of the HTTP method
+   * @param method the HTTP method of the request
+   * @return the request type. NULL if not routed
+   */
+  private static RequestType getRequestType(String method) {
+    switch (method) {
+      case "DELETE":
+        return RequestType.DELETE;
+      case "GET":
+        return RequestType.GET;
+      case "POST":
+        return RequestType.POST;
+      case "PUT":
+        return RequestType.PUT;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Returns the parsed request attached to the request, parsing and attaching it on first use
+   * @param request the request
+   * @return the parsed request
+   */
+  public static ParsedRequest get(HttpServletRequest request) {
+    Object parsed = request.getAttribute(ATTRIBUTE);
+    if (parsed instanceof ParsedRequest) {
+      return (ParsedRequest) parsed;
+    }
+    ParsedRequest parsedRequest = new ParsedRequest(request);
+    request.setAttribute(ATTRIBUTE, parsedRequest);
+    return parsedRequest;
+  }
+}
@@ -0,0 +1,287 @@
+package com.gncompass.serverfront.api.parser;
+
+import com.gncompass.serverfront.api.executer.AbstractExecuter;
+import com.gncompass.serverfront.util.HttpHelper.RequestType;
+import com.gncompass.serverfront.util.StringHelper;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The routes of the API, compiled into a trie of path segments with the routes of each path kept
+ * by request type. A lookup walks the segments of the request URI in place, so it takes one step
+ * per segment and does not split, decode or copy the path. Literal segments take precedence over
+ * path parameters at the same level.
+ *
+ * Routes are declared on a builder with patterns such as "/borrowers/{borrower:uuid}/loans". A
+ * "{name}" segment matches any non-empty segment and "{name:uuid}" only a UUID.
+ */
+public final class Router {
+  // The route found for the paths under a root that is not implemented yet
+  public static final Route NOT_IMPLEMENTED = new Route(null, new int[0]);
+
+  // Internals
+  private final Node mRoot;
+
+  /**
+   * Constructor
+   * @param root the root node of the compiled trie
+   */
+  private Router(Node root) {
+    mRoot = root;
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Finds the route of the request path. Trailing slashes are ignored
+   * @param type the type of request (GET, POST, etc)
+   * @param uri the request URI
+   * @param start the index the path to route starts at within the URI
+   * @return the route found. NOT_IMPLEMENTED if under a root not implemented yet. NULL if none
+   */
+  public Route find(RequestType type, String uri, int start) {
+    int end = uri.length();
+    while (end > start && uri.charAt(end - 1) == '/') {
+      end--;
+    }
+
+    Node node = mRoot;
+    boolean notImplemented = false;
+    int segmentStart = start;
+    while (node != null && segmentStart < end) {
+      int segmentEnd = uri.indexOf('/', segmentStart);
+      if (segmentEnd < 0 || segmentEnd > end) {
+        segmentEnd = end;
+      }
+      node = node.child(uri, segmentStart, segmentEnd);
+      notImplemented |= (node != null && node.mNotImplemented);
+      segmentStart = segmentEnd + 1;
+    }
+
+    Route route = (node != null ? node.mRoutes[type.ordinal()] : null);
+    return (route == null && notImplemented ? NOT_IMPLEMENTED : route);
+  }
+
+  /*=============================================================
+   * INNER CLASSES
+   *============================================================*/
+
+  /**
+   * Declares the routes and compiles them into the router
+   */
+  public static class Builder {
+    private final Node mRoot = new Node();
+
+    /**
+     * Finds or adds the nodes of each segment of the pattern
+     * @param pattern the route pattern
+     * @param paramSegments filled with the segment index of each path parameter. NULL to skip
+     * @return the node at the end of the pattern
+     */
+    private Node addNodes(String pattern, List<Integer> paramSegments) {
+      String[] segments = pattern.split("/");
+      Node node = mRoot;
+      int segmentIndex = 0;
+      for (String segment : segments) {
+        if (segment.isEmpty()) {
+          continue;
+        }
+        if (segment.startsWith("{") && segment.endsWith("}")) {
+          ParamType paramType = (segment.endsWith(":uuid}") ? ParamType.UUID : ParamType.SEGMENT);
+          node = node.addParam(paramType, pattern);
+          if (paramSegments != null) {
+            paramSegments.add(segmentIndex);
+          }
+        } else {
+          node = node.addLiteral(segment);
+        }
+        segmentIndex++;
+      }
+      return node;
+    }
+
+    /**
+     * Adds a route
+     * @param type the type of request (GET, POST, etc)
+     * @param pattern the path pattern, relative to the servlet
+     * @param handler creates the executer of a request to the route
+     * @return this builder
+     */
+    public Builder add(RequestType type, String pattern, Handler handler) {
+      List<Integer> paramSegments = new ArrayList<>();
+      Node node = addNodes(pattern, paramSegments);
+      if (node.mRoutes[type.ordinal()] != null) {
+        throw new IllegalStateException("Duplicate route " + type + " " + pattern);
+      }
+
+      int[] segments = new int[paramSegments.size()];
+      for (int i = 0; i < segments.length; i++) {
+        segments[i] = paramSegments.get(i);
+      }
+      node.mRoutes[type.ordinal()] = new Route(handler, segments);
+      return this;
+    }
+
+    /**
+     * Builds the router. The builder should not be used after
+     * @return the compiled router
+     */
+    public Router build() {
+      return new Router(mRoot);
+    }
+
+    /**
+     * Marks a root whose routes are not implemented yet. Requests under it that don't match a
+     * route find NOT_IMPLEMENTED instead of nothing
+     * @param pattern the path pattern of the root
+     * @return this builder
+     */
+    public Builder notImplemented(String pattern) {
+      addNodes(pattern, null).mNotImplemented = true;
+      return this;
+    }
+  }
+
+  /**
+   * Creates the executer of a request to a route
+   */
+  public interface Handler {
+    AbstractExecuter create(PathParams params);
+  }
+
+  /**
+   * A node of the trie, for one segment of the path
+   */
+  private static class Node {
+    Node[] mLiteralNodes = new Node[0];
+    String[] mLiterals = new String[0];
+    boolean mNotImplemented = false;
+    Node mParam = null;
+    ParamType mParamType = null;
+    final Route[] mRoutes = new Route[RequestType.values().length];
+
+    Node addLiteral(String literal) {
+      for (int i = 0; i < mLiterals.length; i++) {
+        if (mLiterals[i].equals(literal)) {
+          return mLiteralNodes[i];
+        }
+      }
+      mLiterals = Arrays.copyOf(mLiterals, mLiterals.length + 1);
+      mLiteralNodes = Arrays.copyOf(mLiteralNodes, mLiteralNodes.length + 1);
+      mLiterals[mLiterals.length - 1] = literal;
+      mLiteralNodes[mLiteralNodes.length - 1] = new Node();
+      return mLiteralNodes[mLiteralNodes.length - 1];
+    }
+
+    Node addParam(ParamType paramType, String pattern) {
+      if (mParam == null) {
+        mParam = new Node();
+        mParamType = paramType;
+      } else if (mParamType != paramType) {
+        throw new IllegalStateException("Conflicting path parameter in route " + pattern);
+      }
+      return mParam;
+    }
+
+    Node child(String uri, int start, int end) {
+      int length = end - start;
+      for (int i = 0; i < mLiterals.length; i++) {
+        String literal = mLiterals[i];
+        if (literal.length() == length && uri.regionMatches(start, literal, 0, length)) {
+          return mLiteralNodes[i];
+        }
+      }
+      if (mParam != null && length > 0
+          && (mParamType != ParamType.UUID || StringHelper.isUuid(uri, start, end))) {
+        return mParam;
+      }
+      return null;
+    }
+  }
+
+  /**
+   * The types of path parameters
+   */
+  private enum ParamType {
+    SEGMENT,
+    UUID
+  }
+
+  /**
+   * The path parameters of a routed request, read from the URI when used
+   */
+  public static final class PathParams {
+    private final int[] mSegments;
+    private final int mStart;
+    private final String mUri;
+
+    /**
+     * Constructor
+     * @param uri the request URI
+     * @param start the index the routed path starts at within the URI
+     * @param segments the segment index of each path parameter
+     */
+    PathParams(String uri, int start, int[] segments) {
+      mSegments = segments;
+      mStart = start;
+      mUri = uri;
+    }
+
+    /**
+     * Returns a path parameter, URL decoded
+     * @param index the index of the parameter, in the order of the route pattern
+     * @return the parameter value
+     */
+    public String get(int index) {
+      int start = mStart;
+      for (int i = 0; i < mSegments[index]; i++) {
+        start = mUri.indexOf('/', start) + 1;
+      }
+      int end = mUri.indexOf('/', start);
+      String value = mUri.substring(start, end < 0 ? mUri.length() : end);
+
+      if (value.indexOf('%') < 0 && value.indexOf('+') < 0) {
+        return value;
+      }
+      try {
+        return URLDecoder.decode(value, "UTF-8");
+      } catch (UnsupportedEncodingException uee) {
+        throw new RuntimeException("Invalid URL encoding", uee);
+      }
+    }
+  }
+
+  /**
+   * A route, as declared on the builder
+   */
+  public static final class Route {
+    private final Handler mHandler;
+    private final int[] mParamSegments;
+
+    /**
+     * Constructor
+     * @param handler creates the executer of a request to the route
+     * @param paramSegments the segment index of each path parameter
+     */
+    Route(Handler handler, int[] paramSegments) {
+      mHandler = handler;
+      mParamSegments = paramSegments;
+    }
+
+    /**
+     * Creates the executer of the request
+     * @param uri the request URI the route was found for
+     * @param start the index the routed path starts at within the URI
+     * @return the executer to process the request with
+     */
+    public AbstractExecuter createExecuter(String uri, int start) {
+      return mHandler.create(new PathParams(uri, start, mParamSegments));
+    }
+  }
+}
@@ -1,9 +1,22 @@
 package com.gncompass.serverfront.db;
 
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 public abstract class AbstractBuilder {
 
+  /**
+   * Appends the bind parameters of the built statement, in placeholder order.
+   * @param params List to which the parameters will be appended.
+   */
+  protected abstract void appendParameters(List<SQLParameter> params);
+
   /**
    * Constructs a list of items with given separators.
    * @param sql StringBuilder to which the constructed string will be appended.
@@ -24,4 +37,66 @@ public abstract class AbstractBuilder {
       first = false;
     }
   }
+
+  /**
+   * Appends the bind parameters of every clause or nested builder in the list, in order.
+   * @param params List to which the parameters will be appended.
+   * @param list List of objects (clauses, builders or strings) to scan.
+   */
+  protected void appendParameters(List<SQLParameter> params, List<?> list) {
+    for (Object o : list) {
+      if (o instanceof Clause) {
+        params.addAll(((Clause) o).params);
+      } else if (o instanceof AbstractBuilder) {
+        ((AbstractBuilder) o).appendParameters(params);
+      }
+    }
+  }
+
+  /**
+   * Returns the bind parameters of the built statement, in placeholder order.
+   * @return the ordered list of parameters
+   */
+  public List<SQLParameter> getParameters() {
+    List<SQLParameter> params = new ArrayList<>();
+    appendParameters(params);
+    return params;
+  }
+
+  /**
+   * Prepares the built statement on the connection and binds all parameters. The SQL text only
+   * depends on the shape of the statement, so pooled connections reuse the prepared statement.
+   * @param conn Connection on which to prepare the statement.
+   * @return the prepared statement, ready to execute
+   * @throws SQLException if the statement could not be prepared or bound
+   */
+  public PreparedStatement prepare(Connection conn) throws SQLException {
+    PreparedStatement statement = conn.prepareStatement(toString());
+    int index = 1;
+    for (SQLParameter param : getParameters()) {
+      param.bind(statement, index++);
+    }
+    return statement;
+  }
+
+  /**
+   * An expression containing '?' placeholders together with the values bound to them.
+   */
+  protected static class Clause implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private final String expr;
+    private final List<SQLParameter> params;
+
+    public Clause(String expr, SQLParameter... params) {
+      this.expr = expr;
+      this.params = (params.length > 0 ? Arrays.asList(params)
+                                        : Collections.<SQLParameter>emptyList());
+    }
+
+    @Override
+    public String toString() {
+      return expr;
+    }
+  }
 }
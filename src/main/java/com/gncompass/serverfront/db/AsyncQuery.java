@@ -0,0 +1,163 @@
+package com.gncompass.serverfront.db;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs independent database reads concurrently. Queries run on a bounded executor with one thread
+ * per pooled connection, so fanning out never queues more work on the pool than it can serve at
+ * once. When the executor is saturated the caller runs the query itself.
+ *
+ * Each query borrows its own connection, since a connection can't be shared across threads, but
+ * keeps the read replica routing of the request that submitted it. The request gives its idle
+ * connections back to the pool while it waits in join(), so the queries it waits on can always
+ * get one, even when waiting requests would otherwise hold the whole pool. Inside a transaction
+ * the connection can't be given back, so queries are run by the caller instead.
+ *
+ * <pre>
+ * CompletableFuture&lt;List&lt;Loan&gt;&gt; loans =
+ *     AsyncQuery.supply(() -&gt; Loan.getAllForBorrower(b));
+ * CompletableFuture&lt;Assessment&gt; approved =
+ *     AsyncQuery.supply(() -&gt; new Assessment().getLastApproved(b));
+ * useBoth(AsyncQuery.join(loans), AsyncQuery.join(approved));
+ * </pre>
+ */
+public final class AsyncQuery {
+  private static final long KEEP_ALIVE_S = 60L;
+  private static final int QUEUE_PER_THREAD = 16;
+
+  // Created on first use and shut down with the SQL Manager
+  private static volatile ThreadPoolExecutor sExecutor = null;
+  private static final Object sExecutorLock = new Object();
+
+  private AsyncQuery() {
+  }
+
+  /*=============================================================
+   * PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Returns the query executor, creating it on first use
+   * @return the query executor
+   */
+  private static ThreadPoolExecutor getExecutor() {
+    ThreadPoolExecutor executor = sExecutor;
+    if (executor == null) {
+      synchronized (sExecutorLock) {
+        executor = sExecutor;
+        if (executor == null) {
+          int threads = Math.max(1, SQLManager.getMaxPoolSize());
+          executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_S, TimeUnit.SECONDS,
+              new ArrayBlockingQueue<Runnable>(threads * QUEUE_PER_THREAD),
+              new QueryThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+          executor.allowCoreThreadTimeOut(true);
+          sExecutor = executor;
+        }
+      }
+    }
+    return executor;
+  }
+
+  /*=============================================================
+   * PACKAGE-PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Stops the query executor. Queries already submitted are still run
+   */
+  static void shutdown() {
+    synchronized (sExecutorLock) {
+      if (sExecutor != null) {
+        sExecutor.shutdown();
+        sExecutor = null;
+      }
+    }
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Waits for the query result. Unwraps the failure of the query so it surfaces the same way as
+   * if the query was run directly
+   * @param future the future returned by supply()
+   * @return the query result
+   */
+  public static <T> T join(CompletableFuture<T> future) {
+    UnitOfWork work = UnitOfWork.current();
+    if (work != null && !future.isDone()) {
+      work.releaseIdle();
+    }
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      } else if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Starts the query on the executor, or runs it right away if the caller has a transaction open.
+   * The query keeps the read routing of the calling request and counts towards its statements
+   * @param query the query to run. Typically a model fetch call
+   * @return the future result of the query
+   */
+  public static <T> CompletableFuture<T> supply(Supplier<T> query) {
+    // Run on the transaction connection, which is held until the transaction ends
+    UnitOfWork work = UnitOfWork.current();
+    if (work != null && work.isTransaction()) {
+      CompletableFuture<T> future = new CompletableFuture<>();
+      try {
+        future.complete(query.get());
+      } catch (RuntimeException | Error e) {
+        future.completeExceptionally(e);
+      }
+      return future;
+    }
+
+    final Boolean route = SQLManager.getRoute();
+    final AtomicInteger request = QueryStats.getRequest();
+    return CompletableFuture.supplyAsync(() -> {
+      Boolean previous = SQLManager.getRoute();
+      AtomicInteger previousRequest = QueryStats.getRequest();
+      SQLManager.setRoute(route);
+      QueryStats.setRequest(request);
+      try {
+        return query.get();
+      } finally {
+        SQLManager.setRoute(previous);
+        QueryStats.setRequest(previousRequest);
+      }
+    }, getExecutor());
+  }
+
+  /*=============================================================
+   * INNER CLASSES
+   *============================================================*/
+
+  /**
+   * Creates named daemon threads for the query executor
+   */
+  private static class QueryThreadFactory implements ThreadFactory {
+    private final AtomicInteger mCount = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "sql-async-" + mCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.gncompass.serverfront.db;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The position of each table's columns within the result of a select. Resolved once when the
+ * select is compiled, so models read a row by column index instead of having the driver look up
+ * every table scoped label. A table's columns are expected to be added to the select together and
+ * in the same order the model reads them back.
+ */
+public final class ColumnLayout {
+
+  private final Map<String, Integer> mStarts;
+
+  /**
+   * Constructor
+   * @param columns the select columns, in select order. Only 'Table.column' entries are mapped
+   */
+  ColumnLayout(List<?> columns) {
+    Map<String, Integer> starts = new HashMap<>();
+    for (int i = 0; i < columns.size(); i++) {
+      Object column = columns.get(i);
+      if (column instanceof String) {
+        String name = (String) column;
+        int split = name.indexOf('.');
+        if (split > 0 && !starts.containsKey(name.substring(0, split))) {
+          starts.put(name.substring(0, split), i + 1);
+        }
+      }
+    }
+    mStarts = Collections.unmodifiableMap(starts);
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Checks if the select contains any columns for the table
+   * @param table the table name
+   * @return TRUE if the table has columns in the select. FALSE otherwise
+   */
+  public boolean contains(String table) {
+    return mStarts.containsKey(table);
+  }
+
+  /**
+   * Returns the result set index of the first column for the table
+   * @param table the table name
+   * @return the 1 based column index
+   */
+  public int getStart(String table) {
+    Integer start = mStarts.get(table);
+    if (start == null) {
+      throw new IllegalArgumentException(
+          "The select does not contain any columns for the table. table=" + table);
+    }
+    return start;
+  }
+}
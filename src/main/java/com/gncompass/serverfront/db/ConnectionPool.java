@@ -0,0 +1,35 @@
+package com.gncompass.serverfront.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Pluggable connection pool used by the SQL Manager. Connections returned by the pool are
+ * returned to it by calling close() on the connection reference
+ */
+public interface ConnectionPool {
+
+  /**
+   * Borrows a connection from the pool, waiting up to the configured max wait if none are free
+   * @return a connection reference. Close it to return it to the pool
+   * @throws SQLException if a connection could not be established or the wait timed out
+   */
+  Connection borrow() throws SQLException;
+
+  /**
+   * Closes the pool and all idle connections. Borrowed connections are closed on return
+   */
+  void close();
+
+  /**
+   * Returns the number of connections currently idle in the pool
+   * @return the idle connection count
+   */
+  int getIdleCount();
+
+  /**
+   * Returns the total number of connections opened by the pool, borrowed and idle
+   * @return the total connection count
+   */
+  int getTotalCount();
+}
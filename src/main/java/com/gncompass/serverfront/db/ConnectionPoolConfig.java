@@ -0,0 +1,165 @@
+package com.gncompass.serverfront.db;
+
+/**
+ * Sizing and validation configuration for a connection pool
+ */
+public class ConnectionPoolConfig {
+  // Defaults
+  private static final int DEFAULT_MIN_SIZE = 2;
+  private static final int DEFAULT_MAX_SIZE = 5; // The hard limit is 12 by google
+  private static final long DEFAULT_MAX_WAIT_MS = 30000L;
+  private static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+  private static final long DEFAULT_VALIDATE_IDLE_MS = 5000L;
+  private static final int DEFAULT_VALIDATE_TIMEOUT_S = 2;
+
+  // Configuration
+  private final String mAddress;
+  private int mMaxSize = DEFAULT_MAX_SIZE;
+  private long mMaxWaitMs = DEFAULT_MAX_WAIT_MS;
+  private int mMinSize = DEFAULT_MIN_SIZE;
+  private int mStatementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+  private long mValidateIdleMs = DEFAULT_VALIDATE_IDLE_MS;
+  private int mValidateTimeoutS = DEFAULT_VALIDATE_TIMEOUT_S;
+
+  /**
+   * Constructor with the JDBC address that connections are opened against
+   * @param address the JDBC connection address
+   */
+  public ConnectionPoolConfig(String address) {
+    mAddress = address;
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Returns the JDBC connection address
+   * @return the connection address
+   */
+  public String getAddress() {
+    return mAddress;
+  }
+
+  /**
+   * Returns the maximum number of connections, borrowed and idle, the pool will open
+   * @return the maximum pool size
+   */
+  public int getMaxSize() {
+    return mMaxSize;
+  }
+
+  /**
+   * Returns how long a borrow will wait for a free connection before failing
+   * @return the max wait in milliseconds
+   */
+  public long getMaxWaitMs() {
+    return mMaxWaitMs;
+  }
+
+  /**
+   * Returns the number of connections opened when the pool is created
+   * @return the minimum pool size
+   */
+  public int getMinSize() {
+    return mMinSize;
+  }
+
+  /**
+   * Returns the number of prepared statements cached on each connection
+   * @return the statement cache size. 0 if statement caching is disabled
+   */
+  public int getStatementCacheSize() {
+    return mStatementCacheSize;
+  }
+
+  /**
+   * Returns how long a connection can sit idle before it is validated on the next borrow
+   * @return the idle validation threshold in milliseconds
+   */
+  public long getValidateIdleMs() {
+    return mValidateIdleMs;
+  }
+
+  /**
+   * Returns the timeout passed to the JDBC4 isValid() check
+   * @return the validation timeout in seconds
+   */
+  public int getValidateTimeoutS() {
+    return mValidateTimeoutS;
+  }
+
+  /**
+   * Sets the maximum pool size. Values less than 1 are ignored
+   * @param maxSize the maximum number of connections
+   * @return this config
+   */
+  public ConnectionPoolConfig setMaxSize(int maxSize) {
+    if (maxSize > 0) {
+      mMaxSize = maxSize;
+    }
+    return this;
+  }
+
+  /**
+   * Sets the max wait for a free connection. Negative values are ignored
+   * @param maxWaitMs the max wait in milliseconds
+   * @return this config
+   */
+  public ConnectionPoolConfig setMaxWaitMs(long maxWaitMs) {
+    if (maxWaitMs >= 0) {
+      mMaxWaitMs = maxWaitMs;
+    }
+    return this;
+  }
+
+  /**
+   * Sets the minimum pool size. Negative values are ignored
+   * @param minSize the number of connections opened on pool creation
+   * @return this config
+   */
+  public ConnectionPoolConfig setMinSize(int minSize) {
+    if (minSize >= 0) {
+      mMinSize = minSize;
+    }
+    return this;
+  }
+
+  /**
+   * Sets the number of prepared statements cached on each connection. Negative values are
+   * ignored. 0 disables statement caching
+   * @param statementCacheSize the statement cache size
+   * @return this config
+   */
+  public ConnectionPoolConfig setStatementCacheSize(int statementCacheSize) {
+    if (statementCacheSize >= 0) {
+      mStatementCacheSize = statementCacheSize;
+    }
+    return this;
+  }
+
+  /**
+   * Sets the idle time after which a connection is validated before use. Negative values are
+   * ignored. 0 validates on every borrow
+   * @param validateIdleMs the idle validation threshold in milliseconds
+   * @return this config
+   */
+  public ConnectionPoolConfig setValidateIdleMs(long validateIdleMs) {
+    if (validateIdleMs >= 0) {
+      mValidateIdleMs = validateIdleMs;
+    }
+    return this;
+  }
+
+  /**
+   * Sets the timeout passed to the JDBC4 isValid() check. Values less than 1 are ignored
+   * @param validateTimeoutS the validation timeout in seconds
+   * @return this config
+   */
+  public ConnectionPoolConfig setValidateTimeoutS(int validateTimeoutS) {
+    if (validateTimeoutS > 0) {
+      mValidateTimeoutS = validateTimeoutS;
+    }
+    return this;
+  }
+}
@@ -12,13 +12,19 @@ public class DeleteBuilder extends AbstractBuilder implements Serializable {
 
   private static final long serialVersionUID = 1;
   private String table;
-  private List<String> joins = new ArrayList<>();
-  private List<String> wheres = new ArrayList<String>();
+  private List<Clause> joins = new ArrayList<>();
+  private List<Clause> wheres = new ArrayList<>();
 
   public DeleteBuilder(String table) {
     this.table = table;
   }
 
+  @Override
+  protected void appendParameters(List<SQLParameter> params) {
+    appendParameters(params, joins);
+    appendParameters(params, wheres);
+  }
+
   @Override
   public String toString() {
     if (wheres.size() == 0) {
@@ -38,13 +44,13 @@ public class DeleteBuilder extends AbstractBuilder implements Serializable {
     return sql.toString();
   }
 
-  public DeleteBuilder join(String table, String on) {
-    joins.add(table + " ON " + on);
+  public DeleteBuilder join(String table, String on, SQLParameter... params) {
+    joins.add(new Clause(table + " ON " + on, params));
     return this;
   }
 
-  public DeleteBuilder where(String expr) {
-    wheres.add(expr);
+  public DeleteBuilder where(String expr, SQLParameter... params) {
+    wheres.add(new Clause(expr, params));
     return this;
   }
 }
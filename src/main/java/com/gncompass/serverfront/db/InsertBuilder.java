@@ -1,11 +1,16 @@
 package com.gncompass.serverfront.db;
 
 import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Builder for building SQL insert statements.
+ * Builder for building SQL insert statements. Several rows can be inserted in one statement by
+ * calling row() between them, with each row setting the same columns in the same order.
  * Modified from code developed by John Krasnay <john@krasnay.ca>
  */
 public class InsertBuilder extends AbstractBuilder implements Serializable {
@@ -14,6 +19,8 @@ public class InsertBuilder extends AbstractBuilder implements Serializable {
   private String table;
   private List<String> columns = new ArrayList<String>();
   private List<String> values = new ArrayList<String>();
+  private List<SQLParameter> params = new ArrayList<>();
+  private List<List<String>> rows = new ArrayList<>();
 
   /**
    * Constructor.
@@ -23,6 +30,11 @@ public class InsertBuilder extends AbstractBuilder implements Serializable {
     this.table = table;
   }
 
+  @Override
+  protected void appendParameters(List<SQLParameter> params) {
+    params.addAll(this.params);
+  }
+
   /**
    * Inserts a column name, value pair into the SQL.
    * @param column Name of the table column.
@@ -33,28 +45,89 @@ public class InsertBuilder extends AbstractBuilder implements Serializable {
    *              of {@link ParameterizedPreparedStatementCreator}, e.g. ":foo".
    */
   public InsertBuilder set(String column, String value) {
-    columns.add(column);
+    if (rows.isEmpty()) {
+      columns.add(column);
+    } else if (values.size() >= columns.size() || !columns.get(values.size()).equals(column)) {
+      throw new IllegalStateException(
+          "Each row must set the same columns in the same order. column=" + column);
+    }
     values.add(value);
     return this;
   }
 
   /**
-   * Inserts a column name, value string pair into the SQL. Adds a single quote wrapper to the value
+   * Inserts a column name and a bound value into the SQL. The value is rendered as a '?'
+   * placeholder and bound when the statement is prepared
    * @param column Name of the table column
-   * @param value Value to substitute in that is a string
+   * @param value Value to bind
    * @return the insert builder reference
    */
-  public InsertBuilder setString(String column, String value) {
-    return set(column, "'" + value + "'");
+  public InsertBuilder set(String column, SQLParameter value) {
+    params.add(value);
+    return set(column, "?");
+  }
+
+  /**
+   * Executes the insert and returns the auto increment key generated for each row, in one round
+   * trip regardless of the number of rows
+   * @param conn Connection on which to execute the insert
+   * @return the generated key of each row, in row order
+   * @throws SQLException if the insert failed or did not generate a key for every row
+   */
+  public long[] executeForKeys(Connection conn) throws SQLException {
+    PreparedStatement statement = conn.prepareStatement(toString(),
+                                                        Statement.RETURN_GENERATED_KEYS);
+    int index = 1;
+    for (SQLParameter param : params) {
+      param.bind(statement, index++);
+    }
+    statement.executeUpdate();
+    return QueryTemplate.getGeneratedKeys(statement, getRowCount());
+  }
+
+  /**
+   * Returns the number of rows the insert will add
+   * @return the row count
+   */
+  public int getRowCount() {
+    return rows.size() + (values.isEmpty() ? 0 : 1);
+  }
+
+  /**
+   * Ends the current row of values and starts the next one, for a multi-row insert
+   * @return the insert builder reference
+   */
+  public InsertBuilder row() {
+    if (values.size() != columns.size()) {
+      throw new IllegalStateException("The row only set " + values.size() + " of "
+          + columns.size() + " columns");
+    }
+    rows.add(values);
+    values = new ArrayList<String>();
+    return this;
   }
 
   @Override
   public String toString() {
     StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
     appendList(sql, columns, "", ", ");
-    sql.append(") VALUES (");
-    appendList(sql, values, "", ", ");
-    sql.append(")");
+    sql.append(") VALUES ");
+    boolean first = true;
+    for (List<String> row : rows) {
+      if (!first) {
+        sql.append(", ");
+      }
+      appendList(sql.append("("), row, "", ", ");
+      sql.append(")");
+      first = false;
+    }
+    if (first || !values.isEmpty()) {
+      if (!first) {
+        sql.append(", ");
+      }
+      appendList(sql.append("("), values, "", ", ");
+      sql.append(")");
+    }
     return sql.toString();
   }
 }
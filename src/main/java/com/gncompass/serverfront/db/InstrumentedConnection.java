@@ -0,0 +1,204 @@
+package com.gncompass.serverfront.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Wraps a connection so every statement it runs is timed and recorded in the query stats. The
+ * rows of a query are counted as its result set is read and recorded when it is closed.
+ */
+final class InstrumentedConnection implements InvocationHandler {
+  private final Connection mConnection;
+
+  private InstrumentedConnection(Connection connection) {
+    mConnection = connection;
+  }
+
+  /*=============================================================
+   * PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Invokes the method on the wrapped object, rethrowing the original failure
+   * @param target the wrapped object
+   * @param method the method called on the proxy
+   * @param args the call arguments
+   * @return the call result
+   * @throws Throwable the failure thrown by the wrapped object
+   */
+  private static Object delegate(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    switch (method.getName()) {
+      case "equals":
+        return proxy == args[0];
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "toString":
+        return mConnection.toString();
+      default:
+        break;
+    }
+
+    Object result = delegate(mConnection, method, args);
+    if (result instanceof CallableStatement) {
+      return new StatementHandle((Connection) proxy, (Statement) result, (String) args[0])
+          .proxy(CallableStatement.class);
+    } else if (result instanceof PreparedStatement) {
+      return new StatementHandle((Connection) proxy, (Statement) result, (String) args[0])
+          .proxy(PreparedStatement.class);
+    } else if (result instanceof Statement) {
+      return new StatementHandle((Connection) proxy, (Statement) result, null)
+          .proxy(Statement.class);
+    }
+    return result;
+  }
+
+  /*=============================================================
+   * STATIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Wraps the connection with statement instrumentation
+   * @param connection the connection to wrap
+   * @return the instrumented connection. Closing it closes the wrapped connection
+   */
+  static Connection wrap(Connection connection) {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+        new Class<?>[] { Connection.class }, new InstrumentedConnection(connection));
+  }
+
+  /*=============================================================
+   * INNER CLASSES
+   *============================================================*/
+
+  /**
+   * Proxy handler for a result set. Counts the rows read and records them against the statement
+   * shape when closed
+   */
+  private static class ResultSetHandle implements InvocationHandler {
+    private boolean mClosed = false;
+    private long mRows = 0L;
+    private final ResultSet mResultSet;
+    private final QueryStats.Shape mShape;
+
+    private ResultSetHandle(ResultSet resultSet, QueryStats.Shape shape) {
+      mResultSet = resultSet;
+      mShape = shape;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!mClosed) {
+            mClosed = true;
+            mShape.addRows(mRows);
+          }
+          break;
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        default:
+          break;
+      }
+
+      Object result = delegate(mResultSet, method, args);
+      if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+        mRows++;
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Proxy handler for a statement. Times each execution
+   */
+  private static class StatementHandle implements InvocationHandler {
+    private final Connection mOwner;
+    private final String mSql;
+    private final Statement mStatement;
+
+    private StatementHandle(Connection owner, Statement statement, String sql) {
+      mOwner = owner;
+      mSql = sql;
+      mStatement = statement;
+    }
+
+    private Statement proxy(Class<? extends Statement> type) {
+      return (Statement) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                                                this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "getConnection":
+          return mOwner;
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return mStatement.toString();
+        default:
+          break;
+      }
+      if (!method.getName().startsWith("execute")) {
+        return delegate(mStatement, method, args);
+      }
+
+      // Plain statements carry the SQL on the execute call
+      String sql = mSql;
+      if (sql == null && args != null && args.length > 0 && args[0] instanceof String) {
+        sql = (String) args[0];
+      } else if (sql == null) {
+        sql = "(batch)";
+      }
+
+      Object result;
+      long start = System.nanoTime();
+      try {
+        result = delegate(mStatement, method, args);
+      } catch (Throwable e) {
+        QueryStats.recordStatement(sql, System.nanoTime() - start, true);
+        throw e;
+      }
+      QueryStats.Shape shape = QueryStats.recordStatement(sql, System.nanoTime() - start, false);
+
+      // Rows read are counted as the result is iterated. Rows written are known now
+      if (result instanceof ResultSet) {
+        return Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+            new Class<?>[] { ResultSet.class }, new ResultSetHandle((ResultSet) result, shape));
+      } else if (result instanceof Integer || result instanceof Long) {
+        shape.addRows(((Number) result).longValue());
+      } else if (result instanceof int[]) {
+        for (int count : (int[]) result) {
+          if (count > 0) {
+            shape.addRows(count);
+          }
+        }
+      }
+      return result;
+    }
+  }
+}
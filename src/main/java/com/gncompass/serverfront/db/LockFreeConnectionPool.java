@@ -0,0 +1,305 @@
+package com.gncompass.serverfront.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Default connection pool. Idle connections sit in a lock-free deque and capacity is tracked with
+ * a non-fair semaphore, so borrow and return only block when the pool is exhausted. Connections
+ * are only validated with the JDBC4 isValid() check after sitting idle past the threshold.
+ * Each physical connection keeps a prepared statement cache that lives across borrows
+ */
+public class LockFreeConnectionPool implements ConnectionPool {
+  private static final Logger LOG = Logger.getLogger(LockFreeConnectionPool.class.getName());
+
+  private final ConnectionPoolConfig mConfig;
+  private final ConcurrentLinkedDeque<PooledConnection> mIdle = new ConcurrentLinkedDeque<>();
+  private final Semaphore mPermits;
+  private final AtomicInteger mTotal = new AtomicInteger();
+  private volatile boolean mClosed = false;
+
+  /**
+   * Constructor. Opens the minimum number of connections defined by the config
+   * @param config the pool configuration
+   */
+  public LockFreeConnectionPool(ConnectionPoolConfig config) {
+    mConfig = config;
+    mPermits = new Semaphore(config.getMaxSize(), false);
+
+    int prefill = Math.min(config.getMinSize(), config.getMaxSize());
+    for (int i = 0; i < prefill; i++) {
+      try {
+        mIdle.offerFirst(openConnection());
+      } catch (SQLException e) {
+        LOG.log(Level.WARNING, "Unable to prefill the connection pool", e);
+        break;
+      }
+    }
+  }
+
+  /*=============================================================
+   * PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Closes the physical connection and frees its slot in the pool
+   * @param pooled the pooled connection to discard
+   */
+  private void discard(PooledConnection pooled) {
+    mTotal.decrementAndGet();
+    if (pooled.mStatementCache != null) {
+      pooled.mStatementCache.closeAll();
+    }
+    try {
+      pooled.mConnection.close();
+    } catch (SQLException e) {
+      // Ignore. Connection is being thrown away
+    }
+  }
+
+  /**
+   * Checks if an idle connection can be handed out. Connections idle longer than the configured
+   * threshold are validated with a round trip to the server
+   * @param pooled the pooled connection to check
+   * @return TRUE if the connection can be used. FALSE if it should be discarded
+   */
+  private boolean isUsable(PooledConnection pooled) {
+    try {
+      long idleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pooled.mLastUsedNanos);
+      if (idleMs >= mConfig.getValidateIdleMs()) {
+        return pooled.mConnection.isValid(mConfig.getValidateTimeoutS());
+      }
+      return !pooled.mConnection.isClosed();
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Opens a new physical connection and counts it against the pool total
+   * @return the new pooled connection
+   * @throws SQLException if the connection could not be established
+   */
+  private PooledConnection openConnection() throws SQLException {
+    mTotal.incrementAndGet();
+    try {
+      return new PooledConnection(DriverManager.getConnection(mConfig.getAddress()));
+    } catch (SQLException e) {
+      mTotal.decrementAndGet();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns a connection to the pool. Any open transaction is rolled back and the connection
+   * is discarded if it is broken or the pool has been closed
+   * @param pooled the pooled connection being returned
+   */
+  private void release(PooledConnection pooled) {
+    try {
+      boolean reusable = !mClosed;
+      try {
+        if (reusable && !pooled.mConnection.isClosed() && !pooled.mConnection.getAutoCommit()) {
+          pooled.mConnection.rollback();
+          pooled.mConnection.setAutoCommit(true);
+        }
+        reusable = reusable && !pooled.mConnection.isClosed();
+      } catch (SQLException e) {
+        reusable = false;
+      }
+
+      if (reusable) {
+        pooled.mLastUsedNanos = System.nanoTime();
+        mIdle.offerFirst(pooled);
+      } else {
+        discard(pooled);
+      }
+    } finally {
+      mPermits.release();
+    }
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  @Override
+  public Connection borrow() throws SQLException {
+    if (mClosed) {
+      throw new SQLException("The connection pool is closed");
+    }
+
+    // Fast path is a single CAS. Only park when every connection is borrowed
+    try {
+      if (!mPermits.tryAcquire()
+          && !mPermits.tryAcquire(mConfig.getMaxWaitMs(), TimeUnit.MILLISECONDS)) {
+        throw new SQLTimeoutException("Timed out after " + mConfig.getMaxWaitMs()
+            + "ms waiting for a pooled connection");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for a pooled connection", e);
+    }
+
+    // Most recently used first, since it is the least likely to need validation
+    try {
+      PooledConnection pooled;
+      while ((pooled = mIdle.pollFirst()) != null) {
+        if (isUsable(pooled)) {
+          return pooled.lease();
+        }
+        discard(pooled);
+      }
+      return openConnection().lease();
+    } catch (SQLException | RuntimeException e) {
+      mPermits.release();
+      throw e;
+    }
+  }
+
+  @Override
+  public void close() {
+    mClosed = true;
+    PooledConnection pooled;
+    while ((pooled = mIdle.pollFirst()) != null) {
+      discard(pooled);
+    }
+  }
+
+  @Override
+  public int getIdleCount() {
+    return mIdle.size();
+  }
+
+  @Override
+  public int getTotalCount() {
+    return mTotal.get();
+  }
+
+  /*=============================================================
+   * INNER CLASSES
+   *============================================================*/
+
+  /**
+   * A physical connection owned by the pool
+   */
+  private class PooledConnection {
+    private final Connection mConnection;
+    private volatile long mLastUsedNanos = System.nanoTime();
+    private final PreparedStatementCache mStatementCache;
+
+    private PooledConnection(Connection connection) {
+      mConnection = connection;
+      mStatementCache = (mConfig.getStatementCacheSize() > 0
+          ? new PreparedStatementCache(mConfig.getStatementCacheSize()) : null);
+    }
+
+    /**
+     * Hands out a proxy for a single borrow. Closing the proxy returns the connection once
+     * @return the leased connection proxy
+     */
+    private Connection lease() {
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+          new Class<?>[] { Connection.class }, new Lease(this));
+    }
+  }
+
+  /**
+   * Proxy handler for a borrowed connection. Intercepts close() to return it to the pool and
+   * rejects any use after it has been returned. Single SQL prepareStatement() calls are served
+   * from the statement cache and any other statement is closed when the borrow ends
+   */
+  private class Lease implements InvocationHandler {
+    private final List<PreparedStatementCache.CachedStatement> mCheckedOut = new ArrayList<>();
+    private final List<Statement> mOpened = new ArrayList<>();
+    private final PooledConnection mPooled;
+    private final AtomicBoolean mReturned = new AtomicBoolean(false);
+
+    private Lease(PooledConnection pooled) {
+      mPooled = pooled;
+    }
+
+    /**
+     * Ends the borrow. Cached statements are checked back in and all others are closed
+     */
+    private void end() {
+      for (PreparedStatementCache.CachedStatement cached : mCheckedOut) {
+        cached.checkin();
+      }
+      for (Statement statement : mOpened) {
+        try {
+          statement.close();
+        } catch (SQLException e) {
+          // Ignore. Statement is being thrown away
+        }
+      }
+      mCheckedOut.clear();
+      mOpened.clear();
+      release(mPooled);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (mReturned.compareAndSet(false, true)) {
+            end();
+          }
+          return null;
+        case "isClosed":
+          return mReturned.get() || mPooled.mConnection.isClosed();
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "PooledConnection[" + mPooled.mConnection + "]";
+        default:
+          break;
+      }
+
+      if (mReturned.get()) {
+        throw new SQLException("The connection has already been returned to the pool");
+      }
+
+      // Statement cache, keyed by the SQL text
+      if (mPooled.mStatementCache != null && method.getName().equals("prepareStatement")
+          && args.length == 1) {
+        PreparedStatementCache.CachedStatement cached =
+            mPooled.mStatementCache.checkout((Connection) proxy, mPooled.mConnection,
+                                             (String) args[0]);
+        if (cached != null) {
+          mCheckedOut.add(cached);
+          return cached.getHandle();
+        }
+      }
+
+      Object result;
+      try {
+        result = method.invoke(mPooled.mConnection, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+      if (result instanceof Statement) {
+        mOpened.add((Statement) result);
+      }
+      return result;
+    }
+  }
+}
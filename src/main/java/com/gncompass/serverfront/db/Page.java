@@ -0,0 +1,49 @@
+package com.gncompass.serverfront.db;
+
+import java.util.List;
+
+/**
+ * A single page of rows from a keyset paginated select
+ */
+public final class Page<T> {
+  private final List<T> mItems;
+  private final PageCursor mNextCursor;
+
+  /**
+   * Constructor
+   * @param items the rows of the page, in order
+   * @param nextCursor the cursor to the following page. NULL if this is the last page
+   */
+  public Page(List<T> items, PageCursor nextCursor) {
+    mItems = items;
+    mNextCursor = nextCursor;
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Returns the rows of the page
+   * @return the page rows, in order
+   */
+  public List<T> getItems() {
+    return mItems;
+  }
+
+  /**
+   * Returns the cursor to the following page
+   * @return the next page cursor. NULL if this is the last page
+   */
+  public PageCursor getNextCursor() {
+    return mNextCursor;
+  }
+
+  /**
+   * Checks if there are rows after this page
+   * @return TRUE if there is a following page. FALSE otherwise
+   */
+  public boolean hasNext() {
+    return mNextCursor != null;
+  }
+}
@@ -0,0 +1,83 @@
+package com.gncompass.serverfront.db;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * The position of the last row of a page in a (key, id) keyset ordering. Handed to clients as an
+ * opaque URL safe token, which they pass back to fetch the following page
+ */
+public final class PageCursor {
+  private static final int TOKEN_BYTES = 2 * Long.BYTES;
+
+  private final long mId;
+  private final long mKey;
+
+  /**
+   * Constructor
+   * @param key the sort key of the row. Timestamps are stored in milliseconds
+   * @param id the unique id of the row
+   */
+  public PageCursor(long key, long id) {
+    mId = id;
+    mKey = key;
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Returns the unique id of the last row
+   * @return the row id
+   */
+  public long getId() {
+    return mId;
+  }
+
+  /**
+   * Returns the sort key of the last row
+   * @return the sort key
+   */
+  public long getKey() {
+    return mKey;
+  }
+
+  /**
+   * Encodes the cursor into the token given to clients
+   * @return the opaque cursor token
+   */
+  public String toToken() {
+    byte[] bytes = ByteBuffer.allocate(TOKEN_BYTES).putLong(mKey).putLong(mId).array();
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  @Override
+  public String toString() {
+    return toToken();
+  }
+
+  /*=============================================================
+   * STATIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Decodes a cursor token from a client
+   * @param token the opaque cursor token
+   * @return the cursor. NULL if the token is not a valid cursor
+   */
+  public static PageCursor fromToken(String token) {
+    if (token != null) {
+      try {
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+        if (bytes.length == TOKEN_BYTES) {
+          ByteBuffer buffer = ByteBuffer.wrap(bytes);
+          return new PageCursor(buffer.getLong(), buffer.getLong());
+        }
+      } catch (IllegalArgumentException e) {
+        // Fall through. Not a valid token
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,190 @@
+package com.gncompass.serverfront.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of prepared statements for a single physical connection, keyed by
+ * the SQL text. Since the builders emit '?' placeholders, the SQL text is the statement shape and
+ * the same statement is parsed once and executed many times across borrows.
+ *
+ * A connection is only ever used by one borrower at a time, so this is not thread safe.
+ */
+class PreparedStatementCache {
+
+  private final Map<String, CachedStatement> mStatements;
+
+  /**
+   * Constructor
+   * @param maxSize the maximum number of statements kept open on the connection
+   */
+  PreparedStatementCache(final int maxSize) {
+    mStatements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+        if (size() > maxSize) {
+          eldest.getValue().evict();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /*=============================================================
+   * PACKAGE-PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Closes every cached statement. Called when the physical connection is discarded
+   */
+  void closeAll() {
+    for (CachedStatement cached : mStatements.values()) {
+      cached.evict();
+    }
+    mStatements.clear();
+  }
+
+  /**
+   * Checks out the cached statement for the SQL, preparing it on first use
+   * @param owner the borrowed connection handed out to the caller
+   * @param connection the physical connection
+   * @param sql the SQL text to prepare
+   * @return the checked out statement. NULL if the statement is already checked out
+   * @throws SQLException if the statement could not be prepared
+   */
+  CachedStatement checkout(Connection owner, Connection connection, String sql)
+      throws SQLException {
+    CachedStatement cached = mStatements.get(sql);
+    if (cached == null) {
+      cached = new CachedStatement(connection.prepareStatement(sql));
+      mStatements.put(sql, cached);
+    } else if (cached.mCheckedOut) {
+      return null;
+    } else {
+      cached.mStatement.clearParameters();
+      cached.mStatement.clearBatch();
+    }
+    cached.mCheckedOut = true;
+    cached.mHandle = (PreparedStatement) Proxy.newProxyInstance(
+        PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+        new Handle(owner, cached));
+    return cached;
+  }
+
+  /*=============================================================
+   * INNER CLASSES
+   *============================================================*/
+
+  /**
+   * A prepared statement owned by the cache
+   */
+  static class CachedStatement {
+    private boolean mCheckedOut = false;
+    private boolean mEvicted = false;
+    private PreparedStatement mHandle = null;
+    private final PreparedStatement mStatement;
+
+    private CachedStatement(PreparedStatement statement) {
+      mStatement = statement;
+    }
+
+    /**
+     * Closes the statement now, or once it is checked back in if it is still in use
+     */
+    private void evict() {
+      mEvicted = true;
+      if (!mCheckedOut) {
+        close();
+      }
+    }
+
+    private void close() {
+      try {
+        mStatement.close();
+      } catch (SQLException e) {
+        // Ignore. Statement is being thrown away
+      }
+    }
+
+    /**
+     * Returns the statement to the cache. Called on statement close or when the borrow ends
+     */
+    void checkin() {
+      if (mCheckedOut) {
+        mCheckedOut = false;
+        mHandle = null;
+        if (mEvicted) {
+          close();
+        }
+      }
+    }
+
+    /**
+     * Returns the handle given to the caller for this checkout
+     * @return the prepared statement handle
+     */
+    PreparedStatement getHandle() {
+      return mHandle;
+    }
+  }
+
+  /**
+   * Proxy handler for a checked out statement. Closing it checks it back in, instead of closing
+   * the underlying statement
+   */
+  private static class Handle implements InvocationHandler {
+    private final CachedStatement mCached;
+    private boolean mClosed = false;
+    private final Connection mOwner;
+
+    private Handle(Connection owner, CachedStatement cached) {
+      mOwner = owner;
+      mCached = cached;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!mClosed) {
+            mClosed = true;
+            if (mCached.mHandle == proxy) {
+              mCached.checkin();
+            }
+          }
+          return null;
+        case "isClosed":
+          return mClosed || mCached.mStatement.isClosed();
+        case "getConnection":
+          return mOwner;
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return mCached.mStatement.toString();
+        default:
+          break;
+      }
+
+      if (mClosed || mCached.mHandle != proxy) {
+        throw new SQLException("The prepared statement has already been closed");
+      }
+      try {
+        return method.invoke(mCached.mStatement, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+}
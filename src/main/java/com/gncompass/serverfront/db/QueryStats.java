@@ -0,0 +1,313 @@
+package com.gncompass.serverfront.db;
+
+import com.gncompass.serverfront.util.StateHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+
+/**
+ * Aggregated SQL statistics for the instance. Every statement run on a connection handed out by
+ * the SQL Manager is recorded against its shape. Since the builders emit '?' placeholders, the
+ * SQL text is the shape. Also tracks how long borrows wait on the pools and how many statements
+ * each request runs. Statements slower than the threshold are logged as they complete.
+ */
+public final class QueryStats {
+  private static final Logger LOG = Logger.getLogger(QueryStats.class.getName());
+
+  // Histogram bucket upper bounds. Values above the last bound fall in an overflow bucket
+  private static final long[] BOUNDS_COUNT = { 1, 2, 5, 10, 20, 50, 100 };
+  private static final long[] BOUNDS_MS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000 };
+
+  // Shapes past the limit are recorded together, so unparameterized SQL can't grow the map
+  private static final int MAX_SHAPES = 512;
+  private static final String SHAPE_OTHER = "(other)";
+
+  // Requests running more statements than the budget fail in development and are logged in
+  // production, so a reintroduced query per row shows up early. Zero disables the check
+  private static final String PROPERTY_REQUEST_MAX_STATEMENTS = "sql-request-max-statements";
+  private static final int REQUEST_MAX_STATEMENTS = 0;
+
+  // Statements taking at least this long are logged
+  private static final String PROPERTY_SLOW_QUERY_MS = "sql-slow-query-ms";
+  private static final long SLOW_QUERY_MS = 1000L;
+
+  private static final Histogram sBorrowWait = new Histogram(BOUNDS_MS, TimeUnit.MILLISECONDS);
+  private static final ThreadLocal<AtomicInteger> sRequest = new ThreadLocal<>();
+  private static volatile int sRequestMaxStatements = REQUEST_MAX_STATEMENTS;
+  private static final Histogram sRequestStatements = new Histogram(BOUNDS_COUNT, null);
+  private static final Map<String, Shape> sShapes = new ConcurrentHashMap<>();
+  private static volatile long sSlowQueryNanos = TimeUnit.MILLISECONDS.toNanos(SLOW_QUERY_MS);
+  private static final long sStartedMs = System.currentTimeMillis();
+
+  private QueryStats() {
+  }
+
+  /*=============================================================
+   * PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Checks the statement count of the request against the budget, once it is first exceeded
+   * @param count the statements run by the request so far, including this one
+   * @param sql the SQL text of the statement that was just run
+   */
+  private static void checkRequestBudget(int count, String sql) {
+    int max = sRequestMaxStatements;
+    if (max > 0 && count == max + 1) {
+      String message = "Request exceeded the statement budget. max=" + max + " sql=" + sql;
+      if (!StateHelper.isProduction()) {
+        throw new IllegalStateException(message);
+      }
+      LOG.log(Level.SEVERE, message);
+    }
+  }
+
+  /*=============================================================
+   * PACKAGE-PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Starts counting the statements run by this thread for a request. Does nothing if already
+   * counting
+   */
+  static void beginRequest() {
+    if (sRequest.get() == null) {
+      sRequest.set(new AtomicInteger());
+    }
+  }
+
+  /**
+   * Stops counting the statements for the request and records the total
+   */
+  static void endRequest() {
+    AtomicInteger request = sRequest.get();
+    if (request != null) {
+      sRequest.remove();
+      sRequestStatements.record(request.get());
+    }
+  }
+
+  /**
+   * Returns the statement counter of the request on this thread, so it can be carried to another
+   * thread
+   * @return the request statement counter. NULL if not in a request
+   */
+  static AtomicInteger getRequest() {
+    return sRequest.get();
+  }
+
+  /**
+   * Loads the slow query threshold and request budget. Called once on SQL Manager init
+   */
+  static void init() {
+    sRequestMaxStatements =
+        StateHelper.getProperty(PROPERTY_REQUEST_MAX_STATEMENTS, REQUEST_MAX_STATEMENTS);
+    sSlowQueryNanos = TimeUnit.MILLISECONDS.toNanos(
+        StateHelper.getProperty(PROPERTY_SLOW_QUERY_MS, SLOW_QUERY_MS));
+  }
+
+  /**
+   * Records the time spent waiting on a pool for a connection
+   * @param waitNanos the wait time in nanoseconds
+   */
+  static void recordBorrow(long waitNanos) {
+    sBorrowWait.record(waitNanos);
+  }
+
+  /**
+   * Records an executed statement and logs it if slow. Also counts it against the request budget
+   * @param sql the SQL text of the statement
+   * @param elapsedNanos the execution time in nanoseconds
+   * @param failed TRUE if the execution threw. FALSE otherwise
+   * @return the shape the statement was recorded against, for adding the rows once known
+   */
+  static Shape recordStatement(String sql, long elapsedNanos, boolean failed) {
+    Shape shape = sShapes.get(sql);
+    if (shape == null) {
+      String key = (sShapes.size() < MAX_SHAPES ? sql : SHAPE_OTHER);
+      shape = sShapes.computeIfAbsent(key, Shape::new);
+    }
+    shape.mLatency.record(elapsedNanos);
+    if (failed) {
+      shape.mErrors.increment();
+    }
+
+    if (elapsedNanos >= sSlowQueryNanos) {
+      LOG.log(Level.WARNING, "Slow query. elapsed=" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos)
+          + "ms failed=" + failed + " sql=" + sql);
+    }
+
+    AtomicInteger request = sRequest.get();
+    if (request != null) {
+      checkRequestBudget(request.incrementAndGet(), sql);
+    }
+    return shape;
+  }
+
+  /**
+   * Sets the statement counter of the request on this thread, as returned by getRequest()
+   * @param request the request statement counter. NULL to stop counting
+   */
+  static void setRequest(AtomicInteger request) {
+    if (request != null) {
+      sRequest.set(request);
+    } else {
+      sRequest.remove();
+    }
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Clears all the recorded statistics
+   */
+  public static void reset() {
+    sBorrowWait.reset();
+    sRequestStatements.reset();
+    sShapes.clear();
+  }
+
+  /**
+   * Returns a snapshot of the statistics. Shapes are ordered by total execution time, slowest
+   * first
+   * @return the statistics JSON object
+   */
+  public static JsonObject toJson() {
+    List<Shape> shapes = new ArrayList<>(sShapes.values());
+    Collections.sort(shapes, new Comparator<Shape>() {
+      @Override
+      public int compare(Shape a, Shape b) {
+        return Long.compare(b.mLatency.mSum.sum(), a.mLatency.mSum.sum());
+      }
+    });
+
+    JsonArrayBuilder shapesBuilder = Json.createArrayBuilder();
+    for (Shape shape : shapes) {
+      shapesBuilder.add(shape.toJsonBuilder());
+    }
+    return Json.createObjectBuilder()
+        .add("since", sStartedMs)
+        .add("slow_query_ms", TimeUnit.NANOSECONDS.toMillis(sSlowQueryNanos))
+        .add("request_max_statements", sRequestMaxStatements)
+        .add("borrow_wait_ms", sBorrowWait.toJsonBuilder())
+        .add("request_statements", sRequestStatements.toJsonBuilder())
+        .add("queries", shapesBuilder)
+        .build();
+  }
+
+  /*=============================================================
+   * INNER CLASSES
+   *============================================================*/
+
+  /**
+   * A lock free histogram with fixed bucket bounds
+   */
+  private static class Histogram {
+    private final long[] mBounds;
+    private final AtomicLongArray mBuckets;
+    private final LongAdder mCount = new LongAdder();
+    private final AtomicLong mMax = new AtomicLong();
+    private final LongAdder mSum = new LongAdder();
+    private final long mUnitNanos;
+
+    /**
+     * Constructor
+     * @param bounds the bucket upper bounds, ascending
+     * @param unit the time unit of the bounds, for values recorded in nanoseconds. NULL for
+     *             values recorded as plain counts
+     */
+    private Histogram(long[] bounds, TimeUnit unit) {
+      mBounds = bounds;
+      mBuckets = new AtomicLongArray(bounds.length + 1);
+      mUnitNanos = (unit != null ? unit.toNanos(1L) : 1L);
+    }
+
+    private void record(long value) {
+      int bucket = 0;
+      while (bucket < mBounds.length && value > mBounds[bucket] * mUnitNanos) {
+        bucket++;
+      }
+      mBuckets.incrementAndGet(bucket);
+      mCount.increment();
+      mSum.add(value);
+      long max = mMax.get();
+      while (value > max && !mMax.compareAndSet(max, value)) {
+        max = mMax.get();
+      }
+    }
+
+    private void reset() {
+      for (int i = 0; i < mBuckets.length(); i++) {
+        mBuckets.set(i, 0L);
+      }
+      mCount.reset();
+      mMax.set(0L);
+      mSum.reset();
+    }
+
+    private JsonObjectBuilder toJsonBuilder() {
+      long count = mCount.sum();
+      double unit = mUnitNanos;
+      JsonObjectBuilder bucketsBuilder = Json.createObjectBuilder();
+      for (int i = 0; i < mBounds.length; i++) {
+        bucketsBuilder.add("<=" + mBounds[i], mBuckets.get(i));
+      }
+      bucketsBuilder.add(">" + mBounds[mBounds.length - 1], mBuckets.get(mBounds.length));
+
+      return Json.createObjectBuilder()
+          .add("count", count)
+          .add("mean", count > 0 ? mSum.sum() / unit / count : 0.0d)
+          .add("max", mMax.get() / unit)
+          .add("buckets", bucketsBuilder);
+    }
+  }
+
+  /**
+   * The statistics of a single statement shape
+   */
+  static class Shape {
+    private final LongAdder mErrors = new LongAdder();
+    private final Histogram mLatency = new Histogram(BOUNDS_MS, TimeUnit.MILLISECONDS);
+    private final LongAdder mRows = new LongAdder();
+    private final String mSql;
+
+    private Shape(String sql) {
+      mSql = sql;
+    }
+
+    private JsonObjectBuilder toJsonBuilder() {
+      return Json.createObjectBuilder()
+          .add("sql", mSql)
+          .add("errors", mErrors.sum())
+          .add("rows", mRows.sum())
+          .add("total_ms", TimeUnit.NANOSECONDS.toMillis(mLatency.mSum.sum()))
+          .add("latency_ms", mLatency.toJsonBuilder());
+    }
+
+    /**
+     * Adds the rows read or written by a statement of this shape
+     * @param rows the row count
+     */
+    void addRows(long rows) {
+      mRows.add(rows);
+    }
+  }
+}
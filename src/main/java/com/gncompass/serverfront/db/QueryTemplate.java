@@ -0,0 +1,232 @@
+package com.gncompass.serverfront.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * An immutable, precompiled SQL statement with '?' bind slots. Models declare their query shapes
+ * once as static templates, built from the SQL builders at class initialization, so executing a
+ * query does no SQL building at all. The slots are bound in the order they appear in the SQL.
+ * Templates compiled from a select also carry the column layout of their result.
+ *
+ * <pre>
+ * private static final QueryTemplate SELECT_BY_ID = QueryTemplate.compile(
+ *     new SelectBuilder("Employee").column("name").where("id=?"));
+ *
+ * SELECT_BY_ID.prepare(conn, SQLParameter.of(id)).executeQuery();
+ * </pre>
+ *
+ * Writes of many rows can bind the same template once per row and execute them together as a
+ * single JDBC batch.
+ */
+public final class QueryTemplate {
+
+  private final ColumnLayout mLayout;
+  private final int mSlotCount;
+  private final String mSql;
+
+  private QueryTemplate(String sql, ColumnLayout layout) {
+    int slotCount = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      if (sql.charAt(i) == '?') {
+        slotCount++;
+      }
+    }
+
+    mLayout = layout;
+    mSlotCount = slotCount;
+    mSql = sql;
+  }
+
+  /*=============================================================
+   * PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Binds each row of values to the statement and adds it to the batch
+   * @param statement the statement prepared from this template
+   * @param rows the values to bind for each execution. Each must match the number of slots
+   * @return the statement, ready to execute the batch
+   * @throws SQLException if the values could not be bound
+   */
+  private PreparedStatement bindBatch(PreparedStatement statement, List<SQLParameter[]> rows)
+      throws SQLException {
+    for (SQLParameter[] params : rows) {
+      bind(statement, params);
+      statement.addBatch();
+    }
+    return statement;
+  }
+
+  /**
+   * Binds the values to the slots of the statement, in order
+   * @param statement the statement prepared from this template
+   * @param params the values to bind. Must match the number of slots
+   * @return the statement, ready to execute
+   * @throws SQLException if the values could not be bound
+   */
+  private PreparedStatement bind(PreparedStatement statement, SQLParameter[] params)
+      throws SQLException {
+    checkSlots(params);
+    for (int i = 0; i < params.length; i++) {
+      params[i].bind(statement, i + 1);
+    }
+    return statement;
+  }
+
+  /**
+   * Checks that the number of values matches the number of slots in the template
+   * @param params the values to bind
+   */
+  private void checkSlots(SQLParameter[] params) {
+    if (params.length != mSlotCount) {
+      throw new IllegalArgumentException("Query template expects " + mSlotCount
+          + " parameters but received " + params.length + ". sql=" + mSql);
+    }
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Executes the template once for each row of values as a single JDBC batch
+   * @param conn the connection to execute the batch on
+   * @param rows the values to bind for each execution. Each must match the number of slots
+   * @return the update count of each row, in row order
+   * @throws SQLException if the batch could not be prepared or executed
+   */
+  public int[] executeBatch(Connection conn, List<SQLParameter[]> rows) throws SQLException {
+    if (rows.isEmpty()) {
+      return new int[0];
+    }
+    return bindBatch(conn.prepareStatement(mSql), rows).executeBatch();
+  }
+
+  /**
+   * Executes an insert template once for each row of values as a single JDBC batch and returns
+   * the auto increment key generated for each row
+   * @param conn the connection to execute the batch on
+   * @param rows the values to bind for each execution. Each must match the number of slots
+   * @return the generated key of each row, in row order
+   * @throws SQLException if the batch failed or did not generate a key for every row
+   */
+  public long[] executeBatchForKeys(Connection conn, List<SQLParameter[]> rows)
+      throws SQLException {
+    if (rows.isEmpty()) {
+      return new long[0];
+    }
+    PreparedStatement statement = bindBatch(
+        conn.prepareStatement(mSql, Statement.RETURN_GENERATED_KEYS), rows);
+    statement.executeBatch();
+    return getGeneratedKeys(statement, rows.size());
+  }
+
+  /**
+   * Executes an insert template once and returns the auto increment key it generated, in the
+   * same round trip
+   * @param conn the connection to execute the insert on
+   * @param params the values to bind. Must match the number of slots
+   * @return the generated key
+   * @throws SQLException if the insert failed or did not generate a key
+   */
+  public long executeForKey(Connection conn, SQLParameter... params) throws SQLException {
+    checkSlots(params);
+    PreparedStatement statement = bind(
+        conn.prepareStatement(mSql, Statement.RETURN_GENERATED_KEYS), params);
+    statement.executeUpdate();
+    return getGeneratedKeys(statement, 1)[0];
+  }
+
+  /**
+   * Returns the column layout of the result, for templates compiled from a select
+   * @return the column layout
+   */
+  public ColumnLayout getLayout() {
+    if (mLayout == null) {
+      throw new IllegalStateException("Query template is not a select. sql=" + mSql);
+    }
+    return mLayout;
+  }
+
+  /**
+   * Returns the number of bind slots in the template
+   * @return the slot count
+   */
+  public int getSlotCount() {
+    return mSlotCount;
+  }
+
+  /**
+   * Prepares the template on the connection and binds the values to the slots, in order
+   * @param conn the connection to prepare the statement on
+   * @param params the values to bind. Must match the number of slots
+   * @return the prepared statement, ready to execute
+   * @throws SQLException if the statement could not be prepared or bound
+   */
+  public PreparedStatement prepare(Connection conn, SQLParameter... params) throws SQLException {
+    checkSlots(params);
+    return bind(conn.prepareStatement(mSql), params);
+  }
+
+  @Override
+  public String toString() {
+    return mSql;
+  }
+
+  /*=============================================================
+   * STATIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Compiles the builder into a template. The builder must declare its slots with '?' and not
+   * carry any bound values, since the template is shared by every execution
+   * @param builder the builder defining the query shape
+   * @return the compiled query template
+   */
+  public static QueryTemplate compile(AbstractBuilder builder) {
+    if (!builder.getParameters().isEmpty()) {
+      throw new IllegalArgumentException(
+          "Query templates cannot contain bound values. Use '?' slots instead");
+    }
+    ColumnLayout layout = null;
+    if (builder instanceof SelectBuilder) {
+      layout = new ColumnLayout(((SelectBuilder) builder).getColumns());
+    }
+    return new QueryTemplate(builder.toString(), layout);
+  }
+
+  /**
+   * Reads the auto increment keys generated by an executed insert
+   * @param statement the executed statement, prepared to return generated keys
+   * @param count the number of rows that were inserted
+   * @return the generated key of each row, in row order
+   * @throws SQLException if a key was not generated for every row
+   */
+  static long[] getGeneratedKeys(Statement statement, int count) throws SQLException {
+    long[] keys = new long[count];
+    int found = 0;
+    try (ResultSet rs = statement.getGeneratedKeys()) {
+      while (found < count && rs.next()) {
+        keys[found++] = rs.getLong(1);
+      }
+    }
+    if (found != count) {
+      throw new SQLException("Expected " + count + " generated keys but received " + found);
+    }
+    return keys;
+  }
+
+  /**
+   * Compiles a raw SQL string into a template
+   * @param sql the SQL with '?' slots
+   * @return the compiled query template
+   */
+  public static QueryTemplate compile(String sql) {
+    return new QueryTemplate(sql, null);
+  }
+}
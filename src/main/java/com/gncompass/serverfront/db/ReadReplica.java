@@ -0,0 +1,146 @@
+package com.gncompass.serverfront.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A read-only replica behind its own connection pool. The replication lag is sampled with the lag
+ * query at most once per check interval, by whichever caller finds the sample stale, and the
+ * replica is only handed out while the last sample is within the max lag. A failed sample or
+ * borrow marks the replica unavailable until the next check, so reads fall back to the primary
+ */
+public class ReadReplica {
+  private static final Logger LOG = Logger.getLogger(ReadReplica.class.getName());
+
+  // The MySQL replica status column. Any other lag query must return the lag as the first column
+  private static final String COLUMN_SECONDS_BEHIND = "Seconds_Behind_Master";
+
+  private volatile boolean mAvailable = false;
+  private final long mCheckIntervalNanos;
+  private volatile long mLagSeconds = -1L;
+  private final String mLagQuery;
+  private final long mMaxLagSeconds;
+  private final AtomicLong mNextCheckNanos = new AtomicLong(System.nanoTime());
+  private final ConnectionPool mPool;
+
+  /**
+   * Constructor
+   * @param pool the connection pool opened against the replica
+   * @param lagQuery the query returning the replication lag in seconds
+   * @param maxLagSeconds the largest lag at which the replica is still used
+   * @param checkIntervalMs how often the lag is sampled
+   */
+  public ReadReplica(ConnectionPool pool, String lagQuery, long maxLagSeconds,
+                     long checkIntervalMs) {
+    mCheckIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkIntervalMs);
+    mLagQuery = lagQuery;
+    mMaxLagSeconds = maxLagSeconds;
+    mPool = pool;
+  }
+
+  /*=============================================================
+   * PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Samples the replication lag and updates the availability
+   */
+  private void checkLag() {
+    long lagSeconds = -1L;
+    try (Connection conn = mPool.borrow()) {
+      try (ResultSet rs = conn.createStatement().executeQuery(mLagQuery)) {
+        if (rs.next()) {
+          long value = rs.getLong(getLagColumn(rs.getMetaData()));
+          if (!rs.wasNull()) {
+            lagSeconds = value;
+          }
+        }
+      }
+    } catch (SQLException e) {
+      LOG.log(Level.WARNING, "Unable to check the read replica lag", e);
+    }
+    setLag(lagSeconds);
+  }
+
+  /**
+   * Returns the result column holding the lag
+   * @param metaData the lag query result meta data
+   * @return the 1 based column index
+   * @throws SQLException if the meta data could not be read
+   */
+  private int getLagColumn(ResultSetMetaData metaData) throws SQLException {
+    for (int i = 1; i <= metaData.getColumnCount(); i++) {
+      if (COLUMN_SECONDS_BEHIND.equalsIgnoreCase(metaData.getColumnLabel(i))) {
+        return i;
+      }
+    }
+    return 1;
+  }
+
+  /**
+   * Records a lag sample. Logs whenever the replica switches between available and unavailable
+   * @param lagSeconds the lag in seconds. Negative if unknown
+   */
+  private void setLag(long lagSeconds) {
+    boolean available = (lagSeconds >= 0 && lagSeconds <= mMaxLagSeconds);
+    if (available != mAvailable) {
+      LOG.log(available ? Level.INFO : Level.WARNING, "Read replica is now "
+          + (available ? "available" : "unavailable") + ". lag=" + lagSeconds + "s");
+    }
+    mLagSeconds = lagSeconds;
+    mAvailable = available;
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Borrows a connection from the replica pool. A failure marks the replica unavailable
+   * @return a connection reference. Close it to return it to the pool
+   * @throws SQLException if a connection could not be established or the wait timed out
+   */
+  public Connection borrow() throws SQLException {
+    try {
+      return mPool.borrow();
+    } catch (SQLException e) {
+      setLag(-1L);
+      throw e;
+    }
+  }
+
+  /**
+   * Closes the replica connection pool
+   */
+  public void close() {
+    mPool.close();
+  }
+
+  /**
+   * Returns the replication lag from the last sample
+   * @return the lag in seconds. -1 if unknown
+   */
+  public long getLagSeconds() {
+    return mLagSeconds;
+  }
+
+  /**
+   * Checks if reads can be sent to the replica. Samples the lag first if the last one is stale
+   * @return TRUE if the replica is within the max lag. FALSE otherwise
+   */
+  public boolean isAvailable() {
+    long now = System.nanoTime();
+    long nextCheck = mNextCheckNanos.get();
+    if (now - nextCheck >= 0
+        && mNextCheckNanos.compareAndSet(nextCheck, now + mCheckIntervalNanos)) {
+      checkLag();
+    }
+    return mAvailable;
+  }
+}
@@ -0,0 +1,71 @@
+package com.gncompass.serverfront.db;
+
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The principals that wrote within the sticky window, so their reads stay on the primary. The
+ * mark is held in memcache with the window as its expiry, so a read served by another instance
+ * than the write still sees it. Each instance also keeps the marks it set, which answers its own
+ * reads without a memcache call and covers them if memcache is unavailable
+ */
+final class RecentWriters {
+  private static final String NAMESPACE = "writers";
+
+  // The local marks are swept of the expired ones once there are this many
+  private static final int SWEEP_SIZE = 1024;
+
+  private final Map<String, Long> mExpiries = new ConcurrentHashMap<>();
+  private final MemcacheService mMemcache;
+
+  /**
+   * Constructor
+   */
+  RecentWriters() {
+    mMemcache = MemcacheServiceFactory.getMemcacheService(NAMESPACE);
+  }
+
+  /*=============================================================
+   * PACKAGE-PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Checks if the principal wrote within the sticky window, on any instance
+   * @param principal the principal reference
+   * @return TRUE if its reads should stay on the primary. FALSE otherwise
+   */
+  boolean contains(String principal) {
+    Long expiry = mExpiries.get(principal);
+    if (expiry != null) {
+      if (expiry - System.nanoTime() > 0) {
+        return true;
+      }
+      mExpiries.remove(principal, expiry);
+    }
+    return mMemcache.contains(principal);
+  }
+
+  /**
+   * Marks the principal as having written, for the sticky window
+   * @param principal the principal reference
+   * @param stickyMs the milliseconds its reads stay on the primary
+   */
+  void mark(String principal, long stickyMs) {
+    if (mExpiries.size() >= SWEEP_SIZE) {
+      long now = System.nanoTime();
+      for (Iterator<Long> it = mExpiries.values().iterator(); it.hasNext(); ) {
+        if (it.next() - now <= 0) {
+          it.remove();
+        }
+      }
+    }
+    mExpiries.put(principal, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(stickyMs));
+    mMemcache.put(principal, Boolean.TRUE, Expiration.byDeltaMillis((int) stickyMs));
+  }
+}
@@ -0,0 +1,142 @@
+package com.gncompass.serverfront.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A declared parent to child relation, loaded in batches. The children of every parent in a set
+ * are fetched with one query matching the parent key column against an IN list, instead of one
+ * query per parent, and grouped back onto their parents in a single pass over the result. Each
+ * level of a relation tree costs one query per max parents per fetch, no matter how many parents.
+ *
+ * The IN list is padded up to the next power of two by repeating the last key, so only a handful
+ * of statement shapes are ever compiled and prepared.
+ *
+ * <pre>
+ * static final Relation&lt;Loan, LoanPayment&gt; PAYMENTS =
+ *     new Relation&lt;Loan, LoanPayment&gt;(paymentSelect, "LoanPayments.loan") { ... };
+ *
+ * PAYMENTS.load(conn, loans);
+ * </pre>
+ *
+ * @param <P> the parent model
+ * @param <C> the child model
+ */
+public abstract class Relation<P, C> {
+  private static final int MAX_PARENTS_PER_FETCH = 128;
+
+  private final int mKeyColumn;
+  private final QueryTemplate[] mTemplates;
+
+  /**
+   * Constructor. Compiles the child select for each size of the IN list
+   * @param childSelect the select for the child rows, without the parent filter. It must select
+   *                    the parent key column and should order by it first
+   * @param parentKeyColumn the table scoped child column holding the parent key
+   */
+  protected Relation(SelectBuilder childSelect, String parentKeyColumn) {
+    int keyIndex = childSelect.getColumns().indexOf(parentKeyColumn);
+    if (keyIndex < 0) {
+      throw new IllegalArgumentException(
+          "The child select does not contain the parent key column. column=" + parentKeyColumn);
+    }
+    mKeyColumn = keyIndex + 1;
+
+    mTemplates = new QueryTemplate[Integer.numberOfTrailingZeros(MAX_PARENTS_PER_FETCH) + 1];
+    for (int i = 0; i < mTemplates.length; i++) {
+      StringBuilder keyWhere = new StringBuilder(parentKeyColumn).append(" IN (?");
+      for (int slot = 1; slot < (1 << i); slot++) {
+        keyWhere.append(",?");
+      }
+      keyWhere.append(")");
+      mTemplates[i] = QueryTemplate.compile(childSelect.clone().where(keyWhere.toString()));
+    }
+  }
+
+  /*=============================================================
+   * PROTECTED FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Returns the key the children of the parent refer to it by
+   * @param parent the parent model
+   * @return the parent key
+   */
+  protected abstract long getParentKey(P parent);
+
+  /**
+   * Creates a child model from the current row
+   * @param resultSet the result set to pull the data from. This will not call .next()
+   * @param layout the column layout of the select that produced the result set
+   * @return the child model
+   * @throws SQLException if the data is unexpected in the result set
+   */
+  protected abstract C newChild(ResultSet resultSet, ColumnLayout layout) throws SQLException;
+
+  /**
+   * Stores the loaded children on the parent. Called for every parent, with an empty list if
+   * it has no children
+   * @param parent the parent model
+   * @param children the children of the parent, in the select order
+   */
+  protected abstract void setChildren(P parent, List<C> children);
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Loads the children of all the parents and stores them on each parent
+   * @param conn the connection to fetch the children through
+   * @param parents the parent models. Parents sharing a key share the same children list
+   * @throws SQLException exception on failed fetch
+   */
+  public void load(Connection conn, List<P> parents) throws SQLException {
+    Map<Long, List<C>> childrenByKey = new HashMap<>();
+    for (P parent : parents) {
+      long key = getParentKey(parent);
+      List<C> children = childrenByKey.get(key);
+      if (children == null) {
+        children = new ArrayList<>();
+        childrenByKey.put(key, children);
+      }
+      setChildren(parent, children);
+    }
+    List<Long> keys = new ArrayList<>(childrenByKey.keySet());
+    Collections.sort(keys);
+
+    for (int from = 0; from < keys.size(); from += MAX_PARENTS_PER_FETCH) {
+      // Pad the IN list up to the template size by repeating the last key
+      int count = Math.min(MAX_PARENTS_PER_FETCH, keys.size() - from);
+      int slotCount = Integer.highestOneBit(count);
+      if (slotCount < count) {
+        slotCount <<= 1;
+      }
+      SQLParameter[] params = new SQLParameter[slotCount];
+      for (int i = 0; i < slotCount; i++) {
+        params[i] = SQLParameter.of(keys.get(from + Math.min(i, count - 1)));
+      }
+
+      // Rows are expected grouped by parent key, so each group is matched to its list once
+      QueryTemplate template = mTemplates[Integer.numberOfTrailingZeros(slotCount)];
+      try (ResultSet rs = template.prepare(conn, params).executeQuery()) {
+        long currentKey = 0L;
+        List<C> children = null;
+        while (rs.next()) {
+          long key = rs.getLong(mKeyColumn);
+          if (children == null || key != currentKey) {
+            currentKey = key;
+            children = childrenByKey.get(key);
+          }
+          children.add(newChild(rs, template.getLayout()));
+        }
+      }
+    }
+  }
+}
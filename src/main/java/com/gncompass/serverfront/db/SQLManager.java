@@ -5,10 +5,12 @@ import com.gncompass.serverfront.util.StateHelper;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-
-import org.apache.commons.dbcp.BasicDataSource;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class SQLManager {
+  private static final Logger LOG = Logger.getLogger(SQLManager.class.getName());
+
   // Driver class identity information for pooling
   private static final String DRIVER_CLASS_DEV = "com.mysql.jdbc.Driver";
   private static final String DRIVER_CLASS_PROD = "com.mysql.jdbc.GoogleDriver";
@@ -21,57 +23,84 @@ public class SQLManager {
   // this amount to execute and there are no available spots for new connections.
   private static final long MAX_CONNECTION_WAIT_MS = 30000L;
 
-  // This datasource lives as long as the instance lives.
-  private static BasicDataSource sDataSource = null;
-  private static String sDataSourceAddress = null;
-  private static final Object sDataSourceLock = new Object();
+  // Pooled connections idle for longer than this are validated before being handed out
+  private static final long VALIDATE_IDLE_MS = 5000L;
+
+  // Number of prepared statements, by SQL shape, kept open on each pooled connection
+  private static final int STATEMENT_CACHE_SIZE = 64;
+
+  // System properties that override the pool defaults
+  private static final String PROPERTY_POOL_MAX = "sql-pool-max";
+  private static final String PROPERTY_POOL_MIN = "sql-pool-min";
+  private static final String PROPERTY_POOL_STATEMENT_CACHE = "sql-pool-statement-cache";
+  private static final String PROPERTY_POOL_VALIDATE_IDLE_MS = "sql-pool-validate-idle-ms";
+  private static final String PROPERTY_POOL_WAIT_MS = "sql-pool-wait-ms";
+
+  // Read replica defaults. Reads are only routed to the replica if its address is configured
+  private static final String REPLICA_LAG_QUERY = "SHOW SLAVE STATUS";
+  private static final long REPLICA_LAG_CHECK_MS = 1000L;
+  private static final long REPLICA_MAX_LAG_S = 5L;
+  private static final long REPLICA_STICKY_MS = 10000L;
+
+  // System properties that configure the read replica
+  private static final String PROPERTY_REPLICA = "cloudsql-replica";
+  private static final String PROPERTY_REPLICA_LOCAL = "cloudsql-replica-local";
+  private static final String PROPERTY_REPLICA_LAG_CHECK_MS = "sql-replica-lag-check-ms";
+  private static final String PROPERTY_REPLICA_LAG_QUERY = "sql-replica-lag-query";
+  private static final String PROPERTY_REPLICA_MAX_LAG_S = "sql-replica-max-lag-s";
+  private static final String PROPERTY_REPLICA_STICKY_MS = "sql-replica-sticky-ms";
+
+  // This pool lives as long as the instance lives. Only locked while it is being created
+  private static volatile ConnectionPool sConnectionPool = null;
+  private static final Object sConnectionPoolLock = new Object();
+  private static volatile String sDataSourceAddress = null;
+
+  // The read replica, created on first use. Same lifetime and lock as the primary pool
+  private static volatile ReadReplica sReadReplica = null;
+  private static volatile String sReplicaAddress = null;
+
+  // Per request routing. Principals that recently wrote, on any instance, stay on the primary
+  private static final RecentWriters sRecentWriters = new RecentWriters();
+  private static final ThreadLocal<Boolean> sRouteToReplica = new ThreadLocal<>();
+  private static final ThreadLocal<String> sWriter = new ThreadLocal<>();
+
+  /*=============================================================
+   * PRIVATE FUNCTIONS
+   *============================================================*/
 
   /**
-   * Fetches a connection reference from the available pool (default option)
-   * @return a connection reference
-   * @throws SQLException for any SQL connection errors. a connection could not be established
+   * Builds the pool configuration from the defaults and any system property overrides
+   * @param address the JDBC address the pool connects to
+   * @return the connection pool configuration
    */
-  public static Connection getConnection() throws SQLException {
-    return getConnection(true);
+  private static ConnectionPoolConfig buildPoolConfig(String address) {
+    return new ConnectionPoolConfig(address)
+        .setMinSize(StateHelper.getProperty(PROPERTY_POOL_MIN, MIN_CONNECTION_POOL_SIZE))
+        .setMaxSize(StateHelper.getProperty(PROPERTY_POOL_MAX, MAX_CONNECTION_POOL_SIZE))
+        .setMaxWaitMs(StateHelper.getProperty(PROPERTY_POOL_WAIT_MS, MAX_CONNECTION_WAIT_MS))
+        .setStatementCacheSize(StateHelper.getProperty(PROPERTY_POOL_STATEMENT_CACHE,
+                                                       STATEMENT_CACHE_SIZE))
+        .setValidateIdleMs(StateHelper.getProperty(PROPERTY_POOL_VALIDATE_IDLE_MS,
+                                                   VALIDATE_IDLE_MS));
   }
 
   /**
-   * Fetches a connection reference from either the available pool or just attempts to create a new
-   * one with the standard JDBC driver, depending on the input parameter
-   * @param useConnectionPool TRUE to use connection pool to fetch connection. FALSE to use JDBC
-   * @return a connection reference
-   * @throws SQLException for any SQL connection errors. a connection could not be established
+   * Returns the connection pool, creating the default pool on first use
+   * @return the connection pool
    */
-  public static Connection getConnection(boolean useConnectionPool) throws SQLException {
-    // Direct JDBC connection
-    if (!useConnectionPool) {
-      return resetAutoCommit(DriverManager.getConnection(sDataSourceAddress));
-    }
-
-    // Pooled connection
-    synchronized (sDataSourceLock) {
-      if (sDataSource == null) {
-        sDataSource = new BasicDataSource();
-        sDataSource.setDriverClassName(getDriverClassName());
-        sDataSource.setUrl(sDataSourceAddress);
-
-        sDataSource.setInitialSize(MIN_CONNECTION_POOL_SIZE);
-        sDataSource.setMaxActive(MAX_CONNECTION_POOL_SIZE);
-        sDataSource.setMaxIdle(MAX_CONNECTION_POOL_SIZE);
-        sDataSource.setMaxWait(MAX_CONNECTION_WAIT_MS);
-
-        sDataSource.setTestOnBorrow(true);
-        sDataSource.setValidationQuery("SELECT 1");
-
-        // From BasicDataSourceFactory.java, DBCP-215
-        // Trick to make sure that initialSize connections are created
-        if (sDataSource.getInitialSize() > 0) {
-          sDataSource.getLogWriter();
+  private static ConnectionPool getConnectionPool() {
+    ConnectionPool pool = sConnectionPool;
+    if (pool == null) {
+      synchronized (sConnectionPoolLock) {
+        pool = sConnectionPool;
+        if (pool == null) {
+          getDriverClassName();
+          pool = new LockFreeConnectionPool(buildPoolConfig(sDataSourceAddress));
+          sConnectionPool = pool;
         }
       }
-
-      return resetAutoCommit(sDataSource.getConnection());
-    } // synchronized dataSourceLock
+    }
+    return pool;
   }
 
   /**
@@ -96,12 +125,58 @@ public class SQLManager {
   }
 
   /**
-   * Basic initialization required for the SQL Manager. Called once on servlet init
+   * Returns the read replica, creating it on first use
+   * @return the read replica. NULL if no replica is configured
    */
-  public static void init() {
-    synchronized (sDataSourceLock) {
-      sDataSourceAddress = StateHelper.getProperty("cloudsql", "cloudsql-local");
+  private static ReadReplica getReadReplica() {
+    ReadReplica replica = sReadReplica;
+    if (replica == null && sReplicaAddress != null) {
+      synchronized (sConnectionPoolLock) {
+        replica = sReadReplica;
+        if (replica == null) {
+          getDriverClassName();
+          replica = new ReadReplica(
+              new LockFreeConnectionPool(buildPoolConfig(sReplicaAddress)),
+              StateHelper.getProperty(PROPERTY_REPLICA_LAG_QUERY) != null
+                  ? StateHelper.getProperty(PROPERTY_REPLICA_LAG_QUERY) : REPLICA_LAG_QUERY,
+              StateHelper.getProperty(PROPERTY_REPLICA_MAX_LAG_S, REPLICA_MAX_LAG_S),
+              StateHelper.getProperty(PROPERTY_REPLICA_LAG_CHECK_MS, REPLICA_LAG_CHECK_MS));
+          sReadReplica = replica;
+        }
+      }
+    }
+    return replica;
+  }
+
+  /**
+   * Checks if a read replica is set or configured
+   * @return TRUE if reads may be routed to a replica. FALSE otherwise
+   */
+  private static boolean hasReadReplica() {
+    return (sReadReplica != null || sReplicaAddress != null);
+  }
+
+  /**
+   * Borrows a pooled connection, without instrumentation
+   * @param replica TRUE to borrow from the read replica. FALSE for the primary
+   * @return a connection reference. Close it to return it to the pool
+   * @throws SQLException for any SQL connection errors. a connection could not be established
+   */
+  private static Connection borrowPooled(boolean replica) throws SQLException {
+    // Replica connection for read routed requests, as long as it is keeping up
+    if (replica) {
+      ReadReplica readReplica = getReadReplica();
+      if (readReplica != null && readReplica.isAvailable()) {
+        try {
+          return readReplica.borrow();
+        } catch (SQLException e) {
+          LOG.log(Level.WARNING, "Unable to borrow a read replica connection. Using primary", e);
+        }
+      }
     }
+
+    // Pooled connection. The pool restores auto commit when the connection is returned
+    return getConnectionPool().borrow();
   }
 
   /**
@@ -118,4 +193,181 @@ public class SQLManager {
     }
     return conn;
   }
+
+  /*=============================================================
+   * PACKAGE-PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Borrows a pooled connection. Replica borrows fall back to the primary if the replica is not
+   * configured, is lagging or fails to hand out a connection. The wait for the connection and
+   * every statement run on it are recorded in the query stats
+   * @param replica TRUE to borrow from the read replica. FALSE for the primary
+   * @return a connection reference. Close it to return it to the pool
+   * @throws SQLException for any SQL connection errors. a connection could not be established
+   */
+  static Connection borrow(boolean replica) throws SQLException {
+    long start = System.nanoTime();
+    Connection conn = borrowPooled(replica);
+    QueryStats.recordBorrow(System.nanoTime() - start);
+    return InstrumentedConnection.wrap(conn);
+  }
+
+  /**
+   * Returns the maximum number of connections the primary pool will open
+   * @return the maximum pool size
+   */
+  static int getMaxPoolSize() {
+    return StateHelper.getProperty(PROPERTY_POOL_MAX, MAX_CONNECTION_POOL_SIZE);
+  }
+
+  /**
+   * Returns the read routing of this thread, so it can be carried to another thread
+   * @return TRUE if routed to the read replica. NULL or FALSE otherwise
+   */
+  static Boolean getRoute() {
+    return sRouteToReplica.get();
+  }
+
+  /**
+   * Sets the read routing of this thread, as returned by getRoute()
+   * @param route TRUE to route to the read replica. NULL or FALSE otherwise
+   */
+  static void setRoute(Boolean route) {
+    if (route != null) {
+      sRouteToReplica.set(route);
+    } else {
+      sRouteToReplica.remove();
+    }
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Starts routing the connections fetched by this thread for a request. Reads go to the replica
+   * when one is configured and within its max lag, unless the principal wrote within the sticky
+   * window on any instance. Writes go to the primary and start the principal's sticky window
+   * when they end.
+   * Also opens, or joins, the request unit of work so the request shares one connection per pool
+   * @param readOnly TRUE if the request only reads. FALSE if it may write
+   * @param principal the reference of the user making the request. NULL if unknown
+   */
+  public static void beginRequest(boolean readOnly, String principal) {
+    UnitOfWork.begin();
+    QueryStats.beginRequest();
+    if (readOnly) {
+      sRouteToReplica.set(hasReadReplica()
+                          && (principal == null || !sRecentWriters.contains(principal)));
+    } else {
+      sWriter.set(principal);
+    }
+  }
+
+  /**
+   * Closes the connection pools. Called once on servlet destroy
+   */
+  public static void destroy() {
+    AsyncQuery.shutdown();
+    synchronized (sConnectionPoolLock) {
+      if (sConnectionPool != null) {
+        sConnectionPool.close();
+        sConnectionPool = null;
+      }
+      if (sReadReplica != null) {
+        sReadReplica.close();
+        sReadReplica = null;
+      }
+    }
+  }
+
+  /**
+   * Ends the request routing and unit of work for this thread. Must be called once the request
+   * is complete
+   */
+  public static void endRequest() {
+    String writer = sWriter.get();
+    if (writer != null && hasReadReplica()) {
+      sRecentWriters.mark(writer,
+          StateHelper.getProperty(PROPERTY_REPLICA_STICKY_MS, REPLICA_STICKY_MS));
+    }
+    sRouteToReplica.remove();
+    sWriter.remove();
+    QueryStats.endRequest();
+
+    UnitOfWork work = UnitOfWork.current();
+    if (work != null) {
+      work.end();
+    }
+  }
+
+  /**
+   * Fetches a connection reference from the available pool (default option)
+   * @return a connection reference
+   * @throws SQLException for any SQL connection errors. a connection could not be established
+   */
+  public static Connection getConnection() throws SQLException {
+    return getConnection(true);
+  }
+
+  /**
+   * Fetches a connection reference from either the available pool or just attempts to create a new
+   * one with the standard JDBC driver, depending on the input parameter
+   * @param useConnectionPool TRUE to use connection pool to fetch connection. FALSE to use JDBC
+   * @return a connection reference
+   * @throws SQLException for any SQL connection errors. a connection could not be established
+   */
+  public static Connection getConnection(boolean useConnectionPool) throws SQLException {
+    // Direct JDBC connection
+    if (!useConnectionPool) {
+      return InstrumentedConnection.wrap(
+          resetAutoCommit(DriverManager.getConnection(sDataSourceAddress)));
+    }
+
+    // Shared connection for the request unit of work, if one is open
+    boolean replica = Boolean.TRUE.equals(sRouteToReplica.get());
+    UnitOfWork work = UnitOfWork.current();
+    if (work != null) {
+      return work.getConnection(replica);
+    }
+    return borrow(replica);
+  }
+
+  /**
+   * Basic initialization required for the SQL Manager. Called once on servlet init
+   */
+  public static void init() {
+    sDataSourceAddress = StateHelper.getProperty("cloudsql", "cloudsql-local");
+    sReplicaAddress = StateHelper.getProperty(PROPERTY_REPLICA, PROPERTY_REPLICA_LOCAL);
+    QueryStats.init();
+  }
+
+  /**
+   * Replaces the default connection pool implementation. Must be called before the first pooled
+   * connection is fetched, typically right after init()
+   * @param pool the connection pool to use
+   */
+  public static void setConnectionPool(ConnectionPool pool) {
+    synchronized (sConnectionPoolLock) {
+      if (sConnectionPool != null) {
+        sConnectionPool.close();
+      }
+      sConnectionPool = pool;
+    }
+  }
+
+  /**
+   * Replaces the read replica. Must be called before the first read routed connection is
+   * fetched, typically right after init()
+   * @param replica the read replica to route reads to. NULL to use the configured replica, if any
+   */
+  public static void setReadReplica(ReadReplica replica) {
+    synchronized (sConnectionPoolLock) {
+      if (sReadReplica != null) {
+        sReadReplica.close();
+      }
+      sReadReplica = replica;
+    }
+  }
 }
@@ -0,0 +1,145 @@
+package com.gncompass.serverfront.db;
+
+import com.gncompass.serverfront.util.StringHelper;
+import com.gncompass.serverfront.util.UuidHelper;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * A typed value bound to a '?' placeholder in a built SQL statement
+ */
+public final class SQLParameter implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private enum Type {
+    BYTES,
+    DOUBLE,
+    LONG,
+    NULL,
+    STRING,
+    TIMESTAMP
+  }
+
+  private final Type mType;
+  private final Object mValue;
+
+  private SQLParameter(Type type, Object value) {
+    mType = type;
+    mValue = value;
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Binds the value to the statement at the given index
+   * @param statement the prepared statement to bind to
+   * @param index the 1-based placeholder index
+   * @throws SQLException if the bind fails
+   */
+  public void bind(PreparedStatement statement, int index) throws SQLException {
+    switch (mType) {
+      case BYTES:
+        statement.setBytes(index, (byte[]) mValue);
+        break;
+      case DOUBLE:
+        statement.setDouble(index, (Double) mValue);
+        break;
+      case LONG:
+        statement.setLong(index, (Long) mValue);
+        break;
+      case STRING:
+        statement.setString(index, (String) mValue);
+        break;
+      case TIMESTAMP:
+        statement.setTimestamp(index, (Timestamp) mValue);
+        break;
+      case NULL:
+      default:
+        statement.setNull(index, Types.NULL);
+        break;
+    }
+  }
+
+  @Override
+  public String toString() {
+    if (mType == Type.BYTES) {
+      return UuidHelper.LEADING_ZERO + StringHelper.bytesToHex((byte[]) mValue);
+    }
+    return String.valueOf(mValue);
+  }
+
+  /*=============================================================
+   * STATIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Creates a binary parameter
+   * @param value the bytes to bind
+   * @return the parameter
+   */
+  public static SQLParameter of(byte[] value) {
+    return value != null ? new SQLParameter(Type.BYTES, value) : ofNull();
+  }
+
+  /**
+   * Creates a floating point parameter
+   * @param value the double to bind
+   * @return the parameter
+   */
+  public static SQLParameter of(double value) {
+    return new SQLParameter(Type.DOUBLE, value);
+  }
+
+  /**
+   * Creates an integer parameter
+   * @param value the long to bind
+   * @return the parameter
+   */
+  public static SQLParameter of(long value) {
+    return new SQLParameter(Type.LONG, value);
+  }
+
+  /**
+   * Creates a string parameter. The value is bound as is, with no quoting or escaping needed
+   * @param value the string to bind
+   * @return the parameter
+   */
+  public static SQLParameter of(String value) {
+    return value != null ? new SQLParameter(Type.STRING, value) : ofNull();
+  }
+
+  /**
+   * Creates a binary parameter from a UUID, matching the BINARY(16) reference columns
+   * @param value the UUID to bind
+   * @return the parameter
+   */
+  public static SQLParameter of(UUID value) {
+    return value != null ? of(UuidHelper.getBytesFromUUID(value)) : ofNull();
+  }
+
+  /**
+   * Creates a null parameter
+   * @return the parameter
+   */
+  public static SQLParameter ofNull() {
+    return new SQLParameter(Type.NULL, null);
+  }
+
+  /**
+   * Creates a timestamp parameter
+   * @param value the date to bind
+   * @return the parameter
+   */
+  public static SQLParameter ofTimestamp(Date value) {
+    return value != null ? new SQLParameter(Type.TIMESTAMP, new Timestamp(value.getTime()))
+                         : ofNull();
+  }
+}
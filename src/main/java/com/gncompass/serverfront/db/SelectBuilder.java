@@ -41,14 +41,15 @@ public class SelectBuilder extends AbstractBuilder {
   private boolean distinct;
   private List<Object> columns = new ArrayList<>();
   private List<String> tables = new ArrayList<>();
-  private List<String> joins = new ArrayList<>();
-  private List<String> leftJoins = new ArrayList<>();
-  private List<String> wheres = new ArrayList<>();
+  private List<Clause> joins = new ArrayList<>();
+  private List<Clause> leftJoins = new ArrayList<>();
+  private List<Clause> wheres = new ArrayList<>();
   private List<String> groupBys = new ArrayList<>();
-  private List<String> havings = new ArrayList<>();
+  private List<Clause> havings = new ArrayList<>();
   private List<SelectBuilder> unions = new ArrayList<>();
   private List<String> orderBys = new ArrayList<>();
   private int limit = 0;
+  private String limitSlot = null;
   private int offset = 0;
   private boolean forUpdate;
   private boolean noWait;
@@ -89,13 +90,26 @@ public class SelectBuilder extends AbstractBuilder {
     }
 
     this.orderBys.addAll(other.orderBys);
+    this.limit = other.limit;
+    this.limitSlot = other.limitSlot;
+    this.offset = other.offset;
   }
 
   /**
-   * Alias for {@link #where(String)}.
+   * Alias for {@link #where(String, SQLParameter...)}.
    */
-  public SelectBuilder and(String expr) {
-    return where(expr);
+  public SelectBuilder and(String expr, SQLParameter... params) {
+    return where(expr, params);
+  }
+
+  @Override
+  protected void appendParameters(List<SQLParameter> params) {
+    appendParameters(params, columns);
+    appendParameters(params, joins);
+    appendParameters(params, leftJoins);
+    appendParameters(params, wheres);
+    appendParameters(params, havings);
+    appendParameters(params, unions);
   }
 
   public SelectBuilder column(String name) {
@@ -116,8 +130,15 @@ public class SelectBuilder extends AbstractBuilder {
     return this;
   }
 
+  /**
+   * Limits the number of rows returned, skipping the first rows. Prefer keyset() over large
+   * offsets, since the skipped rows are still read.
+   * @param limit Maximum number of rows to return.
+   * @param offset Number of rows to skip.
+   */
   public SelectBuilder limit(int limit, int offset) {
     this.limit = limit;
+    this.limitSlot = null;
     this.offset = offset;
     return this;
   }
@@ -126,6 +147,45 @@ public class SelectBuilder extends AbstractBuilder {
     return limit(limit, 0);
   }
 
+  /**
+   * Limits the number of rows returned with an expression, typically a '?' slot so the page
+   * size can be bound per execution.
+   * @param expr Limit expression.
+   */
+  public SelectBuilder limit(String expr) {
+    this.limit = 0;
+    this.limitSlot = expr;
+    this.offset = 0;
+    return this;
+  }
+
+  /**
+   * Orders by a (key, id) pair and, if seeking, only returns the rows after a position in that
+   * order. The id breaks ties between equal keys, so each page resumes exactly where the last
+   * one ended without reading the rows before it. Slots when seeking: key, key, id. If there is
+   * no key column, the rows are ordered by id only and the slot is: id
+   * @param keyColumn Sort key column. Can be null to order by the id alone.
+   * @param idColumn Unique id column.
+   * @param ascending If true, pages ascend. Otherwise, pages descend.
+   * @param seek If true, adds the seek past the position of the last row of the previous page.
+   */
+  public SelectBuilder keyset(String keyColumn, String idColumn, boolean ascending,
+                              boolean seek) {
+    String direction = (ascending ? ">" : "<");
+    if (seek) {
+      if (keyColumn != null) {
+        where("(" + keyColumn + direction + "? OR (" + keyColumn + "=? AND "
+              + idColumn + direction + "?))");
+      } else {
+        where(idColumn + direction + "?");
+      }
+    }
+    if (keyColumn != null) {
+      orderBy(keyColumn, ascending);
+    }
+    return orderBy(idColumn, ascending);
+  }
+
   @Override
   public SelectBuilder clone() {
     return new SelectBuilder(this);
@@ -146,6 +206,10 @@ public class SelectBuilder extends AbstractBuilder {
     return this;
   }
 
+  public List<Object> getColumns() {
+    return columns;
+  }
+
   public List<SelectBuilder> getUnions() {
     return unions;
   }
@@ -155,17 +219,18 @@ public class SelectBuilder extends AbstractBuilder {
     return this;
   }
 
-  public SelectBuilder having(String expr) {
-    havings.add(expr);
+  public SelectBuilder having(String expr, SQLParameter... params) {
+    havings.add(new Clause(expr, params));
     return this;
   }
 
-  public SelectBuilder join(String join, String on) {
-    return join(join, on, false);
+  public SelectBuilder join(String join, String on, SQLParameter... params) {
+    joins.add(new Clause(join + " ON " + on, params));
+    return this;
   }
 
-  public SelectBuilder join(String join, String on, boolean front) {
-    String onStatement = join + " ON " + on;
+  public SelectBuilder join(String join, String on, boolean front, SQLParameter... params) {
+    Clause onStatement = new Clause(join + " ON " + on, params);
     if(front) {
       joins.add(0, onStatement);
     } else {
@@ -175,13 +240,13 @@ public class SelectBuilder extends AbstractBuilder {
     return this;
   }
 
-  public SelectBuilder leftJoin(String join, String on) {
-    leftJoins.add(join + " ON " + on);
+  public SelectBuilder leftJoin(String join, String on, SQLParameter... params) {
+    leftJoins.add(new Clause(join + " ON " + on, params));
     return this;
   }
 
-  public SelectBuilder leftJoin(String join, String on, boolean front) {
-    String onStatement = join + " ON " + on;
+  public SelectBuilder leftJoin(String join, String on, boolean front, SQLParameter... params) {
+    Clause onStatement = new Clause(join + " ON " + on, params);
     if(front) {
       leftJoins.add(0, onStatement);
     } else {
@@ -242,6 +307,15 @@ public class SelectBuilder extends AbstractBuilder {
     appendList(sql, unions, " UNION ", " UNION ");
     appendList(sql, orderBys, " ORDER BY ", ", ");
 
+    if (limitSlot != null) {
+      sql.append(" LIMIT ").append(limitSlot);
+    } else if (limit > 0) {
+      sql.append(" LIMIT ").append(limit);
+      if (offset > 0) {
+        sql.append(" OFFSET ").append(offset);
+      }
+    }
+
     if (forUpdate) {
       sql.append(" FOR UPDATE");
       if (noWait) {
@@ -249,11 +323,6 @@ public class SelectBuilder extends AbstractBuilder {
       }
     }
 
-    if(limit > 0)
-      sql.append(" LIMIT " + limit);
-    if(offset > 0)
-      sql.append(", " + offset);
-
     return sql.toString();
   }
 
@@ -268,8 +337,8 @@ public class SelectBuilder extends AbstractBuilder {
     return this;
   }
 
-  public SelectBuilder where(String expr) {
-    wheres.add(expr);
+  public SelectBuilder where(String expr, SQLParameter... params) {
+    wheres.add(new Clause(expr, params));
     return this;
   }
 }
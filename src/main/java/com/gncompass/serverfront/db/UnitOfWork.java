@@ -0,0 +1,299 @@
+package com.gncompass.serverfront.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A request scoped unit of work. While one is open on the thread, every pooled connection fetched
+ * through the SQL Manager is a handle to the same lazily borrowed connection, so a request takes
+ * at most one connection from each pool no matter how many model calls it makes. Handles can be
+ * closed as usual and the connection is only returned when the outermost end() is called.
+ *
+ * A unit of work can also wrap its writes in a single transaction. While that transaction is
+ * open, any transaction a model runs on a handle joins it: its commits are deferred to the unit
+ * of work and a rollback marks the whole transaction for rollback.
+ *
+ * <pre>
+ * UnitOfWork work = UnitOfWork.begin();
+ * try {
+ *   work.beginTransaction();
+ *   ...
+ *   work.commit();
+ * } finally {
+ *   work.end();
+ * }
+ * </pre>
+ */
+public final class UnitOfWork {
+
+  private static final ThreadLocal<UnitOfWork> sCurrent = new ThreadLocal<>();
+
+  private int mDepth = 0;
+  private int mOpenHandles = 0;
+  private Connection mPrimary = null;
+  private Connection mReplica = null;
+  private boolean mRollbackOnly = false;
+  private boolean mTransaction = false;
+
+  private UnitOfWork() {
+  }
+
+  /*=============================================================
+   * PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Returns a borrowed connection to its pool
+   * @param conn the borrowed connection. Can be NULL
+   */
+  private void release(Connection conn) {
+    if (conn != null) {
+      try {
+        conn.close();
+      } catch (SQLException e) {
+        // Ignore. The pool discards connections that fail to return
+      }
+    }
+  }
+
+  /*=============================================================
+   * PACKAGE-PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Returns a handle to the shared connection for the route, borrowing it on first use. Reads
+   * use the primary while a transaction is open
+   * @param replica TRUE if the caller is routed to the read replica. FALSE for the primary
+   * @return the connection handle. Closing it leaves the shared connection borrowed
+   * @throws SQLException if the connection could not be borrowed
+   */
+  Connection getConnection(boolean replica) throws SQLException {
+    if (mDepth == 0) {
+      throw new IllegalStateException("The unit of work has already ended");
+    }
+    if (replica && !mTransaction) {
+      if (mReplica == null) {
+        mReplica = SQLManager.borrow(true);
+      }
+      mOpenHandles++;
+      return new Handle(mReplica).proxy();
+    }
+    if (mPrimary == null) {
+      mPrimary = SQLManager.borrow(false);
+    }
+    mOpenHandles++;
+    return new Handle(mPrimary).proxy();
+  }
+
+  /**
+   * Returns the borrowed connections to their pools if none of their handles is open and no
+   * transaction is open. They are borrowed again on next use. Called before the thread waits on
+   * work that borrows connections of its own, so the wait never holds a connection
+   */
+  void releaseIdle() {
+    if (mTransaction || mOpenHandles > 0) {
+      return;
+    }
+    release(mPrimary);
+    release(mReplica);
+    mPrimary = null;
+    mReplica = null;
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Opens a transaction covering every write made through the unit of work until it is committed
+   * or rolled back
+   * @throws SQLException if the transaction could not be started
+   */
+  public void beginTransaction() throws SQLException {
+    if (mTransaction) {
+      throw new IllegalStateException("The unit of work already has an open transaction");
+    }
+    if (mPrimary == null) {
+      mPrimary = SQLManager.borrow(false);
+    }
+    mPrimary.setAutoCommit(false);
+    mRollbackOnly = false;
+    mTransaction = true;
+  }
+
+  /**
+   * Commits the open transaction, unless a joined transaction rolled back. In that case the
+   * whole transaction is rolled back instead
+   * @return TRUE if committed. FALSE if rolled back
+   * @throws SQLException if the commit failed
+   */
+  public boolean commit() throws SQLException {
+    if (!mTransaction) {
+      throw new IllegalStateException("The unit of work has no open transaction");
+    }
+    if (mRollbackOnly) {
+      rollback();
+      return false;
+    }
+    mTransaction = false;
+    mPrimary.commit();
+    mPrimary.setAutoCommit(true);
+    return true;
+  }
+
+  /**
+   * Ends this use of the unit of work. The outermost end rolls back any open transaction and
+   * returns the borrowed connections to their pools
+   */
+  public void end() {
+    if (mDepth == 0 || --mDepth > 0) {
+      return;
+    }
+    sCurrent.remove();
+    if (mTransaction) {
+      rollback();
+    }
+    release(mPrimary);
+    release(mReplica);
+    mPrimary = null;
+    mReplica = null;
+  }
+
+  /**
+   * Checks if the unit of work has an open transaction
+   * @return TRUE if a transaction is open. FALSE otherwise
+   */
+  public boolean isTransaction() {
+    return mTransaction;
+  }
+
+  /**
+   * Rolls back the open transaction. Does nothing if there is none
+   */
+  public void rollback() {
+    if (mTransaction) {
+      mTransaction = false;
+      mRollbackOnly = false;
+      try {
+        mPrimary.rollback();
+        mPrimary.setAutoCommit(true);
+      } catch (SQLException e) {
+        // Ignore. The pool rolls back again and discards the connection if it is broken
+      }
+    }
+  }
+
+  /*=============================================================
+   * STATIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Opens a unit of work on this thread, or joins the one already open. Every begin() must be
+   * paired with an end()
+   * @return the unit of work for the thread
+   */
+  public static UnitOfWork begin() {
+    UnitOfWork work = sCurrent.get();
+    if (work == null) {
+      work = new UnitOfWork();
+      sCurrent.set(work);
+    }
+    work.mDepth++;
+    return work;
+  }
+
+  /**
+   * Returns the unit of work open on this thread
+   * @return the unit of work. NULL if none is open
+   */
+  public static UnitOfWork current() {
+    return sCurrent.get();
+  }
+
+  /*=============================================================
+   * INNER CLASSES
+   *============================================================*/
+
+  /**
+   * Proxy handler for a handle to the shared connection. Closing the handle behaves like returning
+   * a pooled connection: a model transaction it left open is rolled back and auto commit restored.
+   * While the unit of work has a transaction open, the model's transaction calls join it instead
+   */
+  private class Handle implements InvocationHandler {
+    private boolean mClosed = false;
+    private final Connection mConnection;
+    private boolean mStartedTransaction = false;
+
+    private Handle(Connection connection) {
+      mConnection = connection;
+    }
+
+    private Connection proxy() {
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+          new Class<?>[] { Connection.class }, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!mClosed) {
+            mClosed = true;
+            mOpenHandles--;
+            if (mStartedTransaction && !mTransaction && !mConnection.getAutoCommit()) {
+              mConnection.rollback();
+              mConnection.setAutoCommit(true);
+            }
+          }
+          return null;
+        case "isClosed":
+          return mClosed || mConnection.isClosed();
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "UnitOfWork[" + mConnection + "]";
+        default:
+          break;
+      }
+
+      if (mClosed) {
+        throw new SQLException("The connection handle has already been closed");
+      }
+
+      // Join the unit of work transaction
+      if (mTransaction && mConnection == mPrimary) {
+        switch (method.getName()) {
+          case "commit":
+            return null;
+          case "getAutoCommit":
+            return false;
+          case "rollback":
+            if (args == null || args.length == 0) {
+              mRollbackOnly = true;
+              return null;
+            }
+            break;
+          case "setAutoCommit":
+            return null;
+          default:
+            break;
+        }
+      }
+
+      if (method.getName().equals("setAutoCommit")) {
+        mStartedTransaction = !((Boolean) args[0]);
+      }
+      try {
+        return method.invoke(mConnection, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+}
@@ -12,15 +12,21 @@ public class UpdateBuilder extends AbstractBuilder implements Serializable {
 
   private static final long serialVersionUID = 1L;
   private String table;
-  private List<String> sets = new ArrayList<>();
-  private List<String> wheres = new ArrayList<>();
+  private List<Clause> sets = new ArrayList<>();
+  private List<Clause> wheres = new ArrayList<>();
 
   public UpdateBuilder(String table) {
     this.table = table;
   }
 
-  public UpdateBuilder set(String expr) {
-    sets.add(expr);
+  @Override
+  protected void appendParameters(List<SQLParameter> params) {
+    appendParameters(params, sets);
+    appendParameters(params, wheres);
+  }
+
+  public UpdateBuilder set(String expr, SQLParameter... params) {
+    sets.add(new Clause(expr, params));
     return this;
   }
 
@@ -32,8 +38,8 @@ public class UpdateBuilder extends AbstractBuilder implements Serializable {
     return sql.toString();
   }
 
-  public UpdateBuilder where(String expr) {
-    wheres.add(expr);
+  public UpdateBuilder where(String expr, SQLParameter... params) {
+    wheres.add(new Clause(expr, params));
     return this;
   }
 }
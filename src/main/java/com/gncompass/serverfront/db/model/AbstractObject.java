@@ -1,5 +1,7 @@
 package com.gncompass.serverfront.db.model;
 
+import com.gncompass.serverfront.db.ColumnLayout;
+
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
@@ -52,9 +54,11 @@ public abstract class AbstractObject {
   }
 
   /**
-   * The abstract update fetch that all objects should implement to update from a result set
+   * The abstract update fetch that all objects should implement to update from a result set.
+   * Columns are read by index from the start of this table in the layout, in select order
    * @param resultSet the result set to pull the data from
+   * @param layout the column layout of the select that produced the result set
    * @throws SQLException sql exception on data not found in result set
    */
-  abstract void updateFromFetch(ResultSet resultSet) throws SQLException;
+  abstract void updateFromFetch(ResultSet resultSet, ColumnLayout layout) throws SQLException;
 }
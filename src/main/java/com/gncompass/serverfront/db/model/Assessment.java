@@ -2,22 +2,23 @@ package com.gncompass.serverfront.db.model;
 
 import com.gncompass.serverfront.api.model.AssessmentInfo;
 import com.gncompass.serverfront.api.model.AssessmentSummary;
+import com.gncompass.serverfront.db.ColumnLayout;
 import com.gncompass.serverfront.db.InsertBuilder;
+import com.gncompass.serverfront.db.Page;
+import com.gncompass.serverfront.db.PageCursor;
+import com.gncompass.serverfront.db.QueryTemplate;
 import com.gncompass.serverfront.db.SelectBuilder;
 import com.gncompass.serverfront.db.SQLManager;
+import com.gncompass.serverfront.db.SQLParameter;
 import com.gncompass.serverfront.db.UpdateBuilder;
-import com.gncompass.serverfront.util.HttpHelper;
-import com.gncompass.serverfront.util.StateHelper;
 import com.gncompass.serverfront.util.UuidHelper;
 
-import com.google.appengine.api.blobstore.BlobstoreService;
-import com.google.appengine.api.blobstore.BlobstoreServiceFactory;
-import com.google.appengine.api.blobstore.UploadOptions;
-
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
@@ -37,7 +38,29 @@ public class Assessment extends AbstractObject {
 
   // General statics
   private static final int MIN_SUBMIT_FILES = 2;
-  private static final String UPLOAD_CALLBACK = HttpHelper.BASE_PATH + "/uploads/assessments/";
+
+  // Precompiled queries
+  private static final QueryTemplate INSERT = QueryTemplate.compile(
+      new InsertBuilder(TABLE_NAME)
+          .set(REFERENCE, "?")
+          .set(BORROWER, "?")
+          .set(STATUS, "?"));
+  private static final QueryTemplate SELECT_FOR_BORROWER =
+      QueryTemplate.compile(new Assessment().buildSelectSql(true, false));
+  private static final QueryTemplate SELECT_PAGE_FOR_BORROWER =
+      QueryTemplate.compile(new Assessment().buildSelectPageSql(false));
+  private static final QueryTemplate SELECT_PAGE_AFTER_FOR_BORROWER =
+      QueryTemplate.compile(new Assessment().buildSelectPageSql(true));
+  private static final QueryTemplate SELECT_BY_REFERENCE =
+      QueryTemplate.compile(new Assessment().buildSelectSql(true, true));
+  private static final QueryTemplate SELECT_INSERTED =
+      QueryTemplate.compile(new Assessment().buildSelectInsertedSql());
+  private static final QueryTemplate SELECT_LAST_APPROVED =
+      QueryTemplate.compile(new Assessment().buildSelectLastApprovedSql());
+  private static final QueryTemplate UPDATE_APPROVE =
+      QueryTemplate.compile(new Assessment().buildUpdateStatusSql(true));
+  private static final QueryTemplate UPDATE_SUBMIT =
+      QueryTemplate.compile(new Assessment().buildUpdateStatusSql(false));
 
   // Status enumeration
   public enum Status {
@@ -74,8 +97,8 @@ public class Assessment extends AbstractObject {
   public Assessment() {
   }
 
-  public Assessment(ResultSet rs) throws SQLException {
-    updateFromFetch(rs);
+  public Assessment(ResultSet rs, ColumnLayout layout) throws SQLException {
+    updateFromFetch(rs, layout);
   }
 
   /*=============================================================
@@ -83,42 +106,71 @@ public class Assessment extends AbstractObject {
    *============================================================*/
 
   /**
-   * Adds a join of this table for the indicated borrower and tied to the id column for the on
-   * statement. Internal version
+   * Adds a join of this table for the borrower and reference slots and tied to the id column for
+   * the on statement. Internal version. Slots: borrower, reference
    * @param selectBuilder the select builder to add to
    * @param idColumn the id column of the select statement to join with
-   * @param reference the assessment reference UUID
-   * @param borrower the borrower of the join
    * @return the select builder result
    */
-  private SelectBuilder addJoinInternal(SelectBuilder selectBuilder, String idColumn,
-                                        String reference, Borrower borrower) {
+  private SelectBuilder addJoinInternal(SelectBuilder selectBuilder, String idColumn) {
     String joinOn = getColumn(ID) + "=" + idColumn + " AND "
-                  + getColumn(BORROWER) + "=" + Long.toString(borrower.mId) + " AND "
-                  + getColumn(REFERENCE) + "=" + UuidHelper.getHexFromUUID(reference, true);
+                  + getColumn(BORROWER) + "=? AND "
+                  + getColumn(REFERENCE) + "=?";
     return selectBuilder.join(getTable(), joinOn);
   }
 
   /**
-   * Build the select SQL for all properties related to the assessment. Both parameters cannot be
-   * NULL
-   * @param borrower the borrower reference. Can be null
-   * @param reference the bank connection UUID reference. Can be null
+   * Build the select SQL for the assessment that was just inserted. Slots: borrower
+   * @return the SelectBuilder reference object
+   */
+  private SelectBuilder buildSelectInsertedSql() {
+    return buildSelectSql(true, false)
+        .where(getColumn(ID) + "=LAST_INSERT_ID()");
+  }
+
+  /**
+   * Build the select SQL for the last approved assessment. Slots: borrower, status
+   * @return the SelectBuilder reference object
+   */
+  private SelectBuilder buildSelectLastApprovedSql() {
+    return buildSelectSql(true, false)
+        .where(getColumn(STATUS) + "=?")
+        .orderBy(getColumn(ID), false)
+        .limit(1);
+  }
+
+  /**
+   * Build the select SQL for a page of the borrower assessments, in the order they were
+   * registered. Slots: borrower, registered, registered, id (if seeking), page size
+   * @param seek TRUE to only select the assessments after the cursor slots. FALSE for first page
+   * @return the SelectBuilder reference object
+   */
+  private SelectBuilder buildSelectPageSql(boolean seek) {
+    return buildSelectSql(true, false)
+        .keyset(getColumn(REGISTERED), getColumn(ID), true, seek)
+        .limit("?");
+  }
+
+  /**
+   * Build the select SQL for all properties related to the assessment. At least one filter is
+   * required. Slots, in order: borrower, reference
+   * @param byBorrower TRUE to filter on the borrower
+   * @param byReference TRUE to filter on the assessment reference
    * @return the SelectBuilder reference object
    */
-  private SelectBuilder buildSelectSql(Borrower borrower, String reference) {
-    if (borrower == null && reference == null) {
+  private SelectBuilder buildSelectSql(boolean byBorrower, boolean byReference) {
+    if (!byBorrower && !byReference) {
       throw new RuntimeException(
                 "Both the borrower and the reference are null on select assessment. Not permitted");
     }
 
     // Build the select statement
     SelectBuilder selectBuilder = buildSelectSql();
-    if (borrower != null) {
-      selectBuilder.where(getColumn(BORROWER) + "=" + Long.toString(borrower.mId));
+    if (byBorrower) {
+      selectBuilder.where(getColumn(BORROWER) + "=?");
     }
-    if (reference != null) {
-      selectBuilder.where(getColumn(REFERENCE) + "=" + UuidHelper.getHexFromUUID(reference, true));
+    if (byReference) {
+      selectBuilder.where(getColumn(REFERENCE) + "=?");
     }
     Rating.join(selectBuilder, getColumn(RATING));
     return selectBuilder;
@@ -138,6 +190,22 @@ public class Assessment extends AbstractObject {
         .column(getColumn(RATING));
   }
 
+  /**
+   * Build the update SQL for a status change. Slots: status, rating (if rated), id
+   * @param rated TRUE if the rating is also set by the update
+   * @return the UpdateBuilder reference object
+   */
+  private UpdateBuilder buildUpdateStatusSql(boolean rated) {
+    UpdateBuilder updateBuilder = new UpdateBuilder(getTable())
+        .set(getColumn(STATUS) + "=?");
+    if (rated) {
+      updateBuilder.set(getColumn(RATING) + "=?");
+    }
+    return updateBuilder
+        .set(getColumn(UPDATED) + "=NOW()")
+        .where(getColumn(ID) + "=?");
+  }
+
   /*=============================================================
    * PROTECTED FUNCTIONS
    *============================================================*/
@@ -146,29 +214,43 @@ public class Assessment extends AbstractObject {
    * Updates the assessment info from the result set provided. This assumes it was fetched
    * appropriately by the SQL function
    * @param resultSet the result set to pull the data from. This will not call .next()
+   * @param layout the column layout of the select that produced the result set
    * @throws SQLException if the data is unexpected in the result set
    */
   @Override
-  protected void updateFromFetch(ResultSet resultSet) throws SQLException {
-    mId = resultSet.getLong(getColumn(ID));
-    mReference = resultSet.getBytes(getColumn(REFERENCE));
+  protected void updateFromFetch(ResultSet resultSet, ColumnLayout layout) throws SQLException {
+    int column = layout.getStart(TABLE_NAME);
+    mId = resultSet.getLong(column++);
+    mReference = resultSet.getBytes(column++);
     //mBorrowerId = resultSet.getLong(getColumn(BORROWER));
-    mRegisteredTime = resultSet.getTimestamp(getColumn(REGISTERED)).getTime();
-    mUpdatedTime = resultSet.getTimestamp(getColumn(UPDATED)).getTime();
-    mStatusId = resultSet.getInt(getColumn(STATUS));
-    mRatingId = resultSet.getInt(getColumn(RATING));
+    mRegisteredTime = resultSet.getTimestamp(column++).getTime();
+    mUpdatedTime = resultSet.getTimestamp(column++).getTime();
+    mStatusId = resultSet.getInt(column++);
+    mRatingId = resultSet.getInt(column);
 
     // Determine the reference
     mReferenceUuid = UuidHelper.getUUIDFromBytes(mReference);
 
     // Check for a rating, if approved
     if (mStatusId == Status.APPROVED.getValue()) {
-      mRating = new Rating(resultSet);
+      mRating = new Rating(resultSet, layout);
     } else {
       mRating = null;
     }
   }
 
+  /*=============================================================
+   * PACKAGE-PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Replaces the files of the assessment with the fetched set
+   * @param assessmentFiles the assessment files
+   */
+  void setFiles(List<AssessmentFile> assessmentFiles) {
+    mAssessmentFiles = assessmentFiles;
+  }
+
   /*=============================================================
    * PUBLIC FUNCTIONS
    *============================================================*/
@@ -181,23 +263,15 @@ public class Assessment extends AbstractObject {
   public boolean addToDatabase(Borrower borrower) {
     mReferenceUuid = UUID.randomUUID();
 
-    // Create the assessment insert and select statement
-    String insertSql = new InsertBuilder(getTable())
-        .set(REFERENCE, UuidHelper.getHexFromUUID(mReferenceUuid, true))
-        .set(BORROWER, Long.toString(borrower.mId))
-        .set(STATUS, Integer.toString(Status.STARTED.getValue()))
-        .toString();
-    SelectBuilder selectBuilder = buildSelectSql(borrower, null);
-    selectBuilder.where(getColumn(ID) + "=LAST_INSERT_ID()");
-    String selectSql = selectBuilder.toString();
-
     // Execute the insert
     try (Connection conn = SQLManager.getConnection()) {
-      if (conn.prepareStatement(insertSql).executeUpdate() == 1) {
+      if (INSERT.prepare(conn, SQLParameter.of(mReferenceUuid), SQLParameter.of(borrower.mId),
+                         SQLParameter.of(Status.STARTED.getValue())).executeUpdate() == 1) {
         // Fetch the assessment that was just created
-        try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
+        try (ResultSet rs =
+                SELECT_INSERTED.prepare(conn, SQLParameter.of(borrower.mId)).executeQuery()) {
           if (rs.next()) {
-            updateFromFetch(rs);
+            updateFromFetch(rs, SELECT_INSERTED.getLayout());
             return true;
           }
         }
@@ -220,17 +294,10 @@ public class Assessment extends AbstractObject {
     int ratingMax = 5;
     int rating = ThreadLocalRandom.current().nextInt(ratingMin, ratingMax + 1);
 
-    // The update statement
-    String updateSql = new UpdateBuilder(getTable())
-        .set(getColumn(STATUS) + "=" + Integer.toString(Status.APPROVED.getValue()))
-        .set(getColumn(RATING) + "=" + Integer.toString(rating))
-        .set(getColumn(UPDATED) + "=NOW()")
-        .where(getColumn(ID) + "=" + Long.toString(mId))
-        .toString();
-
     // Execute the update statement
     try (Connection conn = SQLManager.getConnection()) {
-      conn.prepareStatement(updateSql).executeUpdate();
+      UPDATE_APPROVE.prepare(conn, SQLParameter.of(Status.APPROVED.getValue()),
+                             SQLParameter.of(rating), SQLParameter.of(mId)).executeUpdate();
     } catch (SQLException e) {
       throw new RuntimeException("Unable to update the assessment to randomly approve with SQL", e);
     }
@@ -261,19 +328,7 @@ public class Assessment extends AbstractObject {
     // Fetch the upload URL
     String uploadUrl = null;
     if (mStatusId == Status.STARTED.getValue()) {
-      BlobstoreService blobstoreService = BlobstoreServiceFactory.getBlobstoreService();
-      UploadOptions uploadOptions = null;
-      String bucket = null;
-      if (StateHelper.isProduction()) {
-        bucket = HttpHelper.BUCKET_UPLOADS;
-      }
-      if (bucket == null || bucket.isEmpty()) {
-        uploadOptions = UploadOptions.Builder.withDefaults();
-      } else {
-        uploadOptions = UploadOptions.Builder.withGoogleStorageBucketName(bucket);
-      }
-      String callbackUrl = UPLOAD_CALLBACK + mReferenceUuid.toString();
-      uploadUrl = blobstoreService.createUploadUrl(callbackUrl, uploadOptions);
+      uploadUrl = AssessmentUploadUrls.get(mReferenceUuid);
     }
 
     // Generate the assessment info
@@ -310,19 +365,16 @@ public class Assessment extends AbstractObject {
    * @return the assessment object with the information fetched. If not found, return NULL
    */
   public Assessment getAssessment(Borrower borrower, String reference) {
-    // Build the query
-    String selectSql = buildSelectSql(borrower, reference).toString();
-
     // Try to execute against the connection
     try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
+      try (ResultSet rs = SELECT_BY_REFERENCE.prepare(conn, SQLParameter.of(borrower.mId),
+              SQLParameter.of(UuidHelper.getBytesFromUUID(reference))).executeQuery()) {
         if (rs.next()) {
           // Update core data
-          updateFromFetch(rs);
+          updateFromFetch(rs, SELECT_BY_REFERENCE.getLayout());
 
           // Attempt to fetch the files
-          mAssessmentFiles.clear();
-          mAssessmentFiles.addAll(AssessmentFile.getAllForAssessment(conn, this));
+          AssessmentFile.fetchAllForAssessments(conn, Collections.singletonList(this));
 
           return this;
         }
@@ -354,23 +406,16 @@ public class Assessment extends AbstractObject {
    * @return the assessment object with the information fetched. If not found, return NULL
    */
   public Assessment getLastApproved(Borrower borrower) {
-    // Build the query
-    String selectSql = buildSelectSql(borrower, null)
-        .where(getColumn(STATUS) + "=" + Integer.toString(Status.APPROVED.getValue()))
-        .orderBy(getColumn(ID), false)
-        .limit(1)
-        .toString();
-
     // Try to execute against the connection
     try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
+      try (ResultSet rs = SELECT_LAST_APPROVED.prepare(conn, SQLParameter.of(borrower.mId),
+              SQLParameter.of(Status.APPROVED.getValue())).executeQuery()) {
         if (rs.next()) {
           // Update core data
-          updateFromFetch(rs);
+          updateFromFetch(rs, SELECT_LAST_APPROVED.getLayout());
 
           // Attempt to fetch the files
-          mAssessmentFiles.clear();
-          mAssessmentFiles.addAll(AssessmentFile.getAllForAssessment(conn, this));
+          AssessmentFile.fetchAllForAssessments(conn, Collections.singletonList(this));
 
           return this;
         }
@@ -399,16 +444,10 @@ public class Assessment extends AbstractObject {
    */
   public boolean submit() {
     if (canBeSubmitted()) {
-      // The update statement
-      String updateSql = new UpdateBuilder(getTable())
-          .set(getColumn(STATUS) + "=" + Integer.toString(Status.PENDING.getValue()))
-          .set(getColumn(UPDATED) + "=NOW()")
-          .where(getColumn(ID) + "=" + Long.toString(mId))
-          .toString();
-
       // Execute the update statement
       try (Connection conn = SQLManager.getConnection()) {
-        conn.prepareStatement(updateSql).executeUpdate();
+        UPDATE_SUBMIT.prepare(conn, SQLParameter.of(Status.PENDING.getValue()),
+                              SQLParameter.of(mId)).executeUpdate();
         return true;
       } catch (SQLException e) {
         throw new RuntimeException("Unable to update the assessment to submit with SQL", e);
@@ -422,17 +461,14 @@ public class Assessment extends AbstractObject {
    *============================================================*/
 
   /**
-   * Adds a join of this table for the indicated borrower and tied to the id column for the on
-   * statement. Package private version (exposed)
+   * Adds a join of this table for the borrower and reference slots and tied to the id column for
+   * the on statement. Package private version (exposed). Slots: borrower, reference
    * @param selectBuilder the select builder to add to
    * @param idColumn the id column of the select statement to join with
-   * @param reference the assessment reference UUID
-   * @param borrower the borrower of the join
    * @return the select builder result
    */
-  static SelectBuilder addJoin(SelectBuilder selectBuilder, String idColumn, String reference,
-                               Borrower borrower) {
-    return new Assessment().addJoinInternal(selectBuilder, idColumn, reference, borrower);
+  static SelectBuilder addJoin(SelectBuilder selectBuilder, String idColumn) {
+    return new Assessment().addJoinInternal(selectBuilder, idColumn);
   }
 
   /**
@@ -443,14 +479,12 @@ public class Assessment extends AbstractObject {
   public static List<Assessment> getAllForBorrower(Borrower borrower) {
     List<Assessment> assessments = new ArrayList<>();
 
-    // Build the query
-    String selectSql = new Assessment().buildSelectSql(borrower, null).toString();
-
     // Try to execute against the connection
     try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
+      try (ResultSet rs =
+              SELECT_FOR_BORROWER.prepare(conn, SQLParameter.of(borrower.mId)).executeQuery()) {
         while (rs.next()) {
-          assessments.add(new Assessment(rs));
+          assessments.add(new Assessment(rs, SELECT_FOR_BORROWER.getLayout()));
         }
       }
     } catch (SQLException e) {
@@ -460,4 +494,48 @@ public class Assessment extends AbstractObject {
 
     return assessments;
   }
+
+  /**
+   * Fetches a page of the assessments for the provided borrower, in the order they were registered
+   * @param borrower the borrower object to fetch for
+   * @param after the cursor returned with the previous page. NULL for the first page
+   * @param pageSize the maximum number of assessments in the page
+   * @return the page of assessments tied to the borrower. Empty page if none found
+   */
+  public static Page<Assessment> getPageForBorrower(Borrower borrower, PageCursor after,
+                                                    int pageSize) {
+    List<Assessment> assessments = new ArrayList<>();
+    PageCursor nextCursor = null;
+
+    // One extra row is fetched to find out if there is a following page
+    QueryTemplate template = SELECT_PAGE_FOR_BORROWER;
+    SQLParameter[] params = { SQLParameter.of(borrower.mId), SQLParameter.of(pageSize + 1) };
+    if (after != null) {
+      template = SELECT_PAGE_AFTER_FOR_BORROWER;
+      params = new SQLParameter[] { SQLParameter.of(borrower.mId),
+                                    SQLParameter.ofTimestamp(new Date(after.getKey())),
+                                    SQLParameter.ofTimestamp(new Date(after.getKey())),
+                                    SQLParameter.of(after.getId()),
+                                    SQLParameter.of(pageSize + 1) };
+    }
+
+    // Try to execute against the connection
+    try (Connection conn = SQLManager.getConnection()) {
+      try (ResultSet rs = template.prepare(conn, params).executeQuery()) {
+        while (rs.next()) {
+          if (assessments.size() == pageSize) {
+            Assessment last = assessments.get(assessments.size() - 1);
+            nextCursor = new PageCursor(last.mRegisteredTime, last.mId);
+            break;
+          }
+          assessments.add(new Assessment(rs, template.getLayout()));
+        }
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException(
+                        "Unable to fetch the page of assessments for the borrower with SQL", e);
+    }
+
+    return new Page<>(assessments, nextCursor);
+  }
 }
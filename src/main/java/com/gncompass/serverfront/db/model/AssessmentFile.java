@@ -1,15 +1,20 @@
 package com.gncompass.serverfront.db.model;
 
+import com.gncompass.serverfront.db.ColumnLayout;
 import com.gncompass.serverfront.db.InsertBuilder;
+import com.gncompass.serverfront.db.QueryTemplate;
+import com.gncompass.serverfront.db.Relation;
 import com.gncompass.serverfront.db.SelectBuilder;
 import com.gncompass.serverfront.db.SQLManager;
+import com.gncompass.serverfront.db.SQLParameter;
 import com.gncompass.serverfront.db.UpdateBuilder;
+import com.gncompass.serverfront.util.UuidHelper;
 
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -25,6 +30,16 @@ public class AssessmentFile extends AbstractObject {
   private static final String TYPE = "type";
   private static final String UPLOADED = "uploaded";
 
+  // Precompiled queries
+  private static final QueryTemplate SELECT_FILE =
+      QueryTemplate.compile(new AssessmentFile().buildSelectFileSql());
+  private static final QueryTemplate UPDATE_UPLOADED =
+      QueryTemplate.compile(new AssessmentFile().buildUpdateUploadedSql());
+
+  // Relations
+  private static final Relation<Assessment, AssessmentFile> FILES_OF_ASSESSMENTS =
+      new AssessmentFile().buildAssessmentRelation();
+
   // Database parameters
   public long mId = 0;
   //public long mAssessmentId = 0;
@@ -42,8 +57,8 @@ public class AssessmentFile extends AbstractObject {
     mType = type;
   }
 
-  public AssessmentFile(ResultSet rs) throws SQLException {
-    updateFromFetch(rs);
+  public AssessmentFile(ResultSet rs, ColumnLayout layout) throws SQLException {
+    updateFromFetch(rs, layout);
   }
 
   /*=============================================================
@@ -51,18 +66,43 @@ public class AssessmentFile extends AbstractObject {
    *============================================================*/
 
   /**
-   * Build the select SQL for all properties related to the assessment file
-   * @param assessment the assessment reference
-   * @param specificFile is a specific file being looked for. Puts it as a parameter (?) at spot 1
+   * Build the batched relation loading the files of a set of assessments
+   * @return the assessment files relation
+   */
+  private Relation<Assessment, AssessmentFile> buildAssessmentRelation() {
+    SelectBuilder selectBuilder = buildSelectSql()
+        .column(getColumn(ASSESSMENT))
+        .orderBy(getColumn(ASSESSMENT))
+        .orderBy(getColumn(ID));
+
+    return new Relation<Assessment, AssessmentFile>(selectBuilder, getColumn(ASSESSMENT)) {
+      @Override
+      protected long getParentKey(Assessment assessment) {
+        return assessment.mId;
+      }
+
+      @Override
+      protected AssessmentFile newChild(ResultSet resultSet, ColumnLayout layout)
+          throws SQLException {
+        return new AssessmentFile(resultSet, layout);
+      }
+
+      @Override
+      protected void setChildren(Assessment assessment, List<AssessmentFile> assessmentFiles) {
+        assessment.setFiles(assessmentFiles);
+      }
+    };
+  }
+
+  /**
+   * Build the select SQL for a single file by name, joined through the borrower owned assessment.
+   * Slots: borrower, reference, file name
    * @return the SelectBuilder reference object
    */
-  private SelectBuilder buildSelectSql(Assessment assessment, boolean specificFile) {
+  private SelectBuilder buildSelectFileSql() {
     SelectBuilder selectBuilder = buildSelectSql()
-        .where(getColumn(ASSESSMENT) + "=" + Long.toString(assessment.mId));
-    if (specificFile) {
-      selectBuilder.where(getColumn(FILENAME) + "=?");
-    }
-    return selectBuilder;
+        .where(getColumn(FILENAME) + "=?");
+    return Assessment.addJoin(selectBuilder, getColumn(ASSESSMENT));
   }
 
   /**
@@ -78,6 +118,16 @@ public class AssessmentFile extends AbstractObject {
         .column(getColumn(UPLOADED));
   }
 
+  /**
+   * Build the update SQL to refresh the uploaded time of the file. Slots: id
+   * @return the UpdateBuilder reference object
+   */
+  private UpdateBuilder buildUpdateUploadedSql() {
+    return new UpdateBuilder(getTable())
+        .set(getColumn(UPLOADED) + "=NOW()")
+        .where(getColumn(ID) + "=?");
+  }
+
   /*=============================================================
    * PROTECTED FUNCTIONS
    *============================================================*/
@@ -86,16 +136,18 @@ public class AssessmentFile extends AbstractObject {
    * Updates the assessment info from the result set provided. This assumes it was fetched
    * appropriately by the SQL function
    * @param resultSet the result set to pull the data from. This will not call .next()
+   * @param layout the column layout of the select that produced the result set
    * @throws SQLException if the data is unexpected in the result set
    */
   @Override
-  protected void updateFromFetch(ResultSet resultSet) throws SQLException {
-    mId = resultSet.getLong(getColumn(ID));
+  protected void updateFromFetch(ResultSet resultSet, ColumnLayout layout) throws SQLException {
+    int column = layout.getStart(TABLE_NAME);
+    mId = resultSet.getLong(column++);
     //mAssessmentId = resultSet.getLong(getColumn(ASSESSMENT));
-    mBucket = resultSet.getString(getColumn(BUCKET));
-    mFileName = resultSet.getString(getColumn(FILENAME));
-    mType = resultSet.getString(getColumn(TYPE));
-    mUploadedTime = resultSet.getTimestamp(getColumn(UPLOADED)).getTime();
+    mBucket = resultSet.getString(column++);
+    mFileName = resultSet.getString(column++);
+    mType = resultSet.getString(column++);
+    mUploadedTime = resultSet.getTimestamp(column).getTime();
   }
 
   /*=============================================================
@@ -108,25 +160,7 @@ public class AssessmentFile extends AbstractObject {
     * @return TRUE if successfully added. FALSE otherwise
     */
   public boolean addToDatabase(Assessment assessment) {
-    // Create the assessment file insert statement
-    String insertSql = new InsertBuilder(getTable())
-        .set(ASSESSMENT, Long.toString(assessment.mId))
-        .setString(BUCKET, mBucket)
-        .setString(FILENAME, mFileName)
-        .setString(TYPE, mType)
-        .toString();
-
-    // Execute the insert
-    try (Connection conn = SQLManager.getConnection()) {
-      if (conn.prepareStatement(insertSql).executeUpdate() == 1) {
-        mUploadedTime = new Date().getTime();
-        return true;
-      }
-    } catch (SQLException e) {
-      throw new RuntimeException("Unable to add the assessment file for an existing assessment", e);
-    }
-
-    return false;
+    return addAllToDatabase(assessment, Collections.singletonList(this));
   }
 
   /**
@@ -145,24 +179,16 @@ public class AssessmentFile extends AbstractObject {
    * @return the assessment file object with the information fetched. If not found, return NULL
    */
   public AssessmentFile getFile(Borrower borrower, String reference, String fileName) {
-    // Build the query
-    SelectBuilder selectBuilder = buildSelectSql()
-        .where(getColumn(FILENAME) + "=?");
-    Assessment.addJoin(selectBuilder, getColumn(ASSESSMENT), reference, borrower);
-    String selectSql = selectBuilder.toString();
-
     // Try to execute against the connection
     try (Connection conn = SQLManager.getConnection()) {
-      try (PreparedStatement ps = conn.prepareStatement(selectSql)) {
-        ps.setString(1, fileName);
-        try (ResultSet rs = ps.executeQuery()) {
-          if (rs.next()) {
-            updateFromFetch(rs);
-            return this;
-          }
+      try (ResultSet rs = SELECT_FILE.prepare(conn, SQLParameter.of(borrower.mId),
+              SQLParameter.of(UuidHelper.getBytesFromUUID(reference)),
+              SQLParameter.of(fileName)).executeQuery()) {
+        if (rs.next()) {
+          updateFromFetch(rs, SELECT_FILE.getLayout());
+          return this;
         }
       }
-
     } catch (SQLException e) {
       throw new RuntimeException("Unable to fetch the assessment file reference with SQL", e);
     }
@@ -202,16 +228,11 @@ public class AssessmentFile extends AbstractObject {
    * Updates the uploaded date on a file overwrite
    */
   public void updateUploaded() {
-    // Build the statement
-    String updateSql = new UpdateBuilder(getTable())
-        .set(getColumn(UPLOADED) + "=NOW()")
-        .where(getColumn(ID) + "=" + mId)
-        .toString();
     mUploadedTime = new Date().getTime();
 
     // Try to execute against the connection
     try (Connection conn = SQLManager.getConnection()) {
-      conn.prepareStatement(updateSql).executeUpdate();
+      UPDATE_UPLOADED.prepare(conn, SQLParameter.of(mId)).executeUpdate();
     } catch (SQLException e) {
       throw new RuntimeException("Unable to update the assessment file uploaded time with SQL", e);
     }
@@ -222,26 +243,77 @@ public class AssessmentFile extends AbstractObject {
    *============================================================*/
 
   /**
-   * Fetches the list of all assessment files for the provided assessment
+   * Adds the assessment files to the database with a single multi-row insert and sets the ID of
+   * each from the generated keys
+   * @param assessment the assessment that will own the assessment files
+   * @param assessmentFiles the assessment files to add
+   * @return TRUE if all were successfully added. FALSE otherwise
+   */
+  public static boolean addAllToDatabase(Assessment assessment,
+                                         List<AssessmentFile> assessmentFiles) {
+    if (assessmentFiles.isEmpty()) {
+      return false;
+    }
+
+    InsertBuilder insertBuilder = new InsertBuilder(TABLE_NAME);
+    for (AssessmentFile assessmentFile : assessmentFiles) {
+      insertBuilder
+          .set(ASSESSMENT, SQLParameter.of(assessment.mId))
+          .set(BUCKET, SQLParameter.of(assessmentFile.mBucket))
+          .set(FILENAME, SQLParameter.of(assessmentFile.mFileName))
+          .set(TYPE, SQLParameter.of(assessmentFile.mType))
+          .row();
+    }
+
+    // Execute the insert
+    try (Connection conn = SQLManager.getConnection()) {
+      long[] ids = insertBuilder.executeForKeys(conn);
+      long uploadedTime = new Date().getTime();
+      for (int i = 0; i < ids.length; i++) {
+        assessmentFiles.get(i).mId = ids[i];
+        assessmentFiles.get(i).mUploadedTime = uploadedTime;
+      }
+      return true;
+    } catch (SQLException e) {
+      throw new RuntimeException("Unable to add the assessment files for an existing assessment",
+                                 e);
+    }
+  }
+
+  /**
+   * Fetches all the assessment files for the provided assessments and stores them in each
+   * assessment. Takes one query per 128 assessments, instead of one query per assessment
    * @param conn the SQL connection
-   * @param assessment the assessment object to fetch for
-   * @return the stack of assessment files tied to the assessment. Empty list if none found
+   * @param assessments the assessment objects to fetch for
+   * @throws SQLException exception on failed fetch
    */
-  public static List<AssessmentFile> getAllForAssessment(Connection conn, Assessment assessment)
+  public static void fetchAllForAssessments(Connection conn, List<Assessment> assessments)
       throws SQLException {
-    List<AssessmentFile> assessmentFiles = new ArrayList<>();
+    FILES_OF_ASSESSMENTS.load(conn, assessments);
+  }
 
-    // Build the query
-    String selectSql = new AssessmentFile().buildSelectSql(assessment, false).toString();
+  /**
+   * Updates the uploaded date on a set of file overwrites in a single batch
+   * @param assessmentFiles the overwritten assessment files
+   */
+  public static void updateAllUploaded(List<AssessmentFile> assessmentFiles) {
+    if (assessmentFiles.isEmpty()) {
+      return;
+    }
 
-    // Try to execute against the connection
-    try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
-      while (rs.next()) {
-        assessmentFiles.add(new AssessmentFile(rs));
-      }
+    List<SQLParameter[]> rows = new ArrayList<>();
+    long uploadedTime = new Date().getTime();
+    for (AssessmentFile assessmentFile : assessmentFiles) {
+      assessmentFile.mUploadedTime = uploadedTime;
+      rows.add(new SQLParameter[] { SQLParameter.of(assessmentFile.mId) });
     }
 
-    return assessmentFiles;
+    // Try to execute against the connection
+    try (Connection conn = SQLManager.getConnection()) {
+      UPDATE_UPLOADED.executeBatch(conn, rows);
+    } catch (SQLException e) {
+      throw new RuntimeException("Unable to update the assessment file uploaded times with SQL", e);
+    }
   }
 
   /**
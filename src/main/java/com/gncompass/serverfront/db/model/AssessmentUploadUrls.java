@@ -0,0 +1,111 @@
+package com.gncompass.serverfront.db.model;
+
+import com.gncompass.serverfront.util.HttpHelper;
+import com.gncompass.serverfront.util.StateHelper;
+
+import com.google.appengine.api.blobstore.BlobstoreServiceFactory;
+import com.google.appengine.api.blobstore.UploadOptions;
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+
+import java.util.UUID;
+
+/**
+ * The Blobstore upload URLs of the started assessments, shared by all instances in memcache by
+ * assessment reference. Creating an upload URL is a call to the Blobstore service, so one is
+ * created per assessment and served until shortly before it lapses, instead of on every read of
+ * the assessment.
+ *
+ * An upload URL only takes one upload, so it is dropped once the upload callback for its
+ * assessment is received, whichever instance gets it, and the next read creates a new one. If
+ * memcache is unavailable, a new URL is created on every read.
+ */
+public final class AssessmentUploadUrls {
+  private static final String NAMESPACE = "upload-urls";
+  private static final String UPLOAD_CALLBACK = HttpHelper.BASE_PATH + "/uploads/assessments/";
+
+  // How long an upload URL is accepted by Blobstore after it is created
+  private static final String PROPERTY_LIFETIME_MS = "upload-url-lifetime-ms";
+  private static final long LIFETIME_MS = 600000L;
+
+  // How long before it lapses an upload URL is replaced, so clients have time to use it
+  private static final String PROPERTY_REFRESH_MS = "upload-url-refresh-ms";
+  private static final long REFRESH_MS = 120000L;
+
+  private static volatile long sLifetimeMs = LIFETIME_MS;
+  private static final MemcacheService sMemcache =
+      MemcacheServiceFactory.getMemcacheService(NAMESPACE);
+  private static volatile long sRefreshMs = REFRESH_MS;
+
+  private AssessmentUploadUrls() {
+  }
+
+  /*=============================================================
+   * PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Creates a new upload URL for the assessment through the Blobstore service
+   * @param reference the assessment reference
+   * @return the new upload URL
+   */
+  private static String create(UUID reference) {
+    UploadOptions uploadOptions = null;
+    String bucket = null;
+    if (StateHelper.isProduction()) {
+      bucket = HttpHelper.BUCKET_UPLOADS;
+    }
+    if (bucket == null || bucket.isEmpty()) {
+      uploadOptions = UploadOptions.Builder.withDefaults();
+    } else {
+      uploadOptions = UploadOptions.Builder.withGoogleStorageBucketName(bucket);
+    }
+
+    return BlobstoreServiceFactory.getBlobstoreService()
+        .createUploadUrl(UPLOAD_CALLBACK + reference.toString(), uploadOptions);
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Returns the upload URL for the assessment. A new one is only created if none is shared, which
+   * includes once the shared one is about to lapse or was used
+   * @param reference the assessment reference
+   * @return the upload URL
+   */
+  public static String get(UUID reference) {
+    String key = reference.toString();
+    Object uploadUrl = sMemcache.get(key);
+    if (uploadUrl instanceof String) {
+      return (String) uploadUrl;
+    }
+
+    // Dropped from memcache before it lapses, so clients have time to use it
+    String newUrl = create(reference);
+    long shareMs = Math.max(0L, sLifetimeMs - sRefreshMs);
+    if (shareMs > 0L) {
+      sMemcache.put(key, newUrl, Expiration.byDeltaMillis((int) shareMs));
+    }
+    return newUrl;
+  }
+
+  /**
+   * Loads the upload URL lifetime. Called once on servlet init
+   */
+  public static void init() {
+    sLifetimeMs = StateHelper.getProperty(PROPERTY_LIFETIME_MS, LIFETIME_MS);
+    sRefreshMs = StateHelper.getProperty(PROPERTY_REFRESH_MS, REFRESH_MS);
+  }
+
+  /**
+   * Drops the upload URL of the assessment on every instance. Called when an upload for it is
+   * received, since the URL can't be used again
+   * @param reference the assessment reference
+   */
+  public static void invalidate(UUID reference) {
+    sMemcache.delete(reference.toString());
+  }
+}
@@ -1,7 +1,10 @@
 package com.gncompass.serverfront.db.model;
 
+import com.gncompass.serverfront.db.ColumnLayout;
+import com.gncompass.serverfront.db.QueryTemplate;
 import com.gncompass.serverfront.db.SelectBuilder;
 import com.gncompass.serverfront.db.SQLManager;
+import com.gncompass.serverfront.db.SQLParameter;
 
 import java.sql.Connection;
 import java.sql.ResultSet;
@@ -20,6 +23,12 @@ public class Bank extends AbstractObject {
   private static final String COUNTRY_ID = "country";
   private static final String ENABLED = "enabled";
 
+  // Precompiled queries
+  private static final QueryTemplate SELECT_ALL =
+      QueryTemplate.compile(new Bank().buildSelectSql());
+  private static final QueryTemplate SELECT_BY_ID =
+      QueryTemplate.compile(new Bank().buildSelectByIdSql());
+
   // Database parameters
   public long mId = 0;
   public int mCode = 0;
@@ -30,8 +39,8 @@ public class Bank extends AbstractObject {
   public Bank() {
   }
 
-  public Bank(ResultSet rs) throws SQLException {
-    updateFromFetch(rs);
+  public Bank(ResultSet rs, ColumnLayout layout) throws SQLException {
+    updateFromFetch(rs, layout);
   }
 
   /*=============================================================
@@ -60,25 +69,14 @@ public class Bank extends AbstractObject {
   }
 
   /**
-   * Build the select SQL for all properties related to a bank
-   * @param id the bank ID
-   * @param countryId the country ID that would contain the bank
+   * Build the select SQL for all properties related to a bank within a country. Slots: id,
+   * country id
    * @return the SelectBuilder reference object
    */
-  private SelectBuilder buildSelectSql(long id, long countryId) {
+  private SelectBuilder buildSelectByIdSql() {
     return buildSelectSql()
-        .where(getColumn(ID) + "=" + Long.toString(id))
-        .where(getColumn(COUNTRY_ID) + "=" + Long.toString(countryId));
-  }
-
-  /**
-   * Builds a select SQL for all properties related to a bank and fetches all banks tied to the
-   * given country code
-   * @param countryCode the two digit country code to fetch the banks for
-   * @return the SelectBuilder reference object
-   */
-  private SelectBuilder buildSelectSqlForCountry(String countryCode) {
-    return Country.join(buildSelectSql(), getColumn(COUNTRY_ID), countryCode);
+        .where(getColumn(ID) + "=?")
+        .where(getColumn(COUNTRY_ID) + "=?");
   }
 
   /**
@@ -100,15 +98,17 @@ public class Bank extends AbstractObject {
    * Updates the bank info from the result set provided. This assumes it was fetched
    * appropriately by the SQL function
    * @param resultSet the result set to pull the data from. This will not call .next()
+   * @param layout the column layout of the select that produced the result set
    * @throws SQLException if the data is unexpected in the result set
    */
   @Override
-  protected void updateFromFetch(ResultSet resultSet) throws SQLException {
-    mId = resultSet.getLong(getColumn(ID));
-    mCode = resultSet.getInt(getColumn(CODE));
-    mName = resultSet.getString(getColumn(NAME));
-    mCountryId = resultSet.getLong(getColumn(COUNTRY_ID));
-    mEnabled = resultSet.getBoolean(getColumn(ENABLED));
+  protected void updateFromFetch(ResultSet resultSet, ColumnLayout layout) throws SQLException {
+    int column = layout.getStart(TABLE_NAME);
+    mId = resultSet.getLong(column++);
+    mCode = resultSet.getInt(column++);
+    mName = resultSet.getString(column++);
+    mCountryId = resultSet.getLong(column++);
+    mEnabled = resultSet.getBoolean(column);
   }
 
   /*=============================================================
@@ -130,14 +130,12 @@ public class Bank extends AbstractObject {
    * @return the bank reference. NULL if not found
    */
   public Bank getBank(long id, long countryId) {
-    // Build the query
-    String selectSql = buildSelectSql(id, countryId).toString();
-
     // Try to execute against the connection
     try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
+      try (ResultSet rs = SELECT_BY_ID.prepare(conn, SQLParameter.of(id),
+                                               SQLParameter.of(countryId)).executeQuery()) {
         if (rs.next()) {
-          updateFromFetch(rs);
+          updateFromFetch(rs, SELECT_BY_ID.getLayout());
           return this;
         }
       }
@@ -162,36 +160,29 @@ public class Bank extends AbstractObject {
    *============================================================*/
 
   /**
-   * Returns the select all banks tied to the country code statement
-   * @return the SelectBuilder reference object
+   * Fetches all banks from the database, for every country
+   * @param conn the connection to fetch through
+   * @return the list of all banks. Empty list if none found
+   * @throws SQLException exception on failed fetch
    */
-  private static SelectBuilder buildSelectForCountry(String countryCode) {
-    return new Bank().buildSelectSqlForCountry(countryCode);
+  static List<Bank> fetchAll(Connection conn) throws SQLException {
+    List<Bank> banks = new ArrayList<>();
+    try (ResultSet rs = SELECT_ALL.prepare(conn).executeQuery()) {
+      while (rs.next()) {
+        banks.add(new Bank(rs, SELECT_ALL.getLayout()));
+      }
+    }
+    return banks;
   }
 
   /**
-   * Returns a list of all banks for the given country code
+   * Returns a list of all banks for the given country code. This is served from the reference
+   * data and the models are shared, so they must not be modified
    * @param countryCode the two digit ISO2 country code to fetch for
    * @return the list of all banks for the country. Blank if country not found
    */
   public static List<Bank> getAllForCountry(String countryCode) {
-    List<Bank> banks = new ArrayList<>();
-
-    // Build the query
-    String selectSql = buildSelectForCountry(countryCode).toString();
-
-    // Try to execute against the connection
-    try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
-        while (rs.next()) {
-          banks.add(new Bank(rs));
-        }
-      }
-    } catch (SQLException e) {
-      throw new RuntimeException("Unable to fetch the banks tied to the country with SQL", e);
-    }
-
-    return banks;
+    return ReferenceData.getBanksForCountry(countryCode);
   }
 
   /**
@@ -3,9 +3,14 @@ package com.gncompass.serverfront.db.model;
 import com.gncompass.serverfront.api.model.BankConnectionInfo;
 import com.gncompass.serverfront.api.model.BankConnectionNew;
 import com.gncompass.serverfront.api.model.BankConnectionSummary;
+import com.gncompass.serverfront.db.ColumnLayout;
 import com.gncompass.serverfront.db.InsertBuilder;
+import com.gncompass.serverfront.db.Page;
+import com.gncompass.serverfront.db.PageCursor;
+import com.gncompass.serverfront.db.QueryTemplate;
 import com.gncompass.serverfront.db.SelectBuilder;
 import com.gncompass.serverfront.db.SQLManager;
+import com.gncompass.serverfront.db.SQLParameter;
 import com.gncompass.serverfront.util.UuidHelper;
 
 import java.sql.Connection;
@@ -29,6 +34,24 @@ public class BankConnection extends AbstractObject {
   private static final String TRANSIT = "transit";
   private static final String ACCOUNT = "account";
 
+  // Precompiled queries
+  private static final QueryTemplate INSERT = QueryTemplate.compile(
+      new InsertBuilder(TABLE_NAME)
+          .set(REFERENCE, "?")
+          .set(USER_ID, "?")
+          .set(LOGIN_ID, "?")
+          .set(INSTITUTION, "?")
+          .set(TRANSIT, "?")
+          .set(ACCOUNT, "?"));
+  private static final QueryTemplate SELECT_BY_REFERENCE =
+      QueryTemplate.compile(new BankConnection().buildSelectSql(true));
+  private static final QueryTemplate SELECT_FOR_USER =
+      QueryTemplate.compile(new BankConnection().buildSelectSql(false));
+  private static final QueryTemplate SELECT_PAGE_FOR_USER =
+      QueryTemplate.compile(new BankConnection().buildSelectPageSql(false));
+  private static final QueryTemplate SELECT_PAGE_AFTER_FOR_USER =
+      QueryTemplate.compile(new BankConnection().buildSelectPageSql(true));
+
   // Database parameters
   public long mId = 0;
   public byte[] mReference = null;
@@ -56,8 +79,8 @@ public class BankConnection extends AbstractObject {
     mReferenceUuid = UUID.randomUUID();
   }
 
-  public BankConnection(ResultSet rs) throws SQLException {
-    updateFromFetch(rs);
+  public BankConnection(ResultSet rs, ColumnLayout layout) throws SQLException {
+    updateFromFetch(rs, layout);
   }
 
   /*=============================================================
@@ -80,20 +103,33 @@ public class BankConnection extends AbstractObject {
   }
 
   /**
-   * Build the select SQL for all properties related to the bank connection
-   * @param user the user reference
-   * @param reference the bank connection UUID reference
+   * Build the select SQL for all properties related to the bank connection. Slots: user,
+   * reference (if filtered)
+   * @param byReference TRUE to filter on the bank connection reference
    * @return the SelectBuilder reference object
    */
-  private SelectBuilder buildSelectSql(User user, String reference) {
+  private SelectBuilder buildSelectSql(boolean byReference) {
     SelectBuilder selectBuilder = buildSelectSql()
-        .where(getColumn(USER_ID) + "=" + Long.toString(user.mId));
-    if (reference != null) {
-      selectBuilder.where(getColumn(REFERENCE) + "=" + UuidHelper.getHexFromUUID(reference, true));
+        .where(getColumn(USER_ID) + "=?");
+    if (byReference) {
+      selectBuilder.where(getColumn(REFERENCE) + "=?");
     }
     return selectBuilder;
   }
 
+  /**
+   * Build the select SQL for a page of the user bank connections, in the order they were added.
+   * The table has no created time, so the auto increment ID is the only key.
+   * Slots: user, id (if seeking), page size
+   * @param seek TRUE to only select the bank connections after the cursor slot. FALSE for first
+   * @return the SelectBuilder reference object
+   */
+  private SelectBuilder buildSelectPageSql(boolean seek) {
+    return buildSelectSql(false)
+        .keyset(null, getColumn(ID), true, seek)
+        .limit("?");
+  }
+
   /**
    * Build the select SQL for all properties related to all bank connections
    * @return the SelectBuilder reference object
@@ -124,20 +160,22 @@ public class BankConnection extends AbstractObject {
    * Updates the bank connection info from the result set provided. This assumes it was fetched
    * appropriately by the SQL function
    * @param resultSet the result set to pull the data from. This will not call .next()
+   * @param layout the column layout of the select that produced the result set
    * @throws SQLException if the data is unexpected in the result set
    */
   @Override
-  protected void updateFromFetch(ResultSet resultSet) throws SQLException {
-    mId = resultSet.getLong(getColumn(ID));
-    mReference = resultSet.getBytes(getColumn(REFERENCE));
+  protected void updateFromFetch(ResultSet resultSet, ColumnLayout layout) throws SQLException {
+    int column = layout.getStart(TABLE_NAME);
+    mId = resultSet.getLong(column++);
+    mReference = resultSet.getBytes(column++);
     //mUserId = resultSet.getLong(getColumn(USER));
-    mLoginId = resultSet.getBytes(getColumn(LOGIN_ID));
-    mEnabled = resultSet.getBoolean(getColumn(ENABLED));
-    mInstitution = resultSet.getLong(getColumn(INSTITUTION));
-    mTransit = resultSet.getInt(getColumn(TRANSIT));
-    mAccount = resultSet.getInt(getColumn(ACCOUNT));
+    mLoginId = resultSet.getBytes(column++);
+    mEnabled = resultSet.getBoolean(column++);
+    mInstitution = resultSet.getLong(column++);
+    mTransit = resultSet.getInt(column++);
+    mAccount = resultSet.getInt(column);
 
-    mBank = new Bank(resultSet);
+    mBank = new Bank(resultSet, layout);
     mLoginUuid = UuidHelper.getUUIDFromBytes(mLoginId);
     mReferenceUuid = UuidHelper.getUUIDFromBytes(mReference);
   }
@@ -154,19 +192,12 @@ public class BankConnection extends AbstractObject {
   public boolean addToDatabase(User user) {
     if (mAccount > 0 && mInstitution > 0 && mLoginUuid != null && mReferenceUuid != null
         && mTransit > 0 && user != null) {
-      // Create the bank connection insert statement
-      String insertSql = new InsertBuilder(getTable())
-          .set(REFERENCE, UuidHelper.getHexFromUUID(mReferenceUuid, true))
-          .set(USER_ID, Long.toString(user.mId))
-          .set(LOGIN_ID, UuidHelper.getHexFromUUID(mLoginUuid, true))
-          .set(INSTITUTION, Long.toString(mInstitution))
-          .set(TRANSIT, Integer.toString(mTransit))
-          .set(ACCOUNT, Integer.toString(mAccount))
-          .toString();
-
       // Execute the insert
       try (Connection conn = SQLManager.getConnection()) {
-        return (conn.prepareStatement(insertSql).executeUpdate() == 1);
+        return (INSERT.prepare(conn, SQLParameter.of(mReferenceUuid), SQLParameter.of(user.mId),
+                               SQLParameter.of(mLoginUuid), SQLParameter.of(mInstitution),
+                               SQLParameter.of(mTransit),
+                               SQLParameter.of(mAccount)).executeUpdate() == 1);
       } catch (SQLException e) {
         throw new RuntimeException("Unable to add the bank connection for an existing user", e);
       }
@@ -198,14 +229,12 @@ public class BankConnection extends AbstractObject {
    * @return the bank connection object with the information fetched. If not found, return NULL
    */
   public BankConnection getBankConnection(User user, String reference) {
-    // Build the query
-    String selectSql = buildSelectSql(user, reference).toString();
-
     // Try to execute against the connection
     try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
+      try (ResultSet rs = SELECT_BY_REFERENCE.prepare(conn, SQLParameter.of(user.mId),
+              SQLParameter.of(UuidHelper.getBytesFromUUID(reference))).executeQuery()) {
         if (rs.next()) {
-          updateFromFetch(rs);
+          updateFromFetch(rs, SELECT_BY_REFERENCE.getLayout());
           return this;
         }
       }
@@ -237,14 +266,12 @@ public class BankConnection extends AbstractObject {
   public static List<BankConnection> getAllForUser(User user) {
     List<BankConnection> bankConnections = new ArrayList<>();
 
-    // Build the query
-    String selectSql = new BankConnection().buildSelectSql(user, null).toString();
-
     // Try to execute against the connection
     try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
+      try (ResultSet rs =
+              SELECT_FOR_USER.prepare(conn, SQLParameter.of(user.mId)).executeQuery()) {
         while (rs.next()) {
-          bankConnections.add(new BankConnection(rs));
+          bankConnections.add(new BankConnection(rs, SELECT_FOR_USER.getLayout()));
         }
       }
     } catch (SQLException e) {
@@ -255,6 +282,45 @@ public class BankConnection extends AbstractObject {
     return bankConnections;
   }
 
+  /**
+   * Fetches a page of the banks for the provided user, in the order they were added
+   * @param user the user object to fetch for
+   * @param after the cursor returned with the previous page. NULL for the first page
+   * @param pageSize the maximum number of bank connections in the page
+   * @return the page of bank connections tied to the user. Empty page if none found
+   */
+  public static Page<BankConnection> getPageForUser(User user, PageCursor after, int pageSize) {
+    List<BankConnection> bankConnections = new ArrayList<>();
+    PageCursor nextCursor = null;
+
+    // One extra row is fetched to find out if there is a following page
+    QueryTemplate template = SELECT_PAGE_FOR_USER;
+    SQLParameter[] params = { SQLParameter.of(user.mId), SQLParameter.of(pageSize + 1) };
+    if (after != null) {
+      template = SELECT_PAGE_AFTER_FOR_USER;
+      params = new SQLParameter[] { SQLParameter.of(user.mId), SQLParameter.of(after.getId()),
+                                    SQLParameter.of(pageSize + 1) };
+    }
+
+    // Try to execute against the connection
+    try (Connection conn = SQLManager.getConnection()) {
+      try (ResultSet rs = template.prepare(conn, params).executeQuery()) {
+        while (rs.next()) {
+          if (bankConnections.size() == pageSize) {
+            nextCursor = new PageCursor(0L, bankConnections.get(bankConnections.size() - 1).mId);
+            break;
+          }
+          bankConnections.add(new BankConnection(rs, template.getLayout()));
+        }
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException(
+                        "Unable to fetch the page of banks for the user with SQL", e);
+    }
+
+    return new Page<>(bankConnections, nextCursor);
+  }
+
   /**
    * Adds a join statement to the select builder provided connecting the bank connection table to
    * the caller
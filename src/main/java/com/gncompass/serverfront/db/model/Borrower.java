@@ -3,10 +3,15 @@ package com.gncompass.serverfront.db.model;
 import com.gncompass.serverfront.api.model.BorrowerEditable;
 import com.gncompass.serverfront.api.model.BorrowerViewable;
 import com.gncompass.serverfront.api.model.UserViewable;
+import com.gncompass.serverfront.db.AsyncQuery;
+import com.gncompass.serverfront.db.ColumnLayout;
 import com.gncompass.serverfront.db.InsertBuilder;
+import com.gncompass.serverfront.db.QueryTemplate;
 import com.gncompass.serverfront.db.SelectBuilder;
 import com.gncompass.serverfront.db.SQLManager;
+import com.gncompass.serverfront.db.SQLParameter;
 import com.gncompass.serverfront.db.UpdateBuilder;
+import com.gncompass.serverfront.util.StringHelper;
 import com.gncompass.serverfront.util.UuidHelper;
 
 import java.sql.Connection;
@@ -15,6 +20,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
 
 public class Borrower extends User {
@@ -31,6 +37,34 @@ public class Borrower extends User {
   private static final String JOB_TITLE = "job_title";
   private static final String LOAN_CAP = "loan_cap";
 
+  // Precompiled queries
+  private static final QueryTemplate INSERT = QueryTemplate.compile(
+      new InsertBuilder(TABLE_NAME)
+          .set(ID, "LAST_INSERT_ID()")
+          .set(REFERENCE, "?")
+          .set(EMAIL, "?")
+          .set(PHONE, "?")
+          .set(EMPLOYER, "?")
+          .set(JOB_TITLE, "?"));
+  private static final QueryTemplate SELECT_BY_EMAIL =
+      QueryTemplate.compile(new Borrower().buildSelectEmailSql());
+  private static final QueryTemplate SELECT_BY_REFERENCE =
+      QueryTemplate.compile(new Borrower().buildSelectSql());
+  private static final QueryTemplate SELECT_EMAIL_EXISTS = QueryTemplate.compile(
+      new SelectBuilder(TABLE_NAME)
+          .column(ID)
+          .where(EMAIL + "=?"));
+  private static final QueryTemplate UPDATE = QueryTemplate.compile(
+      new UpdateBuilder(TABLE_NAME)
+          .set(EMPLOYER + "=?")
+          .set(JOB_TITLE + "=?")
+          .set(PHONE + "=?")
+          .where(ID + "=?"));
+  private static final QueryTemplate UPDATE_LOAN_CAP = QueryTemplate.compile(
+      new UpdateBuilder(TABLE_NAME)
+          .set(LOAN_CAP + "=?")
+          .where(ID + "=?"));
+
   // Database parameters
   //public long mId = 0;
   public byte[] mReference = null;
@@ -97,18 +131,25 @@ public class Borrower extends User {
     return selectBuilder;
   }
 
+  /**
+   * Build the select SQL for all properties related to the borrower with the matching email.
+   * Slots: email
+   * @return the SelectBuilder reference object
+   */
+  private SelectBuilder buildSelectEmailSql() {
+    return buildSelectSql(getColumn(EMAIL) + "=?", false, null);
+  }
+
   /**
    * Build the select SQL for all properties related to the borrower. Allows for choosing between
-   * JOIN or FROM for how this table is connected
-   * @param reference the borrower UUID reference
+   * JOIN or FROM for how this table is connected. Slots: reference
    * @param isJoin TRUE if is JOIN. FALSE if is FROM
    * @param userIdColumn if JOIN, a user id column defines the matching ON column to join for the
    *                     parent ID
    * @return the SelectBuilder reference object
    */
-  private SelectBuilder buildSelectRefSql(String reference, boolean isJoin, String userIdColumn) {
-    String refMatch = getColumn(REFERENCE) + "=" + UuidHelper.getHexFromUUID(reference, true);
-    return buildSelectSql(refMatch, isJoin, userIdColumn);
+  private SelectBuilder buildSelectRefSql(boolean isJoin, String userIdColumn) {
+    return buildSelectSql(getColumn(REFERENCE) + "=?", isJoin, userIdColumn);
   }
 
   /*=============================================================
@@ -117,12 +158,11 @@ public class Borrower extends User {
 
   /**
    * Build the select SQL for all properties related to the borrower. This is the query when this
-   * class is controlling (the query FROM table is this one)
-   * @param reference the borrower UUID reference
+   * class is controlling (the query FROM table is this one). Slots: reference
    * @return the SelectBuilder reference object
    */
-  protected SelectBuilder buildSelectSql(String reference) {
-    return buildSelectRefSql(reference, false, null);
+  protected SelectBuilder buildSelectSql() {
+    return buildSelectRefSql(false, null);
   }
 
   /**
@@ -142,20 +182,22 @@ public class Borrower extends User {
    * Updates the borrower info from the result set provided. This assumes it was fetched
    * appropriately by the SQL function
    * @param resultSet the result set to pull the data from. This will not call .next()
+   * @param layout the column layout of the select that produced the result set
    * @throws SQLException if the data is unexpected in the result set
    */
   @Override
-  void updateFromFetch(ResultSet resultSet) throws SQLException {
-    super.updateFromFetch(resultSet);
+  void updateFromFetch(ResultSet resultSet, ColumnLayout layout) throws SQLException {
+    super.updateFromFetch(resultSet, layout);
 
+    int column = layout.getStart(TABLE_NAME);
     //mId = resultSet.getLong(getColumn(ID));
-    mReference = resultSet.getBytes(getColumn(REFERENCE));
-    mEmail = resultSet.getString(getColumn(EMAIL));
+    mReference = resultSet.getBytes(column++);
+    mEmail = resultSet.getString(column++);
     //mType = resultSet.getInt(getColumn(TYPE));
-    mPhone = resultSet.getString(getColumn(PHONE));
-    mEmployer = resultSet.getString(getColumn(EMPLOYER));
-    mJobTitle = resultSet.getString(getColumn(JOB_TITLE));
-    mLoanCap = resultSet.getFloat(getColumn(LOAN_CAP));
+    mPhone = resultSet.getString(column++);
+    mEmployer = resultSet.getString(column++);
+    mJobTitle = resultSet.getString(column++);
+    mLoanCap = resultSet.getFloat(column);
 
     mReferenceUuid = UuidHelper.getUUIDFromBytes(mReference);
   }
@@ -176,18 +218,10 @@ public class Borrower extends User {
        mJobTitle != null) {
      // Add the user portion first
      if(super.addToDatabase(conn)) {
-       // Create the borrower insert statement
-       String insertSql = new InsertBuilder(getTable())
-           .set(ID, "LAST_INSERT_ID()")
-           .set(REFERENCE, UuidHelper.getHexFromUUID(mReferenceUuid, true))
-           .setString(EMAIL, mEmail)
-           .setString(PHONE, mPhone)
-           .setString(EMPLOYER, mEmployer)
-           .setString(JOB_TITLE, mJobTitle)
-           .toString();
-
        // Execute the insert
-       if (conn.prepareStatement(insertSql).executeUpdate() == 1) {
+       if (INSERT.prepare(conn, SQLParameter.of(mReferenceUuid), SQLParameter.of(mEmail),
+                          SQLParameter.of(mPhone), SQLParameter.of(mEmployer),
+                          SQLParameter.of(mJobTitle)).executeUpdate() == 1) {
          return true;
        }
      }
@@ -201,8 +235,11 @@ public class Borrower extends User {
    */
   @Override
   public void fetchConnectedInfo() {
+    // The assessments load in parallel with the bank connections
+    CompletableFuture<List<Assessment>> assessments =
+        AsyncQuery.supply(() -> Assessment.getAllForBorrower(this));
     super.fetchConnectedInfo();
-    mAssessments = Assessment.getAllForBorrower(this);
+    mAssessments = AsyncQuery.join(assessments);
   }
 
   /**
@@ -211,14 +248,12 @@ public class Borrower extends User {
    * @return the Borrower class object with the information fetched. If not found, return NULL
    */
   public Borrower getBorrower(String reference) {
-    // Build the query
-    String selectSql = buildSelectSql(reference).toString();
-
     // Try to execute against the connection
     try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
+      try (ResultSet rs = SELECT_BY_REFERENCE.prepare(conn,
+              SQLParameter.of(UuidHelper.getBytesFromUUID(reference))).executeQuery()) {
         if (rs.next()) {
-          updateFromFetch(rs);
+          updateFromFetch(rs, SELECT_BY_REFERENCE.getLayout());
           return this;
         }
       }
@@ -235,15 +270,11 @@ public class Borrower extends User {
    * @return the Borrower class object with the information fetched. If not found, returns NULL
    */
   public Borrower getBorrowerByEmail(String email) {
-    // Build the query
-    String where = getColumn(EMAIL) + "='" + email + "'";
-    String selectSql = buildSelectSql(where, false, null).toString();
-
     // Try to execute against the connection
     try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
+      try (ResultSet rs = SELECT_BY_EMAIL.prepare(conn, SQLParameter.of(email)).executeQuery()) {
         if (rs.next()) {
-          updateFromFetch(rs);
+          updateFromFetch(rs, SELECT_BY_EMAIL.getLayout());
           return this;
         }
       }
@@ -294,15 +325,10 @@ public class Borrower extends User {
    * @return TRUE if a borrower already has that email. FALSE otherwise
    */
   public boolean isEmailExisting(String email) {
-    String selectSql =
-        new SelectBuilder(getTable())
-        .column(getColumn(ID))
-        .where(getColumn(EMAIL) + "='" + email + "'")
-          .toString();
-
     // Try to execute against the connection
     try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
+      try (ResultSet rs =
+              SELECT_EMAIL_EXISTS.prepare(conn, SQLParameter.of(email)).executeQuery()) {
         if (rs.next()) {
           return true;
         }
@@ -321,13 +347,12 @@ public class Borrower extends User {
    */
   @Override
   public boolean matches(String userReference) {
-    // TODO: Should it cache the string UUID to make comparisons faster?
-    return (mReferenceUuid != null && mReferenceUuid.equals(UUID.fromString(userReference)));
+    return StringHelper.isUuid(userReference, mReferenceUuid);
   }
 
   /**
    * Randomly assigns a loan cap to the borrower if one has not been provided already. This is only
-   * temporary until production release with manual assessment approvals
+   * temporary until production release with manual assessment approvals. Drops the cached borrower
    * TODO: REMOVE! In Future
    */
   public void randomLoanCap() {
@@ -337,15 +362,11 @@ public class Borrower extends User {
       int loanMax = 5;
       int loanCap = ThreadLocalRandom.current().nextInt(loanMin, loanMax + 1) * 10000;
 
-      // The update statement
-      String updateSql = new UpdateBuilder(getTable())
-          .set(getColumn(LOAN_CAP) + "=" + Integer.toString(loanCap))
-          .where(getColumn(ID) + "=" + Long.toString(mId))
-          .toString();
-
       // Execute the update statement
       try (Connection conn = SQLManager.getConnection()) {
-        conn.prepareStatement(updateSql).executeUpdate();
+        UPDATE_LOAN_CAP.prepare(conn, SQLParameter.of(loanCap), SQLParameter.of(mId))
+            .executeUpdate();
+        BorrowerCache.invalidate(mReferenceUuid);
       } catch (SQLException e) {
         throw new RuntimeException("Unable to update the borrower to randomly provide a loan cap with SQL", e);
       }
@@ -353,20 +374,12 @@ public class Borrower extends User {
   }
 
   /**
-   * Updates this borrower information in the database. Requires that this borrower is valid with
-   * a valid reference ID
+   * Updates this borrower information in the database and drops the cached borrower. Requires that
+   * this borrower is valid with a valid reference ID
    * @return TRUE if updated. FALSE otherwise
    */
   public boolean updateDatabase() {
     if(mEmployer != null && mJobTitle != null && mPhone != null) {
-      // Build the statement
-      String updateSql = new UpdateBuilder(getTable())
-          .set(getColumn(EMPLOYER) + "=?")
-          .set(getColumn(JOB_TITLE) + "=?")
-          .set(getColumn(PHONE) + "=?")
-          .where(getColumn(ID) + "=" + mId)
-            .toString();
-
       // Try to execute against the connection
       try (Connection conn = SQLManager.getConnection()) {
         boolean success = false;
@@ -376,11 +389,8 @@ public class Borrower extends User {
           // Update the parent
           if (updateDatabase(conn)) {
             // Borrower specific detail statement
-            try (PreparedStatement statement = conn.prepareStatement(updateSql)) {
-              statement.setString(1, mEmployer);
-              statement.setString(2, mJobTitle);
-              statement.setString(3, mPhone);
-
+            try (PreparedStatement statement = UPDATE.prepare(conn, SQLParameter.of(mEmployer),
+                    SQLParameter.of(mJobTitle), SQLParameter.of(mPhone), SQLParameter.of(mId))) {
               // Update the borrower
               if (statement.executeUpdate() == 1) {
                 success = true;
@@ -394,6 +404,7 @@ public class Borrower extends User {
         // Depending on the result, either commit or rollback
         if (success) {
           conn.commit();
+          BorrowerCache.invalidate(mReferenceUuid);
           return true;
         } else {
           conn.rollback();
@@ -424,12 +435,11 @@ public class Borrower extends User {
 
   /**
    * Build the select SQL for all properties related to the borrower. This is the query when this
-   * class is just an extension (the query JOIN table is this one)
-   * @param reference the borrower UUID reference
+   * class is just an extension (the query JOIN table is this one). Slots: reference
    * @param userIdColumn the column defines the matching ON column to join for the parent ID
    * @return the SelectBuilder reference object
    */
-  static SelectBuilder buildSelectJoinSql(String reference, String userIdColumn) {
-    return new Borrower().buildSelectRefSql(reference, true, userIdColumn);
+  static SelectBuilder buildSelectJoinSql(String userIdColumn) {
+    return new Borrower().buildSelectRefSql(true, userIdColumn);
   }
 }
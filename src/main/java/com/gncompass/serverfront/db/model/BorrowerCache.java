@@ -0,0 +1,139 @@
+package com.gncompass.serverfront.db.model;
+
+import com.gncompass.serverfront.util.StateHelper;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The borrowers of the authenticated requests, held in memory by reference. The borrower row is
+ * already fetched when a session is validated from the database, so it is cached from there and
+ * the requests of the session that follow are served without fetching it again.
+ *
+ * Cached borrowers are shared by all the requests, so they must not be modified. Changes to a
+ * borrower invalidate it here, and an entry is only kept for a short time, which bounds how long
+ * a change made on another instance goes unseen.
+ */
+public final class BorrowerCache {
+  // Max borrowers cached, before the oldest are dropped
+  private static final String PROPERTY_MAX = "borrower-cache-max";
+  private static final int MAX = 10000;
+
+  // How long a borrower is served from the cache after it is fetched
+  private static final String PROPERTY_TTL_MS = "borrower-cache-ttl-ms";
+  private static final long TTL_MS = 30000L;
+
+  private static final Map<UUID, Entry> sBorrowers = new ConcurrentHashMap<>();
+  private static final AtomicLong sInvalidations = new AtomicLong();
+  private static volatile int sMax = MAX;
+  private static volatile long sTtlMs = TTL_MS;
+
+  private BorrowerCache() {
+  }
+
+  /*=============================================================
+   * PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Caches the borrower, then drops the expired borrowers if the cache is past its max size, and
+   * the oldest ones if it still is
+   * @param borrower the borrower fetched from the database
+   */
+  private static void cache(Borrower borrower) {
+    sBorrowers.put(borrower.mReferenceUuid, new Entry(borrower));
+    if (sBorrowers.size() <= sMax) {
+      return;
+    }
+
+    long now = System.currentTimeMillis();
+    for (Iterator<Entry> it = sBorrowers.values().iterator(); it.hasNext(); ) {
+      if (it.next().isExpired(now)) {
+        it.remove();
+      }
+    }
+    for (Iterator<Entry> it = sBorrowers.values().iterator();
+         it.hasNext() && sBorrowers.size() > sMax; ) {
+      it.next();
+      it.remove();
+    }
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Returns the borrower with the reference, from the cache or else from the database
+   * @param reference the borrower reference
+   * @return the shared borrower, which must not be modified. NULL if not found
+   */
+  public static Borrower get(UUID reference) {
+    Entry entry = sBorrowers.get(reference);
+    if (entry != null) {
+      if (!entry.isExpired(System.currentTimeMillis())) {
+        return entry.mBorrower;
+      }
+      sBorrowers.remove(reference, entry);
+    }
+
+    // Not cached if invalidated while it was fetched, since it could be the old row
+    long invalidations = sInvalidations.get();
+    Borrower borrower = new Borrower().getBorrower(reference.toString());
+    if (borrower != null && invalidations == sInvalidations.get()) {
+      cache(borrower);
+    }
+    return borrower;
+  }
+
+  /**
+   * Loads the cache limits. Called once on servlet init
+   */
+  public static void init() {
+    sMax = StateHelper.getProperty(PROPERTY_MAX, MAX);
+    sTtlMs = StateHelper.getProperty(PROPERTY_TTL_MS, TTL_MS);
+  }
+
+  /**
+   * Drops the borrower from the cache. Called after the borrower is changed in the database
+   * @param reference the borrower reference
+   */
+  public static void invalidate(UUID reference) {
+    sInvalidations.incrementAndGet();
+    sBorrowers.remove(reference);
+  }
+
+  /**
+   * Caches a borrower that was just fetched from the database, such as along with a session
+   * @param borrower the fetched borrower. Must not be modified afterwards
+   */
+  public static void put(Borrower borrower) {
+    if (borrower.mReferenceUuid != null) {
+      cache(borrower);
+    }
+  }
+
+  /*=============================================================
+   * INNER CLASSES
+   *============================================================*/
+
+  /**
+   * A cached borrower and when it was fetched
+   */
+  private static class Entry {
+    final Borrower mBorrower;
+    final long mFetchedMs;
+
+    Entry(Borrower borrower) {
+      mBorrower = borrower;
+      mFetchedMs = System.currentTimeMillis();
+    }
+
+    boolean isExpired(long now) {
+      return (now - mFetchedMs > sTtlMs);
+    }
+  }
+}
@@ -1,7 +1,10 @@
 package com.gncompass.serverfront.db.model;
 
+import com.gncompass.serverfront.db.ColumnLayout;
+import com.gncompass.serverfront.db.QueryTemplate;
 import com.gncompass.serverfront.db.SelectBuilder;
 import com.gncompass.serverfront.db.SQLManager;
+import com.gncompass.serverfront.db.SQLParameter;
 
 import java.sql.Connection;
 import java.sql.ResultSet;
@@ -20,6 +23,14 @@ public class Country extends AbstractObject {
   private static final String REGION_ID = "region";
   private static final String ENABLED = "enabled";
 
+  // Precompiled queries
+  private static final QueryTemplate SELECT_ALL =
+      QueryTemplate.compile(new Country().buildSelectSql());
+  private static final QueryTemplate SELECT_BY_CODE =
+      QueryTemplate.compile(new Country().buildSelectSql(true));
+  private static final QueryTemplate SELECT_BY_ID =
+      QueryTemplate.compile(new Country().buildSelectByIdSql());
+
   // Database parameters
   public long mId = 0;
   public String mCode = null;
@@ -30,8 +41,8 @@ public class Country extends AbstractObject {
   public Country() {
   }
 
-  public Country(ResultSet rs) throws SQLException {
-    updateFromFetch(rs);
+  public Country(ResultSet rs, ColumnLayout layout) throws SQLException {
+    updateFromFetch(rs, layout);
   }
 
   /*=============================================================
@@ -39,16 +50,15 @@ public class Country extends AbstractObject {
    *============================================================*/
 
   /**
-   * Adds a join of this table to an existing select statement on the column provided
+   * Adds a join of this table to an existing select statement on the column provided. Slots:
+   * country code
    * @param selectBuilder the select builder to add to
    * @param countryIdColumn the column in the main table select to join to
-   * @param countryCode the two digit country code of the required country
    * @return the SelectBuilder with the modifications
    */
-  private SelectBuilder joinToSelectSql(SelectBuilder selectBuilder, String countryIdColumn,
-                                        String countryCode) {
+  private SelectBuilder joinToSelectSql(SelectBuilder selectBuilder, String countryIdColumn) {
     String onStatement = getColumn(ID) + "=" + countryIdColumn
-             + " AND " + getColumn(CODE) + "='" + countryCode + "'";
+             + " AND " + getColumn(CODE) + "=?";
     return selectBuilder.join(getTable(), onStatement);
   }
 
@@ -57,25 +67,25 @@ public class Country extends AbstractObject {
    *============================================================*/
 
   /**
-   * Build the select SQL for all properties related to the country
-   * @param id the country ID
+   * Build the select SQL for all properties related to the country. Slots: id
    * @return the SelectBuilder reference object
    */
-  protected SelectBuilder buildSelectSql(long id) {
+  protected SelectBuilder buildSelectByIdSql() {
     SelectBuilder selectBuilder = buildSelectSql()
-        .where(getColumn(ID) + "=" + Long.toString(id));
+        .where(getColumn(ID) + "=?");
     return selectBuilder;
   }
 
   /**
-   * Build the select SQL for all properties related to the country
-   * @param code the country code (E.g, 'CA')
+   * Build the select SQL for all properties related to the enabled countries. Slots: code (if
+   * filtered)
+   * @param byCode TRUE to filter on the country code (E.g, 'CA')
    * @return the SelectBuilder reference object
    */
-  protected SelectBuilder buildSelectSql(String code) {
+  protected SelectBuilder buildSelectSql(boolean byCode) {
     SelectBuilder selectBuilder = buildSelectSql();
-    if (code != null) {
-      selectBuilder.where(getColumn(CODE) + "='" + code + "'");
+    if (byCode) {
+      selectBuilder.where(getColumn(CODE) + "=?");
     }
     selectBuilder.where(getColumn(ENABLED) + "=1");
 
@@ -99,15 +109,17 @@ public class Country extends AbstractObject {
    * Updates the country info from the result set provided. This assumes it was fetched
    * appropriately by the SQL function
    * @param resultSet the result set to pull the data from. This will not call .next()
+   * @param layout the column layout of the select that produced the result set
    * @throws SQLException if the data is unexpected in the result set
    */
   @Override
-  protected void updateFromFetch(ResultSet resultSet) throws SQLException {
-    mId = resultSet.getLong(getColumn(ID));
-    mCode = resultSet.getString(getColumn(CODE));
-    mName = resultSet.getString(getColumn(NAME));
-    mRegionId = resultSet.getLong(getColumn(REGION_ID));
-    mEnabled = resultSet.getBoolean(getColumn(ENABLED));
+  protected void updateFromFetch(ResultSet resultSet, ColumnLayout layout) throws SQLException {
+    int column = layout.getStart(TABLE_NAME);
+    mId = resultSet.getLong(column++);
+    mCode = resultSet.getString(column++);
+    mName = resultSet.getString(column++);
+    mRegionId = resultSet.getLong(column++);
+    mEnabled = resultSet.getBoolean(column);
   }
 
   /*=============================================================
@@ -128,14 +140,11 @@ public class Country extends AbstractObject {
    * @return the country reference. NULL if not found
    */
   public Country getCountry(long id) {
-    // Build the query
-    String selectSql = buildSelectSql(id).toString();
-
     // Try to execute against the connection
     try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
+      try (ResultSet rs = SELECT_BY_ID.prepare(conn, SQLParameter.of(id)).executeQuery()) {
         if (rs.next()) {
-          updateFromFetch(rs);
+          updateFromFetch(rs, SELECT_BY_ID.getLayout());
           return this;
         }
       }
@@ -152,14 +161,11 @@ public class Country extends AbstractObject {
    * @return the country reference. NULL if not found
    */
   public Country getCountry(String code) {
-    // Build the query
-    String selectSql = buildSelectSql(code).toString();
-
     // Try to execute against the connection
     try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
+      try (ResultSet rs = SELECT_BY_CODE.prepare(conn, SQLParameter.of(code)).executeQuery()) {
         if (rs.next()) {
-          updateFromFetch(rs);
+          updateFromFetch(rs, SELECT_BY_CODE.getLayout());
           return this;
         }
       }
@@ -184,46 +190,37 @@ public class Country extends AbstractObject {
    *============================================================*/
 
   /**
-   * Returns the select all available countries statement
-   * @return the SelectBuilder reference object
+   * Fetches all countries from the database, including the ones that are not enabled
+   * @param conn the connection to fetch through
+   * @return the stack of countries. Empty list if none found
+   * @throws SQLException exception on failed fetch
    */
-  protected static SelectBuilder buildSelectAvailableSql() {
-    return new Country().buildSelectSql(null);
+  static List<Country> fetchAll(Connection conn) throws SQLException {
+    List<Country> countries = new ArrayList<>();
+    try (ResultSet rs = SELECT_ALL.prepare(conn).executeQuery()) {
+      while (rs.next()) {
+        countries.add(new Country(rs, SELECT_ALL.getLayout()));
+      }
+    }
+    return countries;
   }
 
   /**
-   * Fetches all countries available for creating accounts
+   * Fetches all countries available for creating accounts. This is served from the reference
+   * data and the models are shared, so they must not be modified
    * @return the stack of countries available. Empty list if none found
    */
   public static List<Country> getAvailable() {
-    List<Country> countries = new ArrayList<>();
-
-    // Build the query
-    String selectSql = buildSelectAvailableSql().toString();
-
-    // Try to execute against the connection
-    try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
-        while (rs.next()) {
-          countries.add(new Country(rs));
-        }
-      }
-    } catch (SQLException e) {
-      throw new RuntimeException("Unable to fetch the available countries with SQL", e);
-    }
-
-    return countries;
+    return ReferenceData.getAvailableCountries();
   }
 
   /**
    * Adds a join statement to the select builder provided connecting the country table to the caller
    * @param selectBuilder the select builder to add the join information to
    * @param countryIdColumn the column in the main table that will tie to the ID index column
-   * @param countryCode the two digit country code to identify the chosen country on join
-   * @return the select builder returned with the modifications
+   * @return the select builder returned with the modifications. Slots: country code
    */
-  static SelectBuilder join(SelectBuilder selectBuilder, String countryIdColumn,
-                            String countryCode) {
-    return new Country().joinToSelectSql(selectBuilder, countryIdColumn, countryCode);
+  static SelectBuilder join(SelectBuilder selectBuilder, String countryIdColumn) {
+    return new Country().joinToSelectSql(selectBuilder, countryIdColumn);
   }
 }
@@ -1,8 +1,12 @@
 package com.gncompass.serverfront.db.model;
 
 import com.gncompass.serverfront.api.model.UserViewable;
+import com.gncompass.serverfront.db.ColumnLayout;
+import com.gncompass.serverfront.db.QueryTemplate;
 import com.gncompass.serverfront.db.SelectBuilder;
 import com.gncompass.serverfront.db.SQLManager;
+import com.gncompass.serverfront.db.SQLParameter;
+import com.gncompass.serverfront.util.StringHelper;
 import com.gncompass.serverfront.util.UuidHelper;
 
 import java.sql.Connection;
@@ -21,6 +25,10 @@ public class Investor extends User {
   private static final String TYPE = "type";
   private static final String PAY_DAY = "pay_day";
 
+  // Precompiled queries
+  private static final QueryTemplate SELECT_BY_REFERENCE =
+      QueryTemplate.compile(new Investor().buildSelectSql());
+
   // Database parameters
   //public long mId = 0;
   public byte[] mReference = null;
@@ -67,16 +75,14 @@ public class Investor extends User {
 
   /**
    * Build the select SQL for all properties related to the investor. Allows for choosing between
-   * JOIN or FROM for how this table is connected
-   * @param reference the investor UUID reference
+   * JOIN or FROM for how this table is connected. Slots: reference
    * @param isJoin TRUE if is JOIN. FALSE if is FROM
    * @param userIdColumn if JOIN, a user id column defines the matching ON column to join for the
    *                     parent ID
    * @return the SelectBuilder reference object
    */
-  private SelectBuilder buildSelectRefSql(String reference, boolean isJoin, String userIdColumn) {
-    String refMatch = getColumn(REFERENCE) + "=" + UuidHelper.getHexFromUUID(reference, true);
-    return buildSelectSql(refMatch, isJoin, userIdColumn);
+  private SelectBuilder buildSelectRefSql(boolean isJoin, String userIdColumn) {
+    return buildSelectSql(getColumn(REFERENCE) + "=?", isJoin, userIdColumn);
   }
 
   /*=============================================================
@@ -84,12 +90,11 @@ public class Investor extends User {
    *============================================================*/
 
   /**
-   * Build the select SQL for all properties related to the investor
-   * @param reference the investor UUID reference
+   * Build the select SQL for all properties related to the investor. Slots: reference
    * @return the SelectBuilder reference object
    */
-  protected SelectBuilder buildSelectSql(String reference) {
-    return buildSelectSql(reference, false, null);
+  protected SelectBuilder buildSelectSql() {
+    return buildSelectRefSql(false, null);
   }
 
   /*
@@ -109,17 +114,19 @@ public class Investor extends User {
    * Updates the investor info from the result set provided. This assumes it was fetched
    * appropriately by the SQL function
    * @param resultSet the result set to pull the data from. This will not call .next()
+   * @param layout the column layout of the select that produced the result set
    * @throws SQLException if the data is unexpected in the result set
    */
   @Override
-  void updateFromFetch(ResultSet resultSet) throws SQLException {
-    super.updateFromFetch(resultSet);
+  void updateFromFetch(ResultSet resultSet, ColumnLayout layout) throws SQLException {
+    super.updateFromFetch(resultSet, layout);
 
+    int column = layout.getStart(TABLE_NAME);
     //mId = resultSet.getLong(getColumn(ID));
-    mReference = resultSet.getBytes(getColumn(REFERENCE));
-    mEmail = resultSet.getString(getColumn(EMAIL));
+    mReference = resultSet.getBytes(column++);
+    mEmail = resultSet.getString(column++);
     //mType = resultSet.getInt(getColumn(TYPE));
-    mPayDay = resultSet.getInt(getColumn(PAY_DAY));
+    mPayDay = resultSet.getInt(column);
 
     mReferenceUuid = UuidHelper.getUUIDFromBytes(mReference);
   }
@@ -134,14 +141,12 @@ public class Investor extends User {
    * @return the Investor class object with the information fetched. If not found, return NULL
    */
   public Investor getInvestor(String reference) {
-    // Build the query
-    String selectSql = buildSelectSql(reference).toString();
-
     // Try to execute against the connection
     try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
+      try (ResultSet rs = SELECT_BY_REFERENCE.prepare(conn,
+              SQLParameter.of(UuidHelper.getBytesFromUUID(reference))).executeQuery()) {
         if (rs.next()) {
-          updateFromFetch(rs);
+          updateFromFetch(rs, SELECT_BY_REFERENCE.getLayout());
           return this;
         }
       }
@@ -188,8 +193,7 @@ public class Investor extends User {
    */
   @Override
   public boolean matches(String userReference) {
-    // TODO: Should it cache the string UUID to make comparisons faster?
-    return (mReferenceUuid != null && mReferenceUuid.equals(UUID.fromString(userReference)));
+    return StringHelper.isUuid(userReference, mReferenceUuid);
   }
 
   /*=============================================================
@@ -198,12 +202,11 @@ public class Investor extends User {
 
   /**
    * Build the select SQL for all properties related to the investor. This is the query when this
-   * class is just an extension (the query JOIN table is this one)
-   * @param reference the investor UUID reference
+   * class is just an extension (the query JOIN table is this one). Slots: reference
    * @param userIdColumn the column defines the matching ON column to join for the parent ID
    * @return the SelectBuilder reference object
    */
-  static SelectBuilder buildSelectJoinSql(String reference, String userIdColumn) {
-    return new Investor().buildSelectSql(reference, true, userIdColumn);
+  static SelectBuilder buildSelectJoinSql(String userIdColumn) {
+    return new Investor().buildSelectRefSql(true, userIdColumn);
   }
 }
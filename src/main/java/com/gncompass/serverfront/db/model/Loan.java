@@ -2,9 +2,15 @@ package com.gncompass.serverfront.db.model;
 
 import com.gncompass.serverfront.api.model.LoanInfo;
 import com.gncompass.serverfront.api.model.LoanSummary;
+import com.gncompass.serverfront.db.ColumnLayout;
 import com.gncompass.serverfront.db.InsertBuilder;
+import com.gncompass.serverfront.db.Page;
+import com.gncompass.serverfront.db.PageCursor;
+import com.gncompass.serverfront.db.QueryTemplate;
 import com.gncompass.serverfront.db.SelectBuilder;
 import com.gncompass.serverfront.db.SQLManager;
+import com.gncompass.serverfront.db.SQLParameter;
+import com.gncompass.serverfront.db.UpdateBuilder;
 import com.gncompass.serverfront.util.Currency;
 import com.gncompass.serverfront.util.PaymentHelper;
 import com.gncompass.serverfront.util.UuidHelper;
@@ -15,6 +21,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
@@ -34,6 +41,34 @@ public class Loan extends AbstractObject {
   private static final String AMORTIZATION = "amortization";
   private static final String FREQUENCY = "frequency";
   private static final String START_DATE = "start_date";
+  private static final String PRINCIPAL_PAID = "principal_paid";
+  private static final String BALANCE = "balance";
+  private static final String NEXT_PAYMENT_AMOUNT = "next_payment_amount";
+  private static final String NEXT_PAYMENT_INTEREST = "next_payment_interest";
+  private static final String NEXT_PAYMENT_DUE = "next_payment_due";
+
+  // Precompiled queries
+  private static final QueryTemplate INSERT = QueryTemplate.compile(new Loan().buildInsertSql());
+  private static final QueryTemplate SELECT_FOR_BORROWER =
+      QueryTemplate.compile(new Loan().buildSelectSql(true, false));
+  private static final QueryTemplate SELECT_PAGE_FOR_BORROWER =
+      QueryTemplate.compile(new Loan().buildSelectPageSql(false));
+  private static final QueryTemplate SELECT_PAGE_AFTER_FOR_BORROWER =
+      QueryTemplate.compile(new Loan().buildSelectPageSql(true));
+  private static final QueryTemplate SELECT_TOTALS_FOR_BORROWER = QueryTemplate.compile(
+      new SelectBuilder(TABLE_NAME)
+          .column("COUNT(" + ID + ")")
+          .column("COALESCE(SUM(" + PRINCIPAL + "),0)")
+          .where(BORROWER + "=?"));
+  private static final QueryTemplate SELECT_WITH_DETAIL =
+      QueryTemplate.compile(new Loan().buildSelectDetailSql());
+  // The due date is only moved forward, since payments are generated in order
+  private static final QueryTemplate UPDATE_PAYMENTS_DUE = QueryTemplate.compile(
+      new UpdateBuilder(TABLE_NAME)
+          .set(NEXT_PAYMENT_AMOUNT + "=" + NEXT_PAYMENT_AMOUNT + "+?")
+          .set(NEXT_PAYMENT_INTEREST + "=" + NEXT_PAYMENT_INTEREST + "+?")
+          .set(NEXT_PAYMENT_DUE + "=GREATEST(COALESCE(" + NEXT_PAYMENT_DUE + ",?),?)")
+          .where(ID + "=?"));
 
   // Database parameters
   public long mId = 0;
@@ -47,23 +82,25 @@ public class Loan extends AbstractObject {
   //public int mAmortizationId = 0;
   //public int mFrequencyId = 0;
   public Date mStartDate = null;
+  public Currency mPrincipalPaid = null;
+  public Currency mBalance = null;
+  //public Currency mNextPaymentAmount = null;
+  //public Currency mNextPaymentInterest = null;
+  //public Date mNextPaymentDue = null;
 
   // Internals
   public BankConnection mBankConnection = null;
   public LoanAmortization mLoanAmortization = null;
   public LoanFrequency mLoanFrequency = null;
   public List<LoanPayment> mLoanPayments = null;
-  public UUID mReferenceUuid = null;
-
-  // Calculated
-  public Currency mBalance = null;
   public LoanPayment mNextPayment = null;
+  public UUID mReferenceUuid = null;
 
   public Loan() {
   }
 
-  public Loan(ResultSet rs) throws SQLException {
-    updateFromFetch(rs);
+  public Loan(ResultSet rs, ColumnLayout layout) throws SQLException {
+    updateFromFetch(rs, layout);
   }
 
   public Loan(Currency principal, int ratingId, double rate) {
@@ -79,25 +116,70 @@ public class Loan extends AbstractObject {
    *============================================================*/
 
   /**
-   * Build the select SQL for all properties related to the loan. Both parameters cannot be
-   * NULL
-   * @param borrower the borrower reference. Can be null
-   * @param reference the bank connection UUID reference. Can be null
+   * Build the insert SQL for a new loan. Slots: reference, borrower, bank, principal, balance,
+   * rating, rate, amortization, frequency
+   * @return the InsertBuilder reference object
+   */
+  private InsertBuilder buildInsertSql() {
+    // This also defines the start date before being fulfilled (TEMP)
+    return new InsertBuilder(getTable())
+        .set(REFERENCE, "?")
+        .set(BORROWER, "?")
+        .set(BANK, "?")
+        .set(PRINCIPAL, "?")
+        .set(BALANCE, "?")
+        .set(RATING, "?")
+        .set(RATE, "?")
+        .set(AMORTIZATION, "?")
+        .set(FREQUENCY, "?")
+        .set(START_DATE, "CURDATE()");
+  }
+
+  /**
+   * Build the select SQL for a single loan with the bank connection, amortization and frequency
+   * details. Slots: borrower, reference
    * @return the SelectBuilder reference object
    */
-  private SelectBuilder buildSelectSql(Borrower borrower, String reference) {
-    if (borrower == null && reference == null) {
+  private SelectBuilder buildSelectDetailSql() {
+    SelectBuilder selectBuilder = buildSelectSql(true, true);
+    BankConnection.join(selectBuilder, getColumn(BANK));
+    LoanAmortization.join(selectBuilder, getColumn(AMORTIZATION));
+    LoanFrequency.join(selectBuilder, getColumn(FREQUENCY));
+    return selectBuilder;
+  }
+
+  /**
+   * Build the select SQL for a page of the borrower loans, in the order they were created.
+   * Slots: borrower, created, created, id (if seeking), page size
+   * @param seek TRUE to only select the loans after the cursor slots. FALSE for the first page
+   * @return the SelectBuilder reference object
+   */
+  private SelectBuilder buildSelectPageSql(boolean seek) {
+    return buildSelectSql(true, false)
+        .keyset(getColumn(CREATED), getColumn(ID), true, seek)
+        .limit("?");
+  }
+
+  /**
+   * Build the select SQL for all properties related to the loan. At least one filter is required.
+   * Slots, in order: borrower, reference
+   * @param byBorrower TRUE to filter on the borrower
+   * @param byReference TRUE to filter on the loan reference
+   * @return the SelectBuilder reference object
+   */
+  private SelectBuilder buildSelectSql(boolean byBorrower, boolean byReference) {
+    if (!byBorrower && !byReference) {
       throw new RuntimeException(
                 "Both the borrower and the reference are null on select loan. Not permitted");
     }
 
     // Build the select statement
     SelectBuilder selectBuilder = buildSelectSql();
-    if (borrower != null) {
-      selectBuilder.where(getColumn(BORROWER) + "=" + Long.toString(borrower.mId));
+    if (byBorrower) {
+      selectBuilder.where(getColumn(BORROWER) + "=?");
     }
-    if (reference != null) {
-      selectBuilder.where(getColumn(REFERENCE) + "=" + UuidHelper.getHexFromUUID(reference, true));
+    if (byReference) {
+      selectBuilder.where(getColumn(REFERENCE) + "=?");
     }
     return selectBuilder;
   }
@@ -114,43 +196,12 @@ public class Loan extends AbstractObject {
         .column(getColumn(PRINCIPAL))
         .column(getColumn(RATING))
         .column(getColumn(RATE))
-        .column(getColumn(START_DATE));
-  }
-
-  /**
-   * Calculates the pending balance information about the loan using the existing available
-   * fetched info
-   * TODO: This should add accumulated interest for overdo payments
-   */
-  private void calculateBalance() {
-    if (mLoanPayments != null) {
-      Currency principalPaid = new Currency();
-      Currency amountDue = new Currency();
-      Currency interestDue = new Currency();
-      LoanPayment lastPayment = null;
-
-      // Run through all the existing payments
-      for (LoanPayment lp : mLoanPayments) {
-        if (lp.isPaid()) {
-          principalPaid = principalPaid.add(lp.getPrincipal());
-        } else {
-          amountDue = amountDue.add(lp.mAmount);
-          interestDue = interestDue.add(lp.mInterest);
-          lastPayment = lp;
-        }
-      }
-
-      // Tally and cache
-      mBalance = mPrincipal.subtract(principalPaid);
-      if (mBalance.lessThanZero()) {
-        mBalance.setToZero();
-      }
-      if (lastPayment != null) {
-        mNextPayment = new LoanPayment(amountDue, interestDue, lastPayment.mDueDate);
-      } else {
-        mNextPayment = null;
-      }
-    }
+        .column(getColumn(START_DATE))
+        .column(getColumn(PRINCIPAL_PAID))
+        .column(getColumn(BALANCE))
+        .column(getColumn(NEXT_PAYMENT_AMOUNT))
+        .column(getColumn(NEXT_PAYMENT_INTEREST))
+        .column(getColumn(NEXT_PAYMENT_DUE));
   }
 
   /**
@@ -159,7 +210,7 @@ public class Loan extends AbstractObject {
    * @throws SQLException exception on fetch failure
    */
   private void fetchAllPayments(Connection conn) throws SQLException {
-    mLoanPayments = LoanPayment.getAllForLoan(conn, this);
+    LoanPayment.fetchAllForLoans(conn, Collections.singletonList(this));
   }
 
   /*=============================================================
@@ -170,20 +221,67 @@ public class Loan extends AbstractObject {
    * Updates the loan info from the result set provided. This assumes it was fetched
    * appropriately by the SQL function
    * @param resultSet the result set to pull the data from. This will not call .next()
+   * @param layout the column layout of the select that produced the result set
    * @throws SQLException if the data is unexpected in the result set
    */
   @Override
-  protected void updateFromFetch(ResultSet resultSet) throws SQLException {
-    mId = resultSet.getLong(getColumn(ID));
-    mReference = resultSet.getBytes(getColumn(REFERENCE));
-    mCreated = resultSet.getTimestamp(getColumn(CREATED));
-    mPrincipal = new Currency(resultSet.getDouble(getColumn(PRINCIPAL)));
-    mRatingId = resultSet.getInt(getColumn(RATING));
-    mRate = resultSet.getDouble(getColumn(RATE));
-    mStartDate = resultSet.getDate(getColumn(START_DATE));
-
-    // Determine the reference
+  protected void updateFromFetch(ResultSet resultSet, ColumnLayout layout) throws SQLException {
+    int column = layout.getStart(TABLE_NAME);
+    mId = resultSet.getLong(column++);
+    mReference = resultSet.getBytes(column++);
+    mCreated = resultSet.getTimestamp(column++);
+    mPrincipal = new Currency(resultSet.getDouble(column++));
+    mRatingId = resultSet.getInt(column++);
+    mRate = resultSet.getDouble(column++);
+    mStartDate = resultSet.getDate(column++);
+    mPrincipalPaid = new Currency(resultSet.getDouble(column++));
+    mBalance = new Currency(resultSet.getDouble(column++));
+    Currency nextPaymentAmount = new Currency(resultSet.getDouble(column++));
+    Currency nextPaymentInterest = new Currency(resultSet.getDouble(column++));
+    Date nextPaymentDue = resultSet.getDate(column);
+
+    // Determine the reference and the pending payment, if any is due
     mReferenceUuid = UuidHelper.getUUIDFromBytes(mReference);
+    mNextPayment = (nextPaymentDue != null
+        ? new LoanPayment(nextPaymentAmount, nextPaymentInterest, nextPaymentDue) : null);
+  }
+
+  /*=============================================================
+   * PACKAGE-PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Adds the newly generated payments to the payment due of the loan, on the connection that
+   * inserted them so both are in the same transaction
+   * @param conn the SQL connection
+   * @param loanPayments the generated loan payments
+   * @return TRUE if the loan was updated. FALSE otherwise
+   * @throws SQLException exception on update
+   */
+  boolean addPaymentsDue(Connection conn, List<LoanPayment> loanPayments) throws SQLException {
+    Currency amount = (mNextPayment != null ? mNextPayment.mAmount : new Currency());
+    Currency interest = (mNextPayment != null ? mNextPayment.mInterest : new Currency());
+    Currency amountAdded = new Currency();
+    Currency interestAdded = new Currency();
+    Date dueDate = (mNextPayment != null ? mNextPayment.mDueDate : null);
+    for (LoanPayment lp : loanPayments) {
+      amountAdded = amountAdded.add(lp.mAmount);
+      interestAdded = interestAdded.add(lp.mInterest);
+      if (dueDate == null || lp.mDueDate.after(dueDate)) {
+        dueDate = lp.mDueDate;
+      }
+    }
+
+    if (UPDATE_PAYMENTS_DUE.prepare(conn, SQLParameter.of(amountAdded.doubleValue()),
+                                    SQLParameter.of(interestAdded.doubleValue()),
+                                    SQLParameter.ofTimestamp(dueDate),
+                                    SQLParameter.ofTimestamp(dueDate),
+                                    SQLParameter.of(mId)).executeUpdate() == 1) {
+      mNextPayment = new LoanPayment(amount.add(amountAdded), interest.add(interestAdded),
+                                     dueDate);
+      return true;
+    }
+    return false;
   }
 
   /*=============================================================
@@ -198,34 +296,23 @@ public class Loan extends AbstractObject {
   public boolean addForBorrower(Borrower borrower) {
     if (mReferenceUuid != null && borrower != null && mBankConnection != null && mPrincipal != null
         && mRate > 0.0d && mLoanAmortization != null && mLoanFrequency != null) {
-      // Create the loan insert statement
-      // This also defines the start date before being fulfilled (TEMP)
-      String insertSql = new InsertBuilder(getTable())
-          .set(REFERENCE, UuidHelper.getHexFromUUID(mReferenceUuid, true))
-          .set(BORROWER, Long.toString(borrower.mId))
-          .set(BANK, Long.toString(mBankConnection.mId))
-          .set(PRINCIPAL, Double.toString(mPrincipal.doubleValue()))
-          .set(RATING, Integer.toString(mRatingId))
-          .set(RATE, Double.toString(mRate))
-          .set(AMORTIZATION, Long.toString(mLoanAmortization.mId))
-          .set(FREQUENCY, Long.toString(mLoanFrequency.mId))
-          .set(START_DATE, "CURDATE()")
-          .toString();
-
-      // Attempt the insert against a connection
+      // Attempt the insert against a connection. The generated ID is returned with the insert
+      // TEMP. The ID is only required due to special MVP additions (see LoanCreate functionality)
       try (Connection conn = SQLManager.getConnection()) {
-        if (conn.prepareStatement(insertSql).executeUpdate() == 1) {
-          mStartDate = new Date(new java.util.Date().getTime()); // TEMP
-          mCreated = new Timestamp(mStartDate.getTime());
-
-          // TEMP. Only required due to special MVP additions (see LoanCreate functionality)
-          try (ResultSet rs = conn.prepareStatement("SELECT LAST_INSERT_ID()").executeQuery()) {
-            if (rs.next()) {
-              mId = rs.getLong(1);
-              return true;
-            }
-          }
-        }
+        mId = INSERT.executeForKey(conn, SQLParameter.of(mReferenceUuid),
+                                   SQLParameter.of(borrower.mId),
+                                   SQLParameter.of(mBankConnection.mId),
+                                   SQLParameter.of(mPrincipal.doubleValue()),
+                                   SQLParameter.of(mPrincipal.doubleValue()),
+                                   SQLParameter.of(mRatingId), SQLParameter.of(mRate),
+                                   SQLParameter.of(mLoanAmortization.mId),
+                                   SQLParameter.of(mLoanFrequency.mId));
+        mStartDate = new Date(new java.util.Date().getTime()); // TEMP
+        mCreated = new Timestamp(mStartDate.getTime());
+        mPrincipalPaid = new Currency();
+        mBalance = new Currency(mPrincipal);
+        mNextPayment = null;
+        return true;
       } catch (SQLException e) {
         throw new RuntimeException("Unable to create a new loan with SQL", e);
       }
@@ -299,7 +386,6 @@ public class Loan extends AbstractObject {
       loanInfo.mStartedTime = mStartDate.getTime();
 
       // Balance
-      calculateBalance();
       if (mBalance != null) {
         loanInfo.mBalance = mBalance.doubleValue();
       }
@@ -329,7 +415,6 @@ public class Loan extends AbstractObject {
       loanSummary.mStartedTime = mStartDate.getTime();
 
       // Balance
-      calculateBalance();
       if (mBalance != null) {
         loanSummary.mBalance = mBalance.doubleValue();
       }
@@ -349,21 +434,16 @@ public class Loan extends AbstractObject {
    * @return the loan object with the information fetched. If not found, return NULL
    */
   public Loan getLoan(Borrower borrower, String reference) {
-    // Build the query
-    SelectBuilder selectBuilder = buildSelectSql(borrower, reference);
-    BankConnection.join(selectBuilder, getColumn(BANK));
-    LoanAmortization.join(selectBuilder, getColumn(AMORTIZATION));
-    LoanFrequency.join(selectBuilder, getColumn(FREQUENCY));
-    String selectSql = selectBuilder.toString();
-
     // Try to execute against the connection
     try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
+      try (ResultSet rs = SELECT_WITH_DETAIL.prepare(conn, SQLParameter.of(borrower.mId),
+              SQLParameter.of(UuidHelper.getBytesFromUUID(reference))).executeQuery()) {
         if (rs.next()) {
-          updateFromFetch(rs);
-          mBankConnection = new BankConnection(rs);
-          mLoanAmortization = new LoanAmortization(rs);
-          mLoanFrequency = new LoanFrequency(rs);
+          ColumnLayout layout = SELECT_WITH_DETAIL.getLayout();
+          updateFromFetch(rs, layout);
+          mBankConnection = new BankConnection(rs, layout);
+          mLoanAmortization = new LoanAmortization(rs, layout);
+          mLoanFrequency = new LoanFrequency(rs, layout);
           fetchAllPayments(conn);
           return this;
         }
@@ -396,16 +476,12 @@ public class Loan extends AbstractObject {
   public static List<Loan> getAllForBorrower(Borrower borrower) {
     List<Loan> loans = new ArrayList<>();
 
-    // Build the query
-    String selectSql = new Loan().buildSelectSql(borrower, null).toString();
-
     // Try to execute against the connection
     try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
+      try (ResultSet rs =
+              SELECT_FOR_BORROWER.prepare(conn, SQLParameter.of(borrower.mId)).executeQuery()) {
         while (rs.next()) {
-          Loan loan = new Loan(rs);
-          loan.fetchAllPayments(conn);
-          loans.add(loan);
+          loans.add(new Loan(rs, SELECT_FOR_BORROWER.getLayout()));
         }
       }
     } catch (SQLException e) {
@@ -414,4 +490,94 @@ public class Loan extends AbstractObject {
 
     return loans;
   }
+
+  /**
+   * Fetches the number of loans of the provided borrower and their total principal, summed by the
+   * database
+   * @param borrower the borrower object to fetch for
+   * @return the loan totals of the borrower. Zero if none found
+   */
+  public static Totals getTotalsForBorrower(Borrower borrower) {
+    // Try to execute against the connection
+    try (Connection conn = SQLManager.getConnection()) {
+      try (ResultSet rs = SELECT_TOTALS_FOR_BORROWER.prepare(conn, SQLParameter.of(borrower.mId))
+              .executeQuery()) {
+        if (rs.next()) {
+          return new Totals(rs.getInt(1), new Currency(rs.getDouble(2)));
+        }
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException("Unable to fetch the loan totals for the borrower with SQL", e);
+    }
+
+    return new Totals(0, new Currency());
+  }
+
+  /**
+   * Fetches a page of the loans for the provided borrower, in the order they were created
+   * @param borrower the borrower object to fetch for
+   * @param after the cursor returned with the previous page. NULL for the first page
+   * @param pageSize the maximum number of loans in the page
+   * @return the page of loans tied to the borrower. Empty page if none found
+   */
+  public static Page<Loan> getPageForBorrower(Borrower borrower, PageCursor after, int pageSize) {
+    List<Loan> loans = new ArrayList<>();
+    PageCursor nextCursor = null;
+
+    // One extra row is fetched to find out if there is a following page
+    QueryTemplate template = SELECT_PAGE_FOR_BORROWER;
+    SQLParameter[] params = { SQLParameter.of(borrower.mId), SQLParameter.of(pageSize + 1) };
+    if (after != null) {
+      template = SELECT_PAGE_AFTER_FOR_BORROWER;
+      params = new SQLParameter[] { SQLParameter.of(borrower.mId),
+                                    SQLParameter.ofTimestamp(new Timestamp(after.getKey())),
+                                    SQLParameter.ofTimestamp(new Timestamp(after.getKey())),
+                                    SQLParameter.of(after.getId()),
+                                    SQLParameter.of(pageSize + 1) };
+    }
+
+    // Try to execute against the connection
+    try (Connection conn = SQLManager.getConnection()) {
+      try (ResultSet rs = template.prepare(conn, params).executeQuery()) {
+        while (rs.next()) {
+          if (loans.size() == pageSize) {
+            Loan last = loans.get(loans.size() - 1);
+            nextCursor = new PageCursor(last.mCreated.getTime(), last.mId);
+            break;
+          }
+          loans.add(new Loan(rs, template.getLayout()));
+        }
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException("Unable to fetch the page of loans for the borrower with SQL", e);
+    }
+
+    return new Page<>(loans, nextCursor);
+  }
+
+  /*=============================================================
+   * INNER CLASSES
+   *============================================================*/
+
+  /**
+   * The number of loans of a borrower and their total principal
+   */
+  public static class Totals {
+    public final int mCount;
+    public final Currency mPrincipal;
+
+    public Totals(int count, Currency principal) {
+      mCount = count;
+      mPrincipal = principal;
+    }
+
+    /**
+     * Returns the totals with one more loan
+     * @param principal the principal of the added loan
+     * @return the new totals
+     */
+    public Totals add(Currency principal) {
+      return new Totals(mCount + 1, mPrincipal.add(principal));
+    }
+  }
 }
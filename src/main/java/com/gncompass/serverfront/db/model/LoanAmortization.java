@@ -1,7 +1,8 @@
 package com.gncompass.serverfront.db.model;
 
+import com.gncompass.serverfront.db.ColumnLayout;
+import com.gncompass.serverfront.db.QueryTemplate;
 import com.gncompass.serverfront.db.SelectBuilder;
-import com.gncompass.serverfront.db.SQLManager;
 import com.gncompass.serverfront.util.PaymentHelper;
 
 import java.sql.Connection;
@@ -19,6 +20,10 @@ public class LoanAmortization extends AbstractObject {
   private static final String NAME = "name";
   private static final String MONTHS = "months";
 
+  // Precompiled queries
+  private static final QueryTemplate SELECT_ALL =
+      QueryTemplate.compile(new LoanAmortization().buildSelectSql());
+
   // Database parameters
   public long mId = 0;
   public String mName = null;
@@ -27,8 +32,8 @@ public class LoanAmortization extends AbstractObject {
   public LoanAmortization() {
   }
 
-  public LoanAmortization(ResultSet rs) throws SQLException {
-    updateFromFetch(rs);
+  public LoanAmortization(ResultSet rs, ColumnLayout layout) throws SQLException {
+    updateFromFetch(rs, layout);
   }
 
   /*=============================================================
@@ -54,6 +59,15 @@ public class LoanAmortization extends AbstractObject {
     return addColumns(new SelectBuilder(getTable()));
   }
 
+  /**
+   * Build the select SQL for a single loan amortization. Slots: id
+   * @return the SelectBuilder reference object
+   */
+  private SelectBuilder buildSelectByIdSql() {
+    return buildSelectSql()
+        .where(getColumn(ID) + "=?");
+  }
+
   /**
    * Adds a join statement to the select builder provided connecting the amortization table to
    * the caller. This is the internal function
@@ -73,13 +87,15 @@ public class LoanAmortization extends AbstractObject {
    * Updates the loan amortization info from the result set provided. This assumes it was fetched
    * appropriately by the SQL function
    * @param resultSet the result set to pull the data from. This will not call .next()
+   * @param layout the column layout of the select that produced the result set
    * @throws SQLException if the data is unexpected in the result set
    */
   @Override
-  protected void updateFromFetch(ResultSet resultSet) throws SQLException {
-    mId = resultSet.getLong(getColumn(ID));
-    mName = resultSet.getString(getColumn(NAME));
-    mMonths = resultSet.getInt(getColumn(MONTHS));
+  protected void updateFromFetch(ResultSet resultSet, ColumnLayout layout) throws SQLException {
+    int column = layout.getStart(TABLE_NAME);
+    mId = resultSet.getLong(column++);
+    mName = resultSet.getString(column++);
+    mMonths = resultSet.getInt(column);
   }
 
   /*=============================================================
@@ -95,29 +111,19 @@ public class LoanAmortization extends AbstractObject {
   }
 
   /**
-   * Fetches the loan amortization information from the database based on the ID
+   * Fetches the loan amortization information from the reference data based on the ID
    * @param amortizationId the unique amortization ID
    * @return the loan amortization object with the information fetched. If not found, return NULL
    */
   public LoanAmortization getForId(int amortizationId) {
-    // Build the query
-    String selectSql = buildSelectSql()
-        .where(getColumn(ID) + "=" + Integer.toString(amortizationId))
-        .toString();
-
-    // Try to execute against the connection
-    try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
-        if (rs.next()) {
-          updateFromFetch(rs);
-          return this;
-        }
-      }
-    } catch (SQLException e) {
-      throw new RuntimeException("Unable to fetch the loan amortization reference with SQL", e);
+    LoanAmortization amortization = ReferenceData.getAmortization(amortizationId);
+    if (amortization == null) {
+      return null;
     }
-
-    return null;
+    mId = amortization.mId;
+    mName = amortization.mName;
+    mMonths = amortization.mMonths;
+    return this;
   }
 
   /*
@@ -146,27 +152,12 @@ public class LoanAmortization extends AbstractObject {
    *============================================================*/
 
   /**
-   * Fetches all loan amortizations available for creating loans
+   * Fetches all loan amortizations available for creating loans. This is served from the
+   * reference data and the models are shared, so they must not be modified
    * @return the stack of loan amortizations available. Empty list if none found
    */
   public static List<LoanAmortization> getAll() {
-    List<LoanAmortization> loanAmortizations = new ArrayList<>();
-
-    // Build the query
-    String selectSql = new LoanAmortization().buildSelectSql().toString();
-
-    // Try to execute against the connection
-    try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
-        while (rs.next()) {
-          loanAmortizations.add(new LoanAmortization(rs));
-        }
-      }
-    } catch (SQLException e) {
-      throw new RuntimeException("Unable to fetch all the loan amortizations with SQL", e);
-    }
-
-    return loanAmortizations;
+    return ReferenceData.getAmortizations();
   }
 
   /**
@@ -176,21 +167,25 @@ public class LoanAmortization extends AbstractObject {
   public static List<com.gncompass.serverfront.api.model.LoanAmortization> getAllAsModel() {
     List<com.gncompass.serverfront.api.model.LoanAmortization> loanAmortizations
         = new ArrayList<>();
+    for (LoanAmortization amortization : getAll()) {
+      loanAmortizations.add(amortization.getApiModel());
+    }
+    return loanAmortizations;
+  }
 
-    // Build the query
-    String selectSql = new LoanAmortization().buildSelectSql().toString();
-
-    // Try to execute against the connection
-    try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
-        while (rs.next()) {
-          loanAmortizations.add(new LoanAmortization(rs).getApiModel());
-        }
+  /**
+   * Fetches all loan amortizations from the database
+   * @param conn the connection to fetch through
+   * @return the stack of loan amortizations. Empty list if none found
+   * @throws SQLException exception on failed fetch
+   */
+  static List<LoanAmortization> fetchAll(Connection conn) throws SQLException {
+    List<LoanAmortization> loanAmortizations = new ArrayList<>();
+    try (ResultSet rs = SELECT_ALL.prepare(conn).executeQuery()) {
+      while (rs.next()) {
+        loanAmortizations.add(new LoanAmortization(rs, SELECT_ALL.getLayout()));
       }
-    } catch (SQLException e) {
-      throw new RuntimeException("Unable to fetch all the loan amortization models with SQL", e);
     }
-
     return loanAmortizations;
   }
 
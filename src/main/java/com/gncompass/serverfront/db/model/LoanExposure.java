@@ -0,0 +1,139 @@
+package com.gncompass.serverfront.db.model;
+
+import com.gncompass.serverfront.util.StateHelper;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The loan totals of each borrower, held in memory by borrower ID, so the loan capacity shown to a
+ * borrower is read without querying their loans. A loan created on this instance is added to the
+ * cached totals of its borrower, and an entry is only kept for a short time, which bounds how long
+ * a loan created on another instance goes unseen.
+ *
+ * Since the cached totals can briefly be behind, checks that must hold, such as the loan cap on
+ * loan creation, read the totals with refresh() instead.
+ */
+public final class LoanExposure {
+  // Max borrowers cached, before the oldest are dropped
+  private static final String PROPERTY_MAX = "loan-exposure-max";
+  private static final int MAX = 10000;
+
+  // How long the totals of a borrower are served from the cache after they are fetched
+  private static final String PROPERTY_TTL_MS = "loan-exposure-ttl-ms";
+  private static final long TTL_MS = 30000L;
+
+  private static final AtomicLong sLoansAdded = new AtomicLong();
+  private static volatile int sMax = MAX;
+  private static final Map<Long, Entry> sTotals = new ConcurrentHashMap<>();
+  private static volatile long sTtlMs = TTL_MS;
+
+  private LoanExposure() {
+  }
+
+  /*=============================================================
+   * PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Caches the totals of the borrower, then drops the expired entries if the cache is past its max
+   * size, and the oldest ones if it still is
+   * @param borrowerId the borrower ID
+   * @param totals the loan totals fetched from the database
+   */
+  private static void cache(long borrowerId, Loan.Totals totals) {
+    sTotals.put(borrowerId, new Entry(totals, System.currentTimeMillis()));
+    if (sTotals.size() <= sMax) {
+      return;
+    }
+
+    long now = System.currentTimeMillis();
+    for (Iterator<Entry> it = sTotals.values().iterator(); it.hasNext(); ) {
+      if (it.next().isExpired(now)) {
+        it.remove();
+      }
+    }
+    for (Iterator<Entry> it = sTotals.values().iterator();
+         it.hasNext() && sTotals.size() > sMax; ) {
+      it.next();
+      it.remove();
+    }
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Adds a loan just created for the borrower to their cached totals, if they are cached
+   * @param borrower the borrower the loan was created for
+   * @param loan the created loan
+   */
+  public static void addLoan(Borrower borrower, final Loan loan) {
+    sLoansAdded.incrementAndGet();
+    sTotals.computeIfPresent(borrower.mId, (borrowerId, entry) ->
+        new Entry(entry.mTotals.add(loan.mPrincipal), entry.mFetchedMs));
+  }
+
+  /**
+   * Returns the loan totals of the borrower, from the cache or else from the database
+   * @param borrower the borrower
+   * @return the loan totals. May briefly miss loans created on other instances
+   */
+  public static Loan.Totals get(Borrower borrower) {
+    Entry entry = sTotals.get(borrower.mId);
+    if (entry != null) {
+      if (!entry.isExpired(System.currentTimeMillis())) {
+        return entry.mTotals;
+      }
+      sTotals.remove(borrower.mId, entry);
+    }
+    return refresh(borrower);
+  }
+
+  /**
+   * Loads the cache limits. Called once on servlet init
+   */
+  public static void init() {
+    sMax = StateHelper.getProperty(PROPERTY_MAX, MAX);
+    sTtlMs = StateHelper.getProperty(PROPERTY_TTL_MS, TTL_MS);
+  }
+
+  /**
+   * Fetches the loan totals of the borrower from the database and caches them
+   * @param borrower the borrower
+   * @return the current loan totals
+   */
+  public static Loan.Totals refresh(Borrower borrower) {
+    // Not cached if a loan was added while fetching, since it may or may not be counted
+    long loansAdded = sLoansAdded.get();
+    Loan.Totals totals = Loan.getTotalsForBorrower(borrower);
+    if (loansAdded == sLoansAdded.get()) {
+      cache(borrower.mId, totals);
+    }
+    return totals;
+  }
+
+  /*=============================================================
+   * INNER CLASSES
+   *============================================================*/
+
+  /**
+   * Cached loan totals and when they were fetched
+   */
+  private static class Entry {
+    final long mFetchedMs;
+    final Loan.Totals mTotals;
+
+    Entry(Loan.Totals totals, long fetchedMs) {
+      mFetchedMs = fetchedMs;
+      mTotals = totals;
+    }
+
+    boolean isExpired(long now) {
+      return (now - mFetchedMs > sTtlMs);
+    }
+  }
+}
@@ -1,7 +1,8 @@
 package com.gncompass.serverfront.db.model;
 
+import com.gncompass.serverfront.db.ColumnLayout;
+import com.gncompass.serverfront.db.QueryTemplate;
 import com.gncompass.serverfront.db.SelectBuilder;
-import com.gncompass.serverfront.db.SQLManager;
 import com.gncompass.serverfront.util.PaymentHelper;
 
 import java.sql.Connection;
@@ -22,6 +23,10 @@ public class LoanFrequency extends AbstractObject {
   private static final String DAYS = "days";
   private static final String PER_MONTH = "per_month";
 
+  // Precompiled queries
+  private static final QueryTemplate SELECT_ALL =
+      QueryTemplate.compile(new LoanFrequency().buildSelectSql());
+
   // Database parameters
   public long mId = 0;
   public String mName = null;
@@ -31,8 +36,8 @@ public class LoanFrequency extends AbstractObject {
   public LoanFrequency() {
   }
 
-  public LoanFrequency(ResultSet rs) throws SQLException {
-    updateFromFetch(rs);
+  public LoanFrequency(ResultSet rs, ColumnLayout layout) throws SQLException {
+    updateFromFetch(rs, layout);
   }
 
   /*=============================================================
@@ -59,6 +64,15 @@ public class LoanFrequency extends AbstractObject {
     return addColumns(new SelectBuilder(getTable()));
   }
 
+  /**
+   * Build the select SQL for a single loan frequency. Slots: id
+   * @return the SelectBuilder reference object
+   */
+  private SelectBuilder buildSelectByIdSql() {
+    return buildSelectSql()
+        .where(getColumn(ID) + "=?");
+  }
+
   /**
    * Adds a join statement to the select builder provided connecting the frequency table to
    * the caller. This is the internal function
@@ -78,14 +92,16 @@ public class LoanFrequency extends AbstractObject {
    * Updates the loan frequency info from the result set provided. This assumes it was fetched
    * appropriately by the SQL function
    * @param resultSet the result set to pull the data from. This will not call .next()
+   * @param layout the column layout of the select that produced the result set
    * @throws SQLException if the data is unexpected in the result set
    */
   @Override
-  protected void updateFromFetch(ResultSet resultSet) throws SQLException {
-    mId = resultSet.getLong(getColumn(ID));
-    mName = resultSet.getString(getColumn(NAME));
-    mDays = resultSet.getInt(getColumn(DAYS));
-    mPerMonth = resultSet.getInt(getColumn(PER_MONTH));
+  protected void updateFromFetch(ResultSet resultSet, ColumnLayout layout) throws SQLException {
+    int column = layout.getStart(TABLE_NAME);
+    mId = resultSet.getLong(column++);
+    mName = resultSet.getString(column++);
+    mDays = resultSet.getInt(column++);
+    mPerMonth = resultSet.getInt(column);
   }
 
   /*=============================================================
@@ -101,29 +117,20 @@ public class LoanFrequency extends AbstractObject {
   }
 
   /**
-   * Fetches the loan frequency information from the database based on the ID
+   * Fetches the loan frequency information from the reference data based on the ID
    * @param frequencyId the unique frequency ID
    * @return the loan frequency object with the information fetched. If not found, return NULL
    */
   public LoanFrequency getForId(int frequencyId) {
-    // Build the query
-    String selectSql = buildSelectSql()
-        .where(getColumn(ID) + "=" + Integer.toString(frequencyId))
-        .toString();
-
-    // Try to execute against the connection
-    try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
-        if (rs.next()) {
-          updateFromFetch(rs);
-          return this;
-        }
-      }
-    } catch (SQLException e) {
-      throw new RuntimeException("Unable to fetch the loan frequency reference with SQL", e);
+    LoanFrequency frequency = ReferenceData.getFrequency(frequencyId);
+    if (frequency == null) {
+      return null;
     }
-
-    return null;
+    mId = frequency.mId;
+    mName = frequency.mName;
+    mDays = frequency.mDays;
+    mPerMonth = frequency.mPerMonth;
+    return this;
   }
 
   /**
@@ -185,27 +192,12 @@ public class LoanFrequency extends AbstractObject {
    *============================================================*/
 
   /**
-   * Fetches all loan frequencies available for creating loans
+   * Fetches all loan frequencies available for creating loans. This is served from the reference
+   * data and the models are shared, so they must not be modified
    * @return the stack of loan frequencies available. Empty list if none found
    */
   public static List<LoanFrequency> getAll() {
-    List<LoanFrequency> loanFrequencies = new ArrayList<>();
-
-    // Build the query
-    String selectSql = new LoanFrequency().buildSelectSql().toString();
-
-    // Try to execute against the connection
-    try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
-        while (rs.next()) {
-          loanFrequencies.add(new LoanFrequency(rs));
-        }
-      }
-    } catch (SQLException e) {
-      throw new RuntimeException("Unable to fetch all the loan frequencies with SQL", e);
-    }
-
-    return loanFrequencies;
+    return ReferenceData.getFrequencies();
   }
 
   /**
@@ -214,21 +206,25 @@ public class LoanFrequency extends AbstractObject {
    */
   public static List<com.gncompass.serverfront.api.model.LoanFrequency> getAllAsModel() {
     List<com.gncompass.serverfront.api.model.LoanFrequency> loanFrequencies = new ArrayList<>();
+    for (LoanFrequency frequency : getAll()) {
+      loanFrequencies.add(frequency.getApiModel());
+    }
+    return loanFrequencies;
+  }
 
-    // Build the query
-    String selectSql = new LoanFrequency().buildSelectSql().toString();
-
-    // Try to execute against the connection
-    try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
-        while (rs.next()) {
-          loanFrequencies.add(new LoanFrequency(rs).getApiModel());
-        }
+  /**
+   * Fetches all loan frequencies from the database
+   * @param conn the connection to fetch through
+   * @return the stack of loan frequencies. Empty list if none found
+   * @throws SQLException exception on failed fetch
+   */
+  static List<LoanFrequency> fetchAll(Connection conn) throws SQLException {
+    List<LoanFrequency> loanFrequencies = new ArrayList<>();
+    try (ResultSet rs = SELECT_ALL.prepare(conn).executeQuery()) {
+      while (rs.next()) {
+        loanFrequencies.add(new LoanFrequency(rs, SELECT_ALL.getLayout()));
       }
-    } catch (SQLException e) {
-      throw new RuntimeException("Unable to fetch all the loan frequency models with SQL", e);
     }
-
     return loanFrequencies;
   }
 
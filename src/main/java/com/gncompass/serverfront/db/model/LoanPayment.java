@@ -1,8 +1,12 @@
 package com.gncompass.serverfront.db.model;
 
+import com.gncompass.serverfront.db.ColumnLayout;
 import com.gncompass.serverfront.db.InsertBuilder;
+import com.gncompass.serverfront.db.QueryTemplate;
+import com.gncompass.serverfront.db.Relation;
 import com.gncompass.serverfront.db.SelectBuilder;
 import com.gncompass.serverfront.db.SQLManager;
+import com.gncompass.serverfront.db.SQLParameter;
 import com.gncompass.serverfront.util.Currency;
 
 import java.sql.Connection;
@@ -10,8 +14,8 @@ import java.sql.Date;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 public class LoanPayment extends TransactionDetail {
   // Database name
@@ -24,6 +28,14 @@ public class LoanPayment extends TransactionDetail {
   private static final String INTEREST = "interest";
   private static final String DUE_DATE = "due_date";
 
+  // Precompiled queries
+  private static final QueryTemplate SELECT_FOR_LOAN =
+      QueryTemplate.compile(new LoanPayment().buildSelectSql());
+
+  // Relations
+  private static final Relation<Loan, LoanPayment> PAYMENTS_OF_LOANS =
+      new LoanPayment().buildLoanRelation();
+
   // Database parameters
   //public long mId = 0L;
   //public int mType = 0;
@@ -34,8 +46,8 @@ public class LoanPayment extends TransactionDetail {
   public LoanPayment() {
   }
 
-  public LoanPayment(ResultSet rs) throws SQLException {
-    updateFromFetch(rs);
+  public LoanPayment(ResultSet rs, ColumnLayout layout) throws SQLException {
+    updateFromFetch(rs, layout);
   }
 
   public LoanPayment(Currency amount, Currency interest, Date dueDate) {
@@ -49,24 +61,56 @@ public class LoanPayment extends TransactionDetail {
    *============================================================*/
 
    /**
-    * Build the select SQL for all properties related to the loan payment for a tied loan
-    * @param loan the loan that determines which payments to display
+    * Build the select SQL for all properties related to the loan payment for a tied loan.
+    * Slots: loan
     * @return the SelectBuilder reference object
     */
-  private SelectBuilder buildSelectSql(Loan loan) {
-    return buildSelectSql(loan, false, null);
+  private SelectBuilder buildSelectSql() {
+    return buildSelectSql(false, null);
+  }
+
+  /**
+   * Build the batched relation loading the loan payments of a set of loans. The payments of each
+   * loan are ordered by the due date
+   * @return the loan payments relation
+   */
+  private Relation<Loan, LoanPayment> buildLoanRelation() {
+    SelectBuilder selectBuilder = super.buildSelectParentSql(getColumn(ID), getColumn(TYPE), null)
+        .column(getColumn(INTEREST))
+        .column(getColumn(DUE_DATE))
+        .column(getColumn(LOAN))
+        .from(getTable())
+        .orderBy(getColumn(LOAN))
+        .orderBy(getColumn(DUE_DATE));
+
+    return new Relation<Loan, LoanPayment>(selectBuilder, getColumn(LOAN)) {
+      @Override
+      protected long getParentKey(Loan loan) {
+        return loan.mId;
+      }
+
+      @Override
+      protected LoanPayment newChild(ResultSet resultSet, ColumnLayout layout)
+          throws SQLException {
+        return new LoanPayment(resultSet, layout);
+      }
+
+      @Override
+      protected void setChildren(Loan loan, List<LoanPayment> loanPayments) {
+        loan.mLoanPayments = loanPayments;
+      }
+    };
   }
 
   /**
    * Build the select SQL for all properties related to the loan payment. Allows for choosing
-   * between JOIN or FROM for how this table is connected
-   * @param loan the loan that determines which payments to display
+   * between JOIN or FROM for how this table is connected. Slots: loan
    * @param isJoin TRUE if is JOIN. FALSE if is FROM
    * @param joinIdColumn if JOIN, a join id column defines the matching ON column to join for the
    *                     parent ID
    * @return the SelectBuilder reference object
    */
-  private SelectBuilder buildSelectSql(Loan loan, boolean isJoin, String joinIdColumn) {
+  private SelectBuilder buildSelectSql(boolean isJoin, String joinIdColumn) {
     SelectBuilder selectBuilder =
         super.buildSelectParentSql(getColumn(ID), getColumn(TYPE), isJoin ? joinIdColumn : null)
         //.column(getColumn(ID))
@@ -76,7 +120,7 @@ public class LoanPayment extends TransactionDetail {
         .column(getColumn(DUE_DATE));
 
     // Where and core join/from
-    String primaryWhere = getColumn(LOAN) + "=" + Long.toString(loan.mId);
+    String primaryWhere = getColumn(LOAN) + "=?";
     if (isJoin) {
       selectBuilder
           .join(getTable(), primaryWhere, true);
@@ -111,17 +155,19 @@ public class LoanPayment extends TransactionDetail {
    * Updates the loan payment info from the result set provided. This assumes it was fetched
    * appropriately by the SQL function
    * @param resultSet the result set to pull the data from. This will not call .next()
+   * @param layout the column layout of the select that produced the result set
    * @throws SQLException if the data is unexpected in the result set
    */
   @Override
-  void updateFromFetch(ResultSet resultSet) throws SQLException {
-    super.updateFromFetch(resultSet);
+  void updateFromFetch(ResultSet resultSet, ColumnLayout layout) throws SQLException {
+    super.updateFromFetch(resultSet, layout);
 
+    int column = layout.getStart(TABLE_NAME);
     //mId = resultSet.getLong(getColumn(ID));
     //mType = resultSet.getInt(getColumn(TYPE));
     //mLoanId = resultSet.getLong(getColumn(LOAN));
-    mInterest = new Currency(resultSet.getDouble(getColumn(INTEREST)));
-    mDueDate = resultSet.getDate(getColumn(DUE_DATE));
+    mInterest = new Currency(resultSet.getDouble(column++));
+    mDueDate = resultSet.getDate(column);
   }
 
   /*=============================================================
@@ -134,45 +180,7 @@ public class LoanPayment extends TransactionDetail {
    * @return TRUE if the loan payment was successfully added. FALSE otherwise
    */
   public boolean addToLoan(Loan loan) {
-    if (mInterest != null && mDueDate != null) {
-      // Create the loan payment insert statement (done before it is needed to prevent holding
-      // the connection for longer than needed)
-      String insertSql = new InsertBuilder(getTable())
-          .set(ID, "LAST_INSERT_ID()")
-          .set(LOAN, Long.toString(loan.mId))
-          .set(INTEREST, Double.toString(mInterest.doubleValue()))
-          .set(DUE_DATE, "FROM_UNIXTIME(" + TimeUnit.MILLISECONDS.toSeconds(mDueDate.getTime()) + ")")
-          .toString();
-
-      // Try to fetch a connection
-      try (Connection conn = SQLManager.getConnection()) {
-        boolean success = false;
-        conn.setAutoCommit(false);
-
-        try {
-          // Insert the transaction detail (parent) first
-          if (super.addToDatabase(conn)) {
-            // Insert the connected loan payment portion
-            if (conn.prepareStatement(insertSql).executeUpdate() == 1) {
-              success = true;
-            }
-          }
-        } catch (SQLException e) {
-          throw new RuntimeException("Unable to add the new loan payment for the loan", e);
-        }
-
-        // Depending on the result, either commit or rollback
-        if (success) {
-          conn.commit();
-          return true;
-        } else {
-          conn.rollback();
-        }
-      } catch (SQLException e) {
-        throw new RuntimeException("Unable to transact the new loan payment for the loan", e);
-      }
-    }
-    return false;
+    return addAllToLoan(loan, Collections.singletonList(this));
   }
 
   /**
@@ -214,6 +222,76 @@ public class LoanPayment extends TransactionDetail {
    * STATIC FUNCTIONS
    *============================================================*/
 
+  /**
+   * Adds the loan payments for the provided loan to the database in one transaction, along with
+   * the payment due kept on the loan. Takes three statements no matter how many payments are
+   * added: one multi-row insert for the transaction details, one multi-row insert for the
+   * payments, keyed by the generated detail IDs, and one update of the loan
+   * @param loan the loan to tie the payments to
+   * @param loanPayments the loan payments to add
+   * @return TRUE if all loan payments were successfully added. FALSE otherwise
+   */
+  public static boolean addAllToLoan(Loan loan, List<LoanPayment> loanPayments) {
+    if (loanPayments.isEmpty()) {
+      return false;
+    }
+    for (LoanPayment loanPayment : loanPayments) {
+      if (loanPayment.mInterest == null || loanPayment.mDueDate == null) {
+        return false;
+      }
+    }
+
+    // Try to fetch a connection
+    try (Connection conn = SQLManager.getConnection()) {
+      boolean success = false;
+      conn.setAutoCommit(false);
+
+      try {
+        // Insert the transaction details (parent) first
+        if (addAllToDatabase(conn, loanPayments)) {
+          // Insert the connected loan payment portions
+          InsertBuilder insertBuilder = new InsertBuilder(TABLE_NAME);
+          for (LoanPayment loanPayment : loanPayments) {
+            insertBuilder
+                .set(ID, SQLParameter.of(loanPayment.mId))
+                .set(LOAN, SQLParameter.of(loan.mId))
+                .set(INTEREST, SQLParameter.of(loanPayment.mInterest.doubleValue()))
+                .set(DUE_DATE, SQLParameter.ofTimestamp(loanPayment.mDueDate))
+                .row();
+          }
+          if (insertBuilder.prepare(conn).executeUpdate() == loanPayments.size()
+              && loan.addPaymentsDue(conn, loanPayments)) {
+            success = true;
+          }
+        }
+      } catch (SQLException e) {
+        throw new RuntimeException("Unable to add the new loan payments for the loan", e);
+      }
+
+      // Depending on the result, either commit or rollback
+      if (success) {
+        conn.commit();
+        return true;
+      } else {
+        conn.rollback();
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException("Unable to transact the new loan payments for the loan", e);
+    }
+    return false;
+  }
+
+  /**
+   * Fetches all the loan payments for the provided loans and stores them in each loan, ordered by
+   * the due date. Takes one query per 128 loans, instead of one query per loan
+   * @param conn the connection to fetch the payment info through
+   * @param loans the loan objects to fetch for
+   * @throws SQLException exception on failed fetch
+   */
+  static void fetchAllForLoans(Connection conn, List<Loan> loans) throws SQLException {
+    PAYMENTS_OF_LOANS.load(conn, loans);
+  }
+
   /**
    * Fetches the list of all loan payments for the provided loan. It is ordered by the due date
    * @param conn the connection to fetch the payment info through
@@ -224,13 +302,10 @@ public class LoanPayment extends TransactionDetail {
   public static List<LoanPayment> getAllForLoan(Connection conn, Loan loan) throws SQLException {
     List<LoanPayment> loanPayments = new ArrayList<>();
 
-    // Build the query
-    String selectSql = new LoanPayment().buildSelectSql(loan).toString();
-
     // Try to execute against the connection
-    try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
+    try (ResultSet rs = SELECT_FOR_LOAN.prepare(conn, SQLParameter.of(loan.mId)).executeQuery()) {
       while (rs.next()) {
-        loanPayments.add(new LoanPayment(rs));
+        loanPayments.add(new LoanPayment(rs, SELECT_FOR_LOAN.getLayout()));
       }
     }
 
@@ -1,5 +1,6 @@
 package com.gncompass.serverfront.db.model;
 
+import com.gncompass.serverfront.db.ColumnLayout;
 import com.gncompass.serverfront.db.SelectBuilder;
 
 import java.sql.ResultSet;
@@ -28,8 +29,8 @@ public class Rating extends AbstractObject {
   public Rating() {
   }
 
-  public Rating(ResultSet rs) throws SQLException {
-    updateFromFetch(rs);
+  public Rating(ResultSet rs, ColumnLayout layout) throws SQLException {
+    updateFromFetch(rs, layout);
   }
 
   /*=============================================================
@@ -63,11 +64,13 @@ public class Rating extends AbstractObject {
    * Updates the rating info from the result set provided. This assumes it was fetched
    * appropriately by the SQL function
    * @param resultSet the result set to pull the data from. This will not call .next()
+   * @param layout the column layout of the select that produced the result set
    * @throws SQLException if the data is unexpected in the result set
    */
   @Override
-  protected void updateFromFetch(ResultSet resultSet) throws SQLException {
-    mLoanRate = resultSet.getDouble(getColumn(LOAN_RATE));
+  protected void updateFromFetch(ResultSet resultSet, ColumnLayout layout) throws SQLException {
+    int column = layout.getStart(TABLE_NAME);
+    mLoanRate = resultSet.getDouble(column);
   }
 
   /*=============================================================
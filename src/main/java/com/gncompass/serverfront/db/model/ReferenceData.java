@@ -0,0 +1,374 @@
+package com.gncompass.serverfront.db.model;
+
+import com.gncompass.serverfront.api.model.AbstractModel;
+import com.gncompass.serverfront.db.SQLManager;
+import com.gncompass.serverfront.util.CachedResponse;
+import com.gncompass.serverfront.util.StateHelper;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonWriter;
+
+/**
+ * The reference tables (loan amortizations, loan frequencies, countries and banks), held in memory.
+ * All of it is loaded at once into an immutable snapshot, along with the pre-serialized JSON of
+ * the endpoints that list it and their entity tags, and lookups are served from the current
+ * snapshot without touching the database.
+ *
+ * The snapshot is reloaded on a fixed delay and swapped in whole, so readers never see a partial
+ * refresh. If a refresh fails, the last good snapshot keeps being served until the next one works.
+ */
+public final class ReferenceData {
+  private static final Logger LOG = Logger.getLogger(ReferenceData.class.getName());
+
+  // How long clients may use the listing responses without checking if they changed
+  private static final String PROPERTY_MAX_AGE_S = "reference-max-age-s";
+  private static final int MAX_AGE_S = 300;
+
+  // How often the snapshot is reloaded from the database. Zero disables the refresh
+  private static final String PROPERTY_REFRESH_MS = "reference-refresh-ms";
+  private static final long REFRESH_MS = 300000L;
+
+  // The response for a country with no banks, or an unknown country
+  private static final CachedResponse EMPTY_RESPONSE =
+      new CachedResponse(new byte[] { '[', ']' });
+
+  private static volatile int sMaxAgeS = MAX_AGE_S;
+
+  // Created on init and stopped on destroy
+  private static ScheduledExecutorService sRefresher = null;
+  private static volatile Snapshot sSnapshot = null;
+  private static final Object sSnapshotLock = new Object();
+
+  private ReferenceData() {
+  }
+
+  /*=============================================================
+   * PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Returns the current snapshot. If none has loaded yet, it is loaded by the caller
+   * @return the current snapshot
+   */
+  private static Snapshot getSnapshot() {
+    Snapshot snapshot = sSnapshot;
+    if (snapshot == null) {
+      synchronized (sSnapshotLock) {
+        snapshot = sSnapshot;
+        if (snapshot == null) {
+          snapshot = load();
+          sSnapshot = snapshot;
+        }
+      }
+    }
+    return snapshot;
+  }
+
+  /**
+   * Loads a new snapshot of all the reference tables through a single connection
+   * @return the loaded snapshot
+   */
+  private static Snapshot load() {
+    try (Connection conn = SQLManager.getConnection()) {
+      return new Snapshot(LoanAmortization.fetchAll(conn), LoanFrequency.fetchAll(conn),
+                          Country.fetchAll(conn), Bank.fetchAll(conn));
+    } catch (SQLException e) {
+      throw new RuntimeException("Unable to fetch the reference data with SQL", e);
+    }
+  }
+
+  /**
+   * Reloads the snapshot and swaps it in. On failure, the last good snapshot is kept
+   * @return TRUE if the snapshot was reloaded. FALSE otherwise
+   */
+  private static boolean refresh() {
+    try {
+      Snapshot snapshot = load();
+      synchronized (sSnapshotLock) {
+        sSnapshot = snapshot;
+      }
+      return true;
+    } catch (RuntimeException e) {
+      LOG.log(Level.WARNING, "Unable to refresh the reference data. Keeping the last snapshot", e);
+      return false;
+    }
+  }
+
+  /**
+   * Returns the upper case country code used to key the banks, matching the database collation
+   * @param countryCode the country code as requested
+   * @return the lookup key. NULL if the code is NULL
+   */
+  private static String toCountryKey(String countryCode) {
+    return (countryCode != null ? countryCode.toUpperCase(Locale.ROOT) : null);
+  }
+
+  /**
+   * Serializes the API models as a JSON array response. Models that are not valid are skipped
+   * @param models the API models to serialize
+   * @return the cached JSON array response
+   */
+  private static CachedResponse toResponse(List<? extends AbstractModel> models) {
+    JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
+    for (AbstractModel model : models) {
+      JsonObjectBuilder objectBuilder = model.toJsonBuilder();
+      if (objectBuilder != null) {
+        arrayBuilder.add(objectBuilder);
+      }
+    }
+
+    ByteArrayOutputStream json = new ByteArrayOutputStream();
+    try (JsonWriter writer = Json.createWriter(json)) {
+      writer.writeArray(arrayBuilder.build());
+    }
+    return new CachedResponse(json.toByteArray());
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Stops the refresh. The last snapshot is still served
+   */
+  public static void destroy() {
+    synchronized (sSnapshotLock) {
+      if (sRefresher != null) {
+        sRefresher.shutdownNow();
+        sRefresher = null;
+      }
+    }
+  }
+
+  /**
+   * Returns the loan amortization for the ID
+   * @param id the amortization ID
+   * @return the shared amortization. NULL if not found
+   */
+  public static LoanAmortization getAmortization(long id) {
+    return getSnapshot().mAmortizationsById.get(id);
+  }
+
+  /**
+   * Returns all the loan amortizations
+   * @return the shared, unmodifiable list of amortizations
+   */
+  public static List<LoanAmortization> getAmortizations() {
+    return getSnapshot().mAmortizations;
+  }
+
+  /**
+   * Returns the JSON array response of all the loan amortizations, in the API model form
+   * @return the cached response
+   */
+  public static CachedResponse getAmortizationsResponse() {
+    return getSnapshot().mAmortizationsResponse;
+  }
+
+  /**
+   * Returns all the countries available for creating accounts
+   * @return the shared, unmodifiable list of enabled countries
+   */
+  public static List<Country> getAvailableCountries() {
+    return getSnapshot().mAvailableCountries;
+  }
+
+  /**
+   * Returns the JSON array response of all the countries available for creating accounts, in
+   * the API model form
+   * @return the cached response
+   */
+  public static CachedResponse getAvailableCountriesResponse() {
+    return getSnapshot().mAvailableCountriesResponse;
+  }
+
+  /**
+   * Returns all the banks of the country
+   * @param countryCode the two digit ISO2 country code
+   * @return the shared, unmodifiable list of banks. Empty if the country is not found
+   */
+  public static List<Bank> getBanksForCountry(String countryCode) {
+    List<Bank> banks = getSnapshot().mBanksByCountry.get(toCountryKey(countryCode));
+    return (banks != null ? banks : Collections.<Bank>emptyList());
+  }
+
+  /**
+   * Returns the JSON array response of all the banks of the country, in the API model form
+   * @param countryCode the two digit ISO2 country code
+   * @return the cached response. An empty array if the country is not found
+   */
+  public static CachedResponse getBanksForCountryResponse(String countryCode) {
+    CachedResponse response = getSnapshot().mBanksByCountryResponse.get(toCountryKey(countryCode));
+    return (response != null ? response : EMPTY_RESPONSE);
+  }
+
+  /**
+   * Returns all the loan frequencies
+   * @return the shared, unmodifiable list of frequencies
+   */
+  public static List<LoanFrequency> getFrequencies() {
+    return getSnapshot().mFrequencies;
+  }
+
+  /**
+   * Returns the JSON array response of all the loan frequencies, in the API model form
+   * @return the cached response
+   */
+  public static CachedResponse getFrequenciesResponse() {
+    return getSnapshot().mFrequenciesResponse;
+  }
+
+  /**
+   * Returns the loan frequency for the ID
+   * @param id the frequency ID
+   * @return the shared frequency. NULL if not found
+   */
+  public static LoanFrequency getFrequency(long id) {
+    return getSnapshot().mFrequenciesById.get(id);
+  }
+
+  /**
+   * Returns how long clients may use the listing responses without checking if they changed
+   * @return the max age in seconds. 0 if they must always check
+   */
+  public static int getMaxAge() {
+    return sMaxAgeS;
+  }
+
+  /**
+   * Loads the first snapshot and starts the refresh. Called once on servlet init, after the SQL
+   * Manager. If the database is unavailable, the first lookup tries the load again
+   */
+  public static void init() {
+    sMaxAgeS = StateHelper.getProperty(PROPERTY_MAX_AGE_S, MAX_AGE_S);
+    if (!refresh()) {
+      LOG.log(Level.WARNING, "Reference data not preloaded. It will load on first use");
+    }
+
+    long refreshMs = StateHelper.getProperty(PROPERTY_REFRESH_MS, REFRESH_MS);
+    if (refreshMs > 0) {
+      synchronized (sSnapshotLock) {
+        if (sRefresher == null) {
+          sRefresher = Executors.newSingleThreadScheduledExecutor(new RefreshThreadFactory());
+          sRefresher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+              refresh();
+            }
+          }, refreshMs, refreshMs, TimeUnit.MILLISECONDS);
+        }
+      }
+    }
+  }
+
+  /*=============================================================
+   * INNER CLASSES
+   *============================================================*/
+
+  /**
+   * Creates the named daemon thread for the refresh
+   */
+  private static class RefreshThreadFactory implements ThreadFactory {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "reference-refresh");
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+  /**
+   * An immutable copy of the reference tables. Built in full before it is published
+   */
+  private static class Snapshot {
+    private final List<LoanAmortization> mAmortizations;
+    private final Map<Long, LoanAmortization> mAmortizationsById = new HashMap<>();
+    private final CachedResponse mAmortizationsResponse;
+    private final List<Country> mAvailableCountries;
+    private final CachedResponse mAvailableCountriesResponse;
+    private final Map<String, List<Bank>> mBanksByCountry = new HashMap<>();
+    private final Map<String, CachedResponse> mBanksByCountryResponse = new HashMap<>();
+    private final List<LoanFrequency> mFrequencies;
+    private final Map<Long, LoanFrequency> mFrequenciesById = new HashMap<>();
+    private final CachedResponse mFrequenciesResponse;
+
+    /**
+     * Constructor. Indexes the rows and serializes the listing endpoints
+     * @param amortizations all the loan amortizations
+     * @param frequencies all the loan frequencies
+     * @param countries all the countries, enabled or not
+     * @param banks all the banks, of every country
+     */
+    private Snapshot(List<LoanAmortization> amortizations, List<LoanFrequency> frequencies,
+                     List<Country> countries, List<Bank> banks) {
+      List<com.gncompass.serverfront.api.model.LoanAmortization> amortizationModels =
+          new ArrayList<>();
+      for (LoanAmortization amortization : amortizations) {
+        mAmortizationsById.put(amortization.mId, amortization);
+        amortizationModels.add(amortization.getApiModel());
+      }
+      mAmortizations = Collections.unmodifiableList(amortizations);
+      mAmortizationsResponse = toResponse(amortizationModels);
+
+      List<com.gncompass.serverfront.api.model.LoanFrequency> frequencyModels = new ArrayList<>();
+      for (LoanFrequency frequency : frequencies) {
+        mFrequenciesById.put(frequency.mId, frequency);
+        frequencyModels.add(frequency.getApiModel());
+      }
+      mFrequencies = Collections.unmodifiableList(frequencies);
+      mFrequenciesResponse = toResponse(frequencyModels);
+
+      // Banks are listed for any country by code, enabled or not, as they were by the join
+      List<Country> availableCountries = new ArrayList<>();
+      List<com.gncompass.serverfront.api.model.Country> countryModels = new ArrayList<>();
+      Map<Long, String> countryKeys = new HashMap<>();
+      for (Country country : countries) {
+        countryKeys.put(country.mId, toCountryKey(country.mCode));
+        if (country.mEnabled) {
+          availableCountries.add(country);
+          countryModels.add(country.getApiModel());
+        }
+      }
+      mAvailableCountries = Collections.unmodifiableList(availableCountries);
+      mAvailableCountriesResponse = toResponse(countryModels);
+
+      for (Bank bank : banks) {
+        String countryKey = countryKeys.get(bank.mCountryId);
+        if (countryKey != null) {
+          List<Bank> countryBanks = mBanksByCountry.get(countryKey);
+          if (countryBanks == null) {
+            countryBanks = new ArrayList<>();
+            mBanksByCountry.put(countryKey, countryBanks);
+          }
+          countryBanks.add(bank);
+        }
+      }
+      for (Map.Entry<String, List<Bank>> entry : mBanksByCountry.entrySet()) {
+        List<com.gncompass.serverfront.api.model.Bank> bankModels = new ArrayList<>();
+        for (Bank bank : entry.getValue()) {
+          bankModels.add(bank.getApiModel());
+        }
+        mBanksByCountryResponse.put(entry.getKey(), toResponse(bankModels));
+        entry.setValue(Collections.unmodifiableList(entry.getValue()));
+      }
+    }
+  }
+}
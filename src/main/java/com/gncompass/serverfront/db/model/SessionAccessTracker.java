@@ -0,0 +1,169 @@
+package com.gncompass.serverfront.db.model;
+
+import com.gncompass.serverfront.util.StateHelper;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind of the session accessed times. Authenticated requests only record the access in
+ * memory, and the pending times are flushed periodically with one update statement, so reads don't
+ * turn into writes. Each session is recorded at most once per interval, since the accessed time
+ * is only needed to the minute.
+ *
+ * A failed flush puts its times back to be retried on the next one. The pending times are flushed
+ * one last time on destroy.
+ */
+public final class SessionAccessTracker {
+  private static final Logger LOG = Logger.getLogger(SessionAccessTracker.class.getName());
+
+  // How often the pending accessed times are written. Zero only writes them on destroy
+  private static final String PROPERTY_FLUSH_MS = "session-accessed-flush-ms";
+  private static final long FLUSH_MS = 30000L;
+
+  // The least time between two recorded accesses of the same session
+  private static final String PROPERTY_INTERVAL_MS = "session-accessed-interval-ms";
+  private static final long INTERVAL_MS = 60000L;
+
+  // Created on init and stopped on destroy
+  private static ScheduledExecutorService sFlusher = null;
+  private static final Object sFlusherLock = new Object();
+  private static volatile long sIntervalMs = INTERVAL_MS;
+  private static final Map<Long, Long> sLastRecorded = new ConcurrentHashMap<>();
+  private static final Map<Long, Long> sPending = new ConcurrentHashMap<>();
+
+  private SessionAccessTracker() {
+  }
+
+  /*=============================================================
+   * PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Writes all the pending accessed times in one update. On failure they are kept for the
+   * next flush, unless a later access was recorded since
+   * @return TRUE if the pending times were written. FALSE otherwise
+   */
+  private static boolean flush() {
+    Map<Long, Long> accessedById = new HashMap<>();
+    for (Iterator<Long> it = sPending.keySet().iterator(); it.hasNext(); ) {
+      Long sessionId = it.next();
+      Long accessed = sPending.remove(sessionId);
+      if (accessed != null) {
+        accessedById.put(sessionId, accessed);
+      }
+    }
+
+    // Sessions not recorded within the interval are no longer limited
+    long expiredMs = System.currentTimeMillis() - sIntervalMs;
+    for (Iterator<Long> it = sLastRecorded.values().iterator(); it.hasNext(); ) {
+      if (it.next() < expiredMs) {
+        it.remove();
+      }
+    }
+
+    try {
+      UserSession.updateAllAccessed(accessedById);
+      return true;
+    } catch (RuntimeException e) {
+      LOG.log(Level.WARNING, "Unable to flush " + accessedById.size()
+          + " session accessed times. Retrying on the next flush", e);
+      for (Map.Entry<Long, Long> entry : accessedById.entrySet()) {
+        sPending.merge(entry.getKey(), entry.getValue(), Math::max);
+      }
+      return false;
+    }
+  }
+
+  /*=============================================================
+   * PACKAGE-PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Records an access of the session, unless one was already recorded within the interval
+   * @param sessionId the session ID
+   * @param accessedMs the access time in milliseconds
+   * @return TRUE if the access was recorded. FALSE if it was within the interval
+   */
+  static boolean record(long sessionId, long accessedMs) {
+    Long last = sLastRecorded.get(sessionId);
+    if (last != null) {
+      if (accessedMs - last < sIntervalMs || !sLastRecorded.replace(sessionId, last, accessedMs)) {
+        return false;
+      }
+    } else if (sLastRecorded.putIfAbsent(sessionId, accessedMs) != null) {
+      return false;
+    }
+
+    sPending.merge(sessionId, accessedMs, Math::max);
+    return true;
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Stops the periodic flush and writes the pending accessed times. Called on servlet destroy,
+   * before the SQL Manager
+   */
+  public static void destroy() {
+    synchronized (sFlusherLock) {
+      if (sFlusher != null) {
+        sFlusher.shutdown();
+        try {
+          sFlusher.awaitTermination(FLUSH_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        sFlusher = null;
+      }
+    }
+    flush();
+  }
+
+  /**
+   * Loads the interval and starts the periodic flush. Called once on servlet init. Until then,
+   * accesses are still recorded and written on destroy
+   */
+  public static void init() {
+    sIntervalMs = StateHelper.getProperty(PROPERTY_INTERVAL_MS, INTERVAL_MS);
+
+    long flushMs = StateHelper.getProperty(PROPERTY_FLUSH_MS, FLUSH_MS);
+    synchronized (sFlusherLock) {
+      if (sFlusher == null && flushMs > 0) {
+        sFlusher = Executors.newSingleThreadScheduledExecutor(new FlushThreadFactory());
+        sFlusher.scheduleWithFixedDelay(new Runnable() {
+          @Override
+          public void run() {
+            flush();
+          }
+        }, flushMs, flushMs, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  /*=============================================================
+   * INNER CLASSES
+   *============================================================*/
+
+  /**
+   * Creates the named daemon thread for the flush
+   */
+  private static class FlushThreadFactory implements ThreadFactory {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "session-accessed-flush");
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package com.gncompass.serverfront.db.model;
 
+import com.gncompass.serverfront.db.ColumnLayout;
 import com.gncompass.serverfront.db.SelectBuilder;
 
 import java.sql.ResultSet;
@@ -47,11 +48,16 @@ public class Transaction extends AbstractObject {
   /**
    * Extracts the registered date from the result set. If it is null, null is returned (Internal)
    * @param rs the result set to extract from
-   * @return the timestamp. NULL if no tied transaction
-   * @throws SQLException exception on failed to fetch (no column found likely)
+   * @param layout the column layout of the select that produced the result set
+   * @return the timestamp. NULL if no tied transaction or the transaction was not selected
+   * @throws SQLException exception on failed to fetch
    */
-  private Timestamp extractRegisteredInternal(ResultSet rs) throws SQLException {
-    return rs.getTimestamp(getColumn(REGISTERED));
+  private Timestamp extractRegisteredInternal(ResultSet rs, ColumnLayout layout)
+      throws SQLException {
+    if (layout.contains(TABLE_NAME)) {
+      return rs.getTimestamp(layout.getStart(TABLE_NAME));
+    }
+    return null;
   }
 
   /**
@@ -72,10 +78,11 @@ public class Transaction extends AbstractObject {
    * Updates the transaction info from the result set provided. This assumes it was fetched
    * appropriately by the SQL function
    * @param resultSet the result set to pull the data from. This will not call .next()
+   * @param layout the column layout of the select that produced the result set
    * @throws SQLException if the data is unexpected in the result set
    */
   @Override
-  protected void updateFromFetch(ResultSet resultSet) throws SQLException {
+  protected void updateFromFetch(ResultSet resultSet, ColumnLayout layout) throws SQLException {
     throw new RuntimeException("Update from fetch for Transaction not implemented");
   }
 
@@ -99,11 +106,12 @@ public class Transaction extends AbstractObject {
   /**
    * Extracts the registered date from the result set. If it is null, null is returned (External)
    * @param rs the result set to extract from
-   * @return the timestamp. NULL if no tied transaction
-   * @throws SQLException exception on failed to fetch (no column found likely)
+   * @param layout the column layout of the select that produced the result set
+   * @return the timestamp. NULL if no tied transaction or the transaction was not selected
+   * @throws SQLException exception on failed to fetch
    */
-  static Timestamp extractRegistered(ResultSet rs) throws SQLException {
-    return new Transaction().extractRegisteredInternal(rs);
+  static Timestamp extractRegistered(ResultSet rs, ColumnLayout layout) throws SQLException {
+    return new Transaction().extractRegisteredInternal(rs, layout);
   }
 
   /**
@@ -1,13 +1,16 @@
 package com.gncompass.serverfront.db.model;
 
+import com.gncompass.serverfront.db.ColumnLayout;
 import com.gncompass.serverfront.db.InsertBuilder;
 import com.gncompass.serverfront.db.SelectBuilder;
+import com.gncompass.serverfront.db.SQLParameter;
 import com.gncompass.serverfront.util.Currency;
 
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.List;
 
 public abstract class TransactionDetail extends AbstractObject {
   // Database name
@@ -58,23 +61,37 @@ public abstract class TransactionDetail extends AbstractObject {
    *============================================================*/
 
   /**
-   * Adds the transaction detail to the database
+   * Adds the transaction details to the database in a single multi-row insert and sets the ID of
+   * each from the generated keys. One statement no matter how many details are added
    * @param conn the SQL connection
-   * @return TRUE if successfully added. FALSE otherwise
+   * @param details the transaction details to add
+   * @return TRUE if all were successfully added. FALSE if any is missing an amount
    * @throws SQLException exception on insert
    */
-  protected boolean addToDatabase(Connection conn) throws SQLException {
-    if (mAmount != null) {
-      // Create the transaction detail insert statement
-      String insertSql = new InsertBuilder(getTableParent())
-          .set(TYPE, Integer.toString(getTransactionType().getValue()))
-          .set(AMOUNT, Double.toString(mAmount.doubleValue()))
-          .toString();
-
-      // Execute the insert
-      return (conn.prepareStatement(insertSql).executeUpdate() == 1);
+  protected static boolean addAllToDatabase(Connection conn,
+                                            List<? extends TransactionDetail> details)
+      throws SQLException {
+    if (details.isEmpty()) {
+      return true;
     }
-    return false;
+
+    InsertBuilder insertBuilder = new InsertBuilder(TABLE_NAME);
+    for (TransactionDetail detail : details) {
+      if (detail.mAmount == null) {
+        return false;
+      }
+      insertBuilder
+          .set(TYPE, SQLParameter.of(detail.getTransactionType().getValue()))
+          .set(AMOUNT, SQLParameter.of(detail.mAmount.doubleValue()))
+          .row();
+    }
+
+    // Execute the insert
+    long[] ids = insertBuilder.executeForKeys(conn);
+    for (int i = 0; i < ids.length; i++) {
+      details.get(i).mId = ids[i];
+    }
+    return true;
   }
 
   /**
@@ -141,15 +158,17 @@ public abstract class TransactionDetail extends AbstractObject {
    * Updates the transaction detail info from the result set provided. This assumes it was fetched
    * appropriately by one of the child connected tables
    * @param resultSet the result set to pull the data from. This will not call .next()
+   * @param layout the column layout of the select that produced the result set
    * @throws SQLException if the data is unexpected in the result set
    */
   @Override
-  void updateFromFetch(ResultSet resultSet) throws SQLException {
-    mId = resultSet.getLong(getColumnParent(ID));
+  void updateFromFetch(ResultSet resultSet, ColumnLayout layout) throws SQLException {
+    int column = layout.getStart(TABLE_NAME);
+    mId = resultSet.getLong(column++);
     //mType = resultSet.getInt(getColumnParent(TYPE));
-    mAmount = new Currency(resultSet.getDouble(getColumnParent(AMOUNT)));
+    mAmount = new Currency(resultSet.getDouble(column));
 
-    mPaidDate = Transaction.extractRegistered(resultSet);
+    mPaidDate = Transaction.extractRegistered(resultSet, layout);
   }
 
   /*=============================================================
@@ -2,8 +2,11 @@ package com.gncompass.serverfront.db.model;
 
 import com.gncompass.serverfront.api.model.UserEditable;
 import com.gncompass.serverfront.api.model.UserViewable;
+import com.gncompass.serverfront.db.ColumnLayout;
 import com.gncompass.serverfront.db.InsertBuilder;
+import com.gncompass.serverfront.db.QueryTemplate;
 import com.gncompass.serverfront.db.SelectBuilder;
+import com.gncompass.serverfront.db.SQLParameter;
 import com.gncompass.serverfront.db.UpdateBuilder;
 
 import java.sql.Connection;
@@ -36,6 +39,27 @@ public abstract class User extends AbstractObject {
   private static final String COUNTRY = "country";
   private static final String CREATED = "created";
 
+  // Precompiled queries
+  private static final QueryTemplate INSERT = QueryTemplate.compile(
+      new InsertBuilder(TABLE_NAME)
+          .set(TYPE, "?")
+          .set(PASSWORD, "?")
+          .set(NAME, "?")
+          .set(ADDRESS1, "?")
+          .set(CITY, "?")
+          .set(COUNTRY, "?"));
+  // Null optional fields bind as NULL, so the statement shape is always the same
+  private static final QueryTemplate UPDATE = QueryTemplate.compile(
+      new UpdateBuilder(TABLE_NAME)
+          .set(NAME + "=?")
+          .set(ADDRESS1 + "=?")
+          .set(ADDRESS2 + "=?")
+          .set(ADDRESS3 + "=?")
+          .set(CITY + "=?")
+          .set(PROVINCE + "=?")
+          .set(POST_CODE + "=?")
+          .where(ID + "=?"));
+
   // User types enumerator (all inherited children)
   public static enum UserType {
     BORROWER(1),
@@ -148,37 +172,11 @@ public abstract class User extends AbstractObject {
    */
   protected boolean updateDatabase(Connection conn) throws SQLException {
     if(mName != null && mAddress1 != null && mCity != null) {
-      // Build the statement
-      String updateSql = new UpdateBuilder(getTableParent())
-          .set(getColumnParent(NAME) + "=?")
-          .set(getColumnParent(ADDRESS1) + "=?")
-          .set(getColumnParent(ADDRESS2) + (mAddress2 != null ? "=?" : "=NULL"))
-          .set(getColumnParent(ADDRESS3) + (mAddress3 != null ? "=?" : "=NULL"))
-          .set(getColumnParent(CITY) + "=?")
-          .set(getColumnParent(PROVINCE) + (mProvince != null ? "=?" : "=NULL"))
-          .set(getColumnParent(POST_CODE) + (mPostCode != null ? "=?" : "=NULL"))
-          .where(getColumnParent(ID) + "=" + mId)
-            .toString();
-
-      // Borrower specific detail statement
-      try (PreparedStatement statement = conn.prepareStatement(updateSql)) {
-        int paramIndex = 1;
-        statement.setString(paramIndex++, mName);
-        statement.setString(paramIndex++, mAddress1);
-        if (mAddress2 != null) {
-          statement.setString(paramIndex++, mAddress2);
-        }
-        if (mAddress3 != null) {
-          statement.setString(paramIndex++, mAddress3);
-        }
-        statement.setString(paramIndex++, mCity);
-        if (mProvince != null) {
-          statement.setString(paramIndex++, mProvince);
-        }
-        if (mPostCode != null) {
-          statement.setString(paramIndex++, mPostCode);
-        }
-
+      // User specific detail statement
+      try (PreparedStatement statement = UPDATE.prepare(conn, SQLParameter.of(mName),
+              SQLParameter.of(mAddress1), SQLParameter.of(mAddress2), SQLParameter.of(mAddress3),
+              SQLParameter.of(mCity), SQLParameter.of(mProvince), SQLParameter.of(mPostCode),
+              SQLParameter.of(mId))) {
         // Update the user
         return (statement.executeUpdate() == 1);
       }
@@ -226,25 +224,27 @@ public abstract class User extends AbstractObject {
    * Updates the user info from the result set provided. This assumes it was fetched appropriately
    * by one of the child connected tables
    * @param resultSet the result set to pull the data from. This will not call .next()
+   * @param layout the column layout of the select that produced the result set
    * @throws SQLException if the data is unexpected in the result set
    */
   @Override
-  void updateFromFetch(ResultSet resultSet) throws SQLException {
-    mId = resultSet.getLong(getColumnParent(ID));
+  void updateFromFetch(ResultSet resultSet, ColumnLayout layout) throws SQLException {
+    int column = layout.getStart(TABLE_NAME);
+    mId = resultSet.getLong(column++);
     //mType = resultSet.getInt(getColumnParent(TYPE));
-    mPassword = resultSet.getString(getColumnParent(PASSWORD));
-    mPasswordDate = resultSet.getTimestamp(getColumnParent(PASSWORD_DATE));
-    mName = resultSet.getString(getColumnParent(NAME));
-    mEnabled = resultSet.getBoolean(getColumnParent(ENABLED));
-    mFlags = resultSet.getInt(getColumnParent(FLAGS));
-    mAddress1 = resultSet.getString(getColumnParent(ADDRESS1));
-    mAddress2 = resultSet.getString(getColumnParent(ADDRESS2));
-    mAddress3 = resultSet.getString(getColumnParent(ADDRESS3));
-    mCity = resultSet.getString(getColumnParent(CITY));
-    mProvince = resultSet.getString(getColumnParent(PROVINCE));
-    mPostCode = resultSet.getString(getColumnParent(POST_CODE));
-    mCountryId = resultSet.getLong(getColumnParent(COUNTRY));
-    mCreated = resultSet.getTimestamp(getColumnParent(CREATED));
+    mPassword = resultSet.getString(column++);
+    mPasswordDate = resultSet.getTimestamp(column++);
+    mName = resultSet.getString(column++);
+    mEnabled = resultSet.getBoolean(column++);
+    mFlags = resultSet.getInt(column++);
+    mAddress1 = resultSet.getString(column++);
+    mAddress2 = resultSet.getString(column++);
+    mAddress3 = resultSet.getString(column++);
+    mCity = resultSet.getString(column++);
+    mProvince = resultSet.getString(column++);
+    mPostCode = resultSet.getString(column++);
+    mCountryId = resultSet.getLong(column++);
+    mCreated = resultSet.getTimestamp(column);
   }
 
   /*=============================================================
@@ -260,19 +260,11 @@ public abstract class User extends AbstractObject {
   public boolean addToDatabase(Connection conn) throws SQLException {
     if (mPassword != null && mName != null && mAddress1 != null && mCity != null &&
         mCountryId > 0) {
-      // Create the user insert statement
-      String insertSql = new InsertBuilder(getTableParent())
-          .set(TYPE, Integer.toString(getUserType().getValue()))
-          .setString(PASSWORD, mPassword)
-          .set(NAME, "?")
-          .setString(ADDRESS1, mAddress1)
-          .setString(CITY, mCity)
-          .setString(COUNTRY, Long.toString(mCountryId))
-          .toString();
-
       // Execute the insert
-      try (PreparedStatement statement = conn.prepareStatement(insertSql)) {
-        statement.setString(1, mName);
+      try (PreparedStatement statement = INSERT.prepare(conn,
+              SQLParameter.of(getUserType().getValue()), SQLParameter.of(mPassword),
+              SQLParameter.of(mName), SQLParameter.of(mAddress1), SQLParameter.of(mCity),
+              SQLParameter.of(mCountryId))) {
         if (statement.executeUpdate() == 1) {
           return true;
         }
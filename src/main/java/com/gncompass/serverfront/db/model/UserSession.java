@@ -1,20 +1,28 @@
 package com.gncompass.serverfront.db.model;
 
 import com.gncompass.serverfront.api.model.AuthResponse;
+import com.gncompass.serverfront.db.ColumnLayout;
 import com.gncompass.serverfront.db.DeleteBuilder;
 import com.gncompass.serverfront.db.InsertBuilder;
+import com.gncompass.serverfront.db.QueryTemplate;
 import com.gncompass.serverfront.db.SelectBuilder;
 import com.gncompass.serverfront.db.SQLManager;
+import com.gncompass.serverfront.db.SQLParameter;
 import com.gncompass.serverfront.db.UpdateBuilder;
 import com.gncompass.serverfront.db.model.User.UserType;
+import com.gncompass.serverfront.util.StringHelper;
 import com.gncompass.serverfront.util.StringHelper.AccessKey;
 import com.gncompass.serverfront.util.UuidHelper;
 
+import java.io.Serializable;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public class UserSession extends AbstractObject {
@@ -29,6 +37,27 @@ public class UserSession extends AbstractObject {
   private static final String CREATED = "created";
   private static final String ACCESSED = "accessed";
 
+  // Precompiled queries
+  private static final QueryTemplate DELETE_BY_ID = QueryTemplate.compile(
+      new DeleteBuilder(TABLE_NAME)
+          .where(ID + "=?"));
+  private static final QueryTemplate DELETE_FOR_DEVICE =
+      QueryTemplate.compile(new UserSession().buildDeleteSql(false));
+  private static final QueryTemplate DELETE_FOR_SESSION =
+      QueryTemplate.compile(new UserSession().buildDeleteSql(true));
+  private static final QueryTemplate INSERT =
+      QueryTemplate.compile(new UserSession().buildInsertSql("?"));
+  private static final QueryTemplate INSERT_WITH_USER =
+      QueryTemplate.compile(new UserSession().buildInsertSql("LAST_INSERT_ID()"));
+  private static final QueryTemplate SELECT_BORROWER_SESSION =
+      QueryTemplate.compile(new UserSession().buildSelectSql(UserType.BORROWER));
+  private static final QueryTemplate SELECT_INVESTOR_SESSION =
+      QueryTemplate.compile(new UserSession().buildSelectSql(UserType.INVESTOR));
+  // The accessed times update, for each power of two sessions up to the max per update. Only a
+  // handful of statement shapes are ever prepared
+  private static final int MAX_ACCESSED_PER_UPDATE = 128;
+  private static final QueryTemplate[] UPDATE_ACCESSED = compileUpdateAccessedSql();
+
   // Database parameters
   public long mId = 0;
   public long mUserId = 0;
@@ -59,14 +88,65 @@ public class UserSession extends AbstractObject {
    * PRIVATE FUNCTIONS
    *============================================================*/
 
+  /**
+   * Build the delete SQL for the sessions of a user on a device. Slots: user, device id, session
+   * key (if by session)
+   * @param bySession TRUE to also match on the session key
+   * @return the DeleteBuilder reference object
+   */
+  private DeleteBuilder buildDeleteSql(boolean bySession) {
+    DeleteBuilder deleteBuilder = new DeleteBuilder(getTable())
+        .where(getColumn(USER_ID) + "=?")
+        .where(getColumn(DEVICE_ID) + "=?");
+    if (bySession) {
+      deleteBuilder.where(getColumn(SESSION_KEY) + "=?");
+    }
+    return deleteBuilder;
+  }
+
+  /**
+   * Build the insert SQL for a new session. Slots: user (if the user value is '?'), device id,
+   * session key
+   * @param userValue the user ID value expression
+   * @return the InsertBuilder reference object
+   */
+  private InsertBuilder buildInsertSql(String userValue) {
+    return new InsertBuilder(getTable())
+        .set(USER_ID, userValue)
+        .set(DEVICE_ID, "?")
+        .set(SESSION_KEY, "?");
+  }
+
+  /**
+   * Build the update SQL for the accessed times of a set of sessions, in one statement. A time is
+   * only written if it is later than the one stored. Slots: session id and accessed time of each
+   * session, then the session id of each session
+   * @param count the number of sessions
+   * @return the UpdateBuilder reference object
+   */
+  private UpdateBuilder buildUpdateAccessedSql(int count) {
+    StringBuilder accessed = new StringBuilder(ACCESSED).append("=GREATEST(").append(ACCESSED)
+        .append(",CASE ").append(ID);
+    StringBuilder ids = new StringBuilder(ID).append(" IN (");
+    for (int i = 0; i < count; i++) {
+      accessed.append(" WHEN ? THEN ?");
+      ids.append(i == 0 ? "?" : ",?");
+    }
+    return new UpdateBuilder(getTable())
+        .set(accessed.append(" END)").toString())
+        .where(ids.append(")").toString());
+  }
+
   /**
    * Updates the user session info from the result set provided and user type provided. This assumes
    * it was fetched appropriately by the SQL function
    * @param type the user type (borrower, investor)
    * @param resultSet the result set to pull the data from. This will not call .next()
+   * @param layout the column layout of the select that produced the result set
    * @throws SQLException if the data is unexpected in the result set
    */
-  private void updateFromFetch(UserType type, ResultSet resultSet) throws SQLException {
+  private void updateFromFetch(UserType type, ResultSet resultSet, ColumnLayout layout)
+      throws SQLException {
     // Determine the user type and fetch the user data
     mUser = null;
     switch (type) {
@@ -79,10 +159,10 @@ public class UserSession extends AbstractObject {
       default:
         throw new RuntimeException("User type not implemented for update from fetch in user session");
     }
-    mUser.updateFromFetch(resultSet);
+    mUser.updateFromFetch(resultSet, layout);
 
     // Fetch the internal data
-    updateFromFetch(resultSet);
+    updateFromFetch(resultSet, layout);
   }
 
   /*=============================================================
@@ -90,23 +170,20 @@ public class UserSession extends AbstractObject {
    *============================================================*/
 
   /**
-   * Build the select SQL for all properties related to the user session
+   * Build the select SQL for all properties related to the user session. Slots: user reference,
+   * device id, session key
    * @param type the type of user to fetch the session for (changes the join)
-   * @param reference the user reference UUID string
-   * @param deviceId the device ID reference UUID string
-   * @param sessionKey the session key reference UUID string
    * @return the SelectBuilder reference object
    */
-  protected SelectBuilder buildSelectSql(UserType type, String reference, String deviceId,
-                                         String sessionKey) {
+  protected SelectBuilder buildSelectSql(UserType type) {
     // Determine the user join
     SelectBuilder selectBuilder = null;
     switch (type) {
       case BORROWER:
-        selectBuilder = Borrower.buildSelectJoinSql(reference, getColumn(USER_ID));
+        selectBuilder = Borrower.buildSelectJoinSql(getColumn(USER_ID));
         break;
       case INVESTOR:
-        selectBuilder = Investor.buildSelectJoinSql(reference, getColumn(USER_ID));
+        selectBuilder = Investor.buildSelectJoinSql(getColumn(USER_ID));
         break;
       default:
         throw new RuntimeException("User type not implemented for build select sql in user session");
@@ -121,24 +198,26 @@ public class UserSession extends AbstractObject {
         .column(getColumn(CREATED))
         .column(getColumn(ACCESSED))
         .from(getTable())
-        .where(getColumn(DEVICE_ID) + "=" + UuidHelper.getHexFromUUID(deviceId, true))
-        .where(getColumn(SESSION_KEY) + "=" + UuidHelper.getHexFromUUID(sessionKey, true));
+        .where(getColumn(DEVICE_ID) + "=?")
+        .where(getColumn(SESSION_KEY) + "=?");
   }
 
   /**
    * Updates the user session info from the result set provided. This assumes it was fetched
    * appropriately by the SQL function
    * @param resultSet the result set to pull the data from. This will not call .next()
+   * @param layout the column layout of the select that produced the result set
    * @throws SQLException if the data is unexpected in the result set
    */
   @Override
-  protected void updateFromFetch(ResultSet resultSet) throws SQLException {
-    mId = resultSet.getLong(getColumn(ID));
-    mUserId = resultSet.getLong(getColumn(USER_ID));
-    mDeviceId = resultSet.getBytes(getColumn(DEVICE_ID));
-    mSessionKey = resultSet.getBytes(getColumn(SESSION_KEY));
-    mCreated = resultSet.getTimestamp(getColumn(CREATED));
-    mAccessed = resultSet.getTimestamp(getColumn(ACCESSED));
+  protected void updateFromFetch(ResultSet resultSet, ColumnLayout layout) throws SQLException {
+    int column = layout.getStart(TABLE_NAME);
+    mId = resultSet.getLong(column++);
+    mUserId = resultSet.getLong(column++);
+    mDeviceId = resultSet.getBytes(column++);
+    mSessionKey = resultSet.getBytes(column++);
+    mCreated = resultSet.getTimestamp(column++);
+    mAccessed = resultSet.getTimestamp(column);
   }
 
   /*=============================================================
@@ -152,16 +231,10 @@ public class UserSession extends AbstractObject {
   public boolean addToDatabase() {
     // Make sure the correct parameters were set
     if(mDeviceUuid != null && mSessionUuid != null && mUser != null) {
-      // Create the session insert statement
-      String insertSql = new InsertBuilder(getTable())
-          .set(USER_ID, Long.toString(mUser.mId))
-          .set(DEVICE_ID, UuidHelper.getHexFromUUID(mDeviceUuid, true))
-          .set(SESSION_KEY, UuidHelper.getHexFromUUID(mSessionUuid, true))
-          .toString();
-
       // Try to fetch a connection
       try (Connection conn = SQLManager.getConnection()) {
-        return (conn.prepareStatement(insertSql).executeUpdate() == 1);
+        return (INSERT.prepare(conn, SQLParameter.of(mUser.mId), SQLParameter.of(mDeviceUuid),
+                               SQLParameter.of(mSessionUuid)).executeUpdate() == 1);
       } catch (SQLException e) {
         throw new RuntimeException("Unable to add the new session for an existing user", e);
       }
@@ -177,13 +250,6 @@ public class UserSession extends AbstractObject {
   public boolean addToDatabaseWithUser() {
     // Make sure the correct parameters were set
     if(mDeviceUuid != null && mSessionUuid != null && mUser != null) {
-      // Create the session insert statement
-      String insertSql = new InsertBuilder(getTable())
-          .set(USER_ID, "LAST_INSERT_ID()")
-          .set(DEVICE_ID, UuidHelper.getHexFromUUID(mDeviceUuid, true))
-          .set(SESSION_KEY, UuidHelper.getHexFromUUID(mSessionUuid, true))
-          .toString();
-
       // Try to fetch a connection
       try (Connection conn = SQLManager.getConnection()) {
         boolean success = false;
@@ -193,7 +259,8 @@ public class UserSession extends AbstractObject {
           // Execute against the user first
           if (mUser.addToDatabase(conn)) {
             // Execute session insert statement (should return 1 row)
-            if (conn.prepareStatement(insertSql).executeUpdate() == 1) {
+            if (INSERT_WITH_USER.prepare(conn, SQLParameter.of(mDeviceUuid),
+                                         SQLParameter.of(mSessionUuid)).executeUpdate() == 1) {
               success = true;
             }
           }
@@ -222,20 +289,16 @@ public class UserSession extends AbstractObject {
    */
   public int deleteIfMatches() {
     if(mDeviceUuid != null && mUser != null) {
-      // Create the session delete statement
-      DeleteBuilder deleteSqlBuilder = new DeleteBuilder(getTable())
-          .where(getColumn(USER_ID) + "=" + mUser.mId)
-          .where(getColumn(DEVICE_ID) + "=" + UuidHelper.getHexFromUUID(mDeviceUuid, true));
-      if(mSessionKey != null) {
-        deleteSqlBuilder.where(
-            getColumn(SESSION_KEY) + "=" + UuidHelper.getHexFromUUID(mSessionUuid, true));
-      }
-      String deleteSql = deleteSqlBuilder.toString();
-
       // Try to fetch a connection
       try (Connection conn = SQLManager.getConnection()) {
         // Execute session delete statement
-        return conn.prepareStatement(deleteSql).executeUpdate();
+        if(mSessionKey != null) {
+          return DELETE_FOR_SESSION.prepare(conn, SQLParameter.of(mUser.mId),
+                                            SQLParameter.of(mDeviceUuid),
+                                            SQLParameter.of(mSessionUuid)).executeUpdate();
+        }
+        return DELETE_FOR_DEVICE.prepare(conn, SQLParameter.of(mUser.mId),
+                                         SQLParameter.of(mDeviceUuid)).executeUpdate();
       } catch (SQLException e) {
         throw new RuntimeException("Unable to delete old user sessions", e);
       }
@@ -248,15 +311,10 @@ public class UserSession extends AbstractObject {
    * @return TRUE if successful. FALSE if nothing was deleted
    */
   public boolean deleteSession() {
-    // Create the session delete statement
-    String deleteSql = new DeleteBuilder(getTable())
-        .where(getColumn(ID) + "=" + Long.toString(mId))
-        .toString();
-
     // Try to fetch a connection
     try (Connection conn = SQLManager.getConnection()) {
       // Execute session delete statement
-      return (conn.prepareStatement(deleteSql).executeUpdate() == 1);
+      return (DELETE_BY_ID.prepare(conn, SQLParameter.of(mId)).executeUpdate() == 1);
     } catch (SQLException e) {
       throw new RuntimeException("Unable to delete selected user session", e);
     }
@@ -288,16 +346,22 @@ public class UserSession extends AbstractObject {
    * @param accessKey the access key information for the session
    * @return the UserSession class object with the information fetched. If not found, return NULL
    */
-  public UserSession getSession(UserType type, String reference, AccessKey accessKey) {
-    // Build the query
-    String selectSql =
-        buildSelectSql(type, reference, accessKey.deviceId, accessKey.sessionKey).toString();
+  public UserSession getSession(UserType type, UUID reference, AccessKey accessKey) {
+    // Pick the query for the user join
+    QueryTemplate selectTemplate =
+        (type == UserType.INVESTOR ? SELECT_INVESTOR_SESSION : SELECT_BORROWER_SESSION);
 
     // Try to execute against the connection
     try (Connection conn = SQLManager.getConnection()) {
-      try (ResultSet rs = conn.prepareStatement(selectSql).executeQuery()) {
+      try (ResultSet rs = selectTemplate.prepare(conn,
+              SQLParameter.of(UuidHelper.getBytesFromUUID(reference)),
+              SQLParameter.of(UuidHelper.getBytesFromUUID(accessKey.deviceIdMost,
+                                                          accessKey.deviceIdLeast)),
+              SQLParameter.of(UuidHelper.getBytesFromUUID(accessKey.sessionKeyMost,
+                                                          accessKey.sessionKeyLeast)))
+              .executeQuery()) {
         if (rs.next()) {
-          updateFromFetch(type, rs);
+          updateFromFetch(type, rs, selectTemplate.getLayout());
           return this;
         }
       }
@@ -327,50 +391,102 @@ public class UserSession extends AbstractObject {
     return (mUser != null && mUser.matches(type, userReference));
   }
 
+  /*=============================================================
+   * STATIC FUNCTIONS
+   *============================================================*/
+
   /**
-   * Update the accessed time of the user session in the database
+   * Compiles the accessed times update for each power of two sessions up to the max per update
+   * @return the templates, indexed by the power of two
    */
-  public void updateAccessed() {
-    // Build the statement
-    String updateSql = new UpdateBuilder(getTable())
-        .set(getColumn(ACCESSED) + "=NOW()")
-        .where(getColumn(ID) + "=" + mId)
-        .toString();
-    mAccessed = new Timestamp(new Date().getTime());
-
-    // Try to execute against the connection
-    try (Connection conn = SQLManager.getConnection()) {
-      conn.prepareStatement(updateSql).executeUpdate();
-    } catch (SQLException e) {
-      throw new RuntimeException("Unable to update the session accessed time with SQL", e);
+  private static QueryTemplate[] compileUpdateAccessedSql() {
+    QueryTemplate[] templates =
+        new QueryTemplate[Integer.numberOfTrailingZeros(MAX_ACCESSED_PER_UPDATE) + 1];
+    for (int i = 0; i < templates.length; i++) {
+      templates[i] = QueryTemplate.compile(new UserSession().buildUpdateAccessedSql(1 << i));
     }
+    return templates;
   }
 
-  /*=============================================================
-   * STATIC FUNCTIONS
-   *============================================================*/
-
   public static void deleteIfMatches(User user, UUID deviceUuid) {
     new UserSession(user, deviceUuid, null).deleteIfMatches();
   }
 
+  /**
+   * Records an access of the cached session. The accessed time is written to the database later,
+   * batched with the other sessions, by the session access tracker
+   * @param sessionCache the cached session that was accessed
+   */
   public static void updateAccessed(Cache sessionCache) {
-    new UserSession(sessionCache).updateAccessed();
+    SessionAccessTracker.record(sessionCache.mSessionId, System.currentTimeMillis());
+  }
+
+  /**
+   * Updates the accessed times of a set of sessions with one update per 128 sessions. A time is
+   * only written if it is later than the one stored
+   * @param accessedById the accessed time in milliseconds, by session ID
+   */
+  static void updateAllAccessed(Map<Long, Long> accessedById) {
+    if (accessedById.isEmpty()) {
+      return;
+    }
+
+    // Try to execute against the connection
+    try (Connection conn = SQLManager.getConnection()) {
+      updateAllAccessed(conn, accessedById);
+    } catch (SQLException e) {
+      throw new RuntimeException("Unable to update the session accessed times with SQL", e);
+    }
+  }
+
+  /**
+   * Updates the accessed times of a set of sessions with one update per 128 sessions, through the
+   * connection
+   * @param conn the SQL connection
+   * @param accessedById the accessed time in milliseconds, by session ID
+   * @throws SQLException exception on failed update
+   */
+  static void updateAllAccessed(Connection conn, Map<Long, Long> accessedById)
+      throws SQLException {
+    List<Map.Entry<Long, Long>> entries = new ArrayList<>(accessedById.entrySet());
+    for (int from = 0; from < entries.size(); from += MAX_ACCESSED_PER_UPDATE) {
+      // Pad up to the template size by repeating the last session
+      int count = Math.min(MAX_ACCESSED_PER_UPDATE, entries.size() - from);
+      int slotCount = Integer.highestOneBit(count);
+      if (slotCount < count) {
+        slotCount <<= 1;
+      }
+      SQLParameter[] params = new SQLParameter[slotCount * 3];
+      for (int i = 0; i < slotCount; i++) {
+        Map.Entry<Long, Long> entry = entries.get(from + Math.min(i, count - 1));
+        params[i * 2] = SQLParameter.of(entry.getKey());
+        params[i * 2 + 1] = SQLParameter.ofTimestamp(new Date(entry.getValue()));
+        params[slotCount * 2 + i] = SQLParameter.of(entry.getKey());
+      }
+      UPDATE_ACCESSED[Integer.numberOfTrailingZeros(slotCount)].prepare(conn, params)
+          .executeUpdate();
+    }
   }
 
   /*=============================================================
    * INNER CLASSES
    *============================================================*/
 
-  public static class Cache {
+  public static class Cache implements Serializable {
     private static final long EXPIRATION_HRS = 1;
-    private static final long EXPIRATION_MS = EXPIRATION_HRS * 60 * 60 * 1000;
+    public static final long EXPIRATION_MS = EXPIRATION_HRS * 60 * 60 * 1000;
+    private static final long serialVersionUID = 1L;
 
-    public Date mAccessed;
+    // Replaced on every access, by any request thread
+    public volatile Date mAccessed;
     public long mId;
     public UUID mReference;
     public long mSessionId;
 
+    // The version of the user the session was validated under, and when it was last checked
+    public long mVersion = 0;
+    public transient long mVersionCheckedMs = 0;
+
     public Cache(long id, UUID reference, long sessionId) {
       mId = id;
       mReference = reference;
@@ -385,8 +501,7 @@ public class UserSession extends AbstractObject {
     }
 
     public boolean matches(String userReference) {
-      // TODO: Should it cache the string UUID to make comparisons faster?
-      return matches(UUID.fromString(userReference));
+      return StringHelper.isUuid(userReference, mReference);
     }
 
     public boolean matches(UUID userReference) {
@@ -0,0 +1,66 @@
+package com.gncompass.serverfront.util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * A JSON response body that was serialized once and is served many times, along with its strong
+ * entity tag. The tag is a hash of the body, so it only changes when the content does
+ */
+public final class CachedResponse {
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+  private static final int ETAG_BYTES = 16;
+
+  private final byte[] mBody;
+  private final String mEtag;
+
+  /**
+   * Constructor. Computes the entity tag of the body
+   * @param body the UTF-8 encoded JSON body. Must not be modified afterwards
+   */
+  public CachedResponse(byte[] body) {
+    mBody = body;
+    mEtag = computeEtag(body);
+  }
+
+  /*=============================================================
+   * PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Computes the quoted strong entity tag of the body
+   * @param body the response body
+   * @return the entity tag, including the quotes
+   */
+  private static String computeEtag(byte[] body) {
+    try {
+      byte[] digest = MessageDigest.getInstance(DIGEST_ALGORITHM).digest(body);
+      return "\"" + Base64.getUrlEncoder().withoutPadding()
+          .encodeToString(Arrays.copyOf(digest, ETAG_BYTES)) + "\"";
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException("Unable to hash the cached response", e);
+    }
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Returns the serialized body
+   * @return the UTF-8 encoded JSON body. Must not be modified
+   */
+  public byte[] getBody() {
+    return mBody;
+  }
+
+  /**
+   * Returns the entity tag of the body
+   * @return the quoted strong entity tag
+   */
+  public String getEtag() {
+    return mEtag;
+  }
+}
@@ -1,14 +1,15 @@
 package com.gncompass.serverfront.util;
 
 import com.gncompass.serverfront.api.model.ErrorResult;
+import com.gncompass.serverfront.db.Page;
 
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
 
+import javax.json.Json;
 import javax.json.JsonStructure;
+import javax.json.stream.JsonGenerator;
+import javax.json.stream.JsonGeneratorFactory;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -16,6 +17,17 @@ public class HttpHelper {
   public static String BASE_PATH = "/core/v1";
   public static final String BUCKET_UPLOADS = "test-gnc-data";
   public static String CONTENT_JSON = "application/json";
+  public static final String HEADER_CACHE_CONTROL = "Cache-Control";
+  public static final String HEADER_ETAG = "ETag";
+  public static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+  public static final String HEADER_NEXT_CURSOR = "X-Next-Cursor";
+  public static final int PAGE_SIZE_DEFAULT = 50;
+  public static final int PAGE_SIZE_MAX = 100;
+  public static final String PARAM_CURSOR = "cursor";
+  public static final String PARAM_LIMIT = "limit";
+
+  // Generators write straight to the response stream, without building the body as a string
+  private static final JsonGeneratorFactory sGeneratorFactory = Json.createGeneratorFactory(null);
 
   public enum RequestType {
     DELETE,
@@ -25,28 +37,12 @@ public class HttpHelper {
   }
 
   /**
-   * Returns the user reference from the request URI made in the request. This assumes it has
-   * been validated to be a protected base URI and the expected location of the user UUID is at
-   * location /core/v1/<borrowers, investors>/<user reference>/*
-   * @param request the HTTP request object
-   * @param validateIfUuid TRUE if the user reference should be checked if UUID
-   *                       (only required once per request)
-   * @return the user reference if found (and optionally validated). NULL if not found
+   * Ends a streamed JSON array response started with startResponseArray()
+   * @param generator the JSON generator returned when the response was started
    */
-  public static String getUserReference(HttpServletRequest request, boolean validateIfUuid) {
-    String requestUri = request.getRequestURI();
-    String[] requestSplit = requestUri.split("/");
-    if(requestSplit.length >= 5) {
-      String userReference = requestSplit[4];
-      if(validateIfUuid) {
-        if(StringHelper.isUuid(userReference)) {
-          return userReference;
-        }
-      } else {
-        return userReference;
-      }
-    }
-    return null;
+  public static void endResponseArray(JsonGenerator generator) {
+    generator.writeEnd();
+    generator.flush();
   }
 
   /**
@@ -61,27 +57,58 @@ public class HttpHelper {
   }
 
   /**
-   * Parse the full URI and return the chunks in a string list
-   * @param request the HTTP servlet request
-   * @return the string list of the parameters broken apart
+   * Checks if the If-None-Match header of a request matches the entity tag of the response. The
+   * header may list several tags or be '*'. Tags are compared weakly, as required for GET
+   * @param ifNoneMatch the If-None-Match header of the request. NULL if not sent
+   * @param etag the quoted entity tag of the current response
+   * @return TRUE if the client already holds the response. FALSE otherwise
    */
-  public static List<String> parseFullUrl(HttpServletRequest request) {
-      try {
-      String pathAfterContext = request.getRequestURI().substring(
-          request.getContextPath().length() + request.getServletPath().length() + 1);
-      List<String> chunks = new ArrayList<>();
-      for (String val : pathAfterContext.split("/")) {
-        chunks.add(URLDecoder.decode(val, "UTF-8"));
+  public static boolean isNotModified(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null || etag == null) {
+      return false;
+    }
+    for (String tag : ifNoneMatch.split(",")) {
+      tag = tag.trim();
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
       }
-      String query = request.getQueryString();
-      if (query!=null) {
-        for (String val : query.split("&")) {
-          chunks.add(URLDecoder.decode(val, "UTF-8"));
-        }
+      if (tag.equals("*") || tag.equals(etag)) {
+        return true;
       }
-      return chunks;
-    } catch (UnsupportedEncodingException uee) {
-      throw new RuntimeException("Invalid URL encoding", uee);
+    }
+    return false;
+  }
+
+  /**
+   * Parse the page size query parameter of a list request
+   * @param request the HTTP servlet request
+   * @return the page size. The default if not provided. -1 if invalid or over the max
+   */
+  public static int parsePageSize(HttpServletRequest request) {
+    String value = request.getParameter(PARAM_LIMIT);
+    if (value == null) {
+      return PAGE_SIZE_DEFAULT;
+    }
+    try {
+      int pageSize = Integer.parseInt(value);
+      if (pageSize > 0 && pageSize <= PAGE_SIZE_MAX) {
+        return pageSize;
+      }
+    } catch (NumberFormatException e) {
+      // Fall through. Not a valid page size
+    }
+    return -1;
+  }
+
+  /**
+   * Sets the next page cursor header on a list response, if there is a following page. Must be
+   * called before the response body is written
+   * @param httpResponse the HTTP response object reference
+   * @param page the page being returned
+   */
+  public static void setNextCursor(HttpServletResponse httpResponse, Page<?> page) {
+    if (page.hasNext()) {
+      httpResponse.setHeader(HEADER_NEXT_CURSOR, page.getNextCursor().toToken());
     }
   }
 
@@ -96,11 +123,55 @@ public class HttpHelper {
                                   JsonStructure response) throws IOException {
     httpResponse.setStatus(httpCode);
     if(response != null) {
-      httpResponse.setContentType(CONTENT_JSON);
-      httpResponse.getWriter().write(response.toString());
+      JsonGenerator generator = startResponseJson(httpResponse);
+      generator.write(response);
+      generator.flush();
     }
   }
 
+  /**
+   * Sets up the JSON body of the http response and opens a generator on the response stream
+   * @param httpResponse the HTTP response object reference
+   * @return the JSON generator writing the response body
+   * @throws IOException throws on failed to access the output stream of the HTTP response
+   */
+  private static JsonGenerator startResponseJson(HttpServletResponse httpResponse)
+      throws IOException {
+    httpResponse.setContentType(CONTENT_JSON);
+    httpResponse.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    return sGeneratorFactory.createGenerator(httpResponse.getOutputStream(),
+                                             StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Sets the http response for a JSON response that was already serialized, such as a cached
+   * response. It is sent with its entity tag and may be cached by the client for the max age. If
+   * the client already holds the same entity, only a not modified (304) is sent
+   * @param httpResponse the HTTP response object reference
+   * @param response the serialized response and its entity tag
+   * @param ifNoneMatch the If-None-Match header of the request. NULL if not sent
+   * @param maxAgeS the seconds the client may use the response without checking. 0 to always
+   *                check
+   * @throws IOException throws on failed to access the output stream of the HTTP response
+   */
+  public static void setResponseCached(HttpServletResponse httpResponse, CachedResponse response,
+                                       String ifNoneMatch, int maxAgeS) throws IOException {
+    httpResponse.setHeader(HEADER_ETAG, response.getEtag());
+    httpResponse.setHeader(HEADER_CACHE_CONTROL,
+                           maxAgeS > 0 ? "public, max-age=" + maxAgeS : "no-cache");
+    if (isNotModified(ifNoneMatch, response.getEtag())) {
+      httpResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    byte[] body = response.getBody();
+    httpResponse.setStatus(HttpServletResponse.SC_OK);
+    httpResponse.setContentType(CONTENT_JSON);
+    httpResponse.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    httpResponse.setContentLength(body.length);
+    httpResponse.getOutputStream().write(body);
+  }
+
   /**
    * Sets the http response based on the provided error code and the JSON object
    * @param httpResponse the HTTP response object reference
@@ -136,4 +207,20 @@ public class HttpHelper {
                                         JsonStructure response) throws IOException {
     setResponse(httpResponse, httpCode, response);
   }
+
+  /**
+   * Starts a streamed success (200) response holding a JSON array. Items are written to the
+   * generator one at a time, instead of building the whole array first, and the response is
+   * finished with endResponseArray(). Any headers must be set before this is called
+   * @param httpResponse the HTTP response object reference
+   * @return the JSON generator, inside the response array
+   * @throws IOException throws on failed to access the output stream of the HTTP response
+   */
+  public static JsonGenerator startResponseArray(HttpServletResponse httpResponse)
+      throws IOException {
+    httpResponse.setStatus(HttpServletResponse.SC_OK);
+    JsonGenerator generator = startResponseJson(httpResponse);
+    generator.writeStartArray();
+    return generator;
+  }
 }
@@ -16,6 +16,42 @@ public class StateHelper {
     return System.getProperty(name);
   }
 
+  /**
+   * Returns the system property with the given name as an integer
+   * @param name The name of the property
+   * @param defaultValue The value returned if the property is not set or not a number
+   * @return The value of the property
+   */
+  public static int getProperty(String name, int defaultValue) {
+    String value = getProperty(name);
+    if (value != null) {
+      try {
+        return Integer.parseInt(value.trim());
+      } catch (NumberFormatException nfe) {
+        // Fall through to the default
+      }
+    }
+    return defaultValue;
+  }
+
+  /**
+   * Returns the system property with the given name as a long
+   * @param name The name of the property
+   * @param defaultValue The value returned if the property is not set or not a number
+   * @return The value of the property
+   */
+  public static long getProperty(String name, long defaultValue) {
+    String value = getProperty(name);
+    if (value != null) {
+      try {
+        return Long.parseLong(value.trim());
+      } catch (NumberFormatException nfe) {
+        // Fall through to the default
+      }
+    }
+    return defaultValue;
+  }
+
   /**
    * Returns the production property if in production or the development if in production. This
    * function calls the isProduction() within this class to determine which to use.
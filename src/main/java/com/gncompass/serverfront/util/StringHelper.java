@@ -1,18 +1,106 @@
 package com.gncompass.serverfront.util;
 
+import java.util.UUID;
+import java.util.regex.Pattern;
+
 public class StringHelper {
   private final static char[] HEX_ARRAY = "0123456789ABCDEF".toCharArray();
   private static final String REGEX_END = "$";
   private static final String REGEX_START = "^";
   private static final String REGEX_EMAIL = "(?:[a-z0-9!#$%&'*+/=?^_`{|}~-]+(?:\\.[a-z0-9!#$%&'*+/=?^_`{|}~-]+)*|\"(?:[\\x01-\\x08\\x0b\\x0c\\x0e-\\x1f\\x21\\x23-\\x5b\\x5d-\\x7f]|\\\\[\\x01-\\x09\\x0b\\x0c\\x0e-\\x7f])*\")@(?:(?:[a-z0-9](?:[a-z0-9-]*[a-z0-9])?\\.)+[a-z0-9](?:[a-z0-9-]*[a-z0-9])?|\\[(?:(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?|[a-z0-9-]*[a-z0-9]:(?:[\\x01-\\x08\\x0b\\x0c\\x0e-\\x1f\\x21-\\x5a\\x53-\\x7f]|\\\\[\\x01-\\x09\\x0b\\x0c\\x0e-\\x7f])+)\\])";
   private static final String REGEX_MIME = "[-\\w]+\\/[-\\w]+(\\.[-\\w]+)*([+][-\\w]+)?";
-  private static final String REGEX_UUID = "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[34][0-9a-fA-F]{3}-[89abAB][0-9a-fA-F]{3}-[0-9a-fA-F]{12}";
-  private static final String REGEX_ACCESS_KEY = REGEX_START + REGEX_UUID + "-" + REGEX_UUID + REGEX_END;
   private static final String REGEX_EMAIL_ONLY = REGEX_START + REGEX_EMAIL + REGEX_END;
   private static final String REGEX_MIME_ONLY = REGEX_START + REGEX_MIME + REGEX_END;
-  private static final String REGEX_UUID_ONLY = REGEX_START + REGEX_UUID + REGEX_END;
 
+  // Compiled once, instead of by String.matches() on every call
+  private static final Pattern PATTERN_EMAIL = Pattern.compile(REGEX_EMAIL_ONLY);
+  private static final Pattern PATTERN_MIME = Pattern.compile(REGEX_MIME_ONLY);
+
+  // UUIDs are checked by hand, as [0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[34][0-9a-fA-F]{3}-
+  // [89abAB][0-9a-fA-F]{3}-[0-9a-fA-F]{12}. An access key is two UUIDs joined by a dash
   private static final int UUID_LENGTH = 36;
+  private static final int UUID_LEAST_START = 19;
+  private static final int UUID_VARIANT = 19;
+  private static final int UUID_VERSION = 14;
+  private static final int ACCESS_KEY_LENGTH = UUID_LENGTH * 2 + 1;
+
+  /*=============================================================
+   * PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Returns the value of the hex digit
+   * @param c the character
+   * @return the digit value. -1 if not a hex digit
+   */
+  private static int hexValue(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    } else if (c >= 'a' && c <= 'f') {
+      return c - 'a' + 10;
+    } else if (c >= 'A' && c <= 'F') {
+      return c - 'A' + 10;
+    }
+    return -1;
+  }
+
+  /**
+   * Checks if the position within a UUID holds a dash
+   * @param index the index within the UUID
+   * @return TRUE if a dash. FALSE if a hex digit
+   */
+  private static boolean isUuidDash(int index) {
+    return (index == 8 || index == 13 || index == 18 || index == 23);
+  }
+
+  /**
+   * Checks if a UUID starts at the offset, in a single pass with no allocation
+   * @param check the string to check
+   * @param offset the index the UUID starts at. The string must be long enough to hold it
+   * @return TRUE if a UUID. FALSE otherwise
+   */
+  private static boolean isUuidAt(String check, int offset) {
+    for (int i = 0; i < UUID_LENGTH; i++) {
+      char c = check.charAt(offset + i);
+      if (isUuidDash(i)) {
+        if (c != '-') {
+          return false;
+        }
+      } else if (hexValue(c) < 0) {
+        return false;
+      } else if (i == UUID_VERSION && c != '3' && c != '4') {
+        return false;
+      } else if (i == UUID_VARIANT && c != '8' && c != '9' && c != 'a' && c != 'b'
+                 && c != 'A' && c != 'B') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reads one half of a checked UUID, skipping the dashes
+   * @param check the string holding the UUID
+   * @param offset the index the UUID starts at
+   * @param least TRUE for the least significant bits. FALSE for the most significant
+   * @return the 64 bits of the half
+   */
+  private static long readUuidBits(String check, int offset, boolean least) {
+    int start = offset + (least ? UUID_LEAST_START : 0);
+    int end = offset + (least ? UUID_LENGTH : UUID_LEAST_START - 1);
+    long bits = 0L;
+    for (int i = start; i < end; i++) {
+      char c = check.charAt(i);
+      if (c != '-') {
+        bits = (bits << 4) | hexValue(c);
+      }
+    }
+    return bits;
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
 
   /**
    * Standard bytes to hex functionality
@@ -36,9 +124,11 @@ public class StringHelper {
    *         NULL if not in proper form
    */
   public static AccessKey getAccessKey(String accessKey) {
-    if(isAccessKey(accessKey)) {
-      return new AccessKey(accessKey.substring(0, UUID_LENGTH),
-                            accessKey.substring(UUID_LENGTH + 1));
+    if(accessKey != null && isAccessKey(accessKey)) {
+      int sessionStart = UUID_LENGTH + 1;
+      return new AccessKey(readUuidBits(accessKey, 0, false), readUuidBits(accessKey, 0, true),
+                           readUuidBits(accessKey, sessionStart, false),
+                           readUuidBits(accessKey, sessionStart, true));
     }
     return null;
   }
@@ -49,7 +139,8 @@ public class StringHelper {
    * @return TRUE if it matches. FALSE otherwise
    */
   public static boolean isAccessKey(String check) {
-    return check.matches(REGEX_ACCESS_KEY);
+    return (check.length() == ACCESS_KEY_LENGTH && isUuidAt(check, 0)
+            && check.charAt(UUID_LENGTH) == '-' && isUuidAt(check, UUID_LENGTH + 1));
   }
 
   /**
@@ -58,7 +149,7 @@ public class StringHelper {
    * @return TRUE if it matches. FALSE otherwise
    */
   public static boolean isEmail(String check) {
-    return check.matches(REGEX_EMAIL_ONLY);
+    return PATTERN_EMAIL.matcher(check).matches();
   }
 
   /**
@@ -67,7 +158,7 @@ public class StringHelper {
    * @return TRUE if it matches. FALSE otherwise
    */
   public static boolean isMime(String check) {
-    return check.matches(REGEX_MIME_ONLY);
+    return PATTERN_MIME.matcher(check).matches();
   }
 
   /**
@@ -76,20 +167,63 @@ public class StringHelper {
    * @return TRUE if it matches. FALSE otherwise
    */
   public static boolean isUuid(String check) {
-    return check.matches(REGEX_UUID_ONLY);
+    return (check.length() == UUID_LENGTH && isUuidAt(check, 0));
+  }
+
+  /**
+   * Returns if the region of the string exactly matches the UUID format, without copying it out
+   * @param check the string holding the region
+   * @param start the index the region starts at
+   * @param end the index the region ends at, exclusive
+   * @return TRUE if it matches. FALSE otherwise
+   */
+  public static boolean isUuid(String check, int start, int end) {
+    return (end - start == UUID_LENGTH && end <= check.length() && isUuidAt(check, start));
+  }
+
+  /**
+   * Returns if the string is the UUID provided, without parsing it into a new UUID
+   * @param check the string to check
+   * @param uuid the UUID to compare with
+   * @return TRUE if the string is in UUID format and equal to the UUID. FALSE otherwise
+   */
+  public static boolean isUuid(String check, UUID uuid) {
+    return (uuid != null && check != null && isUuid(check)
+            && readUuidBits(check, 0, false) == uuid.getMostSignificantBits()
+            && readUuidBits(check, 0, true) == uuid.getLeastSignificantBits());
+  }
+
+  /**
+   * Parses the string to a UUID, in a single pass
+   * @param check the string to parse
+   * @return the UUID. NULL if not in UUID format
+   */
+  public static UUID parseUuid(String check) {
+    if (check != null && isUuid(check)) {
+      return new UUID(readUuidBits(check, 0, false), readUuidBits(check, 0, true));
+    }
+    return null;
   }
 
+  /*=============================================================
+   * INNER CLASSES
+   *============================================================*/
 
   /**
    * Inner class for handling the access key string information in its proper format
    */
   public static class AccessKey {
-    public String deviceId;
-    public String sessionKey;
+    public final long deviceIdMost;
+    public final long deviceIdLeast;
+    public final long sessionKeyMost;
+    public final long sessionKeyLeast;
 
-    public AccessKey(String deviceId, String sessionKey) {
-      this.deviceId = deviceId;
-      this.sessionKey = sessionKey;
+    public AccessKey(long deviceIdMost, long deviceIdLeast, long sessionKeyMost,
+                     long sessionKeyLeast) {
+      this.deviceIdMost = deviceIdMost;
+      this.deviceIdLeast = deviceIdLeast;
+      this.sessionKeyMost = sessionKeyMost;
+      this.sessionKeyLeast = sessionKeyLeast;
     }
   }
 }
@@ -21,9 +21,19 @@ public class UuidHelper {
    * @return the byte array of the UUID
    */
   public static byte[] getBytesFromUUID(UUID uuid) {
+    return getBytesFromUUID(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+  }
+
+  /**
+   * Returns the byte array from the two halves of a UUID
+   * @param mostBits the most significant 64 bits
+   * @param leastBits the least significant 64 bits
+   * @return the byte array of the UUID
+   */
+  public static byte[] getBytesFromUUID(long mostBits, long leastBits) {
     ByteBuffer bb = ByteBuffer.wrap(new byte[16]);
-    bb.putLong(uuid.getMostSignificantBits());
-    bb.putLong(uuid.getLeastSignificantBits());
+    bb.putLong(mostBits);
+    bb.putLong(leastBits);
 
     return bb.array();
   }
@@ -0,0 +1,73 @@
+package com.gncompass.serverfront.api.auth;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.gncompass.serverfront.db.model.UserSession;
+
+import java.util.Date;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests the validated sessions held by an instance, and their eviction once the cache overflows
+ */
+@RunWith(JUnit4.class)
+public class SessionCacheTest {
+
+  /**
+   * Creates a session last accessed the given time ago
+   * @param agoMs the milliseconds since the last access
+   * @return the session
+   */
+  private static UserSession.Cache createSession(long agoMs) {
+    UserSession.Cache session = new UserSession.Cache(1L, UUID.randomUUID(), 1L);
+    session.mAccessed = new Date(System.currentTimeMillis() - agoMs);
+    return session;
+  }
+
+  @Test
+  public void put_evictsLeastRecentlyAccessedToLowWaterMark() {
+    SessionCache cache = new SessionCache(10);
+    // Inserted out of access order, so the eviction has to sort
+    long[] agoMs = {5000L, 1000L, 9000L, 3000L, 7000L, 2000L, 10000L, 4000L, 6000L, 8000L};
+    for (int i = 0; i < agoMs.length; i++) {
+      cache.put("key" + agoMs[i], createSession(agoMs[i]));
+    }
+    cache.put("key0", createSession(0L));
+
+    // Trimmed from 11 down to 9, dropping the two least recently accessed
+    assertThat(cache.get("key10000")).isNull();
+    assertThat(cache.get("key9000")).isNull();
+    for (long ago : new long[] {0L, 1000L, 2000L, 3000L, 4000L, 5000L, 6000L, 7000L, 8000L}) {
+      assertThat(cache.get("key" + ago)).named("key" + ago).isNotNull();
+    }
+  }
+
+  @Test
+  public void get_dropsExpiredSessions() {
+    SessionCache cache = new SessionCache(10);
+    cache.put("expired", createSession(UserSession.Cache.EXPIRATION_MS + 1000L));
+    cache.put("current", createSession(0L));
+
+    assertThat(cache.get("expired")).isNull();
+    assertThat(cache.get("current")).isNotNull();
+  }
+
+  @Test
+  public void removeUser_dropsAllSessionsOfUser() {
+    SessionCache cache = new SessionCache(10);
+    UserSession.Cache first = createSession(0L);
+    UserSession.Cache second = new UserSession.Cache(1L, first.mReference, 2L);
+    cache.put("first", first);
+    cache.put("second", second);
+    cache.put("other", createSession(0L));
+
+    assertThat(cache.removeUser(first.mReference)).isEqualTo(2);
+    assertThat(cache.get("first")).isNull();
+    assertThat(cache.get("second")).isNull();
+    assertThat(cache.get("other")).isNotNull();
+  }
+}
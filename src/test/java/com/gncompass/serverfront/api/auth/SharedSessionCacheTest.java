@@ -0,0 +1,141 @@
+package com.gncompass.serverfront.api.auth;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.gncompass.serverfront.db.model.User.UserType;
+import com.gncompass.serverfront.db.model.UserSession;
+
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests sharing the validated sessions through memcache and revoking them by user version
+ */
+@RunWith(JUnit4.class)
+public class SharedSessionCacheTest {
+  private static final String ACCESS_KEY =
+      "0f8fad5b-d9cb-469f-a165-70867728950e-7c9e6679-7425-40de-944b-e07fc1f90ae7";
+  private static final UUID REFERENCE = UUID.fromString("a3bb189e-8bf9-4888-9912-ace4e6543002");
+
+  private final LocalServiceTestHelper mHelper =
+      new LocalServiceTestHelper(new LocalMemcacheServiceTestConfig());
+
+  // Two instances, sharing the same memcache
+  private SharedSessionCache mCache;
+  private SharedSessionCache mOtherCache;
+
+  @Before
+  public void setUp() {
+    mHelper.setUp();
+    mCache = new SharedSessionCache(60);
+    mOtherCache = new SharedSessionCache(60);
+  }
+
+  @After
+  public void tearDown() {
+    mHelper.tearDown();
+  }
+
+  /**
+   * Creates a session validated under the version
+   * @param version the version of the user read before the session was fetched
+   * @return the session
+   */
+  private static UserSession.Cache createSession(long version) {
+    UserSession.Cache session = new UserSession.Cache(7L, REFERENCE, 11L);
+    session.mVersion = version;
+    return session;
+  }
+
+  @Test
+  public void put_sharesSessionWithOtherInstances() {
+    long version = mCache.getVersion(UserType.BORROWER, REFERENCE);
+    mCache.put(UserType.BORROWER, ACCESS_KEY, createSession(version));
+
+    UserSession.Cache session = mOtherCache.get(UserType.BORROWER, ACCESS_KEY);
+    assertThat(session).isNotNull();
+    assertThat(session.mId).isEqualTo(7L);
+    assertThat(session.mReference).isEqualTo(REFERENCE);
+    assertThat(session.mSessionId).isEqualTo(11L);
+    assertThat(session.mVersion).isEqualTo(version);
+    assertThat(session.mVersionCheckedMs).isGreaterThan(0L);
+  }
+
+  @Test
+  public void put_keepsSessionsOfEachUserTypeApart() {
+    mCache.put(UserType.BORROWER, ACCESS_KEY,
+               createSession(mCache.getVersion(UserType.BORROWER, REFERENCE)));
+
+    assertThat(mOtherCache.get(UserType.INVESTOR, ACCESS_KEY)).isNull();
+  }
+
+  @Test
+  public void put_skipsSessionsWithUnknownVersion() {
+    mCache.put(UserType.BORROWER, ACCESS_KEY, createSession(SharedSessionCache.VERSION_UNKNOWN));
+
+    assertThat(mOtherCache.get(UserType.BORROWER, ACCESS_KEY)).isNull();
+  }
+
+  @Test
+  public void getVersion_isTheSameOnEveryInstance() {
+    long version = mCache.getVersion(UserType.BORROWER, REFERENCE);
+
+    assertThat(version).isNotEqualTo(SharedSessionCache.VERSION_UNKNOWN);
+    assertThat(mOtherCache.getVersion(UserType.BORROWER, REFERENCE)).isEqualTo(version);
+  }
+
+  @Test
+  public void invalidate_revokesSessionsEverywhere() {
+    long version = mCache.getVersion(UserType.BORROWER, REFERENCE);
+    UserSession.Cache localSession = createSession(version);
+    mCache.put(UserType.BORROWER, ACCESS_KEY, localSession);
+
+    mOtherCache.invalidate(UserType.BORROWER, REFERENCE);
+
+    assertThat(mCache.getVersion(UserType.BORROWER, REFERENCE)).isEqualTo(version + 1);
+    assertThat(mCache.get(UserType.BORROWER, ACCESS_KEY)).isNull();
+    assertThat(mOtherCache.get(UserType.BORROWER, ACCESS_KEY)).isNull();
+    assertThat(mCache.isCurrent(UserType.BORROWER, localSession)).isFalse();
+  }
+
+  @Test
+  public void invalidate_duringDatabaseFetchIsNotLost() {
+    // The version is read before the session is fetched, and the user is revoked meanwhile
+    long version = mCache.getVersion(UserType.BORROWER, REFERENCE);
+    mOtherCache.invalidate(UserType.BORROWER, REFERENCE);
+    UserSession.Cache fetchedSession = createSession(version);
+    mCache.put(UserType.BORROWER, ACCESS_KEY, fetchedSession);
+
+    assertThat(mCache.isCurrent(UserType.BORROWER, fetchedSession)).isFalse();
+    assertThat(mOtherCache.get(UserType.BORROWER, ACCESS_KEY)).isNull();
+  }
+
+  @Test
+  public void evictedVersion_doesNotReviveRevokedSessions() throws InterruptedException {
+    long version = mCache.getVersion(UserType.BORROWER, REFERENCE);
+    UserSession.Cache localSession = createSession(version);
+    mCache.put(UserType.BORROWER, ACCESS_KEY, localSession);
+    mCache.invalidate(UserType.BORROWER, REFERENCE);
+
+    // Versions are created from the clock, so let it pass the revoked one before the eviction
+    while (System.currentTimeMillis() <= version + 1) {
+      Thread.sleep(1L);
+    }
+    MemcacheServiceFactory.getMemcacheService("sessions").delete("v:BORROWER:" + REFERENCE);
+
+    long newVersion = mOtherCache.getVersion(UserType.BORROWER, REFERENCE);
+    assertThat(newVersion).isNotEqualTo(SharedSessionCache.VERSION_UNKNOWN);
+    assertThat(newVersion).isGreaterThan(version + 1);
+    assertThat(mOtherCache.get(UserType.BORROWER, ACCESS_KEY)).isNull();
+    assertThat(mCache.isCurrent(UserType.BORROWER, localSession)).isFalse();
+  }
+}
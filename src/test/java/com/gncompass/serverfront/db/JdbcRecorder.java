@@ -0,0 +1,144 @@
+package com.gncompass.serverfront.db;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A stand-in JDBC connection that records every call made on it and on the statements it
+ * prepares, by name and arguments, so tests can check the SQL sent and the number of statements
+ * executed without a database
+ */
+public final class JdbcRecorder {
+  private final List<String> mCalls = new ArrayList<>();
+  private final Connection mConnection;
+  private long[] mGeneratedKeys = new long[0];
+  private int mUpdateCount = 1;
+  private int[] mUpdateCounts = new int[0];
+
+  /**
+   * Constructor
+   */
+  public JdbcRecorder() {
+    PreparedStatement statement = record(PreparedStatement.class, null);
+    mConnection = record(Connection.class, statement);
+  }
+
+  /*=============================================================
+   * PRIVATE FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Creates a stand-in for the JDBC interface that records every call made on it
+   * @param type the JDBC interface
+   * @param statement the statement to return from prepare calls
+   * @return the recording stand-in
+   */
+  private <T> T record(Class<T> type, PreparedStatement statement) {
+    return type.cast(Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+          mCalls.add(method.getName() + (args != null ? Arrays.toString(args) : "[]"));
+          switch (method.getName()) {
+            case "prepareStatement":
+              return statement;
+            case "executeBatch":
+              return mUpdateCounts;
+            case "executeUpdate":
+              return mUpdateCount;
+            case "getGeneratedKeys":
+              return readKeys();
+            case "getAutoCommit":
+            case "execute":
+              return false;
+            default:
+              return null;
+          }
+        }));
+  }
+
+  /**
+   * Creates a stand-in result set over the generated keys
+   * @return the result set, with one row per key
+   */
+  private ResultSet readKeys() {
+    int[] row = {0};
+    return (ResultSet) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+          if (method.getName().equals("next")) {
+            return (++row[0] <= mGeneratedKeys.length);
+          } else if (method.getName().equals("getLong")) {
+            return mGeneratedKeys[row[0] - 1];
+          }
+          return null;
+        });
+  }
+
+  /*=============================================================
+   * PUBLIC FUNCTIONS
+   *============================================================*/
+
+  /**
+   * Returns the calls made so far, in order
+   * @return the calls, each as its method name followed by its arguments
+   */
+  public List<String> getCalls() {
+    return mCalls;
+  }
+
+  /**
+   * Returns the recording connection
+   * @return the connection
+   */
+  public Connection getConnection() {
+    return mConnection;
+  }
+
+  /**
+   * Returns the number of statements sent to the database so far. A batch counts once, as it
+   * would with the batches rewritten by the driver
+   * @return the statement count
+   */
+  public int getStatementCount() {
+    int count = 0;
+    for (String call : mCalls) {
+      if (call.startsWith("execute")) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Sets the keys returned as generated by the next insert
+   * @param keys the generated keys, in row order
+   * @return the recorder reference
+   */
+  public JdbcRecorder setGeneratedKeys(long... keys) {
+    mGeneratedKeys = keys;
+    return this;
+  }
+
+  /**
+   * Sets the row count returned by updates
+   * @param updateCount the update count
+   * @return the recorder reference
+   */
+  public JdbcRecorder setUpdateCount(int updateCount) {
+    mUpdateCount = updateCount;
+    return this;
+  }
+
+  /**
+   * Sets the row counts returned by batches
+   * @param updateCounts the update count of each row of the batch
+   * @return the recorder reference
+   */
+  public JdbcRecorder setUpdateCounts(int... updateCounts) {
+    mUpdateCounts = updateCounts;
+    return this;
+  }
+}
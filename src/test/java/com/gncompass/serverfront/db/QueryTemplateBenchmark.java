@@ -0,0 +1,119 @@
+package com.gncompass.serverfront.db;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares building the loan detail select on every execution, as the models did, with binding
+ * the precompiled template of the same shape. Both sides stop short of the driver, so only the
+ * statement building, the parameter gathering and the column layout are measured. Not run by the
+ * build. Run it with:
+ *
+ * <pre>
+ * mvn -B test-compile dependency:build-classpath -Dmdep.outputFile=target/test.classpath
+ * java -cp target/test-classes:target/serverfront-1.0-SNAPSHOT/WEB-INF/classes:$(cat \
+ *     target/test.classpath) com.gncompass.serverfront.db.QueryTemplateBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class QueryTemplateBenchmark {
+  // The precompiled shape of the loan detail select
+  private static final QueryTemplate SELECT_WITH_DETAIL =
+      QueryTemplate.compile(buildSelectDetailSql(null, null));
+
+  private long mBorrowerId = 42L;
+  private byte[] mReference = new byte[16];
+
+  /**
+   * Builds the loan detail select, the widest of the model queries
+   * @param borrower the borrower value to bind. NULL to only declare the slot
+   * @param reference the loan reference value to bind. NULL to only declare the slot
+   * @return the select builder
+   */
+  private static SelectBuilder buildSelectDetailSql(SQLParameter borrower,
+                                                    SQLParameter reference) {
+    SelectBuilder selectBuilder = new SelectBuilder("Loans");
+    for (String column : new String[] {"id", "reference", "created", "principal", "rating", "rate",
+                                       "start_date", "principal_paid", "balance",
+                                       "next_payment_amount", "next_payment_interest",
+                                       "next_payment_due"}) {
+      selectBuilder.column("Loans." + column);
+    }
+    for (String column : new String[] {"id", "reference", "login_id", "enabled", "institution",
+                                       "transit", "account"}) {
+      selectBuilder.column("BankConnections." + column);
+    }
+    for (String column : new String[] {"id", "code", "name", "country", "enabled"}) {
+      selectBuilder.column("Banks." + column);
+    }
+    for (String column : new String[] {"id", "name", "months"}) {
+      selectBuilder.column("LoanAmortizations." + column);
+    }
+    for (String column : new String[] {"id", "name", "days", "per_month"}) {
+      selectBuilder.column("LoanFrequencies." + column);
+    }
+    selectBuilder.join("BankConnections", "BankConnections.id=Loans.bank")
+                 .join("Banks", "Banks.id=BankConnections.institution")
+                 .join("LoanAmortizations", "LoanAmortizations.id=Loans.amortization")
+                 .join("LoanFrequencies", "LoanFrequencies.id=Loans.frequency");
+    if (borrower != null) {
+      selectBuilder.where("Loans.borrower=?", borrower).where("Loans.reference=?", reference);
+    } else {
+      selectBuilder.where("Loans.borrower=?").where("Loans.reference=?");
+    }
+    return selectBuilder;
+  }
+
+  /*=============================================================
+   * BENCHMARKS
+   *============================================================*/
+
+  @Benchmark
+  public void buildPerExecution(Blackhole blackhole) {
+    SelectBuilder selectBuilder =
+        buildSelectDetailSql(SQLParameter.of(mBorrowerId), SQLParameter.of(mReference));
+    List<SQLParameter> params = selectBuilder.getParameters();
+    ColumnLayout layout = new ColumnLayout(selectBuilder.getColumns());
+    blackhole.consume(selectBuilder.toString());
+    blackhole.consume(params);
+    blackhole.consume(layout.getStart("Banks"));
+  }
+
+  @Benchmark
+  public void template(Blackhole blackhole) {
+    SQLParameter[] params =
+        new SQLParameter[] {SQLParameter.of(mBorrowerId), SQLParameter.of(mReference)};
+    blackhole.consume(SELECT_WITH_DETAIL.toString());
+    blackhole.consume(params);
+    blackhole.consume(SELECT_WITH_DETAIL.getLayout().getStart("Banks"));
+  }
+
+  /*=============================================================
+   * MAIN
+   *============================================================*/
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(QueryTemplateBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
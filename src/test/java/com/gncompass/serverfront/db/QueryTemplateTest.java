@@ -0,0 +1,188 @@
+package com.gncompass.serverfront.db;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests compiling the builders into query templates and binding the templates
+ */
+@RunWith(JUnit4.class)
+public class QueryTemplateTest {
+  private Connection mConnection;
+  private JdbcRecorder mRecorder;
+
+  @Before
+  public void setUp() {
+    mRecorder = new JdbcRecorder();
+    mConnection = mRecorder.getConnection();
+  }
+
+  /*=============================================================
+   * COMPILE
+   *============================================================*/
+
+  @Test
+  public void compile_rendersBuilderSqlAndCountsSlots() {
+    QueryTemplate template = QueryTemplate.compile(
+        new SelectBuilder("Loans")
+            .column("Loans.id")
+            .column("Loans.principal")
+            .join("Banks", "Banks.id=Loans.bank AND Banks.country=?")
+            .where("Loans.borrower=?")
+            .where("Loans.reference=?"));
+
+    assertThat(template.toString()).isEqualTo(
+        "SELECT Loans.id, Loans.principal FROM Loans "
+        + "JOIN Banks ON Banks.id=Loans.bank AND Banks.country=? "
+        + "WHERE Loans.borrower=? AND Loans.reference=?");
+    assertThat(template.getSlotCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void compile_rendersInsertAndUpdateSql() {
+    QueryTemplate insert = QueryTemplate.compile(
+        new InsertBuilder("TransactionDetails").set("type", "?").set("amount", "?"));
+    QueryTemplate update = QueryTemplate.compile(
+        new UpdateBuilder("Borrowers").set("loan_cap=?").where("id=?"));
+
+    assertThat(insert.toString())
+        .isEqualTo("INSERT INTO TransactionDetails (type, amount) VALUES (?, ?)");
+    assertThat(insert.getSlotCount()).isEqualTo(2);
+    assertThat(update.toString()).isEqualTo("UPDATE Borrowers SET loan_cap=? WHERE id=?");
+    assertThat(update.getSlotCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void compile_rejectsBoundValues() {
+    try {
+      QueryTemplate.compile(new SelectBuilder("Loans")
+          .column("Loans.id")
+          .where("Loans.borrower=?", SQLParameter.of(1L)));
+      fail("Expected the bound value to be rejected");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void compile_countsNoSlotsWithoutBinds() {
+    assertThat(QueryTemplate.compile("SELECT id FROM Banks").getSlotCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void getLayout_mapsTheFirstColumnOfEachTable() {
+    QueryTemplate template = QueryTemplate.compile(
+        new SelectBuilder("Loans")
+            .column("Loans.id")
+            .column("Loans.principal")
+            .column("Banks.id")
+            .column("Banks.name")
+            .join("Banks", "Banks.id=Loans.bank"));
+
+    assertThat(template.getLayout().getStart("Loans")).isEqualTo(1);
+    assertThat(template.getLayout().getStart("Banks")).isEqualTo(3);
+    assertThat(template.getLayout().contains("Countries")).isFalse();
+  }
+
+  @Test
+  public void getLayout_rejectsNonSelects() {
+    try {
+      QueryTemplate.compile("DELETE FROM UserSessions WHERE id=?").getLayout();
+      fail("Expected a template without a select to have no layout");
+    } catch (IllegalStateException e) {
+      // Expected
+    }
+  }
+
+  /*=============================================================
+   * BIND
+   *============================================================*/
+
+  @Test
+  public void prepare_bindsValuesInSlotOrder() throws SQLException {
+    QueryTemplate template =
+        QueryTemplate.compile("UPDATE Users SET name=? WHERE id=? AND flags=?");
+
+    assertThat(template.prepare(mConnection, SQLParameter.of("Name"), SQLParameter.of(7L),
+                                SQLParameter.ofNull()))
+        .isNotNull();
+    assertThat(mRecorder.getCalls()).containsExactly(
+        "prepareStatement[UPDATE Users SET name=? WHERE id=? AND flags=?]",
+        "setString[1, Name]", "setLong[2, 7]", "setNull[3, 0]").inOrder();
+  }
+
+  @Test
+  public void prepare_rejectsWrongValueCount() throws SQLException {
+    QueryTemplate template = QueryTemplate.compile("DELETE FROM UserSessions WHERE id=?");
+    try {
+      template.prepare(mConnection);
+      fail("Expected too few values to be rejected");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    try {
+      template.prepare(mConnection, SQLParameter.of(1L), SQLParameter.of(2L));
+      fail("Expected too many values to be rejected");
+    } catch (IllegalArgumentException e) {
+      // Expected
+    }
+    assertThat(mRecorder.getCalls()).isEmpty();
+  }
+
+  @Test
+  public void executeForKey_returnsTheGeneratedKeyInOneStatement() throws SQLException {
+    QueryTemplate template = QueryTemplate.compile("INSERT INTO Loans (reference) VALUES (?)");
+    mRecorder.setGeneratedKeys(42L);
+
+    assertThat(template.executeForKey(mConnection, SQLParameter.of(7L))).isEqualTo(42L);
+    assertThat(mRecorder.getCalls()).containsExactly(
+        "prepareStatement[INSERT INTO Loans (reference) VALUES (?), 1]", "setLong[1, 7]",
+        "executeUpdate[]", "getGeneratedKeys[]").inOrder();
+  }
+
+  @Test
+  public void executeForKey_failsWithoutGeneratedKey() {
+    QueryTemplate template = QueryTemplate.compile("INSERT INTO Loans (reference) VALUES (?)");
+    try {
+      template.executeForKey(mConnection, SQLParameter.of(7L));
+      fail("Expected the missing key to fail the insert");
+    } catch (SQLException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void executeBatch_bindsEachRow() throws SQLException {
+    QueryTemplate template = QueryTemplate.compile("DELETE FROM UserSessions WHERE id=?");
+    mRecorder.setUpdateCounts(1, 1);
+
+    assertThat(template.executeBatch(mConnection, Arrays.asList(
+        new SQLParameter[] {SQLParameter.of(1L)}, new SQLParameter[] {SQLParameter.of(2L)})))
+        .isEqualTo(new int[] {1, 1});
+    assertThat(mRecorder.getCalls()).containsExactly(
+        "prepareStatement[DELETE FROM UserSessions WHERE id=?]",
+        "setLong[1, 1]", "addBatch[]", "setLong[1, 2]", "addBatch[]", "executeBatch[]").inOrder();
+  }
+
+  @Test
+  public void executeBatch_skipsEmptyBatches() throws SQLException {
+    QueryTemplate template = QueryTemplate.compile("DELETE FROM UserSessions WHERE id=?");
+
+    assertThat(template.executeBatch(mConnection, Collections.<SQLParameter[]>emptyList()))
+        .isEmpty();
+    assertThat(template.executeBatchForKeys(mConnection,
+                                            Collections.<SQLParameter[]>emptyList()))
+        .isEmpty();
+    assertThat(mRecorder.getCalls()).isEmpty();
+  }
+}
@@ -0,0 +1,60 @@
+package com.gncompass.serverfront.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.appengine.tools.development.testing.LocalMemcacheServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests sharing the recent writer marks through memcache, so reads stay on the primary on every
+ * instance
+ */
+@RunWith(JUnit4.class)
+public class RecentWritersTest {
+  private static final String PRINCIPAL = "a3bb189e-8bf9-4888-9912-ace4e6543002";
+
+  private final LocalServiceTestHelper mHelper =
+      new LocalServiceTestHelper(new LocalMemcacheServiceTestConfig());
+
+  // Two instances, sharing the same memcache
+  private RecentWriters mOtherWriters;
+  private RecentWriters mWriters;
+
+  @Before
+  public void setUp() {
+    mHelper.setUp();
+    mOtherWriters = new RecentWriters();
+    mWriters = new RecentWriters();
+  }
+
+  @After
+  public void tearDown() {
+    mHelper.tearDown();
+  }
+
+  @Test
+  public void mark_isSeenByOtherInstances() {
+    assertThat(mOtherWriters.contains(PRINCIPAL)).isFalse();
+
+    mWriters.mark(PRINCIPAL, 10000L);
+
+    assertThat(mWriters.contains(PRINCIPAL)).isTrue();
+    assertThat(mOtherWriters.contains(PRINCIPAL)).isTrue();
+    assertThat(mOtherWriters.contains("7c9e6679-7425-40de-944b-e07fc1f90ae7")).isFalse();
+  }
+
+  @Test
+  public void mark_expiresAfterStickyWindow() throws InterruptedException {
+    mWriters.mark(PRINCIPAL, 1000L);
+    Thread.sleep(1100L);
+
+    assertThat(mWriters.contains(PRINCIPAL)).isFalse();
+    assertThat(mOtherWriters.contains(PRINCIPAL)).isFalse();
+  }
+}
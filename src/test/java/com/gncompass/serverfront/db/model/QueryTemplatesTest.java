@@ -0,0 +1,330 @@
+package com.gncompass.serverfront.db.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.gncompass.serverfront.db.QueryTemplate;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests that the precompiled query of every model renders the SQL the model binds its values to,
+ * with the expected number of slots. The models bind in slot order, so a change to a query shape
+ * must be matched here and at the call sites binding it.
+ */
+@RunWith(JUnit4.class)
+public class QueryTemplatesTest {
+  // The models declaring precompiled queries
+  private static final Class<?>[] MODELS = {
+      Assessment.class, AssessmentFile.class, Bank.class, BankConnection.class, Borrower.class,
+      Country.class, Investor.class, Loan.class, LoanAmortization.class, LoanFrequency.class,
+      LoanPayment.class, TransactionDetail.class, User.class, UserSession.class
+  };
+
+  private final Map<String, String> mSql = new LinkedHashMap<>();
+  private final Map<String, Integer> mSlots = new LinkedHashMap<>();
+
+  /**
+   * Registers the expected rendering of a model template
+   * @param model the model class declaring the template
+   * @param field the name of the static template field
+   * @param slots the expected number of bind slots
+   * @param sql the expected SQL
+   */
+  private void expect(Class<?> model, String field, int slots, String sql) {
+    String name = model.getSimpleName() + "." + field;
+    mSlots.put(name, slots);
+    mSql.put(name, sql);
+  }
+
+  /**
+   * Reads every static query template declared by the models
+   * @return the templates, by model and field name
+   */
+  private static Map<String, QueryTemplate> readTemplates() throws IllegalAccessException {
+    Map<String, QueryTemplate> templates = new LinkedHashMap<>();
+    for (Class<?> model : MODELS) {
+      for (Field field : model.getDeclaredFields()) {
+        if (field.getType() == QueryTemplate.class && Modifier.isStatic(field.getModifiers())) {
+          field.setAccessible(true);
+          templates.put(model.getSimpleName() + "." + field.getName(),
+                        (QueryTemplate) field.get(null));
+        }
+      }
+    }
+    return templates;
+  }
+
+  @Before
+  public void setUp() {
+    // Assessment
+    expect(Assessment.class, "INSERT", 3,
+           "INSERT INTO Assessments (reference, borrower, status) VALUES (?, ?, ?)");
+    expect(Assessment.class, "SELECT_FOR_BORROWER", 1,
+           "SELECT Assessments.id, Assessments.reference, Assessments.registered, "
+           + "Assessments.updated, Assessments.status, Assessments.rating, Ratings.loan_rate "
+           + "FROM Assessments LEFT JOIN Ratings ON Ratings.id=Assessments.rating WHERE "
+           + "Assessments.borrower=?");
+    expect(Assessment.class, "SELECT_PAGE_FOR_BORROWER", 2,
+           "SELECT Assessments.id, Assessments.reference, Assessments.registered, "
+           + "Assessments.updated, Assessments.status, Assessments.rating, Ratings.loan_rate "
+           + "FROM Assessments LEFT JOIN Ratings ON Ratings.id=Assessments.rating WHERE "
+           + "Assessments.borrower=? ORDER BY Assessments.registered ASC, Assessments.id ASC "
+           + "LIMIT ?");
+    expect(Assessment.class, "SELECT_PAGE_AFTER_FOR_BORROWER", 5,
+           "SELECT Assessments.id, Assessments.reference, Assessments.registered, "
+           + "Assessments.updated, Assessments.status, Assessments.rating, Ratings.loan_rate "
+           + "FROM Assessments LEFT JOIN Ratings ON Ratings.id=Assessments.rating WHERE "
+           + "Assessments.borrower=? AND (Assessments.registered>? OR (Assessments.registered=? "
+           + "AND Assessments.id>?)) ORDER BY Assessments.registered ASC, Assessments.id ASC "
+           + "LIMIT ?");
+    expect(Assessment.class, "SELECT_BY_REFERENCE", 2,
+           "SELECT Assessments.id, Assessments.reference, Assessments.registered, "
+           + "Assessments.updated, Assessments.status, Assessments.rating, Ratings.loan_rate "
+           + "FROM Assessments LEFT JOIN Ratings ON Ratings.id=Assessments.rating WHERE "
+           + "Assessments.borrower=? AND Assessments.reference=?");
+    expect(Assessment.class, "SELECT_INSERTED", 1,
+           "SELECT Assessments.id, Assessments.reference, Assessments.registered, "
+           + "Assessments.updated, Assessments.status, Assessments.rating, Ratings.loan_rate "
+           + "FROM Assessments LEFT JOIN Ratings ON Ratings.id=Assessments.rating WHERE "
+           + "Assessments.borrower=? AND Assessments.id=LAST_INSERT_ID()");
+    expect(Assessment.class, "SELECT_LAST_APPROVED", 2,
+           "SELECT Assessments.id, Assessments.reference, Assessments.registered, "
+           + "Assessments.updated, Assessments.status, Assessments.rating, Ratings.loan_rate "
+           + "FROM Assessments LEFT JOIN Ratings ON Ratings.id=Assessments.rating WHERE "
+           + "Assessments.borrower=? AND Assessments.status=? ORDER BY Assessments.id DESC LIMIT "
+           + "1");
+    expect(Assessment.class, "UPDATE_APPROVE", 3,
+           "UPDATE Assessments SET Assessments.status=?, Assessments.rating=?, "
+           + "Assessments.updated=NOW() WHERE Assessments.id=?");
+    expect(Assessment.class, "UPDATE_SUBMIT", 2,
+           "UPDATE Assessments SET Assessments.status=?, Assessments.updated=NOW() WHERE "
+           + "Assessments.id=?");
+
+    // AssessmentFile
+    expect(AssessmentFile.class, "SELECT_FILE", 3,
+           "SELECT AssessmentFiles.id, AssessmentFiles.bucket, AssessmentFiles.filename, "
+           + "AssessmentFiles.type, AssessmentFiles.uploaded FROM AssessmentFiles JOIN "
+           + "Assessments ON Assessments.id=AssessmentFiles.assessment AND "
+           + "Assessments.borrower=? AND Assessments.reference=? WHERE AssessmentFiles.filename=?");
+    expect(AssessmentFile.class, "UPDATE_UPLOADED", 1,
+           "UPDATE AssessmentFiles SET AssessmentFiles.uploaded=NOW() WHERE "
+           + "AssessmentFiles.id=?");
+
+    // Bank
+    expect(Bank.class, "SELECT_ALL", 0,
+           "SELECT Banks.id, Banks.code, Banks.name, Banks.country, Banks.enabled FROM Banks");
+    expect(Bank.class, "SELECT_BY_ID", 2,
+           "SELECT Banks.id, Banks.code, Banks.name, Banks.country, Banks.enabled FROM Banks "
+           + "WHERE Banks.id=? AND Banks.country=?");
+
+    // BankConnection
+    expect(BankConnection.class, "INSERT", 6,
+           "INSERT INTO BankConnections (reference, user_id, login_id, institution, transit, "
+           + "account) VALUES (?, ?, ?, ?, ?, ?)");
+    expect(BankConnection.class, "SELECT_BY_REFERENCE", 2,
+           "SELECT BankConnections.id, BankConnections.reference, BankConnections.login_id, "
+           + "BankConnections.enabled, BankConnections.institution, BankConnections.transit, "
+           + "BankConnections.account, Banks.id, Banks.code, Banks.name, Banks.country, "
+           + "Banks.enabled FROM BankConnections JOIN Banks ON "
+           + "Banks.id=BankConnections.institution WHERE BankConnections.user_id=? AND "
+           + "BankConnections.reference=?");
+    expect(BankConnection.class, "SELECT_FOR_USER", 1,
+           "SELECT BankConnections.id, BankConnections.reference, BankConnections.login_id, "
+           + "BankConnections.enabled, BankConnections.institution, BankConnections.transit, "
+           + "BankConnections.account, Banks.id, Banks.code, Banks.name, Banks.country, "
+           + "Banks.enabled FROM BankConnections JOIN Banks ON "
+           + "Banks.id=BankConnections.institution WHERE BankConnections.user_id=?");
+    expect(BankConnection.class, "SELECT_PAGE_FOR_USER", 2,
+           "SELECT BankConnections.id, BankConnections.reference, BankConnections.login_id, "
+           + "BankConnections.enabled, BankConnections.institution, BankConnections.transit, "
+           + "BankConnections.account, Banks.id, Banks.code, Banks.name, Banks.country, "
+           + "Banks.enabled FROM BankConnections JOIN Banks ON "
+           + "Banks.id=BankConnections.institution WHERE BankConnections.user_id=? ORDER BY "
+           + "BankConnections.id ASC LIMIT ?");
+    expect(BankConnection.class, "SELECT_PAGE_AFTER_FOR_USER", 3,
+           "SELECT BankConnections.id, BankConnections.reference, BankConnections.login_id, "
+           + "BankConnections.enabled, BankConnections.institution, BankConnections.transit, "
+           + "BankConnections.account, Banks.id, Banks.code, Banks.name, Banks.country, "
+           + "Banks.enabled FROM BankConnections JOIN Banks ON "
+           + "Banks.id=BankConnections.institution WHERE BankConnections.user_id=? AND "
+           + "BankConnections.id>? ORDER BY BankConnections.id ASC LIMIT ?");
+
+    // Borrower
+    expect(Borrower.class, "INSERT", 5,
+           "INSERT INTO Borrowers (id, reference, email, phone, employer, job_title) VALUES "
+           + "(LAST_INSERT_ID(), ?, ?, ?, ?, ?)");
+    expect(Borrower.class, "SELECT_BY_EMAIL", 1,
+           "SELECT Users.id, Users.password, Users.password_date, Users.name, Users.enabled, "
+           + "Users.flags, Users.address1, Users.address2, Users.address3, Users.city, "
+           + "Users.province, Users.post_code, Users.country, Users.created, "
+           + "Borrowers.reference, Borrowers.email, Borrowers.phone, Borrowers.employer, "
+           + "Borrowers.job_title, Borrowers.loan_cap FROM Borrowers JOIN Users ON "
+           + "Users.id=Borrowers.id AND Users.type=Borrowers.type WHERE Borrowers.email=?");
+    expect(Borrower.class, "SELECT_BY_REFERENCE", 1,
+           "SELECT Users.id, Users.password, Users.password_date, Users.name, Users.enabled, "
+           + "Users.flags, Users.address1, Users.address2, Users.address3, Users.city, "
+           + "Users.province, Users.post_code, Users.country, Users.created, "
+           + "Borrowers.reference, Borrowers.email, Borrowers.phone, Borrowers.employer, "
+           + "Borrowers.job_title, Borrowers.loan_cap FROM Borrowers JOIN Users ON "
+           + "Users.id=Borrowers.id AND Users.type=Borrowers.type WHERE Borrowers.reference=?");
+    expect(Borrower.class, "SELECT_EMAIL_EXISTS", 1,
+           "SELECT id FROM Borrowers WHERE email=?");
+    expect(Borrower.class, "UPDATE", 4,
+           "UPDATE Borrowers SET employer=?, job_title=?, phone=? WHERE id=?");
+    expect(Borrower.class, "UPDATE_LOAN_CAP", 2,
+           "UPDATE Borrowers SET loan_cap=? WHERE id=?");
+
+    // Country
+    expect(Country.class, "SELECT_ALL", 0,
+           "SELECT Countries.id, Countries.code, Countries.name, Countries.region, "
+           + "Countries.enabled FROM Countries");
+    expect(Country.class, "SELECT_BY_CODE", 1,
+           "SELECT Countries.id, Countries.code, Countries.name, Countries.region, "
+           + "Countries.enabled FROM Countries WHERE Countries.code=? AND Countries.enabled=1");
+    expect(Country.class, "SELECT_BY_ID", 1,
+           "SELECT Countries.id, Countries.code, Countries.name, Countries.region, "
+           + "Countries.enabled FROM Countries WHERE Countries.id=?");
+
+    // Investor
+    expect(Investor.class, "SELECT_BY_REFERENCE", 1,
+           "SELECT Users.id, Users.password, Users.password_date, Users.name, Users.enabled, "
+           + "Users.flags, Users.address1, Users.address2, Users.address3, Users.city, "
+           + "Users.province, Users.post_code, Users.country, Users.created, "
+           + "Investors.reference, Investors.email, Investors.pay_day FROM Investors JOIN Users "
+           + "ON Users.id=Investors.id AND Users.type=Investors.type WHERE Investors.reference=?");
+
+    // Loan
+    expect(Loan.class, "INSERT", 9,
+           "INSERT INTO Loans (reference, borrower, bank, principal, balance, rating, rate, "
+           + "amortization, frequency, start_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, CURDATE())");
+    expect(Loan.class, "SELECT_FOR_BORROWER", 1,
+           "SELECT Loans.id, Loans.reference, Loans.created, Loans.principal, Loans.rating, "
+           + "Loans.rate, Loans.start_date, Loans.principal_paid, Loans.balance, "
+           + "Loans.next_payment_amount, Loans.next_payment_interest, Loans.next_payment_due "
+           + "FROM Loans WHERE Loans.borrower=?");
+    expect(Loan.class, "SELECT_PAGE_FOR_BORROWER", 2,
+           "SELECT Loans.id, Loans.reference, Loans.created, Loans.principal, Loans.rating, "
+           + "Loans.rate, Loans.start_date, Loans.principal_paid, Loans.balance, "
+           + "Loans.next_payment_amount, Loans.next_payment_interest, Loans.next_payment_due "
+           + "FROM Loans WHERE Loans.borrower=? ORDER BY Loans.created ASC, Loans.id ASC LIMIT ?");
+    expect(Loan.class, "SELECT_PAGE_AFTER_FOR_BORROWER", 5,
+           "SELECT Loans.id, Loans.reference, Loans.created, Loans.principal, Loans.rating, "
+           + "Loans.rate, Loans.start_date, Loans.principal_paid, Loans.balance, "
+           + "Loans.next_payment_amount, Loans.next_payment_interest, Loans.next_payment_due "
+           + "FROM Loans WHERE Loans.borrower=? AND (Loans.created>? OR (Loans.created=? AND "
+           + "Loans.id>?)) ORDER BY Loans.created ASC, Loans.id ASC LIMIT ?");
+    expect(Loan.class, "SELECT_TOTALS_FOR_BORROWER", 1,
+           "SELECT COUNT(id), COALESCE(SUM(principal),0) FROM Loans WHERE borrower=?");
+    expect(Loan.class, "SELECT_WITH_DETAIL", 2,
+           "SELECT Loans.id, Loans.reference, Loans.created, Loans.principal, Loans.rating, "
+           + "Loans.rate, Loans.start_date, Loans.principal_paid, Loans.balance, "
+           + "Loans.next_payment_amount, Loans.next_payment_interest, Loans.next_payment_due, "
+           + "BankConnections.id, BankConnections.reference, BankConnections.login_id, "
+           + "BankConnections.enabled, BankConnections.institution, BankConnections.transit, "
+           + "BankConnections.account, Banks.id, Banks.code, Banks.name, Banks.country, "
+           + "Banks.enabled, LoanAmortizations.id, LoanAmortizations.name, "
+           + "LoanAmortizations.months, LoanFrequencies.id, LoanFrequencies.name, "
+           + "LoanFrequencies.days, LoanFrequencies.per_month FROM Loans JOIN BankConnections ON "
+           + "BankConnections.id=Loans.bank JOIN Banks ON Banks.id=BankConnections.institution "
+           + "JOIN LoanAmortizations ON LoanAmortizations.id=Loans.amortization JOIN "
+           + "LoanFrequencies ON LoanFrequencies.id=Loans.frequency WHERE Loans.borrower=? AND "
+           + "Loans.reference=?");
+    expect(Loan.class, "UPDATE_PAYMENTS_DUE", 5,
+           "UPDATE Loans SET next_payment_amount=next_payment_amount+?, "
+           + "next_payment_interest=next_payment_interest+?, "
+           + "next_payment_due=GREATEST(COALESCE(next_payment_due,?),?) WHERE id=?");
+
+    // LoanAmortization
+    expect(LoanAmortization.class, "SELECT_ALL", 0,
+           "SELECT LoanAmortizations.id, LoanAmortizations.name, LoanAmortizations.months FROM "
+           + "LoanAmortizations");
+
+    // LoanFrequency
+    expect(LoanFrequency.class, "SELECT_ALL", 0,
+           "SELECT LoanFrequencies.id, LoanFrequencies.name, LoanFrequencies.days, "
+           + "LoanFrequencies.per_month FROM LoanFrequencies");
+
+    // LoanPayment
+    expect(LoanPayment.class, "SELECT_FOR_LOAN", 1,
+           "SELECT TransactionDetails.id, TransactionDetails.amount, Transactions.registered, "
+           + "LoanPayments.interest, LoanPayments.due_date FROM LoanPayments JOIN "
+           + "TransactionDetails ON TransactionDetails.id=LoanPayments.id AND "
+           + "TransactionDetails.type=LoanPayments.type LEFT JOIN Transactions ON "
+           + "Transactions.item=TransactionDetails.id WHERE LoanPayments.loan=? ORDER BY "
+           + "LoanPayments.due_date");
+
+    // User
+    expect(User.class, "INSERT", 6,
+           "INSERT INTO Users (type, password, name, address1, city, country) VALUES (?, ?, ?, "
+           + "?, ?, ?)");
+    expect(User.class, "UPDATE", 8,
+           "UPDATE Users SET name=?, address1=?, address2=?, address3=?, city=?, province=?, "
+           + "post_code=? WHERE id=?");
+
+    // UserSession
+    expect(UserSession.class, "DELETE_BY_ID", 1,
+           "DELETE FROM UserSessions WHERE id=?");
+    expect(UserSession.class, "DELETE_FOR_DEVICE", 2,
+           "DELETE FROM UserSessions WHERE UserSessions.user_id=? AND UserSessions.device_id=?");
+    expect(UserSession.class, "DELETE_FOR_SESSION", 3,
+           "DELETE FROM UserSessions WHERE UserSessions.user_id=? AND UserSessions.device_id=? "
+           + "AND UserSessions.session_key=?");
+    expect(UserSession.class, "INSERT", 3,
+           "INSERT INTO UserSessions (user_id, device_id, session_key) VALUES (?, ?, ?)");
+    expect(UserSession.class, "INSERT_WITH_USER", 2,
+           "INSERT INTO UserSessions (user_id, device_id, session_key) VALUES "
+           + "(LAST_INSERT_ID(), ?, ?)");
+    expect(UserSession.class, "SELECT_BORROWER_SESSION", 3,
+           "SELECT Users.id, Users.password, Users.password_date, Users.name, Users.enabled, "
+           + "Users.flags, Users.address1, Users.address2, Users.address3, Users.city, "
+           + "Users.province, Users.post_code, Users.country, Users.created, "
+           + "Borrowers.reference, Borrowers.email, Borrowers.phone, Borrowers.employer, "
+           + "Borrowers.job_title, Borrowers.loan_cap, UserSessions.id, UserSessions.user_id, "
+           + "UserSessions.device_id, UserSessions.session_key, UserSessions.created, "
+           + "UserSessions.accessed FROM UserSessions JOIN Borrowers ON Borrowers.reference=? "
+           + "JOIN Users ON Users.id=Borrowers.id AND Users.type=Borrowers.type AND "
+           + "Users.id=UserSessions.user_id WHERE UserSessions.device_id=? AND "
+           + "UserSessions.session_key=?");
+    expect(UserSession.class, "SELECT_INVESTOR_SESSION", 3,
+           "SELECT Users.id, Users.password, Users.password_date, Users.name, Users.enabled, "
+           + "Users.flags, Users.address1, Users.address2, Users.address3, Users.city, "
+           + "Users.province, Users.post_code, Users.country, Users.created, "
+           + "Investors.reference, Investors.email, Investors.pay_day, UserSessions.id, "
+           + "UserSessions.user_id, UserSessions.device_id, UserSessions.session_key, "
+           + "UserSessions.created, UserSessions.accessed FROM UserSessions JOIN Investors ON "
+           + "Investors.reference=? JOIN Users ON Users.id=Investors.id AND "
+           + "Users.type=Investors.type AND Users.id=UserSessions.user_id WHERE "
+           + "UserSessions.device_id=? AND UserSessions.session_key=?");
+  }
+
+  @Test
+  public void templates_areAllExpected() throws IllegalAccessException {
+    assertThat(readTemplates().keySet()).containsExactlyElementsIn(mSql.keySet());
+  }
+
+  @Test
+  public void templates_renderExpectedSqlAndSlotCount() throws IllegalAccessException {
+    for (Map.Entry<String, QueryTemplate> entry : readTemplates().entrySet()) {
+      QueryTemplate template = entry.getValue();
+      assertThat(template.toString()).named(entry.getKey()).isEqualTo(mSql.get(entry.getKey()));
+      assertThat(template.getSlotCount()).named(entry.getKey())
+          .isEqualTo(mSlots.get(entry.getKey()));
+    }
+  }
+
+  @Test
+  public void templates_bindEveryValue() throws IllegalAccessException {
+    // Values are never rendered into the shared SQL, only bound to its slots
+    for (Map.Entry<String, QueryTemplate> entry : readTemplates().entrySet()) {
+      assertThat(entry.getValue().toString()).named(entry.getKey()).doesNotContain("'");
+    }
+  }
+}
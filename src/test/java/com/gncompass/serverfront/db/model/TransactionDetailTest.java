@@ -0,0 +1,71 @@
+package com.gncompass.serverfront.db.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.gncompass.serverfront.db.JdbcRecorder;
+import com.gncompass.serverfront.util.Currency;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests adding the transaction details shared by every transaction item
+ */
+@RunWith(JUnit4.class)
+public class TransactionDetailTest {
+
+  /**
+   * Creates a loan payment due on the day
+   * @param day the day of the month it is due
+   * @return the loan payment
+   */
+  private static LoanPayment createPayment(int day) {
+    return new LoanPayment(new Currency(100.0d), new Currency(5.0d),
+                           Date.valueOf("2026-01-" + (day < 10 ? "0" : "") + day));
+  }
+
+  @Test
+  public void addAllToDatabase_insertsAllRowsInOneStatement() throws SQLException {
+    JdbcRecorder recorder = new JdbcRecorder().setGeneratedKeys(11L, 12L, 13L);
+    List<LoanPayment> payments = Arrays.asList(createPayment(1), createPayment(8),
+                                               createPayment(15));
+
+    assertThat(TransactionDetail.addAllToDatabase(recorder.getConnection(), payments)).isTrue();
+    assertThat(recorder.getStatementCount()).isEqualTo(1);
+    assertThat(recorder.getCalls()).contains(
+        "prepareStatement[INSERT INTO TransactionDetails (type, amount) "
+        + "VALUES (?, ?), (?, ?), (?, ?), 1]");
+    assertThat(payments.get(0).mId).isEqualTo(11L);
+    assertThat(payments.get(1).mId).isEqualTo(12L);
+    assertThat(payments.get(2).mId).isEqualTo(13L);
+  }
+
+  @Test
+  public void addAllToDatabase_skipsEmptyLists() throws SQLException {
+    JdbcRecorder recorder = new JdbcRecorder();
+
+    assertThat(TransactionDetail.addAllToDatabase(recorder.getConnection(),
+                                                  Collections.<LoanPayment>emptyList()))
+        .isTrue();
+    assertThat(recorder.getStatementCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void addAllToDatabase_rejectsMissingAmounts() throws SQLException {
+    JdbcRecorder recorder = new JdbcRecorder();
+    LoanPayment payment = createPayment(1);
+    payment.mAmount = null;
+
+    assertThat(TransactionDetail.addAllToDatabase(recorder.getConnection(),
+                                                  Arrays.asList(createPayment(8), payment)))
+        .isFalse();
+    assertThat(recorder.getStatementCount()).isEqualTo(0);
+  }
+}
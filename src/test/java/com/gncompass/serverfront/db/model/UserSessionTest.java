@@ -0,0 +1,57 @@
+package com.gncompass.serverfront.db.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.gncompass.serverfront.db.JdbcRecorder;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests writing the session accessed times flushed by the session access tracker
+ */
+@RunWith(JUnit4.class)
+public class UserSessionTest {
+
+  @Test
+  public void updateAllAccessed_writesAllSessionsInOneStatement() throws SQLException {
+    JdbcRecorder recorder = new JdbcRecorder();
+    Map<Long, Long> accessedById = new LinkedHashMap<>();
+    accessedById.put(1L, 1000L);
+    accessedById.put(2L, 2000L);
+    accessedById.put(3L, 3000L);
+
+    UserSession.updateAllAccessed(recorder.getConnection(), accessedById);
+
+    // Three sessions are padded to four by repeating the last one
+    assertThat(recorder.getStatementCount()).isEqualTo(1);
+    assertThat(recorder.getCalls()).containsExactly(
+        "prepareStatement[UPDATE UserSessions SET accessed=GREATEST(accessed,CASE id "
+        + "WHEN ? THEN ? WHEN ? THEN ? WHEN ? THEN ? WHEN ? THEN ? END) WHERE id IN (?,?,?,?)]",
+        "setLong[1, 1]", "setTimestamp[2, " + new Timestamp(1000L) + "]",
+        "setLong[3, 2]", "setTimestamp[4, " + new Timestamp(2000L) + "]",
+        "setLong[5, 3]", "setTimestamp[6, " + new Timestamp(3000L) + "]",
+        "setLong[7, 3]", "setTimestamp[8, " + new Timestamp(3000L) + "]",
+        "setLong[9, 1]", "setLong[10, 2]", "setLong[11, 3]", "setLong[12, 3]",
+        "executeUpdate[]").inOrder();
+  }
+
+  @Test
+  public void updateAllAccessed_writesOneStatementPer128Sessions() throws SQLException {
+    JdbcRecorder recorder = new JdbcRecorder();
+    Map<Long, Long> accessedById = new LinkedHashMap<>();
+    for (long id = 1L; id <= 300L; id++) {
+      accessedById.put(id, id * 1000L);
+    }
+
+    UserSession.updateAllAccessed(recorder.getConnection(), accessedById);
+
+    assertThat(recorder.getStatementCount()).isEqualTo(3);
+  }
+}
@@ -0,0 +1,113 @@
+package com.gncompass.serverfront.util;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the hand-written UUID and access key checks of the string helper with the regular
+ * expressions they replaced. Not run by the build. Run it with:
+ *
+ * <pre>
+ * mvn -B test-compile dependency:build-classpath -Dmdep.outputFile=target/test.classpath
+ * java -cp target/test-classes:target/serverfront-1.0-SNAPSHOT/WEB-INF/classes:$(cat \
+ *     target/test.classpath) com.gncompass.serverfront.util.StringHelperBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class StringHelperBenchmark {
+  // The expressions the checks replaced, run the way they were, by String.matches()
+  private static final String REGEX_UUID =
+      "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[34][0-9a-fA-F]{3}-[89abAB][0-9a-fA-F]{3}-[0-9a-fA-F]{12}";
+  private static final String REGEX_ACCESS_KEY = "^" + REGEX_UUID + "-" + REGEX_UUID + "$";
+  private static final String REGEX_UUID_ONLY = "^" + REGEX_UUID + "$";
+
+  private String mAccessKey = "0f8fad5b-d9cb-469f-a165-70867728950e-"
+                              + "7c9e6679-7425-40de-944b-e07fc1f90ae7";
+  private String mInvalidUuid = "0f8fad5b-d9cb-469f-a165-70867728950g";
+  private String mUuid = "0f8fad5b-d9cb-469f-a165-70867728950e";
+
+  /*=============================================================
+   * UUID
+   *============================================================*/
+
+  @Benchmark
+  public boolean isUuidRegex() {
+    return mUuid.matches(REGEX_UUID_ONLY);
+  }
+
+  @Benchmark
+  public boolean isUuid() {
+    return StringHelper.isUuid(mUuid);
+  }
+
+  @Benchmark
+  public boolean isUuidInvalidRegex() {
+    return mInvalidUuid.matches(REGEX_UUID_ONLY);
+  }
+
+  @Benchmark
+  public boolean isUuidInvalid() {
+    return StringHelper.isUuid(mInvalidUuid);
+  }
+
+  @Benchmark
+  public UUID parseUuidRegex() {
+    return (mUuid.matches(REGEX_UUID_ONLY) ? UUID.fromString(mUuid) : null);
+  }
+
+  @Benchmark
+  public UUID parseUuid() {
+    return StringHelper.parseUuid(mUuid);
+  }
+
+  /*=============================================================
+   * ACCESS KEY
+   *============================================================*/
+
+  /**
+   * The old split: checked by regex, then both halves cut out and parsed to bind them
+   */
+  @Benchmark
+  public long getAccessKeyRegex() {
+    if (mAccessKey.matches(REGEX_ACCESS_KEY)) {
+      UUID deviceId = UUID.fromString(mAccessKey.substring(0, 36));
+      UUID sessionKey = UUID.fromString(mAccessKey.substring(37));
+      return deviceId.getLeastSignificantBits() ^ sessionKey.getLeastSignificantBits();
+    }
+    return 0L;
+  }
+
+  @Benchmark
+  public long getAccessKey() {
+    StringHelper.AccessKey accessKey = StringHelper.getAccessKey(mAccessKey);
+    return (accessKey != null ? accessKey.deviceIdLeast ^ accessKey.sessionKeyLeast : 0L);
+  }
+
+  /*=============================================================
+   * MAIN
+   *============================================================*/
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(StringHelperBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
@@ -0,0 +1,198 @@
+package com.gncompass.serverfront.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.gncompass.serverfront.util.StringHelper.AccessKey;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests the hand-written UUID and access key checks of the string helper, which gate the session
+ * validation
+ */
+@RunWith(JUnit4.class)
+public class StringHelperTest {
+  private static final String UUID_LOWER = "0f8fad5b-d9cb-469f-a165-70867728950e";
+  private static final String UUID_UPPER = "7C9E6679-7425-40DE-944B-E07FC1F90AE7";
+  private static final String UUID_V3 = "a3bb189e-8bf9-3888-9912-ace4e6543002";
+
+  // The expressions the checks replaced, which they must agree with
+  private static final String REGEX_UUID =
+      "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[34][0-9a-fA-F]{3}-[89abAB][0-9a-fA-F]{3}-[0-9a-fA-F]{12}";
+  private static final Pattern PATTERN_ACCESS_KEY =
+      Pattern.compile("^" + REGEX_UUID + "-" + REGEX_UUID + "$");
+  private static final Pattern PATTERN_UUID = Pattern.compile("^" + REGEX_UUID + "$");
+
+  /**
+   * Changes one character of the string to another UUID or non-UUID character
+   * @param random the random source
+   * @param value the string to change
+   * @return the changed string
+   */
+  private static String corrupt(Random random, String value) {
+    final String chars = "0123456789abcdefABCDEFgG-_ z";
+    char[] corrupted = value.toCharArray();
+    corrupted[random.nextInt(corrupted.length)] = chars.charAt(random.nextInt(chars.length()));
+    return new String(corrupted);
+  }
+
+  /**
+   * Creates a random version 4 UUID string, in random case
+   * @param random the random source
+   * @return the UUID string
+   */
+  private static String randomUuid(Random random) {
+    String uuid = new UUID(random.nextLong(), random.nextLong()).toString();
+    char[] chars = uuid.toCharArray();
+    chars[14] = '4';
+    chars[19] = "89ab".charAt(random.nextInt(4));
+    uuid = new String(chars);
+    return (random.nextBoolean() ? uuid : uuid.toUpperCase());
+  }
+
+  /*=============================================================
+   * UUID
+   *============================================================*/
+
+  @Test
+  public void isUuid_acceptsLowerUpperAndMixedCase() {
+    assertThat(StringHelper.isUuid(UUID_LOWER)).isTrue();
+    assertThat(StringHelper.isUuid(UUID_UPPER)).isTrue();
+    assertThat(StringHelper.isUuid("0F8fAD5b-d9CB-469f-A165-70867728950E")).isTrue();
+    assertThat(StringHelper.isUuid(UUID_V3)).isTrue();
+  }
+
+  @Test
+  public void isUuid_rejectsOtherVersionsAndVariants() {
+    assertThat(StringHelper.isUuid("0f8fad5b-d9cb-169f-a165-70867728950e")).isFalse();
+    assertThat(StringHelper.isUuid("0f8fad5b-d9cb-569f-a165-70867728950e")).isFalse();
+    assertThat(StringHelper.isUuid("0f8fad5b-d9cb-469f-7165-70867728950e")).isFalse();
+    assertThat(StringHelper.isUuid("0f8fad5b-d9cb-469f-c165-70867728950e")).isFalse();
+    assertThat(StringHelper.isUuid("0f8fad5b-d9cb-469f-C165-70867728950e")).isFalse();
+  }
+
+  @Test
+  public void isUuid_rejectsNonHexDigits() {
+    assertThat(StringHelper.isUuid("0f8fad5g-d9cb-469f-a165-70867728950e")).isFalse();
+    assertThat(StringHelper.isUuid("0f8fad5b-d9cb-469f-a165-70867728950G")).isFalse();
+    assertThat(StringHelper.isUuid("0f8fad5b-d9cb-469f-a165-7086772895 e")).isFalse();
+  }
+
+  @Test
+  public void isUuid_rejectsWrongHyphenPositions() {
+    assertThat(StringHelper.isUuid("0f8fad5bd-9cb-469f-a165-70867728950e")).isFalse();
+    assertThat(StringHelper.isUuid("0f8fad5b-d9cb4-69f-a165-70867728950e")).isFalse();
+    assertThat(StringHelper.isUuid("0f8fad5b-d9cb-469fa-165-70867728950e")).isFalse();
+    assertThat(StringHelper.isUuid("0f8fad5b-d9cb-469f-a1657-0867728950e")).isFalse();
+    assertThat(StringHelper.isUuid("0f8fad5b_d9cb_469f_a165_70867728950e")).isFalse();
+    assertThat(StringHelper.isUuid("0f8fad5bd9cb469fa16570867728950e")).isFalse();
+  }
+
+  @Test
+  public void isUuid_rejectsTruncatedAndOverLongInput() {
+    assertThat(StringHelper.isUuid("")).isFalse();
+    assertThat(StringHelper.isUuid(UUID_LOWER.substring(0, 35))).isFalse();
+    assertThat(StringHelper.isUuid(UUID_LOWER.substring(1))).isFalse();
+    assertThat(StringHelper.isUuid(UUID_LOWER + "0")).isFalse();
+    assertThat(StringHelper.isUuid(UUID_LOWER + "\n")).isFalse();
+    assertThat(StringHelper.isUuid(" " + UUID_LOWER)).isFalse();
+  }
+
+  @Test
+  public void isUuid_checksRegionOnly() {
+    String path = "/borrowers/" + UUID_LOWER + "/loans";
+    int start = "/borrowers/".length();
+    assertThat(StringHelper.isUuid(path, start, start + 36)).isTrue();
+    assertThat(StringHelper.isUuid(path, start, start + 35)).isFalse();
+    assertThat(StringHelper.isUuid(path, start - 1, start + 35)).isFalse();
+    assertThat(StringHelper.isUuid(path, path.length() - 5, path.length() + 31)).isFalse();
+  }
+
+  @Test
+  public void isUuid_comparesWithUuid() {
+    UUID uuid = UUID.fromString(UUID_UPPER);
+    assertThat(StringHelper.isUuid(UUID_UPPER, uuid)).isTrue();
+    assertThat(StringHelper.isUuid(UUID_UPPER.toLowerCase(), uuid)).isTrue();
+    assertThat(StringHelper.isUuid(UUID_LOWER, uuid)).isFalse();
+    assertThat(StringHelper.isUuid(UUID_UPPER.substring(1), uuid)).isFalse();
+    assertThat(StringHelper.isUuid(UUID_UPPER, null)).isFalse();
+    assertThat(StringHelper.isUuid(null, uuid)).isFalse();
+  }
+
+  @Test
+  public void parseUuid_matchesUuidFromString() {
+    assertThat(StringHelper.parseUuid(UUID_LOWER)).isEqualTo(UUID.fromString(UUID_LOWER));
+    assertThat(StringHelper.parseUuid(UUID_UPPER)).isEqualTo(UUID.fromString(UUID_UPPER));
+    assertThat(StringHelper.parseUuid(UUID_V3)).isEqualTo(UUID.fromString(UUID_V3));
+  }
+
+  @Test
+  public void parseUuid_rejectsInvalidInput() {
+    assertThat(StringHelper.parseUuid(null)).isNull();
+    assertThat(StringHelper.parseUuid("")).isNull();
+    assertThat(StringHelper.parseUuid(UUID_LOWER + "0")).isNull();
+    assertThat(StringHelper.parseUuid("0f8fad5b-d9cb-469f-a165-70867728950g")).isNull();
+  }
+
+  @Test
+  public void isUuid_agreesWithRegex() {
+    Random random = new Random(1L);
+    for (int i = 0; i < 20000; i++) {
+      String uuid = randomUuid(random);
+      String check = (i % 2 == 0 ? uuid : corrupt(random, uuid));
+      boolean expected = PATTERN_UUID.matcher(check).matches();
+      assertThat(StringHelper.isUuid(check)).named(check).isEqualTo(expected);
+      if (expected) {
+        assertThat(StringHelper.parseUuid(check)).named(check)
+            .isEqualTo(UUID.fromString(check));
+      }
+    }
+  }
+
+  /*=============================================================
+   * ACCESS KEY
+   *============================================================*/
+
+  @Test
+  public void getAccessKey_splitsDeviceAndSessionKey() {
+    AccessKey accessKey = StringHelper.getAccessKey(UUID_LOWER + "-" + UUID_UPPER);
+    UUID deviceId = UUID.fromString(UUID_LOWER);
+    UUID sessionKey = UUID.fromString(UUID_UPPER);
+    assertThat(accessKey).isNotNull();
+    assertThat(accessKey.deviceIdMost).isEqualTo(deviceId.getMostSignificantBits());
+    assertThat(accessKey.deviceIdLeast).isEqualTo(deviceId.getLeastSignificantBits());
+    assertThat(accessKey.sessionKeyMost).isEqualTo(sessionKey.getMostSignificantBits());
+    assertThat(accessKey.sessionKeyLeast).isEqualTo(sessionKey.getLeastSignificantBits());
+  }
+
+  @Test
+  public void getAccessKey_rejectsInvalidKeys() {
+    assertThat(StringHelper.getAccessKey(null)).isNull();
+    assertThat(StringHelper.getAccessKey("")).isNull();
+    assertThat(StringHelper.getAccessKey(UUID_LOWER)).isNull();
+    assertThat(StringHelper.getAccessKey(UUID_LOWER + "_" + UUID_UPPER)).isNull();
+    assertThat(StringHelper.getAccessKey(UUID_LOWER + UUID_UPPER)).isNull();
+    assertThat(StringHelper.getAccessKey(UUID_LOWER + "-" + UUID_UPPER + "0")).isNull();
+    assertThat(StringHelper.getAccessKey(UUID_LOWER + "-" + UUID_UPPER.substring(1))).isNull();
+    assertThat(StringHelper.getAccessKey(UUID_LOWER + "-0f8fad5b-d9cb-169f-a165-70867728950e"))
+        .isNull();
+  }
+
+  @Test
+  public void isAccessKey_agreesWithRegex() {
+    Random random = new Random(2L);
+    for (int i = 0; i < 20000; i++) {
+      String accessKey = randomUuid(random) + "-" + randomUuid(random);
+      String check = (i % 2 == 0 ? accessKey : corrupt(random, accessKey));
+      boolean expected = PATTERN_ACCESS_KEY.matcher(check).matches();
+      assertThat(StringHelper.isAccessKey(check)).named(check).isEqualTo(expected);
+      assertThat(StringHelper.getAccessKey(check) != null).named(check).isEqualTo(expected);
+    }
+  }
+}